@@ -0,0 +1,104 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.srcdeps.core.BuildMetadataStore.CheckSha1Consumer;
+import org.srcdeps.core.BuildMetadataStore.StoreSha1Consumer;
+import org.srcdeps.core.GavSet;
+import org.srcdeps.core.GavSetWalker;
+import org.srcdeps.core.benchmarks.fixtures.SyntheticLocalMavenRepository;
+import org.srcdeps.core.fs.PersistentBuildMetadataStore;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * Benchmarks of the up-to-date check srcdeps performs before deciding whether a source dependency needs to be
+ * rebuilt: {@link GavSetWalker} feeding a {@link CheckSha1Consumer} over a {@link SyntheticLocalMavenRepository} in
+ * which no artifact has changed since the last build, i.e. the worst case where all artifacts need to be digested.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CheckSha1ConsumerBenchmark {
+
+    private static final String HASH = "89abcdef0123456789abcdef0123456789abcdef";
+    private static final String VERSION = "1.2.3";
+
+    /** The number of artifacts built from the source dependency */
+    @Param({ "10", "100" })
+    int artifactCount;
+
+    /** The size of each {@code jar} file in the synthetic local Maven repository */
+    @Param({ "1024", "1048576" })
+    int fileSize;
+
+    private GavSet gavSet;
+    private PersistentBuildMetadataStore store;
+    private Path tempDir;
+
+    @Benchmark
+    public boolean checkSha1() throws IOException {
+        final CheckSha1Consumer checker = store.createCheckSha1Checker(HASH);
+        new GavSetWalker(tempDir.resolve("repository"), gavSet, VERSION).walk(checker);
+        return checker.isAnyArtifactChanged();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory(CheckSha1ConsumerBenchmark.class.getSimpleName());
+        final SyntheticLocalMavenRepository repo = SyntheticLocalMavenRepository.builder() //
+                .rootDirectory(tempDir.resolve("repository")) //
+                .groupCount(1) //
+                .artifactsPerGroup(artifactCount) //
+                .versions(VERSION) //
+                .fileSize(fileSize) //
+                .build() //
+                .generate();
+        gavSet = GavSet.builder().include(repo.getGroupId(0)).build();
+        store = new PersistentBuildMetadataStore(tempDir.resolve("build-metadata"));
+        final StoreSha1Consumer storeSha1Consumer = store.createStoreSha1Consumer(HASH);
+        new GavSetWalker(repo.getRootDirectory(), gavSet, VERSION).walk(storeSha1Consumer);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SrcdepsCoreUtils.deleteDirectory(tempDir);
+    }
+
+}
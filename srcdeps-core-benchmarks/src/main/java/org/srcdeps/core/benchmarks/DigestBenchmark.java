@@ -0,0 +1,127 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.BuildRequest.Verbosity;
+import org.srcdeps.core.GavSet;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * Benchmarks of the SHA-1 digests srcdeps computes on every build: {@link SrcdepsCoreUtils#sha1HexString(Path)} of
+ * the installed artifacts and {@link BuildRequest#computeHash(boolean, boolean, List, Map, Set, GavSet, List, boolean,
+ * SrcVersion, String, long, Verbosity)} of the build requests.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DigestBenchmark {
+
+    /**
+     * The artifact to digest, kept in a separate {@link State} so that {@link #artifactSize} does not multiply the
+     * runs of {@link DigestBenchmark#computeHash()}.
+     */
+    @State(Scope.Benchmark)
+    public static class ArtifactState {
+
+        /** The size of the digested artifact; files smaller than 4 kB are read at once, larger ones are streamed */
+        @Param({ "1024", "65536", "4194304" })
+        int artifactSize;
+
+        private Path artifact;
+        private Path tempDir;
+
+        @Setup
+        public void setup() throws IOException {
+            tempDir = Files.createTempDirectory(DigestBenchmark.class.getSimpleName());
+            artifact = tempDir.resolve("artifact-1.2.3.jar");
+            final byte[] bytes = new byte[artifactSize];
+            new Random(artifactSize).nextBytes(bytes);
+            Files.write(artifact, bytes);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            SrcdepsCoreUtils.deleteDirectory(tempDir);
+        }
+
+    }
+
+    private List<String> buildArguments;
+    private Map<String, String> buildEnvironment;
+    private Set<String> forwardProperties;
+    private GavSet gavSet;
+    private List<String> scmUrls;
+    private SrcVersion srcVersion;
+
+    @Benchmark
+    public String computeHash() {
+        return BuildRequest.computeHash(true, true, buildArguments, buildEnvironment, forwardProperties, gavSet,
+                scmUrls, true, srcVersion, "1.2.3", 300000L, Verbosity.warn);
+    }
+
+    @Setup
+    public void setup() {
+        buildArguments = Arrays.asList("-Dmaven.javadoc.skip=true", "-Denforcer.skip=true", "-Pfast");
+        buildEnvironment = new LinkedHashMap<>();
+        buildEnvironment.put("JAVA_HOME", "/opt/jdk8");
+        buildEnvironment.put("MAVEN_OPTS", "-Xmx1g");
+        forwardProperties = new LinkedHashSet<>(Arrays.asList("srcdeps.*", "maven.repo.local"));
+        gavSet = GavSet.builder().include("org.example").include("org.example.*").excludeSnapshots().build();
+        scmUrls = Collections.singletonList("git:https://github.com/example/example.git");
+        srcVersion = SrcVersion.parse("1.2.3-SRC-revision-0123456789abcdef0123456789abcdef01234567");
+    }
+
+    @Benchmark
+    public String sha1HexString(ArtifactState state) throws IOException, NoSuchAlgorithmException {
+        return SrcdepsCoreUtils.sha1HexString(state.artifact);
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.srcdeps.core.ConfigurationQueryService;
+import org.srcdeps.core.ConfigurationQueryService.ScmRepositoryResult;
+import org.srcdeps.core.GavPattern;
+import org.srcdeps.core.GavSet;
+import org.srcdeps.core.config.Configuration;
+import org.srcdeps.core.config.ScmRepository;
+import org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor;
+
+/**
+ * Benchmarks of the {@code groupId:artifactId:version} matching that happens for every artifact the dependent build
+ * resolves: {@link GavPattern#matches(String, String, String)}, {@link GavSet#contains(String, String, String)} and
+ * {@link ConfigurationQueryService#findScmRepo(String, String, String)}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GavBenchmark {
+
+    /** The number of {@link ScmRepository ScmRepositories} in the {@link Configuration} */
+    @Param({ "1", "10", "100" })
+    int repositoryCount;
+
+    private ConfigurationQueryService configurationQueryService;
+    private GavSet gavSet;
+    private GavPattern literalPattern;
+    private String missGroupId;
+    private String lastGroupId;
+    private GavPattern wildcardPattern;
+
+    @Setup
+    public void setup() {
+        literalPattern = GavPattern.of("org.example:artifact:1.2.3");
+        wildcardPattern = GavPattern.of("org.example.*:artifact-*:*");
+
+        final GavSet.Builder gavSetBuilder = GavSet.builder();
+        final Configuration.Builder configBuilder = Configuration.builder();
+        for (int i = 0; i < repositoryCount; i++) {
+            final String include = "org.example.group" + i + ":*";
+            gavSetBuilder.include(include);
+            configBuilder.repository( //
+                    ScmRepository.builder() //
+                            .id("repo" + i) //
+                            .include(include) //
+                            .url("git:file:///repo" + i) //
+            );
+        }
+        gavSet = gavSetBuilder.excludeSnapshots().build();
+        configBuilder.accept(new DefaultsAndInheritanceVisitor());
+        configurationQueryService = new ConfigurationQueryService(configBuilder.build());
+        lastGroupId = "org.example.group" + (repositoryCount - 1);
+        missGroupId = "org.other";
+    }
+
+    @Benchmark
+    public ScmRepositoryResult findScmRepoHitLast() {
+        return configurationQueryService.findScmRepo(lastGroupId, "artifact", "1.2.3");
+    }
+
+    @Benchmark
+    public ScmRepositoryResult findScmRepoMiss() {
+        return configurationQueryService.findScmRepo(missGroupId, "artifact", "1.2.3");
+    }
+
+    @Benchmark
+    public boolean gavPatternLiteralMatches() {
+        return literalPattern.matches("org.example", "artifact", "1.2.3");
+    }
+
+    @Benchmark
+    public boolean gavPatternWildcardMatches() {
+        return wildcardPattern.matches("org.example.group", "artifact-api", "1.2.3");
+    }
+
+    @Benchmark
+    public boolean gavSetContainsHitLast() {
+        return gavSet.contains(lastGroupId, "artifact", "1.2.3");
+    }
+
+    @Benchmark
+    public boolean gavSetContainsMiss() {
+        return gavSet.contains(missGroupId, "artifact", "1.2.3");
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.srcdeps.core.GavSet;
+import org.srcdeps.core.GavSetWalker;
+import org.srcdeps.core.GavtcPath;
+import org.srcdeps.core.benchmarks.fixtures.SyntheticLocalMavenRepository;
+import org.srcdeps.core.util.Consumer;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * Benchmarks of {@link GavSetWalker#walk(Consumer)} over a {@link SyntheticLocalMavenRepository}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class GavSetWalkerBenchmark {
+
+    private static final String VERSION = "1.2.3";
+
+    /** The number of artifacts in each group of the synthetic local Maven repository */
+    @Param({ "10" })
+    int artifactsPerGroup;
+
+    /** The number of groups in the synthetic local Maven repository */
+    @Param({ "10", "100" })
+    int groupCount;
+
+    private GavSet gavSet;
+    private Path localMavenRepo;
+
+    @Setup
+    public void setup() throws IOException {
+        final SyntheticLocalMavenRepository repo = SyntheticLocalMavenRepository.builder() //
+                .rootDirectory(Files.createTempDirectory(GavSetWalkerBenchmark.class.getSimpleName())) //
+                .groupCount(groupCount) //
+                .artifactsPerGroup(artifactsPerGroup) //
+                .versions("1.0.0", VERSION, "2.0.0-SNAPSHOT") //
+                .fileSize(0) //
+                .build() //
+                .generate();
+        localMavenRepo = repo.getRootDirectory();
+        /* every other group */
+        final GavSet.Builder gavSetBuilder = GavSet.builder();
+        for (int g = 0; g < groupCount; g += 2) {
+            gavSetBuilder.include(repo.getGroupId(g));
+        }
+        gavSet = gavSetBuilder.build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SrcdepsCoreUtils.deleteDirectory(localMavenRepo);
+    }
+
+    @Benchmark
+    public void walk(final Blackhole blackhole) throws IOException {
+        new GavSetWalker(localMavenRepo, gavSet, VERSION).walk(new Consumer<GavtcPath>() {
+            @Override
+            public void accept(GavtcPath t) {
+                blackhole.consume(t);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.ScmException;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.benchmarks.fixtures.SyntheticGitRemote;
+import org.srcdeps.core.config.scalar.CharStreamSource;
+import org.srcdeps.core.impl.scm.JGitScm;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * Benchmarks of {@link JGitScm#checkout(BuildRequest)} from a {@link SyntheticGitRemote}: a cold checkout into an
+ * empty directory and a warm checkout into a directory holding a previous checkout of the same branch.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+public class JGitScmBenchmark {
+
+    /** The number of commits in the remote */
+    @Param({ "10", "100" })
+    int commitCount;
+
+    private Path coldDir;
+    private SyntheticGitRemote remote;
+    private final JGitScm scm = new JGitScm();
+    private Path tempDir;
+    private Path warmDir;
+
+    @Benchmark
+    public String checkoutCold() throws ScmException {
+        return scm.checkout(request(coldDir));
+    }
+
+    @Benchmark
+    public String checkoutWarm() throws ScmException {
+        return scm.checkout(request(warmDir));
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareDirectories() throws IOException, ScmException {
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(coldDir);
+        if (!Files.exists(warmDir)) {
+            SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(warmDir);
+            scm.checkout(request(warmDir));
+        }
+    }
+
+    private BuildRequest request(Path dir) {
+        return BuildRequest.builder() //
+                .scmRepositoryId("synthetic") //
+                .dependentProjectRootDirectory(tempDir) //
+                .projectRootDirectory(dir) //
+                .scmUrl(remote.getUrl()) //
+                .srcVersion(SrcVersion.parse("1.0.0-SRC-branch-master")) //
+                .versionsMavenPluginVersion("2.3") //
+                .gradleModelTransformer(CharStreamSource.defaultModelTransformer()) //
+                .build();
+    }
+
+    @Setup
+    public void setup() throws IOException, GitAPIException {
+        tempDir = Files.createTempDirectory(JGitScmBenchmark.class.getSimpleName());
+        remote = SyntheticGitRemote.builder() //
+                .directory(tempDir.resolve("remote.git")) //
+                .commitCount(commitCount) //
+                .filesPerCommit(4) //
+                .fileSize(4096) //
+                .build() //
+                .generate();
+        coldDir = tempDir.resolve("cold");
+        warmDir = tempDir.resolve("warm");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SrcdepsCoreUtils.deleteDirectory(tempDir);
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.srcdeps.core.Gavtc;
+import org.srcdeps.core.fs.PersistentBuildMetadataStore;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * Benchmarks of the {@link PersistentBuildMetadataStore} reads and writes srcdeps performs to decide whether an
+ * artifact needs to be rebuilt.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PersistentBuildMetadataStoreBenchmark {
+
+    private static final String COMMIT_ID = "0123456789abcdef0123456789abcdef01234567";
+    private static final String HASH = "89abcdef0123456789abcdef0123456789abcdef";
+    private static final String SHA1 = "fedcba9876543210fedcba9876543210fedcba98";
+
+    private Gavtc gavtc;
+    private PersistentBuildMetadataStore store;
+    private Path tempDir;
+
+    @Benchmark
+    public String retrieveCommitId() {
+        return store.retrieveCommitId(HASH);
+    }
+
+    @Benchmark
+    public String retrieveSha1() {
+        return store.retrieveSha1(HASH, gavtc);
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory(PersistentBuildMetadataStoreBenchmark.class.getSimpleName());
+        store = new PersistentBuildMetadataStore(tempDir);
+        gavtc = Gavtc.of("org.example:artifact:1.2.3:jar");
+        store.storeCommitId(HASH, COMMIT_ID);
+        store.storeSha1(HASH, gavtc, SHA1);
+    }
+
+    @Benchmark
+    public void storeCommitId() {
+        store.storeCommitId(HASH, COMMIT_ID);
+    }
+
+    @Benchmark
+    public void storeSha1() {
+        store.storeSha1(HASH, gavtc, SHA1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        SrcdepsCoreUtils.deleteDirectory(tempDir);
+    }
+
+}
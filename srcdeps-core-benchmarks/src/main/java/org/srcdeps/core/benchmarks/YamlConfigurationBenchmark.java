@@ -0,0 +1,88 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.srcdeps.config.yaml.YamlConfigurationReader;
+import org.srcdeps.core.config.Configuration;
+import org.srcdeps.core.config.ConfigurationException;
+
+/**
+ * Benchmarks of parsing {@code srcdeps.yaml} files using {@link YamlConfigurationReader}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class YamlConfigurationBenchmark {
+
+    /** The number of repositories in the parsed {@code srcdeps.yaml} file */
+    @Param({ "1", "10", "100" })
+    int repositoryCount;
+
+    private String yaml;
+
+    @Benchmark
+    public Configuration.Builder read() throws ConfigurationException {
+        return new YamlConfigurationReader().read(new StringReader(yaml));
+    }
+
+    @Setup
+    public void setup() {
+        final StringBuilder sb = new StringBuilder() //
+                .append("configModelVersion: ").append(Configuration.getLatestConfigModelVersion()).append('\n') //
+                .append("verbosity: info\n") //
+                .append("forwardProperties:\n") //
+                .append("- myProp1\n") //
+                .append("- myPrefix.*\n") //
+                .append("maven:\n") //
+                .append("  versionsMavenPluginVersion: 2.3\n") //
+                .append("repositories:\n");
+        for (int i = 0; i < repositoryCount; i++) {
+            sb.append("  repo").append(i).append(":\n") //
+                    .append("    includes:\n") //
+                    .append("    - org.example.group").append(i).append(":*\n") //
+                    .append("    excludes:\n") //
+                    .append("    - org.example.group").append(i).append(":*-tests\n") //
+                    .append("    urls:\n") //
+                    .append("    - git:https://github.com/example/repo").append(i).append(".git\n") //
+                    .append("    buildArguments:\n") //
+                    .append("    - -Dmaven.javadoc.skip=true\n") //
+                    .append("    skipTests: true\n");
+        }
+        yaml = sb.toString();
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks.fixtures;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.transport.RefSpec;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * A reproducible synthetic bare git repository to be used as a {@code file://} remote in benchmarks and load tests.
+ * <p>
+ * The {@code master} branch consists of {@link #getCommitCount()} commits, the first of which contains the
+ * {@link Builder#file(String, String) project files}; every commit adds {@link #getFilesPerCommit()} pseudo-random
+ * files of {@link #getFileSize()} bytes. Each of the further {@link #getBranchCount()} {@code - 1} branches forks off
+ * the tip of {@code master} and adds one commit of its own. All commits have fixed authors and timestamps, hence two
+ * remotes generated with the same settings have the same commit ids.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class SyntheticGitRemote {
+
+    public static class Builder {
+        private int branchCount = 1;
+        private int commitCount = 10;
+        private Path directory;
+        private int fileSize = 1024;
+        private final Map<String, String> files = new LinkedHashMap<>();
+        private int filesPerCommit = 1;
+        private long seed = 0L;
+
+        private Builder() {
+        }
+
+        public Builder branchCount(int branchCount) {
+            this.branchCount = branchCount;
+            return this;
+        }
+
+        public SyntheticGitRemote build() {
+            if (directory == null) {
+                throw new IllegalStateException(
+                        String.format("%s.directory must be set", SyntheticGitRemote.class.getName()));
+            }
+            if (commitCount < 1) {
+                throw new IllegalStateException(String.format("%s.commitCount must be greater than 0, found [%d]",
+                        SyntheticGitRemote.class.getName(), commitCount));
+            }
+            return new SyntheticGitRemote(directory, commitCount, branchCount, filesPerCommit, fileSize,
+                    Collections.unmodifiableMap(new LinkedHashMap<>(files)), seed);
+        }
+
+        public Builder commitCount(int commitCount) {
+            this.commitCount = commitCount;
+            return this;
+        }
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Adds a file to the first commit of the {@code master} branch
+         *
+         * @param path    the path relative to the root of the repository
+         * @param content the content of the file
+         * @return this {@link Builder}
+         */
+        public Builder file(String path, String content) {
+            this.files.put(path, content);
+            return this;
+        }
+
+        public Builder fileSize(int fileSize) {
+            this.fileSize = fileSize;
+            return this;
+        }
+
+        public Builder filesPerCommit(int filesPerCommit) {
+            this.filesPerCommit = filesPerCommit;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+    }
+
+    private static final String MASTER = "master";
+
+    /** 2018-01-01T00:00:00Z */
+    private static final long START_TIME_MS = 1514764800000L;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final int branchCount;
+    private final int commitCount;
+    private final Path directory;
+    private final Map<String, String> files;
+    private final int fileSize;
+    private final int filesPerCommit;
+    private final long seed;
+
+    private SyntheticGitRemote(Path directory, int commitCount, int branchCount, int filesPerCommit, int fileSize,
+            Map<String, String> files, long seed) {
+        super();
+        this.directory = directory;
+        this.commitCount = commitCount;
+        this.branchCount = branchCount;
+        this.filesPerCommit = filesPerCommit;
+        this.fileSize = fileSize;
+        this.files = files;
+        this.seed = seed;
+    }
+
+    private String commit(Git git, Path workTree, Random random, int index, String prefix)
+            throws IOException, GitAPIException {
+        final byte[] buffer = new byte[fileSize];
+        for (int i = 0; i < filesPerCommit; i++) {
+            random.nextBytes(buffer);
+            final Path file = workTree.resolve("data").resolve(prefix + "-" + index + "-" + i + ".bin");
+            Files.createDirectories(file.getParent());
+            Files.write(file, buffer);
+        }
+        final Path history = workTree.resolve("history.txt");
+        Files.write(history, (prefix + " " + index + "\n").getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(".").call();
+        final PersonIdent ident = new PersonIdent("srcdeps", "srcdeps@example.com",
+                new Date(START_TIME_MS + index * 1000L), TimeZone.getTimeZone("UTC"));
+        return git.commit().setMessage(prefix + " " + index).setAuthor(ident).setCommitter(ident).call().getId()
+                .getName();
+    }
+
+    /**
+     * Deletes any previous content of {@link #directory} and creates the synthetic bare repository there.
+     *
+     * @return this {@link SyntheticGitRemote}
+     * @throws IOException
+     * @throws GitAPIException
+     */
+    public SyntheticGitRemote generate() throws IOException, GitAPIException {
+        final Path workTree = Files.createTempDirectory(directory.getFileName().toString());
+        try {
+            final Random random = new Random(seed);
+            try (Git git = Git.init().setDirectory(workTree.toFile()).call()) {
+                for (Entry<String, String> file : files.entrySet()) {
+                    final Path path = workTree.resolve(file.getKey());
+                    Files.createDirectories(path.getParent());
+                    Files.write(path, file.getValue().getBytes(StandardCharsets.UTF_8));
+                }
+                for (int i = 0; i < commitCount; i++) {
+                    commit(git, workTree, random, i, MASTER);
+                }
+                for (String branch : getBranches()) {
+                    if (!MASTER.equals(branch)) {
+                        git.checkout().setCreateBranch(true).setName(branch).setStartPoint(MASTER).call();
+                        commit(git, workTree, random, commitCount, branch);
+                        git.checkout().setName(MASTER).call();
+                    }
+                }
+
+                SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(directory);
+                Git.init().setBare(true).setDirectory(directory.toFile()).call().close();
+                git.push().setRemote(directory.toUri().toString())
+                        .setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*")).call();
+            }
+        } finally {
+            SrcdepsCoreUtils.deleteDirectory(workTree);
+        }
+        return this;
+    }
+
+    public int getBranchCount() {
+        return branchCount;
+    }
+
+    /**
+     * @return the names of all branches in this remote, starting with {@code master}
+     */
+    public List<String> getBranches() {
+        final List<String> result = new ArrayList<>(branchCount);
+        result.add(MASTER);
+        for (int i = 1; i < branchCount; i++) {
+            result.add("branch-" + i);
+        }
+        return result;
+    }
+
+    public int getCommitCount() {
+        return commitCount;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getFileSize() {
+        return fileSize;
+    }
+
+    public int getFilesPerCommit() {
+        return filesPerCommit;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the URL of this remote usable in {@link org.srcdeps.core.BuildRequest#getScmUrls()}
+     */
+    public String getUrl() {
+        return "git:" + directory.toUri().toString();
+    }
+
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks.fixtures;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.srcdeps.core.Gavtc;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * A reproducible synthetic local Maven repository of configurable size. Each of {@link #getGroupCount()} groups
+ * contains {@link #getArtifactsPerGroup()} artifacts, each artifact is available in all {@link #getVersions()} and
+ * each version consists of a {@code pom}, a main {@code jar} and a {@code jar} for each of
+ * {@link #getClassifiers()}, together with the {@code .sha1} and {@code _remote.repositories} files Maven typically
+ * stores alongside. The content of the {@code jar} files is pseudo-random, derived from {@link #getSeed()} and the
+ * artifact coordinates so that two repositories generated with the same settings are byte-for-byte identical.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class SyntheticLocalMavenRepository {
+
+    public static class Builder {
+        private int artifactsPerGroup = 10;
+        private List<String> classifiers = Collections.singletonList("sources");
+        private int fileSize = 1024;
+        private int groupCount = 10;
+        private String groupIdPrefix = "org.example.group";
+        private Path rootDirectory;
+        private long seed = 0L;
+        private List<String> versions = Collections.unmodifiableList(Arrays.asList("1.0.0", "1.2.3", "2.0.0-SNAPSHOT"));
+
+        private Builder() {
+        }
+
+        public Builder artifactsPerGroup(int artifactsPerGroup) {
+            this.artifactsPerGroup = artifactsPerGroup;
+            return this;
+        }
+
+        public SyntheticLocalMavenRepository build() {
+            if (rootDirectory == null) {
+                throw new IllegalStateException(
+                        String.format("%s.rootDirectory must be set", SyntheticLocalMavenRepository.class.getName()));
+            }
+            return new SyntheticLocalMavenRepository(rootDirectory, groupIdPrefix, groupCount, artifactsPerGroup,
+                    versions, classifiers, fileSize, seed);
+        }
+
+        public Builder classifiers(String... classifiers) {
+            this.classifiers = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(classifiers)));
+            return this;
+        }
+
+        public Builder fileSize(int fileSize) {
+            this.fileSize = fileSize;
+            return this;
+        }
+
+        public Builder groupCount(int groupCount) {
+            this.groupCount = groupCount;
+            return this;
+        }
+
+        public Builder groupIdPrefix(String groupIdPrefix) {
+            this.groupIdPrefix = groupIdPrefix;
+            return this;
+        }
+
+        public Builder rootDirectory(Path rootDirectory) {
+            this.rootDirectory = rootDirectory;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder versions(String... versions) {
+            this.versions = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(versions)));
+            return this;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static void writeWithSha1(Path file, byte[] content) throws IOException {
+        Files.write(file, content);
+        try {
+            final String sha1 = SrcdepsCoreUtils.sha1HexString(file);
+            Files.write(file.resolveSibling(file.getFileName().toString() + ".sha1"),
+                    sha1.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final int artifactsPerGroup;
+    private final List<String> classifiers;
+    private final int fileSize;
+    private final int groupCount;
+    private final String groupIdPrefix;
+    private final Path rootDirectory;
+    private final long seed;
+    private final List<String> versions;
+
+    private SyntheticLocalMavenRepository(Path rootDirectory, String groupIdPrefix, int groupCount,
+            int artifactsPerGroup, List<String> versions, List<String> classifiers, int fileSize, long seed) {
+        super();
+        this.rootDirectory = rootDirectory;
+        this.groupIdPrefix = groupIdPrefix;
+        this.groupCount = groupCount;
+        this.artifactsPerGroup = artifactsPerGroup;
+        this.versions = versions;
+        this.classifiers = classifiers;
+        this.fileSize = fileSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Deletes any previous content of {@link #rootDirectory} and writes the synthetic repository there.
+     *
+     * @return this {@link SyntheticLocalMavenRepository}
+     * @throws IOException
+     */
+    public SyntheticLocalMavenRepository generate() throws IOException {
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(rootDirectory);
+        final byte[] buffer = new byte[fileSize];
+        for (int g = 0; g < groupCount; g++) {
+            final String groupId = getGroupId(g);
+            final Path groupDir = rootDirectory.resolve(groupId.replace('.', '/'));
+            for (int a = 0; a < artifactsPerGroup; a++) {
+                final String artifactId = getArtifactId(a);
+                for (String version : versions) {
+                    final Path dir = groupDir.resolve(artifactId).resolve(version);
+                    Files.createDirectories(dir);
+                    final String prefix = artifactId + "-" + version;
+                    final String pom = "<project><modelVersion>4.0.0</modelVersion><groupId>" + groupId
+                            + "</groupId><artifactId>" + artifactId + "</artifactId><version>" + version
+                            + "</version></project>\n";
+                    writeWithSha1(dir.resolve(prefix + ".pom"), pom.getBytes(StandardCharsets.UTF_8));
+
+                    fill(buffer, groupId + ":" + artifactId + ":" + version + ":jar");
+                    writeWithSha1(dir.resolve(prefix + ".jar"), buffer);
+                    for (String classifier : classifiers) {
+                        fill(buffer, groupId + ":" + artifactId + ":" + version + ":jar:" + classifier);
+                        writeWithSha1(dir.resolve(prefix + "-" + classifier + ".jar"), buffer);
+                    }
+                    Files.write(dir.resolve("_remote.repositories"),
+                            (prefix + ".jar>central=\n" + prefix + ".pom>central=\n")
+                                    .getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return this;
+    }
+
+    private void fill(byte[] buffer, String gavtc) {
+        new Random(seed * 31 + gavtc.hashCode()).nextBytes(buffer);
+    }
+
+    /**
+     * @return all {@link Gavtc}s of the {@code jar} and {@code pom} files the repository contains in no particular
+     *         order
+     */
+    public List<Gavtc> getArtifacts() {
+        final List<Gavtc> result = new ArrayList<>(
+                groupCount * artifactsPerGroup * versions.size() * (classifiers.size() + 2));
+        for (int g = 0; g < groupCount; g++) {
+            final String groupId = getGroupId(g);
+            for (int a = 0; a < artifactsPerGroup; a++) {
+                final String artifactId = getArtifactId(a);
+                for (String version : versions) {
+                    result.add(new Gavtc(groupId, artifactId, version, "pom"));
+                    result.add(new Gavtc(groupId, artifactId, version, "jar"));
+                    for (String classifier : classifiers) {
+                        result.add(new Gavtc(groupId, artifactId, version, "jar", classifier));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param index the zero based index of the artifact within its group
+     * @return the {@code artifactId} of the artifact at the given {@code index}
+     */
+    public String getArtifactId(int index) {
+        return "artifact" + index;
+    }
+
+    public int getArtifactsPerGroup() {
+        return artifactsPerGroup;
+    }
+
+    public List<String> getClassifiers() {
+        return classifiers;
+    }
+
+    public int getFileSize() {
+        return fileSize;
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * @param index the zero based index of the group
+     * @return the {@code groupId} of the group at the given {@code index}
+     */
+    public String getGroupId(int index) {
+        return groupIdPrefix + index;
+    }
+
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public List<String> getVersions() {
+        return versions;
+    }
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks.load;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Aggregates the {@link LoadSample}s of a {@link LoadTest} run into the figures tracked across releases: checkout
+ * latency percentiles, slot spill rate, lock contention and throughput. The report can be written as JSON via
+ * {@link #write(Path)}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class LoadReport {
+
+    /**
+     * Latency percentiles in milliseconds.
+     */
+    public static class Latency {
+
+        /**
+         * @param nanos the durations in nanoseconds, will be sorted in place
+         * @return a new {@link Latency}
+         */
+        static Latency of(long[] nanos) {
+            Arrays.sort(nanos);
+            final long max = nanos.length == 0 ? 0 : nanos[nanos.length - 1];
+            return new Latency(percentile(nanos, 50), percentile(nanos, 99), max);
+        }
+
+        /**
+         * @param sortedNanos sorted durations
+         * @param percentile  the percentile to compute
+         * @return the value at the given {@code percentile} using the nearest-rank method or {@code 0} if
+         *         {@code sortedNanos} is empty
+         */
+        static long percentile(long[] sortedNanos, int percentile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            final int rank = (int) Math.ceil(percentile / 100.0 * sortedNanos.length);
+            return sortedNanos[Math.max(rank, 1) - 1];
+        }
+
+        private final long maxNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+
+        private Latency(long p50Nanos, long p99Nanos, long maxNanos) {
+            super();
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public double getMaxMs() {
+            return maxNanos / 1000000.0;
+        }
+
+        public double getP50Ms() {
+            return p50Nanos / 1000000.0;
+        }
+
+        public double getP99Ms() {
+            return p99Nanos / 1000000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "p50 %.1f ms, p99 %.1f ms, max %.1f ms", getP50Ms(), getP99Ms(),
+                    getMaxMs());
+        }
+    }
+
+    /**
+     * @param samples    the {@link LoadSample}s to aggregate
+     * @param parameters the parameters of the run to include in the report
+     * @return a new {@link LoadReport}
+     */
+    public static LoadReport of(List<LoadSample> samples, Map<String, Object> parameters) {
+        final int count = samples.size();
+        final long[] lock = new long[count];
+        final long[] checkout = new long[count];
+        final long[] build = new long[count];
+        final long[] total = new long[count];
+        int failures = 0;
+        int spills = 0;
+        long lockedSlots = 0;
+        int maxSlot = -1;
+        long firstStartMs = Long.MAX_VALUE;
+        long lastEndMs = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            final LoadSample sample = samples.get(i);
+            lock[i] = sample.getLockNanos();
+            checkout[i] = sample.getCheckoutNanos();
+            build[i] = sample.getBuildNanos();
+            total[i] = lock[i] + checkout[i] + build[i];
+            if (!sample.isSuccess()) {
+                failures++;
+            }
+            final int slot = sample.getSlot();
+            if (slot > 0) {
+                spills++;
+                lockedSlots += slot;
+            }
+            maxSlot = Math.max(maxSlot, slot);
+            firstStartMs = Math.min(firstStartMs, sample.getStartMs());
+            lastEndMs = Math.max(lastEndMs, sample.getEndMs());
+        }
+        final long wallTimeMs = count == 0 ? 0 : lastEndMs - firstStartMs;
+        return new LoadReport(parameters, count, failures, wallTimeMs, Latency.of(lock), Latency.of(checkout),
+                Latency.of(build), Latency.of(total), spills, lockedSlots, maxSlot);
+    }
+
+    private final Latency buildLatency;
+    private final Latency checkoutLatency;
+    private final int failures;
+    private final long lockedSlots;
+    private final Latency lockLatency;
+    private final int maxSlot;
+    private final Map<String, Object> parameters;
+    private final int requests;
+    private final int spills;
+    private final Latency totalLatency;
+    private final long wallTimeMs;
+
+    private LoadReport(Map<String, Object> parameters, int requests, int failures, long wallTimeMs,
+            Latency lockLatency, Latency checkoutLatency, Latency buildLatency, Latency totalLatency, int spills,
+            long lockedSlots, int maxSlot) {
+        super();
+        this.parameters = parameters;
+        this.requests = requests;
+        this.failures = failures;
+        this.wallTimeMs = wallTimeMs;
+        this.lockLatency = lockLatency;
+        this.checkoutLatency = checkoutLatency;
+        this.buildLatency = buildLatency;
+        this.totalLatency = totalLatency;
+        this.spills = spills;
+        this.lockedSlots = lockedSlots;
+        this.maxSlot = maxSlot;
+    }
+
+    public Latency getBuildLatency() {
+        return buildLatency;
+    }
+
+    public Latency getCheckoutLatency() {
+        return checkoutLatency;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the average number of slots per request that were found locked before a free one was found; a measure
+     *         of lock contention
+     */
+    public double getLockedSlotsPerRequest() {
+        return requests == 0 ? 0 : (double) lockedSlots / requests;
+    }
+
+    /**
+     * @return the latency of locking a checkout slot
+     */
+    public Latency getLockLatency() {
+        return lockLatency;
+    }
+
+    /**
+     * @return the highest slot index used during the run
+     */
+    public int getMaxSlot() {
+        return maxSlot;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the ratio of requests that could not be served from the first slot of their remote
+     */
+    public double getSlotSpillRate() {
+        return requests == 0 ? 0 : (double) spills / requests;
+    }
+
+    /**
+     * @return the number of requests completed per second of wall clock time
+     */
+    public double getThroughput() {
+        return wallTimeMs == 0 ? 0 : requests * 1000.0 / wallTimeMs;
+    }
+
+    public Latency getTotalLatency() {
+        return totalLatency;
+    }
+
+    public long getWallTimeMs() {
+        return wallTimeMs;
+    }
+
+    /**
+     * @return this report as a JSON object
+     */
+    public String toJson() {
+        final StringBuilder sb = new StringBuilder("{\n  \"parameters\": {");
+        String separator = "\n";
+        for (Entry<String, Object> en : parameters.entrySet()) {
+            sb.append(separator).append("    \"").append(en.getKey()).append("\": ");
+            final Object value = en.getValue();
+            if (value instanceof Number || value instanceof Boolean) {
+                sb.append(value);
+            } else {
+                sb.append('"').append(String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            separator = ",\n";
+        }
+        sb.append("\n  },\n") //
+                .append("  \"requests\": ").append(requests).append(",\n") //
+                .append("  \"failures\": ").append(failures).append(",\n") //
+                .append("  \"wallTimeMs\": ").append(wallTimeMs).append(",\n") //
+                .append(String.format(Locale.ROOT, "  \"throughputPerSecond\": %.3f,%n", getThroughput())) //
+                .append(String.format(Locale.ROOT, "  \"slotSpillRate\": %.4f,%n", getSlotSpillRate())) //
+                .append(String.format(Locale.ROOT, "  \"lockedSlotsPerRequest\": %.4f,%n",
+                        getLockedSlotsPerRequest())) //
+                .append("  \"maxSlot\": ").append(maxSlot).append(",\n");
+        final Map<String, Latency> latencies = new LinkedHashMap<>();
+        latencies.put("lockLatencyMs", lockLatency);
+        latencies.put("checkoutLatencyMs", checkoutLatency);
+        latencies.put("buildLatencyMs", buildLatency);
+        latencies.put("totalLatencyMs", totalLatency);
+        separator = "";
+        for (Entry<String, Latency> en : latencies.entrySet()) {
+            final Latency l = en.getValue();
+            sb.append(separator).append(String.format(Locale.ROOT,
+                    "  \"%s\": { \"p50\": %.3f, \"p99\": %.3f, \"max\": %.3f }", en.getKey(), l.getP50Ms(),
+                    l.getP99Ms(), l.getMaxMs()));
+            separator = ",\n";
+        }
+        return sb.append("\n}\n").toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d requests, %d failures in %d ms: %.2f requests/s%n" //
+                        + "  lock:     %s%n" //
+                        + "  checkout: %s%n" //
+                        + "  build:    %s%n" //
+                        + "  total:    %s%n" //
+                        + "  slot spill rate %.2f %%, %.2f locked slots per request, max slot %d",
+                requests, failures, wallTimeMs, getThroughput(), lockLatency, checkoutLatency, buildLatency,
+                totalLatency, getSlotSpillRate() * 100, getLockedSlotsPerRequest(), maxSlot);
+    }
+
+    /**
+     * Writes {@link #toJson()} to the given {@code file}.
+     *
+     * @param file the file to write to
+     * @throws IOException
+     */
+    public void write(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(toJson());
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks.load;
+
+/**
+ * The outcome of a single {@link org.srcdeps.core.BuildRequest} fired by {@link LoadTestWorker}. Samples travel from
+ * the worker JVMs to {@link LoadTest} as tab separated lines, see {@link #toLine()} and {@link #parse(String)}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class LoadSample {
+
+    private static final String NULL = "-";
+    private static final char SEPARATOR = '\t';
+
+    /**
+     * @param line a line produced by {@link #toLine()}
+     * @return a new {@link LoadSample}
+     */
+    public static LoadSample parse(String line) {
+        final String[] cols = line.split(String.valueOf(SEPARATOR), -1);
+        if (cols.length != 9) {
+            throw new IllegalArgumentException(
+                    String.format("Expected 9 tab separated columns in a %s line; found [%s]",
+                            LoadSample.class.getSimpleName(), line));
+        }
+        int i = 0;
+        return new LoadSample(Integer.parseInt(cols[i++]), cols[i++], Integer.parseInt(cols[i++]),
+                Long.parseLong(cols[i++]), Long.parseLong(cols[i++]), Long.parseLong(cols[i++]),
+                Long.parseLong(cols[i++]), Long.parseLong(cols[i++]), NULL.equals(cols[i]) ? null : cols[i]);
+    }
+
+    private final long buildNanos;
+    private final long checkoutNanos;
+    private final long endMs;
+    private final String error;
+    private final long lockNanos;
+    private final int processIndex;
+    private final String remoteId;
+    private final int slot;
+    private final long startMs;
+
+    public LoadSample(int processIndex, String remoteId, int slot, long startMs, long endMs, long lockNanos,
+            long checkoutNanos, long buildNanos, String error) {
+        super();
+        this.processIndex = processIndex;
+        this.remoteId = remoteId;
+        this.slot = slot;
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.lockNanos = lockNanos;
+        this.checkoutNanos = checkoutNanos;
+        this.buildNanos = buildNanos;
+        this.error = error;
+    }
+
+    /**
+     * @return the time spent in {@link org.srcdeps.core.Builder#build(org.srcdeps.core.BuildRequest)} in nanoseconds;
+     *         {@code 0} if the build was not performed
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * @return the time spent in {@link org.srcdeps.core.ScmService#checkout(org.srcdeps.core.BuildRequest)} in
+     *         nanoseconds
+     */
+    public long getCheckoutNanos() {
+        return checkoutNanos;
+    }
+
+    /**
+     * @return the wall clock time when the request finished in milliseconds since the epoch
+     */
+    public long getEndMs() {
+        return endMs;
+    }
+
+    /**
+     * @return the message of the exception that failed the request or {@code null} if the request succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return the time spent in {@link org.srcdeps.core.fs.BuildDirectoriesManager#openBuildDirectory(
+     *         java.nio.file.Path, org.srcdeps.core.SrcVersion)} in nanoseconds, including the waiting for other threads
+     *         and the seeding of a new slot
+     */
+    public long getLockNanos() {
+        return lockNanos;
+    }
+
+    /**
+     * @return the index of the worker JVM that produced this sample
+     */
+    public int getProcessIndex() {
+        return processIndex;
+    }
+
+    public String getRemoteId() {
+        return remoteId;
+    }
+
+    /**
+     * @return the index of the checkout slot the request was served from; because the slots are tried sequentially
+     *         starting at {@code 0}, this is also the number of slots that were found locked; {@code -1} if no slot
+     *         could be locked
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return the wall clock time when the request was fired in milliseconds since the epoch
+     */
+    public long getStartMs() {
+        return startMs;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return this {@link LoadSample} serialized as a single tab separated line
+     */
+    public String toLine() {
+        return new StringBuilder() //
+                .append(processIndex).append(SEPARATOR) //
+                .append(remoteId).append(SEPARATOR) //
+                .append(slot).append(SEPARATOR) //
+                .append(startMs).append(SEPARATOR) //
+                .append(endMs).append(SEPARATOR) //
+                .append(lockNanos).append(SEPARATOR) //
+                .append(checkoutNanos).append(SEPARATOR) //
+                .append(buildNanos).append(SEPARATOR) //
+                .append(error == null ? NULL : error.replaceAll("\\s+", " ")) //
+                .toString();
+    }
+
+    @Override
+    public String toString() {
+        return toLine();
+    }
+
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks.load;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.srcdeps.core.benchmarks.fixtures.SyntheticGitRemote;
+import org.srcdeps.core.benchmarks.load.LoadTestWorker.Remote;
+import org.srcdeps.core.shell.Shell;
+import org.srcdeps.core.shell.ShellCommand;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * An end-to-end concurrent load test: generates a pool of {@link SyntheticGitRemote}s holding trivial Maven and
+ * Gradle projects and fires {@link org.srcdeps.core.BuildRequest}s at them from {@link #threads} threads in each of
+ * {@link #processes} {@link LoadTestWorker}s. With a single process, the worker runs in the current JVM; with more
+ * processes, each worker runs in a JVM of its own. The resulting {@link LoadReport} is printed and written as JSON to
+ * {@link #reportFile}.
+ * <p>
+ * Run with
+ *
+ * <pre>
+ * java -cp srcdeps-core-benchmarks/target/benchmarks.jar \
+ *     -Dsrcdeps.load.processes=2 -Dsrcdeps.load.threads=8 \
+ *     org.srcdeps.core.benchmarks.load.LoadTest
+ * </pre>
+ *
+ * The available system properties are those returned by {@link #getParameters()}, prefixed with
+ * {@value #PROPERTY_PREFIX}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class LoadTest {
+
+    public static class Builder {
+        private int branches = 2;
+        private boolean build = false;
+        private int commits = 20;
+        private int processes = 1;
+        private Path reportFile;
+        private int remotes = 4;
+        private int requests = 10;
+        private int threads = 8;
+        private long timeoutMs = 30 * 60 * 1000L;
+        private Path workDirectory;
+
+        private Builder() {
+        }
+
+        public Builder branches(int branches) {
+            this.branches = branches;
+            return this;
+        }
+
+        public LoadTest build() throws IOException {
+            final Path workDir = workDirectory == null ? Files.createTempDirectory(LoadTest.class.getSimpleName())
+                    : workDirectory;
+            final Path report = reportFile == null ? workDir.resolve("load-report.json") : reportFile;
+            return new LoadTest(workDir, report, remotes, branches, commits, processes, threads, requests, build,
+                    timeoutMs);
+        }
+
+        /**
+         * @param build if {@code true} the checked out projects are also built; this requires {@code mvn} and
+         *              {@code gradle} to be available on {@code PATH}
+         * @return this {@link Builder}
+         */
+        public Builder build(boolean build) {
+            this.build = build;
+            return this;
+        }
+
+        public Builder commits(int commits) {
+            this.commits = commits;
+            return this;
+        }
+
+        /**
+         * Sets the builder fields from the {@value LoadTest#PROPERTY_PREFIX}{@code *} system properties
+         *
+         * @return this {@link Builder}
+         */
+        public Builder fromSystemProperties() {
+            branches = Integer.getInteger(PROPERTY_PREFIX + "branches", branches);
+            build = Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "build", String.valueOf(build)));
+            commits = Integer.getInteger(PROPERTY_PREFIX + "commits", commits);
+            processes = Integer.getInteger(PROPERTY_PREFIX + "processes", processes);
+            remotes = Integer.getInteger(PROPERTY_PREFIX + "remotes", remotes);
+            requests = Integer.getInteger(PROPERTY_PREFIX + "requests", requests);
+            threads = Integer.getInteger(PROPERTY_PREFIX + "threads", threads);
+            timeoutMs = Long.getLong(PROPERTY_PREFIX + "timeoutMs", timeoutMs);
+            final String report = System.getProperty(PROPERTY_PREFIX + "reportFile");
+            if (report != null) {
+                reportFile = Paths.get(report);
+            }
+            final String workDir = System.getProperty(PROPERTY_PREFIX + "workDirectory");
+            if (workDir != null) {
+                workDirectory = Paths.get(workDir);
+            }
+            return this;
+        }
+
+        public Builder processes(int processes) {
+            this.processes = processes;
+            return this;
+        }
+
+        public Builder remotes(int remotes) {
+            this.remotes = remotes;
+            return this;
+        }
+
+        public Builder reportFile(Path reportFile) {
+            this.reportFile = reportFile;
+            return this;
+        }
+
+        public Builder requests(int requests) {
+            this.requests = requests;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder timeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+            return this;
+        }
+
+        public Builder workDirectory(Path workDirectory) {
+            this.workDirectory = workDirectory;
+            return this;
+        }
+    }
+
+    /** The prefix of the system properties read by {@link Builder#fromSystemProperties()} */
+    public static final String PROPERTY_PREFIX = "srcdeps.load.";
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTest loadTest = builder().fromSystemProperties().build();
+        final LoadReport report = loadTest.run();
+        System.out.println(report);
+        System.out.println("Report written to " + loadTest.reportFile);
+    }
+
+    private final int branches;
+    private final boolean build;
+    private final int commits;
+    private final int processes;
+    private final int remotes;
+    private final Path reportFile;
+    private final int requests;
+    private final int threads;
+    private final long timeoutMs;
+    private final Path workDirectory;
+
+    private LoadTest(Path workDirectory, Path reportFile, int remotes, int branches, int commits, int processes,
+            int threads, int requests, boolean build, long timeoutMs) {
+        super();
+        this.workDirectory = workDirectory;
+        this.reportFile = reportFile;
+        this.remotes = remotes;
+        this.branches = branches;
+        this.commits = commits;
+        this.processes = processes;
+        this.threads = threads;
+        this.requests = requests;
+        this.build = build;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Generates {@link #remotes} git remotes under {@link #workDirectory}; the ones with even index hold a trivial
+     * Maven project, the ones with odd index hold a trivial Gradle project.
+     *
+     * @return the generated {@link Remote}s
+     * @throws Exception
+     */
+    List<Remote> generateRemotes() throws Exception {
+        final List<Remote> result = new ArrayList<>(remotes);
+        for (int i = 0; i < remotes; i++) {
+            final String id = "remote-" + i;
+            final SyntheticGitRemote.Builder remote = SyntheticGitRemote.builder() //
+                    .directory(workDirectory.resolve("remotes").resolve(id + ".git")) //
+                    .commitCount(commits) //
+                    .branchCount(branches) //
+                    .seed(i);
+            if (i % 2 == 0) {
+                remote.file("pom.xml",
+                        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" //
+                                + "  <modelVersion>4.0.0</modelVersion>\n" //
+                                + "  <groupId>org.srcdeps.load</groupId>\n" //
+                                + "  <artifactId>" + id + "</artifactId>\n" //
+                                + "  <version>1.0.0</version>\n" //
+                                + "  <packaging>pom</packaging>\n" //
+                                + "</project>\n");
+            } else {
+                remote.file("settings.gradle", "rootProject.name = '" + id + "'\n") //
+                        .file("build.gradle", "apply plugin: 'base'\n" //
+                                + "group = 'org.srcdeps.load'\n" //
+                                + "version = '1.0.0'\n");
+            }
+            final SyntheticGitRemote generated = remote.build().generate();
+            result.add(new Remote(id, generated.getBranches(), generated.getUrl()));
+        }
+        return result;
+    }
+
+    /**
+     * @return the parameters of this {@link LoadTest} keyed by their names
+     */
+    public Map<String, Object> getParameters() {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("remotes", remotes);
+        result.put("branches", branches);
+        result.put("commits", commits);
+        result.put("processes", processes);
+        result.put("threads", threads);
+        result.put("requests", requests);
+        result.put("build", build);
+        result.put("timeoutMs", timeoutMs);
+        result.put("workDirectory", workDirectory);
+        result.put("reportFile", reportFile);
+        return result;
+    }
+
+    /**
+     * Generates the remotes, runs the workers and writes the report.
+     *
+     * @return the {@link LoadReport}
+     * @throws Exception
+     */
+    public LoadReport run() throws Exception {
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(workDirectory.resolve("slots"));
+        final List<Remote> remoteList = generateRemotes();
+        final List<LoadSample> samples;
+        if (processes <= 1) {
+            samples = new LoadTestWorker(workDirectory, remoteList, 0, threads, requests, build).run();
+        } else {
+            samples = runProcesses(remoteList);
+        }
+        final LoadReport report = LoadReport.of(samples, getParameters());
+        report.write(reportFile);
+        return report;
+    }
+
+    private List<LoadSample> runProcesses(List<Remote> remoteList) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(processes);
+        try {
+            final List<Future<Path>> futures = new ArrayList<>(processes);
+            for (int p = 0; p < processes; p++) {
+                final Path samplesFile = workDirectory.resolve("samples-" + p + ".tsv");
+                final List<String> args = new ArrayList<>();
+                args.add("-cp");
+                args.add(System.getProperty("java.class.path"));
+                args.add(LoadTestWorker.class.getName());
+                args.add(workDirectory.toString());
+                args.add(samplesFile.toString());
+                args.add(String.valueOf(p));
+                args.add(String.valueOf(threads));
+                args.add(String.valueOf(requests));
+                args.add(String.valueOf(build));
+                for (Remote remote : remoteList) {
+                    args.add(remote.toString());
+                }
+                final ShellCommand command = ShellCommand.builder() //
+                        .executable(SrcdepsCoreUtils.getCurrentJavaExecutable()) //
+                        .arguments(args) //
+                        .workingDirectory(workDirectory) //
+                        .timeoutMs(timeoutMs) //
+                        .build();
+                futures.add(executor.submit(new Callable<Path>() {
+                    @Override
+                    public Path call() throws Exception {
+                        Shell.execute(command).assertSuccess();
+                        return samplesFile;
+                    }
+                }));
+            }
+            final List<LoadSample> result = new ArrayList<>(processes * threads * requests);
+            for (Future<Path> future : futures) {
+                for (String line : Files.readAllLines(future.get(), StandardCharsets.UTF_8)) {
+                    if (!line.isEmpty()) {
+                        result.add(LoadSample.parse(line));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
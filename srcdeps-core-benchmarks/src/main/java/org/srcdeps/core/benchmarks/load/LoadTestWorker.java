@@ -0,0 +1,300 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.benchmarks.load;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.BuildService;
+import org.srcdeps.core.Builder;
+import org.srcdeps.core.Scm;
+import org.srcdeps.core.ScmService;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.config.scalar.CharStreamSource;
+import org.srcdeps.core.fs.BuildDirectoriesManager;
+import org.srcdeps.core.fs.PathLock;
+import org.srcdeps.core.fs.PathLocker;
+import org.srcdeps.core.impl.DefaultBuildService;
+import org.srcdeps.core.impl.builder.GradleBuilder;
+import org.srcdeps.core.impl.builder.GradlewBuilder;
+import org.srcdeps.core.impl.builder.MvnBuilder;
+import org.srcdeps.core.impl.builder.MvndBuilder;
+import org.srcdeps.core.impl.builder.MvnwBuilder;
+import org.srcdeps.core.impl.scm.DefaultScmService;
+import org.srcdeps.core.impl.scm.JGitScm;
+
+/**
+ * Fires {@link #requestsPerThread} {@link BuildRequest}s from each of {@link #threadCount} threads against a set of
+ * git remotes, going through the same steps as a srcdeps enabled build would: lock a checkout slot via
+ * {@link BuildDirectoriesManager}, check out via {@link ScmService} and optionally build via {@link BuildService}.
+ * All threads of a worker share a single {@link PathLocker}, the way they would in a single Maven or Gradle process;
+ * {@link LoadTest} starts several workers in separate JVMs sharing the same {@link #rootDirectory} to exercise the
+ * filesystem level locking too.
+ * <p>
+ * When started via {@link #main(String[])}, the worker writes its {@link LoadSample}s to a file, one per line.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class LoadTestWorker {
+
+    /**
+     * A git remote to fire {@link BuildRequest}s against.
+     */
+    public static class Remote {
+
+        /**
+         * @param remoteString a {@link String} produced by {@link #toString()}
+         * @return a new {@link Remote}
+         */
+        public static Remote parse(String remoteString) {
+            final String[] parts = remoteString.split("=", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException(
+                        String.format("Expected id=branch1,branch2=url; found [%s]", remoteString));
+            }
+            return new Remote(parts[0], Arrays.asList(parts[1].split(",")), parts[2]);
+        }
+
+        private final List<String> branches;
+        private final String id;
+        private final String url;
+
+        public Remote(String id, List<String> branches, String url) {
+            super();
+            this.id = id;
+            this.branches = Collections.unmodifiableList(new ArrayList<>(branches));
+            this.url = url;
+        }
+
+        public List<String> getBranches() {
+            return branches;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder(id).append('=');
+            for (String branch : branches) {
+                if (sb.charAt(sb.length() - 1) != '=') {
+                    sb.append(',');
+                }
+                sb.append(branch);
+            }
+            return sb.append('=').append(url).toString();
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestWorker.class);
+
+    /**
+     * Runs a {@link LoadTestWorker} and writes the resulting {@link LoadSample}s to a file.
+     *
+     * @param args {@code <rootDirectory> <samplesFile> <processIndex> <threadCount> <requestsPerThread> <build>
+     *             <remote>...} where each {@code <remote>} is in the format of {@link Remote#toString()}
+     */
+    public static void main(String[] args) {
+        try {
+            int i = 0;
+            final Path rootDirectory = Paths.get(args[i++]);
+            final Path samplesFile = Paths.get(args[i++]);
+            final int processIndex = Integer.parseInt(args[i++]);
+            final int threadCount = Integer.parseInt(args[i++]);
+            final int requestsPerThread = Integer.parseInt(args[i++]);
+            final boolean build = Boolean.parseBoolean(args[i++]);
+            final List<Remote> remotes = new ArrayList<>();
+            while (i < args.length) {
+                remotes.add(Remote.parse(args[i++]));
+            }
+            final List<LoadSample> samples = new LoadTestWorker(rootDirectory, remotes, processIndex, threadCount,
+                    requestsPerThread, build).run();
+            writeSamples(samples, samplesFile);
+        } catch (Throwable e) {
+            log.error(String.format("srcdeps: Load test worker %s failed", Arrays.toString(args)), e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param samples     the {@link LoadSample}s to write
+     * @param samplesFile the file to write to
+     * @throws IOException
+     */
+    public static void writeSamples(List<LoadSample> samples, Path samplesFile) throws IOException {
+        try (Writer out = Files.newBufferedWriter(samplesFile, StandardCharsets.UTF_8)) {
+            for (LoadSample sample : samples) {
+                out.write(sample.toLine());
+                out.write('\n');
+            }
+        }
+    }
+
+    private final boolean build;
+    private final BuildDirectoriesManager buildDirectoriesManager;
+    private final BuildService buildService;
+    private final int processIndex;
+    private final List<Remote> remotes;
+    private final int requestsPerThread;
+    private final Path rootDirectory;
+    private final ScmService scmService;
+    private final int threadCount;
+
+    /**
+     * @param rootDirectory     the directory under which the checkout slots are created; shared by all workers
+     * @param remotes           the git remotes to fire {@link BuildRequest}s against
+     * @param processIndex      the index of this worker
+     * @param threadCount       the number of concurrent threads
+     * @param requestsPerThread the number of {@link BuildRequest}s each thread fires in a sequence
+     * @param build             if {@code true} the checked out projects are also built, otherwise the requests end
+     *                          with the checkout
+     */
+    public LoadTestWorker(Path rootDirectory, List<Remote> remotes, int processIndex, int threadCount,
+            int requestsPerThread, boolean build) {
+        super();
+        this.rootDirectory = rootDirectory;
+        this.remotes = remotes;
+        this.processIndex = processIndex;
+        this.threadCount = threadCount;
+        this.requestsPerThread = requestsPerThread;
+        this.build = build;
+        this.buildDirectoriesManager = new BuildDirectoriesManager(rootDirectory.resolve("slots"),
+                new PathLocker<SrcVersion>());
+        this.scmService = new DefaultScmService(Collections.<Scm>singleton(new JGitScm()));
+        final Set<Builder> builders = new LinkedHashSet<>();
+        builders.add(new MvndBuilder());
+        builders.add(new MvnwBuilder());
+        builders.add(new MvnBuilder());
+        builders.add(new GradlewBuilder());
+        builders.add(new GradleBuilder());
+        this.buildService = new DefaultBuildService(builders);
+    }
+
+    /**
+     * Fires a single {@link BuildRequest}.
+     *
+     * @param remote the {@link Remote} to fire against
+     * @param branch the branch of {@code remote} to check out
+     * @return the {@link LoadSample} describing the outcome
+     */
+    LoadSample fire(Remote remote, String branch) {
+        final SrcVersion srcVersion = SrcVersion.parse("1.0.0-SRC-branch-" + branch);
+        final long startMs = System.currentTimeMillis();
+        final long start = System.nanoTime();
+        long lockNanos = 0;
+        long checkoutNanos = 0;
+        long buildNanos = 0;
+        int slot = -1;
+        String error = null;
+        try (PathLock lock = buildDirectoriesManager.openBuildDirectory(Paths.get(remote.getId()), srcVersion)) {
+            final long locked = System.nanoTime();
+            lockNanos = locked - start;
+            slot = Integer.parseInt(lock.getPath().getFileName().toString());
+
+            final BuildRequest request = BuildRequest.builder() //
+                    .scmRepositoryId(remote.getId()) //
+                    .dependentProjectRootDirectory(rootDirectory) //
+                    .projectRootDirectory(lock.getPath()) //
+                    .scmUrl(remote.getUrl()) //
+                    .srcVersion(srcVersion) //
+                    .versionsMavenPluginVersion("2.3") //
+                    .gradleModelTransformer(CharStreamSource.defaultModelTransformer()) //
+                    .skipTests(true) //
+                    .build();
+            scmService.checkout(request);
+            final long checkedOut = System.nanoTime();
+            checkoutNanos = checkedOut - locked;
+
+            if (build) {
+                buildService.build(request);
+                buildNanos = System.nanoTime() - checkedOut;
+            }
+        } catch (Exception e) {
+            error = e.getMessage() == null ? e.toString() : e.getMessage();
+        }
+        return new LoadSample(processIndex, remote.getId(), slot, startMs, System.currentTimeMillis(), lockNanos,
+                checkoutNanos, buildNanos, error);
+    }
+
+    /**
+     * Starts {@link #threadCount} threads at once and waits till all of them have fired their
+     * {@link #requestsPerThread} requests. Thread {@code t} fires its {@code r}th request against the remote and
+     * branch at index {@code processIndex + t + r} (modulo their counts) so that the load is spread evenly, while
+     * different threads and processes still compete for the same remotes.
+     *
+     * @return the {@link LoadSample}s of all requests
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public List<LoadSample> run() throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final CountDownLatch startGate = new CountDownLatch(1);
+            final List<Future<List<LoadSample>>> futures = new ArrayList<>(threadCount);
+            for (int t = 0; t < threadCount; t++) {
+                final int offset = processIndex + t;
+                futures.add(executor.submit(new Callable<List<LoadSample>>() {
+                    @Override
+                    public List<LoadSample> call() throws Exception {
+                        startGate.await();
+                        final List<LoadSample> result = new ArrayList<>(requestsPerThread);
+                        for (int r = 0; r < requestsPerThread; r++) {
+                            final Remote remote = remotes.get((offset + r) % remotes.size());
+                            final List<String> branches = remote.getBranches();
+                            result.add(fire(remote, branches.get((offset + r) % branches.size())));
+                        }
+                        return result;
+                    }
+                }));
+            }
+            startGate.countDown();
+            final List<LoadSample> result = new ArrayList<>(threadCount * requestsPerThread);
+            for (Future<List<LoadSample>> future : futures) {
+                result.addAll(future.get());
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
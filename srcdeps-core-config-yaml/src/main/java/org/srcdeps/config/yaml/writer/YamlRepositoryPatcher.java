@@ -0,0 +1,348 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.config.yaml.writer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.srcdeps.core.config.Configuration;
+import org.srcdeps.core.config.tree.ContainerNode;
+import org.srcdeps.core.config.tree.ListNode;
+import org.srcdeps.core.config.tree.Node;
+import org.srcdeps.core.config.tree.ScalarNode;
+import org.srcdeps.core.config.tree.Visitor;
+
+/**
+ * Updates a single repository in an existing {@code srcdeps.yaml} file. The file is copied line by line from a
+ * {@link Reader} to a {@link Writer} and only the block of the given repository is replaced by its serialization done
+ * by {@link YamlWriterVisitor}; if there is no such block, a new one is appended at the end of the
+ * {@code repositories} section. All other lines, including comments and formatting are kept intact, so that the diff
+ * between the old and the new file is as small as possible.
+ * <p>
+ * The comments preceding the old repository block are kept unless the new repository has some
+ * {@link org.srcdeps.core.config.ScmRepository.Builder#commentBefore(String)} set. Only the block style of YAML
+ * mappings as written by {@link YamlWriterVisitor} is supported on the top level and on the level of
+ * {@code repositories}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class YamlRepositoryPatcher {
+
+    /**
+     * Passes the {@link YamlWriterVisitor} callbacks only for the root, {@code repositories} and the subtree of the
+     * repository being written and mutes the output for all nodes but that subtree.
+     */
+    private static class RepositoryFilter implements Visitor {
+        private final YamlWriterVisitor delegate;
+        private int depth = 0;
+        private final String repositoryId;
+        private boolean skipped = false;
+        private final SwitchableWriter target;
+
+        private RepositoryFilter(YamlWriterVisitor delegate, SwitchableWriter target, String repositoryId) {
+            super();
+            this.delegate = delegate;
+            this.target = target;
+            this.repositoryId = repositoryId;
+        }
+
+        @Override
+        public boolean containerBegin(ContainerNode<? extends Node> node) {
+            if (depth == 0 || (depth == 1 && REPOSITORIES.equals(node.getName())) || depth > 2) {
+                depth++;
+                return delegate.containerBegin(node);
+            } else if (depth == 2 && repositoryId.equals(node.getName())) {
+                setEnabled(true);
+                depth++;
+                return delegate.containerBegin(node);
+            } else {
+                skipped = true;
+                return false;
+            }
+        }
+
+        @Override
+        public void containerEnd() {
+            if (skipped) {
+                skipped = false;
+            } else {
+                depth--;
+                delegate.containerEnd();
+                if (depth == 2) {
+                    setEnabled(false);
+                }
+            }
+        }
+
+        @Override
+        public boolean listBegin(ListNode<? extends Node> node) {
+            if (depth > 2) {
+                depth++;
+                return delegate.listBegin(node);
+            } else {
+                skipped = true;
+                return false;
+            }
+        }
+
+        @Override
+        public void listEnd() {
+            if (skipped) {
+                skipped = false;
+            } else {
+                depth--;
+                delegate.listEnd();
+            }
+        }
+
+        @Override
+        public void scalar(ScalarNode<Object> node) {
+            if (depth > 2) {
+                delegate.scalar(node);
+            }
+        }
+
+        private void setEnabled(boolean enabled) {
+            try {
+                delegate.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            target.enabled = enabled;
+        }
+    }
+
+    private enum State {
+        afterRepositories, beforeRepositories, inRepositories, inRepository
+    }
+
+    /**
+     * A {@link Writer} that passes the output to {@link #out} only if {@link #enabled}.
+     */
+    private static class SwitchableWriter extends Writer {
+        private boolean enabled = false;
+        private final Writer out;
+
+        private SwitchableWriter(Writer out) {
+            super();
+            this.out = out;
+        }
+
+        /** Does not close {@link #out} */
+        @Override
+        public void close() throws IOException {
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (enabled) {
+                out.write(cbuf, off, len);
+            }
+        }
+    }
+
+    private static final String REPOSITORIES = "repositories";
+
+    /**
+     * @param line the line to check
+     * @return the number of leading spaces in the given {@code line}
+     */
+    static int indentOf(String line) {
+        int i = 0;
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param line the line to check
+     * @return {@code true} if the given {@code line} contains nothing but whitespace or a comment
+     */
+    static boolean isBlankOrComment(String line) {
+        final String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.charAt(0) == '#';
+    }
+
+    /**
+     * @param line the line to parse
+     * @return the key of the mapping entry on the given {@code line} with any quotes removed or {@code null} if the
+     *         {@code line} is not a mapping entry
+     */
+    static String keyOf(String line) {
+        final String trimmed = line.trim();
+        if (trimmed.startsWith("- ") || trimmed.equals("-")) {
+            return null;
+        }
+        final int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            return null;
+        }
+        final String key = trimmed.substring(0, colon).trim();
+        if (key.length() >= 2 && (key.charAt(0) == '\'' || key.charAt(0) == '"')
+                && key.charAt(key.length() - 1) == key.charAt(0)) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+
+    private final YamlWriterConfiguration configuration;
+
+    public YamlRepositoryPatcher(YamlWriterConfiguration configuration) {
+        super();
+        this.configuration = configuration;
+    }
+
+    private void flushPending(List<String> pending, Writer out) throws IOException {
+        for (String line : pending) {
+            writeLine(line, out);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Copies the {@code srcdeps.yaml} content from {@code in} to {@code out} replacing the block of the repository
+     * with the given {@code repositoryId} with its current state in the given {@code config}. Neither {@code in} nor
+     * {@code out} get closed by this method.
+     *
+     * @param in           the existing {@code srcdeps.yaml} content
+     * @param out          where to write the patched content
+     * @param config       the configuration containing the repository to write; the
+     *                     {@link org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor} should have been
+     *                     applied to it already
+     * @param repositoryId the id of the repository to write
+     * @throws IOException on I/O problems
+     */
+    public void patch(Reader in, Writer out, Configuration.Builder config, String repositoryId) throws IOException {
+        final Node repositories = config.getChildren().get(REPOSITORIES);
+        if (!(repositories instanceof ContainerNode)
+                || !((ContainerNode<?>) repositories).getChildren().containsKey(repositoryId)) {
+            throw new IllegalArgumentException(
+                    String.format("No such repository [%s] in the given configuration", repositoryId));
+        }
+        final boolean hasNewComments = !((ContainerNode<?>) repositories).getChildren().get(repositoryId)
+                .getCommentBefore().isEmpty();
+
+        final BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        /* the blank and comment lines that may belong to the next block */
+        final List<String> pending = new ArrayList<>();
+        State state = State.beforeRepositories;
+        int childIndent = -1;
+        boolean written = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (isBlankOrComment(line)) {
+                if (state == State.inRepositories || state == State.inRepository) {
+                    pending.add(line);
+                } else {
+                    writeLine(line, out);
+                }
+                continue;
+            }
+            final int indent = indentOf(line);
+            if (state == State.inRepository) {
+                if (indent > childIndent) {
+                    /* a line of the old block; the comments seen so far were inside of the old block too */
+                    pending.clear();
+                    continue;
+                }
+                writeRepository(out, config, repositoryId, childIndent);
+                written = true;
+                state = State.inRepositories;
+            }
+            switch (state) {
+            case beforeRepositories:
+                writeLine(line, out);
+                if (indent == 0 && REPOSITORIES.equals(keyOf(line))) {
+                    final String value = line.substring(line.indexOf(':') + 1).trim();
+                    if (!value.isEmpty() && value.charAt(0) != '#') {
+                        throw new IllegalStateException(
+                                String.format("Cannot patch a flow style [%s] node [%s]", REPOSITORIES, line));
+                    }
+                    state = State.inRepositories;
+                }
+                break;
+            case inRepositories:
+                if (indent == 0) {
+                    if (!written) {
+                        writeRepository(out, config, repositoryId, childIndent);
+                        written = true;
+                    }
+                    flushPending(pending, out);
+                    writeLine(line, out);
+                    state = State.afterRepositories;
+                } else {
+                    if (childIndent < 0) {
+                        childIndent = indent;
+                    }
+                    if (indent == childIndent && repositoryId.equals(keyOf(line))) {
+                        if (hasNewComments) {
+                            pending.clear();
+                        }
+                        flushPending(pending, out);
+                        state = State.inRepository;
+                    } else {
+                        flushPending(pending, out);
+                        writeLine(line, out);
+                    }
+                }
+                break;
+            case afterRepositories:
+                writeLine(line, out);
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unexpected %s [%s]", State.class.getName(), state));
+            }
+        }
+
+        if (state == State.beforeRepositories) {
+            writeLine(REPOSITORIES + ":", out);
+        }
+        if (!written) {
+            writeRepository(out, config, repositoryId, childIndent);
+        }
+        flushPending(pending, out);
+        out.flush();
+    }
+
+    private void writeLine(String line, Writer out) throws IOException {
+        out.write(line);
+        out.write(configuration.getNewLine());
+    }
+
+    private void writeRepository(Writer out, Configuration.Builder config, String repositoryId, int childIndent)
+            throws IOException {
+        final YamlWriterConfiguration useConfiguration = childIndent > 0
+                ? configuration.withIndentLength(childIndent)
+                : configuration;
+        final SwitchableWriter target = new SwitchableWriter(out);
+        final YamlWriterVisitor writerVisitor = new YamlWriterVisitor(target, useConfiguration);
+        config.accept(new RepositoryFilter(writerVisitor, target, repositoryId));
+        writerVisitor.flush();
+    }
+
+}
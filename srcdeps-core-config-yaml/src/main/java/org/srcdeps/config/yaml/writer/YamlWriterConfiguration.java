@@ -24,12 +24,24 @@ package org.srcdeps.config.yaml.writer;
 public class YamlWriterConfiguration {
 
     public static class Builder {
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
         private char indentChar = DEFAULT_INDENT_CHAR;
         private int indentLength = DEFAULT_INDENT_LENGTH;
         private String newLine = DEFAULT_NEWLINE;
 
+        /**
+         * @param bufferSize the maximal number of characters to buffer before writing them to the underlying
+         *                   {@link java.io.Writer}
+         * @return this {@link Builder}
+         * @since 4.0.4
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
         public YamlWriterConfiguration build() {
-            return new YamlWriterConfiguration(indentLength, indentChar, newLine);
+            return new YamlWriterConfiguration(indentLength, indentChar, newLine, bufferSize);
         }
 
         public Builder indentChar(char indentChar) {
@@ -48,6 +60,8 @@ public class YamlWriterConfiguration {
         }
     }
 
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
     private static final char DEFAULT_INDENT_CHAR = ' ';
 
     private static final int DEFAULT_INDENT_LENGTH = 2;
@@ -58,6 +72,14 @@ public class YamlWriterConfiguration {
         return new Builder();
     }
 
+    /**
+     * @return the default {@link #getBufferSize()}
+     * @since 4.0.4
+     */
+    public static int getDefaultBufferSize() {
+        return DEFAULT_BUFFER_SIZE;
+    }
+
     public static char getDefaultIndentChar() {
         return DEFAULT_INDENT_CHAR;
     }
@@ -70,19 +92,31 @@ public class YamlWriterConfiguration {
         return DEFAULT_NEWLINE;
     }
 
+    private final int bufferSize;
+
     private final char indentChar;
 
     private final int indentLength;
 
     private final String newLine;
 
-    private YamlWriterConfiguration(int indentLength, char indentChar, String newLine) {
+    private YamlWriterConfiguration(int indentLength, char indentChar, String newLine, int bufferSize) {
         super();
+        this.bufferSize = bufferSize;
         this.indentLength = indentLength;
         this.indentChar = indentChar;
         this.newLine = newLine;
     }
 
+    /**
+     * @return the maximal number of characters to buffer before writing them to the underlying {@link java.io.Writer},
+     *         default is {@value #DEFAULT_BUFFER_SIZE}
+     * @since 4.0.4
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
     /**
      * @return the character to use for indentation, default is space
      */
@@ -103,4 +137,13 @@ public class YamlWriterConfiguration {
     public String getNewLine() {
         return newLine;
     }
+
+    /**
+     * @param indentLength the number of indentation characters to use for one level of indentation
+     * @return a copy of this {@link YamlWriterConfiguration} with the given {@code indentLength}
+     * @since 4.0.4
+     */
+    public YamlWriterConfiguration withIndentLength(int indentLength) {
+        return new YamlWriterConfiguration(indentLength, indentChar, newLine, bufferSize);
+    }
 }
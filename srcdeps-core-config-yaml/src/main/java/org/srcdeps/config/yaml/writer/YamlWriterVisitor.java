@@ -16,7 +16,9 @@
  */
 package org.srcdeps.config.yaml.writer;
 
+import java.io.BufferedWriter;
 import java.io.Closeable;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.List;
@@ -30,11 +32,13 @@ import org.srcdeps.core.config.tree.Visitor;
 import org.srcdeps.core.config.tree.walk.AbstractVisitor;
 
 /**
- * A {@link Visitor} that serializes the given tree to a {@link Writer}.
+ * A {@link Visitor} that serializes the given tree to a {@link Writer}. The output is streamed through a buffer of
+ * {@link YamlWriterConfiguration#getBufferSize()} characters that is flushed whenever it is full, at the end of the
+ * tree and on {@link #flush()} or {@link #close()}.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
-public class YamlWriterVisitor extends AbstractVisitor implements Closeable {
+public class YamlWriterVisitor extends AbstractVisitor implements Closeable, Flushable {
 
     private final YamlWriterConfiguration configuration;
 
@@ -45,7 +49,7 @@ public class YamlWriterVisitor extends AbstractVisitor implements Closeable {
 
     public YamlWriterVisitor(Writer out, YamlWriterConfiguration configuration) {
         super();
-        this.out = out;
+        this.out = new BufferedWriter(out, configuration.getBufferSize());
         this.configuration = configuration;
 
         final int indentLength = configuration.getIndentLength();
@@ -114,6 +118,24 @@ public class YamlWriterVisitor extends AbstractVisitor implements Closeable {
             depth--;
         }
         super.containerEnd();
+        if (stack.isEmpty()) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered output to the underlying {@link Writer} and flushes it.
+     *
+     * @throws IOException on I/O problems
+     * @since 4.0.4
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
     }
 
     private void indent() throws IOException {
@@ -36,6 +36,7 @@ import org.srcdeps.core.config.MavenAssertions;
 import org.srcdeps.core.config.ScmRepository;
 import org.srcdeps.core.config.ScmRepositoryGradle;
 import org.srcdeps.core.config.ScmRepositoryMaven;
+import org.srcdeps.core.config.ScmRepositorySparseCheckout;
 import org.srcdeps.core.config.scalar.CharStreamSource;
 import org.srcdeps.core.config.scalar.Duration;
 import org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor;
@@ -58,7 +59,7 @@ public class YamlConfigurationReaderTest {
         try (Reader in = new InputStreamReader(getClass().getResourceAsStream("/srcdeps-full.yaml"), "utf-8")) {
             Configuration actual = new YamlConfigurationReader().read(in).build();
             Configuration expected = Configuration.builder() //
-                    .configModelVersion("2.4") //
+                    .configModelVersion("2.5") //
                     .forwardAsMasterConfig(true) //
                     .forwardProperty("myProp1") //
                     .forwardProperty("myProp2") //
@@ -118,6 +119,12 @@ public class YamlConfigurationReaderTest {
                                             ScmRepositoryGradle.builder() //
                                                     .modelTransformer(CharStreamSource.of("file:my/file")) //
                                     ) //
+                                    .sparseCheckout( //
+                                            ScmRepositorySparseCheckout.builder() //
+                                                    .include("module-a") //
+                                                    .include("module-b/sub") //
+                                                    .exclude("module-a/docs") //
+                                    ) //
                     ) //
                     .repository( //
                             ScmRepository.builder() //
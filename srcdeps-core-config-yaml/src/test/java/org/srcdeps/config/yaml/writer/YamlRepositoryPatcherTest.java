@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.config.yaml.writer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.config.Configuration;
+import org.srcdeps.core.config.ScmRepository;
+import org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor;
+
+public class YamlRepositoryPatcherTest {
+
+    private static final String SOURCE = "# top comment\n" //
+            + "configModelVersion: 2.5\n" //
+            + "repositories:\n" //
+            + "\n" //
+            + "    # repo1 comment\n" //
+            + "    repo1:\n" //
+            + "        includes:\n" //
+            + "        - org.repo1 # keep me\n" //
+            + "        # inside repo1\n" //
+            + "        urls:\n" //
+            + "        - git:url1\n" //
+            + "\n" //
+            + "    # repo2 comment\n" //
+            + "    repo2:\n" //
+            + "        includes:\n" //
+            + "        - org.repo2\n" //
+            + "        urls:\n" //
+            + "        - git:url2\n" //
+            + "\n" //
+            + "# trailing comment\n" //
+            + "skip: false\n";
+
+    private static String patch(String source, ScmRepository.Builder repo) throws IOException {
+        final Configuration.Builder config = Configuration.builder().repository(repo)
+                .accept(new DefaultsAndInheritanceVisitor());
+        final StringWriter out = new StringWriter();
+        new YamlRepositoryPatcher(YamlWriterConfiguration.builder().build()).patch(new StringReader(source), out,
+                config, repo.getName());
+        return out.toString();
+    }
+
+    @Test
+    public void add() throws IOException {
+        final String actual = patch(SOURCE, ScmRepository.builder().id("repo3").include("org.repo3").url("git:url3"));
+        final String expected = SOURCE.replace("\n# trailing comment", "" //
+                + "    repo3:\n" //
+                + "        includes:\n" //
+                + "        - org.repo3\n" //
+                + "        urls:\n" //
+                + "        - git:url3\n" //
+                + "\n" //
+                + "# trailing comment");
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void addToEmpty() throws IOException {
+        final String actual = patch("configModelVersion: 2.5\n",
+                ScmRepository.builder().id("repo1").include("org.repo1").url("git:url1"));
+        final String expected = "configModelVersion: 2.5\n" //
+                + "repositories:\n" //
+                + "  repo1:\n" //
+                + "    includes:\n" //
+                + "    - org.repo1\n" //
+                + "    urls:\n" //
+                + "    - git:url1\n";
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void keyOf() {
+        Assert.assertEquals("repo1", YamlRepositoryPatcher.keyOf("  repo1:"));
+        Assert.assertEquals("org.repo1", YamlRepositoryPatcher.keyOf("  'org.repo1': # comment"));
+        Assert.assertNull(YamlRepositoryPatcher.keyOf("  - org.repo1"));
+    }
+
+    @Test
+    public void replace() throws IOException {
+        final String actual = patch(SOURCE,
+                ScmRepository.builder().id("repo1").include("org.repo1").url("git:url1").url("git:url1-mirror"));
+        final String expected = SOURCE.replace("" //
+                + "        - org.repo1 # keep me\n" //
+                + "        # inside repo1\n" //
+                + "        urls:\n" //
+                + "        - git:url1\n", "" //
+                        + "        - org.repo1\n" //
+                        + "        urls:\n" //
+                        + "        - git:url1\n" //
+                        + "        - git:url1-mirror\n");
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void replaceComments() throws IOException {
+        final String actual = patch(SOURCE, ScmRepository.builder().commentBefore("new repo2 comment").id("repo2")
+                .include("org.repo2").url("git:url2"));
+        final String expected = SOURCE.replace("    # repo2 comment\n", "    # new repo2 comment\n");
+        Assert.assertEquals(expected, actual);
+    }
+
+}
@@ -0,0 +1,291 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.srcdeps.core.cache.BuildCache;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * A set of {@link BuildRequest}s to be performed by a {@link BuildScheduler} together with the limits within which the
+ * {@link BuildScheduler} should perform them.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class BuildBatch {
+
+    /**
+     * A builder for {@link BuildBatch}es.
+     */
+    public static class BuildBatchBuilder {
+        private BuildCache buildCache;
+        private long buildMemoryMb = DEFAULT_BUILD_MEMORY_MB;
+        private Map<BuildRequest, Set<BuildRequest>> dependencies = new IdentityHashMap<>();
+        private boolean inferDependencies = true;
+        private int maxConcurrentBuilds = getDefaultMaxConcurrentBuilds();
+        private int maxConcurrentCheckouts = DEFAULT_MAX_CONCURRENT_CHECKOUTS;
+        private long memoryBudgetMb = Long.MAX_VALUE;
+        private List<BuildRequest> requests = new ArrayList<>();
+
+        /**
+         * @return a new {@link BuildBatch} based on the values stored in fields of this {@link BuildBatchBuilder}
+         */
+        public BuildBatch build() {
+            final Map<BuildRequest, Set<BuildRequest>> useDependencies = Collections.unmodifiableMap(dependencies);
+            this.dependencies = null;
+
+            final List<BuildRequest> useRequests = Collections.unmodifiableList(requests);
+            this.requests = null;
+
+            final long memorySlots = Math.max(1, memoryBudgetMb / buildMemoryMb);
+            final int useMaxConcurrentBuilds = (int) Math.min(maxConcurrentBuilds, memorySlots);
+
+            return new BuildBatch(useRequests, useDependencies, inferDependencies, maxConcurrentCheckouts,
+                    useMaxConcurrentBuilds, buildCache);
+        }
+
+        /**
+         * @param buildCache see {@link BuildBatch#getBuildCache()}
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder buildCache(BuildCache buildCache) {
+            this.buildCache = buildCache;
+            return this;
+        }
+
+        /**
+         * @param buildMemoryMb the amount of memory in megabytes a single build is expected to take; together with
+         *                      {@link #memoryBudgetMb(long)} used to limit the number of concurrent builds
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder buildMemoryMb(long buildMemoryMb) {
+            if (buildMemoryMb <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("buildMemoryMb must be greater than 0; found [%d]", buildMemoryMb));
+            }
+            this.buildMemoryMb = buildMemoryMb;
+            return this;
+        }
+
+        /**
+         * Adds an explicit ordering constraint: {@code dependent} will be built only after {@code dependency} was
+         * built successfully. Both requests have to be added to this {@link BuildBatchBuilder} via
+         * {@link #request(BuildRequest)} or {@link #requests(Collection)}.
+         *
+         * @param dependent  the {@link BuildRequest} that depends on {@code dependency}
+         * @param dependency the {@link BuildRequest} {@code dependent} depends on
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder dependency(BuildRequest dependent, BuildRequest dependency) {
+            SrcdepsCoreUtils.assertArgNotNull(dependent, "dependent");
+            SrcdepsCoreUtils.assertArgNotNull(dependency, "dependency");
+            Set<BuildRequest> deps = dependencies.get(dependent);
+            if (deps == null) {
+                deps = new LinkedHashSet<>();
+                dependencies.put(dependent, deps);
+            }
+            deps.add(dependency);
+            return this;
+        }
+
+        /**
+         * @param inferDependencies see {@link BuildBatch#isInferDependencies()}
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder inferDependencies(boolean inferDependencies) {
+            this.inferDependencies = inferDependencies;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentBuilds see {@link BuildBatch#getMaxConcurrentBuilds()}
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder maxConcurrentBuilds(int maxConcurrentBuilds) {
+            if (maxConcurrentBuilds <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("maxConcurrentBuilds must be greater than 0; found [%d]", maxConcurrentBuilds));
+            }
+            this.maxConcurrentBuilds = maxConcurrentBuilds;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentCheckouts see {@link BuildBatch#getMaxConcurrentCheckouts()}
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder maxConcurrentCheckouts(int maxConcurrentCheckouts) {
+            if (maxConcurrentCheckouts <= 0) {
+                throw new IllegalArgumentException(String
+                        .format("maxConcurrentCheckouts must be greater than 0; found [%d]", maxConcurrentCheckouts));
+            }
+            this.maxConcurrentCheckouts = maxConcurrentCheckouts;
+            return this;
+        }
+
+        /**
+         * @param memoryBudgetMb the amount of memory in megabytes all concurrent builds together may take; together
+         *                       with {@link #buildMemoryMb(long)} used to limit the number of concurrent builds
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder memoryBudgetMb(long memoryBudgetMb) {
+            if (memoryBudgetMb <= 0) {
+                throw new IllegalArgumentException(
+                        String.format("memoryBudgetMb must be greater than 0; found [%d]", memoryBudgetMb));
+            }
+            this.memoryBudgetMb = memoryBudgetMb;
+            return this;
+        }
+
+        /**
+         * @param request the {@link BuildRequest} to add
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder request(BuildRequest request) {
+            SrcdepsCoreUtils.assertArgNotNull(request, "request");
+            this.requests.add(request);
+            return this;
+        }
+
+        /**
+         * @param requests the {@link BuildRequest}s to add
+         * @return this {@link BuildBatchBuilder}
+         */
+        public BuildBatchBuilder requests(Collection<BuildRequest> requests) {
+            for (BuildRequest request : requests) {
+                request(request);
+            }
+            return this;
+        }
+    }
+
+    /** The default for {@link BuildBatchBuilder#buildMemoryMb(long)}: {@value #DEFAULT_BUILD_MEMORY_MB} */
+    private static final long DEFAULT_BUILD_MEMORY_MB = 1024;
+
+    /** The default for {@link #getMaxConcurrentCheckouts()}: {@value #DEFAULT_MAX_CONCURRENT_CHECKOUTS} */
+    private static final int DEFAULT_MAX_CONCURRENT_CHECKOUTS = 4;
+
+    /**
+     * @return a new {@link BuildBatchBuilder}
+     */
+    public static BuildBatchBuilder builder() {
+        return new BuildBatchBuilder();
+    }
+
+    /**
+     * @return the default for {@link #getMaxConcurrentBuilds()}: half of the available processors, but at least one
+     */
+    public static int getDefaultMaxConcurrentBuilds() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    private final BuildCache buildCache;
+    private final Map<BuildRequest, Set<BuildRequest>> dependencies;
+    private final boolean inferDependencies;
+    private final int maxConcurrentBuilds;
+    private final int maxConcurrentCheckouts;
+    private final List<BuildRequest> requests;
+
+    private BuildBatch(List<BuildRequest> requests, Map<BuildRequest, Set<BuildRequest>> dependencies,
+            boolean inferDependencies, int maxConcurrentCheckouts, int maxConcurrentBuilds, BuildCache buildCache) {
+        super();
+        for (Map.Entry<BuildRequest, Set<BuildRequest>> en : dependencies.entrySet()) {
+            assertContains(requests, en.getKey());
+            for (BuildRequest dep : en.getValue()) {
+                assertContains(requests, dep);
+            }
+        }
+        this.requests = requests;
+        this.dependencies = dependencies;
+        this.inferDependencies = inferDependencies;
+        this.maxConcurrentCheckouts = maxConcurrentCheckouts;
+        this.maxConcurrentBuilds = maxConcurrentBuilds;
+        this.buildCache = buildCache;
+    }
+
+    private static void assertContains(List<BuildRequest> requests, BuildRequest request) {
+        for (BuildRequest r : requests) {
+            if (r == request) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException(String.format(
+                "A dependency refers to BuildRequest [%s] that is not a part of the batch", request.getScmRepositoryId()));
+    }
+
+    /**
+     * @return the {@link BuildCache} to restore the builds from and to store the successful builds to, or {@code null}
+     *         if no caching should happen. The default is {@code null}
+     */
+    public BuildCache getBuildCache() {
+        return buildCache;
+    }
+
+    /**
+     * @param dependent the {@link BuildRequest} whose dependencies should be returned
+     * @return the {@link BuildRequest}s that were explicitly declared as dependencies of the given {@code dependent}
+     *         using {@link BuildBatchBuilder#dependency(BuildRequest, BuildRequest)}; never {@code null}
+     */
+    public Set<BuildRequest> getExplicitDependencies(BuildRequest dependent) {
+        final Set<BuildRequest> result = dependencies.get(dependent);
+        return result == null ? Collections.<BuildRequest>emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * @return the maximal number of builds that can run at the same time. The default is
+     *         {@link #getDefaultMaxConcurrentBuilds()} possibly lowered by
+     *         {@link BuildBatchBuilder#memoryBudgetMb(long)}
+     */
+    public int getMaxConcurrentBuilds() {
+        return maxConcurrentBuilds;
+    }
+
+    /**
+     * @return the maximal number of checkouts that can run at the same time. Checkouts are mostly network bound and
+     *         they run concurrently with the builds. The default is {@value #DEFAULT_MAX_CONCURRENT_CHECKOUTS}
+     */
+    public int getMaxConcurrentCheckouts() {
+        return maxConcurrentCheckouts;
+    }
+
+    /**
+     * @return the {@link BuildRequest}s to perform, in the order they were added
+     */
+    public List<BuildRequest> getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return {@code true} if the {@link BuildScheduler} should infer the dependencies between the
+     *         {@link BuildRequest}s of this batch from their checked out build files; {@code false} if only the
+     *         dependencies set via {@link BuildBatchBuilder#dependency(BuildRequest, BuildRequest)} should be
+     *         considered. The default is {@code true}
+     */
+    public boolean isInferDependencies() {
+        return inferDependencies;
+    }
+
+}
@@ -17,11 +17,15 @@
 package org.srcdeps.core;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.srcdeps.core.metrics.BuildCounter;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.NoOpBuildMetrics;
 import org.srcdeps.core.util.Consumer;
 import org.srcdeps.core.util.SrcdepsCoreUtils;
 
@@ -48,10 +52,23 @@ public interface BuildMetadataStore {
         private final BuildMetadataStore buildMetadataStore;
 
         private final String buildRequestIdHash;
+        private final BuildMetrics metrics;
 
         public CheckSha1Consumer(BuildMetadataStore buildMetadataStore, String buildRequestIdHash) {
+            this(buildMetadataStore, buildRequestIdHash, NoOpBuildMetrics.INSTANCE);
+        }
+
+        /**
+         * @param buildMetadataStore the store to look up the past sha1 hashes in
+         * @param buildRequestIdHash the hash of the {@link BuildRequest} whose artifacts are checked
+         * @param metrics            the {@link BuildMetrics} to report {@link BuildCounter#hashedBytes} to
+         * @since 4.0.4
+         */
+        public CheckSha1Consumer(BuildMetadataStore buildMetadataStore, String buildRequestIdHash,
+                BuildMetrics metrics) {
             this.buildMetadataStore = buildMetadataStore;
             this.buildRequestIdHash = buildRequestIdHash;
+            this.metrics = metrics;
         }
 
         @Override
@@ -66,6 +83,7 @@ public interface BuildMetadataStore {
                     final Path path = gavtcPath.getPath();
                     try {
                         final String mvnLocalRepoArtifactSha1 = SrcdepsCoreUtils.sha1HexString(path);
+                        metrics.count(BuildCounter.hashedBytes, buildRequestIdHash, Files.size(path));
                         if (!pastSha1.equals(mvnLocalRepoArtifactSha1)) {
                             log.info(
                                     "srcdeps: Rebuilding: sha1 of artifact [{}] in local Maven repository differs from last known sha1 built by srcdeps",
@@ -98,10 +116,23 @@ public interface BuildMetadataStore {
         private final BuildMetadataStore buildMetadataStore;
         private final String buildRequestIdHash;
         private int count = 0;
+        private final BuildMetrics metrics;
 
         public StoreSha1Consumer(BuildMetadataStore buildMetadataStore, String buildRequestIdHash) {
+            this(buildMetadataStore, buildRequestIdHash, NoOpBuildMetrics.INSTANCE);
+        }
+
+        /**
+         * @param buildMetadataStore the store to store the sha1 hashes to
+         * @param buildRequestIdHash the hash of the {@link BuildRequest} whose artifacts are stored
+         * @param metrics            the {@link BuildMetrics} to report {@link BuildCounter#hashedBytes} to
+         * @since 4.0.4
+         */
+        public StoreSha1Consumer(BuildMetadataStore buildMetadataStore, String buildRequestIdHash,
+                BuildMetrics metrics) {
             this.buildMetadataStore = buildMetadataStore;
             this.buildRequestIdHash = buildRequestIdHash;
+            this.metrics = metrics;
         }
 
         /**
@@ -113,6 +144,7 @@ public interface BuildMetadataStore {
             try {
                 final Path path = gavtcPath.getPath();
                 final String mvnLocalRepoArtifactSha1 = SrcdepsCoreUtils.sha1HexString(path);
+                metrics.count(BuildCounter.hashedBytes, buildRequestIdHash, Files.size(path));
                 buildMetadataStore.storeSha1(buildRequestIdHash, gavtcPath, mvnLocalRepoArtifactSha1);
                 count++;
             } catch (NoSuchAlgorithmException | IOException e) {
@@ -70,6 +70,8 @@ public class BuildRequest {
         private String scmRepositoryId;
         private List<String> scmUrls = new ArrayList<>();
         private boolean skipTests = true;
+        private List<String> sparseCheckoutExcludes = new ArrayList<>();
+        private List<String> sparseCheckoutIncludes = new ArrayList<>();
         private SrcVersion srcVersion;
         private long timeoutMs = DEFAULT_TIMEOUT_MS;
         private Verbosity verbosity = Verbosity.info;
@@ -115,10 +117,16 @@ public class BuildRequest {
             final Map<String, String> useBuildEnv = Collections.unmodifiableMap(buildEnvironment);
             this.buildEnvironment = null;
 
+            final List<String> useSparseIncludes = Collections.unmodifiableList(sparseCheckoutIncludes);
+            this.sparseCheckoutIncludes = null;
+
+            final List<String> useSparseExcludes = Collections.unmodifiableList(sparseCheckoutExcludes);
+            this.sparseCheckoutExcludes = null;
+
             return new BuildRequest(dependentProjectRootDirectory, projectRootDirectory, srcVersion, useVersion, gavSet,
                     scmRepositoryId, useScmUrls, useBuildArgs, skipTests, addDefaultBuildArguments, useFwdPropNames,
                     useFwdPropValues, useBuildEnv, addDefaultBuildEnvironment, verbosity, ioRedirects, timeoutMs,
-                    versionsMavenPluginVersion, gradleModelTransformer);
+                    versionsMavenPluginVersion, gradleModelTransformer, useSparseIncludes, useSparseExcludes);
         }
 
         /**
@@ -299,6 +307,26 @@ public class BuildRequest {
             return this;
         }
 
+        /**
+         * @param sparseCheckoutExcludes paths to add to {@link #sparseCheckoutExcludes}. See
+         *                               {@link BuildRequest#getSparseCheckoutExcludes()}
+         * @return this {@link BuildRequestBuilder}
+         */
+        public BuildRequestBuilder sparseCheckoutExcludes(Collection<String> sparseCheckoutExcludes) {
+            this.sparseCheckoutExcludes.addAll(sparseCheckoutExcludes);
+            return this;
+        }
+
+        /**
+         * @param sparseCheckoutIncludes paths to add to {@link #sparseCheckoutIncludes}. See
+         *                               {@link BuildRequest#getSparseCheckoutIncludes()}
+         * @return this {@link BuildRequestBuilder}
+         */
+        public BuildRequestBuilder sparseCheckoutIncludes(Collection<String> sparseCheckoutIncludes) {
+            this.sparseCheckoutIncludes.addAll(sparseCheckoutIncludes);
+            return this;
+        }
+
         /**
          * @param srcVersion see {@link BuildRequest#getSrcVersion()}
          * @return this {@link BuildRequestBuilder}
@@ -409,6 +437,39 @@ public class BuildRequest {
             List<String> buildArguments, Map<String, String> buildEnvironment, Set<String> forwardProperties,
             GavSet gavSet, List<String> scmUrls, boolean skipTests, SrcVersion srcVersion, String version,
             long timeoutMs, Verbosity verbosity) {
+        return computeHash(addDefaultBuildArguments, addDefaultBuildEnvironment, buildArguments, buildEnvironment,
+                forwardProperties, gavSet, scmUrls, skipTests, srcVersion, version, timeoutMs, verbosity,
+                Collections.<String>emptyList(), Collections.<String>emptyList());
+    }
+
+    /**
+     * Same as
+     * {@link #computeHash(boolean, boolean, List, Map, Set, GavSet, List, boolean, SrcVersion, String, long, Verbosity)}
+     * but taking also the sparse checkout paths into account. Empty {@code sparseCheckoutIncludes} and
+     * {@code sparseCheckoutExcludes} yield the same hash as the shorter overload.
+     *
+     * @param addDefaultBuildArguments
+     * @param addDefaultBuildEnvironment
+     * @param buildArguments
+     * @param buildEnvironment
+     * @param forwardProperties
+     * @param gavSet
+     * @param scmUrls
+     * @param skipTests
+     * @param srcVersion
+     * @param version
+     * @param timeoutMs
+     * @param verbosity
+     * @param sparseCheckoutIncludes
+     * @param sparseCheckoutExcludes
+     * @return a sha1 hash in hex form
+     * @since 4.0.4
+     */
+    public static String computeHash(boolean addDefaultBuildArguments, boolean addDefaultBuildEnvironment,
+            List<String> buildArguments, Map<String, String> buildEnvironment, Set<String> forwardProperties,
+            GavSet gavSet, List<String> scmUrls, boolean skipTests, SrcVersion srcVersion, String version,
+            long timeoutMs, Verbosity verbosity, List<String> sparseCheckoutIncludes,
+            List<String> sparseCheckoutExcludes) {
 
         try (DigestOutputStream digester = new DigestOutputStream(MessageDigest.getInstance("SHA-1"))) {
             digester.write(addDefaultBuildArguments ? 1 : 0);
@@ -440,6 +501,14 @@ public class BuildRequest {
                 w.write(srcVersion.toString());
                 w.write(version);
                 w.write(verbosity.name());
+                for (String e : sparseCheckoutIncludes) {
+                    w.write("+");
+                    w.write(e);
+                }
+                for (String e : sparseCheckoutExcludes) {
+                    w.write("-");
+                    w.write(e);
+                }
             }
             final byte[] sha1Bytes = digester.digest();
             return SrcdepsCoreUtils.bytesToHexString(sha1Bytes);
@@ -471,6 +540,8 @@ public class BuildRequest {
     private final String scmRepositoryId;
     private final List<String> scmUrls;
     private final boolean skipTests;
+    private final List<String> sparseCheckoutExcludes;
+    private final List<String> sparseCheckoutIncludes;
     private final SrcVersion srcVersion;
     private final long timeoutMs;
     private final Verbosity verbosity;
@@ -482,7 +553,8 @@ public class BuildRequest {
             boolean skipTests, boolean addDefaultBuildArguments, Set<String> forwardPropertyNames,
             Map<String, String> forwardPropertyValues, Map<String, String> buildEnvironment,
             boolean addDefaultBuildEnvironment, Verbosity verbosity, IoRedirects ioRedirects, long timeoutMs,
-            String versionsMavenPluginVersion, CharStreamSource gradleModelTransformer) {
+            String versionsMavenPluginVersion, CharStreamSource gradleModelTransformer,
+            List<String> sparseCheckoutIncludes, List<String> sparseCheckoutExcludes) {
         super();
 
         SrcdepsCoreUtils.assertArgNotNull(scmRepositoryId, "scmRepositoryId");
@@ -499,6 +571,8 @@ public class BuildRequest {
         SrcdepsCoreUtils.assertArgNotNull(ioRedirects, "ioRedirects");
         SrcdepsCoreUtils.assertArgNotNull(versionsMavenPluginVersion, "versionsMavenPluginVersion");
         SrcdepsCoreUtils.assertArgNotNull(gradleModelTransformer, "gradleModelTransformer");
+        SrcdepsCoreUtils.assertArgNotNull(sparseCheckoutIncludes, "sparseCheckoutIncludes");
+        SrcdepsCoreUtils.assertArgNotNull(sparseCheckoutExcludes, "sparseCheckoutExcludes");
 
         this.dependentProjectRootDirectory = dependentProjectRootDirectory;
         this.projectRootDirectory = projectRootDirectory;
@@ -519,9 +593,11 @@ public class BuildRequest {
         this.ioRedirects = ioRedirects;
         this.versionsMavenPluginVersion = versionsMavenPluginVersion;
         this.gradleModelTransformer = gradleModelTransformer;
+        this.sparseCheckoutIncludes = sparseCheckoutIncludes;
+        this.sparseCheckoutExcludes = sparseCheckoutExcludes;
         this.hash = computeHash(addDefaultBuildArguments, addDefaultBuildEnvironment, buildArguments, buildEnvironment,
                 forwardPropertyNames, gavSet, scmUrls, skipTests, srcVersion, versionsMavenPluginVersion, timeoutMs,
-                verbosity);
+                verbosity, sparseCheckoutIncludes, sparseCheckoutExcludes);
         log.debug("srcdeps: Computed hash [{}] of [{}]", hash, this);
     }
 
@@ -632,6 +708,26 @@ public class BuildRequest {
         return scmUrls;
     }
 
+    /**
+     * @return a {@link List} of {@code /} separated paths relative to the root of the source tree that should not be
+     *         checked out even if they are under some of the {@link #getSparseCheckoutIncludes()}. Cannot be
+     *         {@code null}
+     * @since 4.0.4
+     */
+    public List<String> getSparseCheckoutExcludes() {
+        return sparseCheckoutExcludes;
+    }
+
+    /**
+     * @return a {@link List} of {@code /} separated paths relative to the root of the source tree that should be
+     *         checked out. Cannot be {@code null}. An empty {@link List} means that the whole source tree is checked
+     *         out
+     * @since 4.0.4
+     */
+    public List<String> getSparseCheckoutIncludes() {
+        return sparseCheckoutIncludes;
+    }
+
     /**
      * @return the {@link SrcVersion} to checkout
      */
@@ -701,8 +797,10 @@ public class BuildRequest {
                 + forwardPropertyNames + ", forwardPropertyValues=" + forwardPropertyValues + ", gavSet=" + gavSet
                 + ", gradleModelTransformer=" + gradleModelTransformer + ", id=" + hash + ", ioRedirects=" + ioRedirects
                 + ", projectRootDirectory=" + projectRootDirectory + ", scmUrls=" + scmUrls + ", skipTests=" + skipTests
-                + ", srcVersion=" + srcVersion + ", timeoutMs=" + timeoutMs + ", verbosity=" + verbosity + ", version="
-                + version + ", versionsMavenPluginVersion=" + versionsMavenPluginVersion + "]";
+                + ", sparseCheckoutIncludes=" + sparseCheckoutIncludes + ", sparseCheckoutExcludes="
+                + sparseCheckoutExcludes + ", srcVersion=" + srcVersion + ", timeoutMs=" + timeoutMs + ", verbosity="
+                + verbosity + ", version=" + version + ", versionsMavenPluginVersion=" + versionsMavenPluginVersion
+                + "]";
     }
 
 }
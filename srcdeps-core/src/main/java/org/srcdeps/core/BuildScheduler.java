@@ -0,0 +1,43 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core;
+
+import java.util.Map;
+
+/**
+ * A service for checking out and building several {@link BuildRequest}s at once, on top of {@link ScmService} and
+ * {@link BuildService}. Independent requests are checked out and built in parallel within the limits set by the given
+ * {@link BuildBatch}, while the requests depending on other requests of the same batch are built only after their
+ * dependencies.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public interface BuildScheduler {
+
+    /**
+     * Checks out and builds all {@link BuildRequest}s of the given {@code batch}.
+     *
+     * @param batch the {@link BuildRequest}s to perform, together with the concurrency limits
+     * @return a {@link Map} from {@link BuildRequest}s to the {@code commitId}s their sources were checked out at; the
+     *         iteration order of the {@link Map} is the order in which the builds finished
+     * @throws BuildException if any of the checkouts or builds failed or if the dependencies between the requests form a
+     *                        cycle
+     */
+    Map<BuildRequest, String> build(BuildBatch batch) throws BuildException;
+
+}
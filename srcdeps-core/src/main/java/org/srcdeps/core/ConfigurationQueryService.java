@@ -16,10 +16,16 @@
  */
 package org.srcdeps.core;
 
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.srcdeps.core.config.Configuration;
+import org.srcdeps.core.config.LazyScmRepositoryList;
 import org.srcdeps.core.config.ScmRepository;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.NoOpBuildMetrics;
 
 /**
  * A service to query {@link Configuration}.
@@ -71,10 +77,29 @@ public class ConfigurationQueryService {
     }
 
     private final Configuration configuration;
+    private final BuildMetrics metrics;
 
     public ConfigurationQueryService(Configuration configuration) {
+        this(configuration, NoOpBuildMetrics.INSTANCE);
+    }
+
+    /**
+     * @param configuration the {@link Configuration} to query
+     * @param metrics       the {@link BuildMetrics} to report the {@link BuildPhase#configLookup} phase to
+     * @since 4.0.4
+     */
+    public ConfigurationQueryService(Configuration configuration, BuildMetrics metrics) {
         super();
         this.configuration = configuration;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the {@link Configuration} this {@link ConfigurationQueryService} queries
+     * @since 4.0.4
+     */
+    public Configuration getConfiguration() {
+        return configuration;
     }
 
     /**
@@ -87,7 +112,32 @@ public class ConfigurationQueryService {
      * @return the matching {@link ScmRepository}
      */
     public ScmRepositoryResult findScmRepo(String groupId, String artifactId, String version) {
-        for (ScmRepository scmRepository : configuration.getRepositories()) {
+        if (metrics == NoOpBuildMetrics.INSTANCE) {
+            /* avoid building the span subject on the hot path when nobody listens */
+            return findScmRepoInternal(groupId, artifactId, version);
+        }
+        final Span span = metrics.start(BuildPhase.configLookup, groupId + ":" + artifactId + ":" + version);
+        try {
+            return findScmRepoInternal(groupId, artifactId, version);
+        } finally {
+            span.close();
+        }
+    }
+
+    private ScmRepositoryResult findScmRepoInternal(String groupId, String artifactId, String version) {
+        final List<ScmRepository> repositories = configuration.getRepositories();
+        if (repositories instanceof LazyScmRepositoryList) {
+            /* build just the repositories that may contain the given groupId */
+            final LazyScmRepositoryList lazyRepositories = (LazyScmRepositoryList) repositories;
+            for (int i : lazyRepositories.getCandidates(groupId)) {
+                final ScmRepository scmRepository = lazyRepositories.get(i);
+                if (scmRepository.getGavSet().contains(groupId, artifactId, version)) {
+                    return new ScmRepositoryResult(scmRepository, version);
+                }
+            }
+            return new ScmRepositoryResult(null, version);
+        }
+        for (ScmRepository scmRepository : repositories) {
             if (scmRepository.getGavSet().contains(groupId, artifactId, version)) {
                 return new ScmRepositoryResult(scmRepository, version);
             }
@@ -88,18 +88,16 @@ public class GavPattern implements Serializable {
     }
 
     /**
-     * A pair of a {@link Pattern} and its wildcard source.
+     * A pair of a {@link Pattern} and its wildcard source. The {@link Pattern} is compiled lazily on the first
+     * {@link #matches(String)} call so that loading a configuration with many GAV patterns stays cheap.
      */
     static class GavSegmentPattern implements Serializable {
         private static final GavSegmentPattern MATCH_ALL = new GavSegmentPattern(GavPattern.MULTI_WILDCARD);
         private static final String MATCH_ALL_PATTERN_SOURCE = ".*";
         /**  */
         private static final long serialVersionUID = 1063634992004995585L;
-        private final transient Pattern pattern;
-        private final String source;
 
-        GavSegmentPattern(String wildcardSource) {
-            super();
+        private static Pattern compile(String wildcardSource) {
             final StringBuilder sb = new StringBuilder(wildcardSource.length() + 2);
             final StringTokenizer st = new StringTokenizer(wildcardSource, GavPattern.MULTI_WILDCARD, true);
             while (st.hasMoreTokens()) {
@@ -110,7 +108,15 @@ public class GavPattern implements Serializable {
                     sb.append(Pattern.quote(token));
                 }
             }
-            this.pattern = Pattern.compile(sb.toString());
+            return Pattern.compile(sb.toString());
+        }
+
+        /** Compiled from {@link #source} on demand; racing threads may compile it more than once, which is harmless */
+        private transient volatile Pattern pattern;
+        private final String source;
+
+        GavSegmentPattern(String wildcardSource) {
+            super();
             this.source = wildcardSource;
         }
 
@@ -137,7 +143,12 @@ public class GavPattern implements Serializable {
         }
 
         public boolean matches(String input) {
-            return pattern.matcher(input).matches();
+            Pattern p = pattern;
+            if (p == null) {
+                p = compile(source);
+                pattern = p;
+            }
+            return p.matcher(input).matches();
         }
 
         /**
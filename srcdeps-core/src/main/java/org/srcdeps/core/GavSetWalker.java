@@ -32,6 +32,13 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.srcdeps.core.metrics.BuildCounter;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.JfrEventType.Event;
+import org.srcdeps.core.metrics.NoOpBuildMetrics;
+import org.srcdeps.core.metrics.SrcdepsJfrEvents;
 import org.srcdeps.core.util.BitStack;
 import org.srcdeps.core.util.Consumer;
 
@@ -83,6 +90,7 @@ public class GavSetWalker {
         private final Path localMavenRepoRoot;
 
         private final String version;
+        private int visitedFiles = 0;
 
         GavtcPathVisitor(Path localMavenRepoRoot, GavSet gavSet, String version, Consumer<GavtcPath> callback) {
             super();
@@ -92,6 +100,13 @@ public class GavSetWalker {
             this.callback = callback;
         }
 
+        /**
+         * @return the number of files passed to {@link #visitFile(Path, BasicFileAttributes)} so far
+         */
+        int getVisitedFiles() {
+            return visitedFiles;
+        }
+
         @Override
         public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
             dirCanContainArtifacts.pop();
@@ -106,6 +121,7 @@ public class GavSetWalker {
 
         @Override
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            visitedFiles++;
             if (dirCanContainArtifacts.peek()) {
                 final Path gavPath = file.getParent();
                 final Path gaPath = gavPath.getParent();
@@ -250,15 +266,34 @@ public class GavSetWalker {
 
     private final GavSet gavSet;
     private final Path localMavenRepoRoot;
+    private final BuildMetrics metrics;
+    private final String scmRepositoryId;
     private final List<Path> subtrees;
     private final String version;
 
     public GavSetWalker(Path localMavenRepoRoot, GavSet gavSet, String version) {
+        this(localMavenRepoRoot, gavSet, version, NoOpBuildMetrics.INSTANCE, null);
+    }
+
+    /**
+     * @param localMavenRepoRoot the root directory of the local Maven repository to walk
+     * @param gavSet             the artifacts to look for
+     * @param version            the version of the artifacts to look for
+     * @param metrics            the {@link BuildMetrics} to report the {@link BuildPhase#artifactWalk} phase and the
+     *                           {@link BuildCounter#walkedArtifacts} counter to
+     * @param scmRepositoryId    the id of the {@link org.srcdeps.core.config.ScmRepository} the artifacts were built
+     *                           from, used as the subject of the reported metrics; may be {@code null}
+     * @since 4.0.4
+     */
+    public GavSetWalker(Path localMavenRepoRoot, GavSet gavSet, String version, BuildMetrics metrics,
+            String scmRepositoryId) {
         super();
         this.localMavenRepoRoot = localMavenRepoRoot;
         this.gavSet = gavSet;
         this.version = version;
         this.subtrees = gavSetToSubtrees(gavSet, version);
+        this.metrics = metrics;
+        this.scmRepositoryId = scmRepositoryId;
     }
 
     /**
@@ -267,13 +302,31 @@ public class GavSetWalker {
      * @param callback the {@link Consumer} to notify
      * @throws IOException
      */
-    public void walk(Consumer<GavtcPath> callback) throws IOException {
-        FileVisitor<Path> visitor = new GavtcPathVisitor(localMavenRepoRoot, gavSet, version, callback);
-        for (Path path : subtrees) {
-            final Path start = localMavenRepoRoot.resolve(path).normalize();
-            if (Files.exists(start)) {
-                Files.walkFileTree(start, visitor);
+    public void walk(final Consumer<GavtcPath> callback) throws IOException {
+        final int[] count = new int[1];
+        final Consumer<GavtcPath> countingCallback = new Consumer<GavtcPath>() {
+            @Override
+            public void accept(GavtcPath t) {
+                count[0]++;
+                callback.accept(t);
+            }
+        };
+        final GavtcPathVisitor visitor = new GavtcPathVisitor(localMavenRepoRoot, gavSet, version, countingCallback);
+        final Event event = SrcdepsJfrEvents.ARTIFACT_WALK.begin() //
+                .set("localMavenRepository", localMavenRepoRoot.toString()) //
+                .set("version", version);
+        final Span span = metrics.start(BuildPhase.artifactWalk, scmRepositoryId);
+        try {
+            for (Path path : subtrees) {
+                final Path start = localMavenRepoRoot.resolve(path).normalize();
+                if (Files.exists(start)) {
+                    Files.walkFileTree(start, visitor);
+                }
             }
+        } finally {
+            span.close();
+            metrics.count(BuildCounter.walkedArtifacts, scmRepositoryId, count[0]);
+            event.set("visitedFiles", visitor.getVisitedFiles()).set("artifacts", count[0]).commit();
         }
     }
 
@@ -0,0 +1,488 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.GavSetWalker;
+import org.srcdeps.core.GavtcPath;
+import org.srcdeps.core.MavenLocalRepository;
+import org.srcdeps.core.util.Consumer;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * A content-addressed cache of the artifacts produced by source dependency builds. A build is identified exactly by
+ * the pair ({@link BuildRequest#getHash()}, {@code commitId}), where the {@code commitId} is the one returned by
+ * {@link org.srcdeps.core.ScmService#checkout(BuildRequest)}.
+ * <p>
+ * After a successful build, {@link #store(BuildRequest, String)} copies the artifacts found by {@link GavSetWalker}
+ * in the local Maven repository to the local cache directory and uploads them as a zip archive to the optional remote
+ * {@link BuildCacheBackend}. {@link #restore(BuildRequest, String)} puts the cached artifacts back into the local
+ * Maven repository, downloading them from the remote {@link BuildCacheBackend} first if needed.
+ * <p>
+ * The local cache directory has the following layout:
+ *
+ * <pre>
+ * &lt;localDirectory&gt;/&lt;buildRequestHash&gt;/&lt;commitId&gt;/...artifacts in the local Maven repository layout...
+ * &lt;localDirectory&gt;/&lt;buildRequestHash&gt;/&lt;commitId&gt;.manifest
+ * &lt;localDirectory&gt;/&lt;buildRequestHash&gt;/commitId
+ * </pre>
+ *
+ * The artifacts are restored as hardlinks where possible, see {@link SrcdepsCoreUtils#linkOrCopy(Path, Path)}. A
+ * hardlinked artifact shares its content with the cache entry, so a tool modifying the artifact in the local Maven
+ * repository in place would alter the cache entry too. Therefore the {@code .manifest} records the sha1, size and
+ * modification time of each cached file. The fingerprints are verified lazily: the sha1 is recomputed only for files
+ * whose size or modification time differ from the manifest. An entry failing the verification is evicted.
+ * <p>
+ *
+ * The {@code commitId} file is written only for immutable {@link org.srcdeps.core.SrcVersion}s (tags and revisions),
+ * for which it is safe to skip not only the build but also the checkout, see {@link #lookupCommitId(BuildRequest)}.
+ * The remote keys mirror the local layout: {@code <buildRequestHash>/<commitId>.zip} and
+ * {@code <buildRequestHash>/commitId}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class BuildCache {
+
+    /**
+     * A builder for {@link BuildCache}s.
+     */
+    public static class BuildCacheBuilder {
+        private boolean linkArtifacts = true;
+        private Path localDirectory;
+        private MavenLocalRepository localMavenRepository;
+        private BuildCacheBackend remote;
+
+        /**
+         * @return a new {@link BuildCache} based on the values stored in fields of this {@link BuildCacheBuilder}
+         */
+        public BuildCache build() {
+            final MavenLocalRepository useRepo = localMavenRepository != null ? localMavenRepository
+                    : MavenLocalRepository.autodetect();
+            final Path useDir = localDirectory != null ? localDirectory
+                    : useRepo.getRootDirectory().resolveSibling("srcdeps").resolve("cache");
+            return new BuildCache(useDir, useRepo, remote, linkArtifacts);
+        }
+
+        /**
+         * @param linkArtifacts if {@code true} the artifacts are restored as hardlinks where possible; otherwise they
+         *                      are always copied. The default is {@code true}
+         * @return this {@link BuildCacheBuilder}
+         */
+        public BuildCacheBuilder linkArtifacts(boolean linkArtifacts) {
+            this.linkArtifacts = linkArtifacts;
+            return this;
+        }
+
+        /**
+         * @param localDirectory the directory where to keep the cached artifacts; the default is
+         *                       {@code ${maven.repo.local}/../srcdeps/cache}
+         * @return this {@link BuildCacheBuilder}
+         */
+        public BuildCacheBuilder localDirectory(Path localDirectory) {
+            this.localDirectory = localDirectory;
+            return this;
+        }
+
+        /**
+         * @param localMavenRepository the repository to store the artifacts from and restore the artifacts to; the
+         *                             default is {@link MavenLocalRepository#autodetect()}
+         * @return this {@link BuildCacheBuilder}
+         */
+        public BuildCacheBuilder localMavenRepository(MavenLocalRepository localMavenRepository) {
+            this.localMavenRepository = localMavenRepository;
+            return this;
+        }
+
+        /**
+         * @param remote the {@link BuildCacheBackend} to share the cached builds with other machines; the default is
+         *               {@code null} meaning that only the local cache directory is used
+         * @return this {@link BuildCacheBuilder}
+         */
+        public BuildCacheBuilder remote(BuildCacheBackend remote) {
+            this.remote = remote;
+            return this;
+        }
+    }
+
+    private static final String COMMIT_ID = "commitId";
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final Logger log = LoggerFactory.getLogger(BuildCache.class);
+
+    /**
+     * @return a new {@link BuildCacheBuilder}
+     */
+    public static BuildCacheBuilder builder() {
+        return new BuildCacheBuilder();
+    }
+
+    private static void unzip(Path zip, Path destination) throws IOException {
+        final Path normalizedDestination = destination.normalize();
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                final Path file = destination.resolve(entry.getName()).normalize();
+                if (!file.startsWith(normalizedDestination)) {
+                    throw new IOException(
+                            String.format("Zip entry [%s] of [%s] points outside of [%s]", entry.getName(), zip,
+                                    destination));
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(file);
+                } else {
+                    Files.createDirectories(file.getParent());
+                    Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private static void zip(final Path directory, Path zip) throws IOException {
+        try (final ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    final String name = directory.relativize(file).toString().replace('\\', '/');
+                    out.putNextEntry(new ZipEntry(name));
+                    Files.copy(file, out);
+                    out.closeEntry();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes a manifest of the files in {@code entryDir} to {@code manifestPath}: one line per file, with the sha1,
+     * size, last modified time in milliseconds and the path relative to {@code entryDir}, separated by spaces.
+     */
+    static void writeManifest(final Path entryDir, Path manifestPath) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        Files.walkFileTree(entryDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                try {
+                    sb.append(SrcdepsCoreUtils.sha1HexString(file)).append(' ') //
+                            .append(attrs.size()).append(' ') //
+                            .append(attrs.lastModifiedTime().toMillis()).append(' ') //
+                            .append(entryDir.relativize(file).toString().replace('\\', '/')).append('\n');
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        final Path tmp = Files.createTempFile(manifestPath.getParent(), manifestPath.getFileName().toString(), ".tmp");
+        Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private final boolean linkArtifacts;
+    private final Path localDirectory;
+    private final MavenLocalRepository localMavenRepository;
+    private final BuildCacheBackend remote;
+
+    BuildCache(Path localDirectory, MavenLocalRepository localMavenRepository, BuildCacheBackend remote,
+            boolean linkArtifacts) {
+        super();
+        this.localDirectory = localDirectory;
+        this.localMavenRepository = localMavenRepository;
+        this.remote = remote;
+        this.linkArtifacts = linkArtifacts;
+    }
+
+    /**
+     * Deletes the given local entry together with its manifest.
+     */
+    void evict(Path entryDir) throws IOException {
+        Files.deleteIfExists(getManifestPath(entryDir));
+        SrcdepsCoreUtils.deleteDirectory(entryDir);
+    }
+
+    /**
+     * Makes sure that the entry for the given {@code request} and {@code commitId} is present in the local cache
+     * directory, downloading it from the remote {@link BuildCacheBackend} if necessary.
+     *
+     * @return the local entry directory or {@code null} if the entry is neither in the local nor in the remote cache
+     */
+    Path fetch(BuildRequest request, String commitId) throws IOException {
+        final Path entryDir = getEntryDirectory(request.getHash(), commitId);
+        if (Files.isDirectory(entryDir)) {
+            return entryDir;
+        }
+        if (remote == null) {
+            return null;
+        }
+        final Path hashDir = entryDir.getParent();
+        Files.createDirectories(hashDir);
+        final Path zip = Files.createTempFile(hashDir, commitId, ".zip");
+        final Path tmpDir = Files.createTempDirectory(hashDir, commitId);
+        try {
+            if (!remote.get(request.getHash() + "/" + commitId + ".zip", zip)) {
+                return null;
+            }
+            unzip(zip, tmpDir);
+            try {
+                Files.move(tmpDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+                writeManifest(entryDir, getManifestPath(entryDir));
+            } catch (IOException e) {
+                if (!Files.isDirectory(entryDir)) {
+                    throw e;
+                }
+                /* a concurrent fetch was faster */
+            }
+            log.info("srcdeps: Downloaded build [{}] of [{}] from {}", commitId, request.getScmRepositoryId(), remote);
+            return entryDir;
+        } finally {
+            Files.deleteIfExists(zip);
+            SrcdepsCoreUtils.deleteDirectory(tmpDir);
+        }
+    }
+
+    Path getEntryDirectory(String buildRequestHash, String commitId) {
+        return localDirectory.resolve(buildRequestHash).resolve(commitId);
+    }
+
+    Path getManifestPath(Path entryDir) {
+        return entryDir.resolveSibling(entryDir.getFileName().toString() + MANIFEST_SUFFIX);
+    }
+
+    public Path getLocalDirectory() {
+        return localDirectory;
+    }
+
+    public MavenLocalRepository getLocalMavenRepository() {
+        return localMavenRepository;
+    }
+
+    /**
+     * Looks up the {@code commitId} built last time for the given {@code request}. This works only for requests
+     * having an immutable {@link org.srcdeps.core.SrcVersion} where the commit the version points at cannot change
+     * between two builds.
+     *
+     * @param request the request to look up
+     * @return the {@code commitId} or {@code null} if the version of the given {@code request} is mutable or no build
+     *         of it is cached
+     * @throws IOException on I/O problems
+     */
+    public String lookupCommitId(BuildRequest request) throws IOException {
+        if (!request.getSrcVersion().isImmutable()) {
+            return null;
+        }
+        final Path commitIdPath = localDirectory.resolve(request.getHash()).resolve(COMMIT_ID);
+        if (!Files.exists(commitIdPath)) {
+            if (remote == null) {
+                return null;
+            }
+            Files.createDirectories(commitIdPath.getParent());
+            final Path tmp = Files.createTempFile(commitIdPath.getParent(), COMMIT_ID, ".tmp");
+            try {
+                if (!remote.get(request.getHash() + "/" + COMMIT_ID, tmp)) {
+                    return null;
+                }
+                Files.move(tmp, commitIdPath, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return new String(Files.readAllBytes(commitIdPath), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Restores the cached artifacts of the given {@code request} built from the given {@code commitId} into the local
+     * Maven repository.
+     *
+     * @param request  the request whose artifacts should be restored
+     * @param commitId the commit the artifacts were built from
+     * @return {@code true} if the artifacts were restored; {@code false} if there is no such entry in the cache
+     * @throws IOException on I/O problems
+     */
+    public boolean restore(BuildRequest request, String commitId) throws IOException {
+        Path entryDir = fetch(request, commitId);
+        if (entryDir == null) {
+            return false;
+        }
+        if (!verify(entryDir)) {
+            log.warn("srcdeps: Evicting build [{}] of [{}] from the build cache: its content has changed", commitId,
+                    request.getScmRepositoryId());
+            evict(entryDir);
+            /* try once more; the remote may still have a good copy */
+            entryDir = fetch(request, commitId);
+            if (entryDir == null) {
+                return false;
+            }
+        }
+        final Path repoRoot = localMavenRepository.getRootDirectory();
+        final Path entry = entryDir;
+        final int[] counts = new int[2];
+        Files.walkFileTree(entry, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(repoRoot.resolve(entry.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final Path dest = repoRoot.resolve(entry.relativize(file).toString());
+                if (!linkArtifacts) {
+                    SrcdepsCoreUtils.transferCopy(file, dest);
+                    counts[1]++;
+                } else if (SrcdepsCoreUtils.linkOrCopy(file, dest)) {
+                    counts[0]++;
+                } else {
+                    counts[1]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        log.info("srcdeps: Restored build [{}] of [{}] from the build cache: [{}] files linked, [{}] copied", commitId,
+                request.getScmRepositoryId(), counts[0], counts[1]);
+        return true;
+    }
+
+    /**
+     * Stores the artifacts of the given {@code request} found in the local Maven repository under the given
+     * {@code commitId}. Supposed to be called right after a successful build.
+     *
+     * @param request  the request whose artifacts should be stored
+     * @param commitId the commit the artifacts were built from
+     * @return the number of artifacts stored
+     * @throws IOException on I/O problems
+     */
+    public int store(BuildRequest request, String commitId) throws IOException {
+        final Path repoRoot = localMavenRepository.getRootDirectory();
+        final List<GavtcPath> artifacts = new ArrayList<>();
+        new GavSetWalker(repoRoot, request.getGavSet(), request.getVersion()).walk(new Consumer<GavtcPath>() {
+            @Override
+            public void accept(GavtcPath t) {
+                artifacts.add(t);
+            }
+        });
+        if (artifacts.isEmpty()) {
+            log.warn("srcdeps: No artifacts of [{}] found in [{}]; nothing to cache", request.getScmRepositoryId(),
+                    repoRoot);
+            return 0;
+        }
+
+        final Path entryDir = getEntryDirectory(request.getHash(), commitId);
+        final Path hashDir = entryDir.getParent();
+        Files.createDirectories(hashDir);
+        final Path tmpDir = Files.createTempDirectory(hashDir, commitId);
+        try {
+            for (GavtcPath artifact : artifacts) {
+                final Path dest = tmpDir.resolve(repoRoot.relativize(artifact.getPath()).toString());
+                Files.createDirectories(dest.getParent());
+                Files.copy(artifact.getPath(), dest, StandardCopyOption.REPLACE_EXISTING);
+            }
+            evict(entryDir);
+            Files.move(tmpDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            writeManifest(entryDir, getManifestPath(entryDir));
+        } finally {
+            SrcdepsCoreUtils.deleteDirectory(tmpDir);
+        }
+
+        final boolean immutable = request.getSrcVersion().isImmutable();
+        final Path commitIdPath = hashDir.resolve(COMMIT_ID);
+        if (immutable) {
+            final Path tmp = Files.createTempFile(hashDir, COMMIT_ID, ".tmp");
+            Files.write(tmp, commitId.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, commitIdPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        if (remote != null) {
+            final Path zip = Files.createTempFile(hashDir, commitId, ".zip");
+            try {
+                zip(entryDir, zip);
+                remote.put(request.getHash() + "/" + commitId + ".zip", zip);
+                if (immutable) {
+                    remote.put(request.getHash() + "/" + COMMIT_ID, commitIdPath);
+                }
+            } finally {
+                Files.deleteIfExists(zip);
+            }
+        }
+        log.info("srcdeps: Cached [{}] artifacts of build [{}] of [{}]", artifacts.size(), commitId,
+                request.getScmRepositoryId());
+        return artifacts.size();
+    }
+
+    /**
+     * Checks the files of the given local entry against its manifest. The sha1 of a file is recomputed only if its
+     * size or modification time differ from the ones recorded in the manifest. An entry without a manifest gets a new
+     * one and is considered valid.
+     *
+     * @param entryDir the local entry to verify
+     * @return {@code true} if the entry is intact, {@code false} otherwise
+     * @throws IOException on I/O problems
+     */
+    boolean verify(Path entryDir) throws IOException {
+        final Path manifestPath = getManifestPath(entryDir);
+        if (!Files.exists(manifestPath)) {
+            writeManifest(entryDir, manifestPath);
+            return true;
+        }
+        for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] fields = line.split(" ", 4);
+            if (fields.length != 4) {
+                return false;
+            }
+            final Path file = entryDir.resolve(fields[3]);
+            if (!Files.exists(file)) {
+                return false;
+            }
+            final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attrs.size() != Long.parseLong(fields[1])
+                    || attrs.lastModifiedTime().toMillis() != Long.parseLong(fields[2])) {
+                try {
+                    if (!fields[0].equals(SrcdepsCoreUtils.sha1HexString(file))) {
+                        return false;
+                    }
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildCache [localDirectory=" + localDirectory + ", remote=" + remote + "]";
+    }
+
+}
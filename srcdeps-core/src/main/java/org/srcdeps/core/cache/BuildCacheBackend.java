@@ -0,0 +1,51 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A remote store of {@link BuildCache} entries. The entries are opaque files addressed by slash separated keys such
+ * as {@code <buildRequestHash>/<commitId>.zip}. The implementations must make sure that a partially transferred entry
+ * is never visible under its key.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public interface BuildCacheBackend {
+
+    /**
+     * Downloads the entry stored under the given {@code key} to the given {@code destination} file.
+     *
+     * @param key         the key of the entry to download
+     * @param destination the file to write; the parent directory exists
+     * @return {@code true} if the entry was found and downloaded, {@code false} if there is no such entry
+     * @throws IOException on I/O problems
+     */
+    boolean get(String key, Path destination) throws IOException;
+
+    /**
+     * Uploads the given {@code source} file under the given {@code key}, replacing any existing entry.
+     *
+     * @param key    the key to store the entry under
+     * @param source the file to upload
+     * @throws IOException on I/O problems
+     */
+    void put(String key, Path source) throws IOException;
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * A {@link BuildCacheBackend} storing the entries in a directory, typically on a network file system shared by a
+ * number of CI agents. Also handy as a local stand-in for a remote {@link BuildCacheBackend} in tests.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class FileSystemBuildCacheBackend implements BuildCacheBackend {
+
+    private final Path rootDirectory;
+
+    public FileSystemBuildCacheBackend(Path rootDirectory) {
+        super();
+        SrcdepsCoreUtils.assertArgNotNull(rootDirectory, "rootDirectory");
+        this.rootDirectory = rootDirectory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean get(String key, Path destination) throws IOException {
+        final Path source = resolve(key);
+        if (!Files.exists(source)) {
+            return false;
+        }
+        Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    public Path getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void put(String key, Path source) throws IOException {
+        final Path destination = resolve(key);
+        Files.createDirectories(destination.getParent());
+        final Path tmp = Files.createTempFile(destination.getParent(), destination.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private Path resolve(String key) throws IOException {
+        final Path result = rootDirectory.resolve(key).normalize();
+        if (!result.startsWith(rootDirectory.normalize())) {
+            throw new IOException(String.format("Key [%s] points outside of [%s]", key, rootDirectory));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FileSystemBuildCacheBackend [" + rootDirectory + "]";
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * A {@link BuildCacheBackend} talking to a plain HTTP store: entries are downloaded with {@code GET} and uploaded with
+ * {@code PUT} to {@code baseUri + key}. Any WebDAV capable server or an object store with a HTTP gateway will do.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class HttpBuildCacheBackend implements BuildCacheBackend {
+
+    private static final int DEFAULT_TIMEOUT_MS = 30000;
+
+    private final URI baseUri;
+    private final int timeoutMs;
+
+    /**
+     * @param baseUri the URI to resolve the keys against; should end with a slash
+     */
+    public HttpBuildCacheBackend(URI baseUri) {
+        this(baseUri, DEFAULT_TIMEOUT_MS);
+    }
+
+    /**
+     * @param baseUri   the URI to resolve the keys against; should end with a slash
+     * @param timeoutMs the connect and read timeout in milliseconds
+     */
+    public HttpBuildCacheBackend(URI baseUri, int timeoutMs) {
+        super();
+        SrcdepsCoreUtils.assertArgNotNull(baseUri, "baseUri");
+        this.baseUri = baseUri;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean get(String key, Path destination) throws IOException {
+        final HttpURLConnection conn = open(key);
+        try {
+            conn.setRequestMethod("GET");
+            final int status = conn.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                return false;
+            } else if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Unexpected HTTP status [%d] when getting [%s]", status,
+                        conn.getURL()));
+            }
+            try (InputStream in = conn.getInputStream()) {
+                Files.copy(in, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(String key) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) baseUri.resolve(key).toURL().openConnection();
+        conn.setConnectTimeout(timeoutMs);
+        conn.setReadTimeout(timeoutMs);
+        conn.setUseCaches(false);
+        return conn;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void put(String key, Path source) throws IOException {
+        final HttpURLConnection conn = open(key);
+        try {
+            conn.setRequestMethod("PUT");
+            conn.setDoOutput(true);
+            conn.setFixedLengthStreamingMode(Files.size(source));
+            conn.setRequestProperty("Content-Type", "application/octet-stream");
+            try (OutputStream out = conn.getOutputStream()) {
+                Files.copy(source, out);
+            }
+            final int status = conn.getResponseCode();
+            if (status / 100 != 2) {
+                throw new IOException(String.format("Unexpected HTTP status [%d] when putting [%s]", status,
+                        conn.getURL()));
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HttpBuildCacheBackend [" + baseUri + "]";
+    }
+
+}
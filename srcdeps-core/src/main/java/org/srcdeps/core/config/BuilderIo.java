@@ -136,7 +136,7 @@ public class BuilderIo {
      *
      */
     enum BuilderIoScheme {
-        append, err2out, inherit, read, write
+        append, capture, err2out, inherit, read, write
     }
 
     private static final BuilderIo INHERIT_ALL = new BuilderIo(BuilderIoScheme.inherit.name(),
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
@@ -76,6 +77,7 @@ public class Configuration {
 
         };
         private Map<String, String> forwardPropertyValues = new TreeMap<>();
+        private boolean lazyRepositories = false;
         final Maven.Builder maven = Maven.builder();
         final DefaultContainerNode<ScmRepository.Builder> repositories = new DefaultContainerNode<>("repositories");
         final ScalarNode<Boolean> skip = new DefaultScalarNode<>("skip", Boolean.FALSE);
@@ -107,9 +109,15 @@ public class Configuration {
 
         public Configuration build() {
             Collection<ScmRepository.Builder> repoBuilders = repositories.getChildren().values();
-            List<ScmRepository> repos = new ArrayList<>(repoBuilders.size());
-            for (ScmRepository.Builder repoBuilder : repoBuilders) {
-                repos.add(repoBuilder.build());
+            final List<ScmRepository> repos;
+            if (lazyRepositories) {
+                repos = new LazyScmRepositoryList(repoBuilders);
+            } else {
+                List<ScmRepository> eagerRepos = new ArrayList<>(repoBuilders.size());
+                for (ScmRepository.Builder repoBuilder : repoBuilders) {
+                    eagerRepos.add(repoBuilder.build());
+                }
+                repos = Collections.unmodifiableList(eagerRepos);
             }
 
             Map<String, String> useFwdPropValues = Collections.unmodifiableMap(forwardPropertyValues);
@@ -117,7 +125,7 @@ public class Configuration {
 
             Configuration result = new Configuration( //
                     configModelVersion.getValue(), //
-                    forwardAsMasterConfig.getValue(), Collections.unmodifiableList(repos), //
+                    forwardAsMasterConfig.getValue(), repos, //
                     sourcesDirectory.getValue(), //
                     skip.getValue(), //
                     builderIo.build(), //
@@ -183,11 +191,55 @@ public class Configuration {
             return this;
         }
 
+        /**
+         * Adds the values of those properties from the given {@code source} whose names match any of the
+         * {@link #forwardProperties} to the forward property values.
+         *
+         * @param source the properties to take the values from
+         * @return this {@link Builder}
+         * @since 4.0.4
+         */
+        public Builder forwardPropertyValues(Properties source) {
+            for (ScalarNode<String> node : forwardProperties.getElements()) {
+                final String propName = node.getValue();
+                if (propName.endsWith("*")) {
+                    /* prefix */
+                    String prefix = propName.substring(propName.length() - 1);
+                    for (Object key : source.keySet()) {
+                        if (key instanceof String && ((String) key).startsWith(prefix)) {
+                            String value = source.getProperty((String) key);
+                            if (value != null) {
+                                forwardPropertyValue(propName, value);
+                            }
+                        }
+                    }
+                } else {
+                    String value = source.getProperty(propName);
+                    if (value != null) {
+                        forwardPropertyValue(propName, value);
+                    }
+                }
+            }
+            return this;
+        }
+
         @Override
         public Map<String, Node> getChildren() {
             return children;
         }
 
+        /**
+         * @param lazyRepositories if {@code true}, {@link #build()} builds each {@link ScmRepository} only when it is
+         *                         looked up for the first time, see {@link LazyScmRepositoryList}; the default is
+         *                         {@code false}
+         * @return this {@link Builder}
+         * @since 4.0.4
+         */
+        public Builder lazyRepositories(boolean lazyRepositories) {
+            this.lazyRepositories = lazyRepositories;
+            return this;
+        }
+
         public Builder maven(Maven.Builder maven) {
             this.maven.init(maven);
             return this;
@@ -227,13 +279,14 @@ public class Configuration {
     private static final Set<String> DEFAULT_FORWARD_PROPERTIES;
     private static final String FORWARD_PROPERTIES_ATTRIBUTE = "forwardProperties";
 
-    private static final String LATEST_CONFIG_MODEL_VERSION = "2.4";
+    private static final String LATEST_CONFIG_MODEL_VERSION = "2.5";
 
     private static final String SRCDEPS_ENCODING_PROPERTY = "srcdeps.encoding";
+    private static final String SRCDEPS_LAZY_REPOSITORIES_PROPERTY = "srcdeps.lazyRepositories";
     private static final String SRCDEPS_MASTER_CONFIG_PROPERTY = "srcdeps.masterConfig";
 
     private static final Set<String> SUPPORTED_CONFIG_MODEL_VERSIONS = Collections.unmodifiableSet(
-            new LinkedHashSet<>(Arrays.asList("2.0", "2.1", "2.2", "2.3", LATEST_CONFIG_MODEL_VERSION)));
+            new LinkedHashSet<>(Arrays.asList("2.0", "2.1", "2.2", "2.3", "2.4", LATEST_CONFIG_MODEL_VERSION)));
 
     static {
         DEFAULT_FORWARD_PROPERTIES = Collections.unmodifiableSet(new LinkedHashSet<>(
@@ -274,6 +327,18 @@ public class Configuration {
         return SRCDEPS_ENCODING_PROPERTY;
     }
 
+    /**
+     * @return {@value Configuration#SRCDEPS_LAZY_REPOSITORIES_PROPERTY} - the name of the system property that, if
+     *         {@code true}, makes {@link ConfigurationLocator#resolve(java.nio.file.Path, ConfigurationReader,
+     *         ConfigurationCache)} set {@link Builder#lazyRepositories(boolean)}, so that each {@link ScmRepository}
+     *         is built only when it is looked up for the first time. Useful with large master configurations of which
+     *         a build needs just a few repositories.
+     * @since 4.0.4
+     */
+    public static String getSrcdepsLazyRepositoriesProperty() {
+        return SRCDEPS_LAZY_REPOSITORIES_PROPERTY;
+    }
+
     /**
      * @return {@value Configuration#SRCDEPS_MASTER_CONFIG_PROPERTY} - the name of the system property that can be used
      *         to replace any {@code srcdeps.yaml} configuration present in dependency source trees.
@@ -444,4 +509,15 @@ public class Configuration {
                 + ", repositories=" + repositories + ", skip=" + skip + ", sourcesDirectory=" + sourcesDirectory + "]";
     }
 
+
+    /**
+     * @param repositories the {@link ScmRepository ScmRepositories} to use instead of {@link #repositories}
+     * @return a copy of this {@link Configuration} with the given {@code repositories}
+     * @since 4.0.4
+     */
+    Configuration withRepositories(List<ScmRepository> repositories) {
+        return new Configuration(configModelVersion, forwardAsMasterConfig, repositories, sourcesDirectory, skip, null,
+                forwardProperties, forwardPropertyValues, maven);
+    }
+
 }
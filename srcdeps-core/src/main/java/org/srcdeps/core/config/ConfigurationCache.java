@@ -0,0 +1,397 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.MavenLocalRepository;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.config.scalar.Scalars;
+import org.srcdeps.core.config.tree.ContainerNode;
+import org.srcdeps.core.config.tree.ListNode;
+import org.srcdeps.core.config.tree.ListOfScalarsNode;
+import org.srcdeps.core.config.tree.Node;
+import org.srcdeps.core.config.tree.ScalarDeserializer;
+import org.srcdeps.core.config.tree.ScalarNode;
+import org.srcdeps.core.config.tree.walk.AbstractVisitor;
+import org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor;
+import org.srcdeps.core.config.tree.walk.OverrideVisitor;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * A file system cache of resolved configurations, i.e. of {@link Configuration.Builder}s that were read, completed by
+ * {@link DefaultsAndInheritanceVisitor} and overridden by {@link OverrideVisitor}. A cache hit thus saves both the
+ * parsing of {@code srcdeps.yaml} and the walking of the configuration tree.
+ * <p>
+ * The entries are stored in a compact binary form in files named after their keys. A key is a SHA-1 hash of the raw
+ * configuration content and of all {@code srcdeps.*} properties, see {@link #key(byte[], Properties)}. The forward
+ * property values are not stored, because they may depend on any other property; the caller is supposed to
+ * re-compute them using {@link Configuration.Builder#forwardPropertyValues(Properties)}.
+ * <p>
+ * An entry that cannot be read, e.g. because it was written by a version of srcdeps with a different configuration
+ * model, is treated as a cache miss and deleted.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class ConfigurationCache {
+
+    /**
+     * A {@link org.srcdeps.core.config.tree.Visitor} writing the visited tree to a {@link DataOutputStream}.
+     */
+    static class BinaryWriterVisitor extends AbstractVisitor {
+        private final DataOutputStream out;
+
+        BinaryWriterVisitor(DataOutputStream out) {
+            super();
+            this.out = out;
+        }
+
+        @Override
+        public boolean containerBegin(ContainerNode<? extends Node> node) {
+            super.containerBegin(node);
+            try {
+                out.writeByte(CONTAINER);
+                writeString(out, node.getName());
+                out.writeInt(node.getChildren().size());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return true;
+        }
+
+        @Override
+        public void containerEnd() {
+            super.containerEnd();
+            try {
+                out.writeByte(END);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public boolean listBegin(ListNode<? extends Node> node) {
+            super.listBegin(node);
+            try {
+                out.writeByte(LIST);
+                writeString(out, node.getName());
+                out.writeInt(node.getElements().size());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return true;
+        }
+
+        @Override
+        public void scalar(ScalarNode<Object> node) {
+            try {
+                if (!hasListAncestor(0)) {
+                    out.writeByte(SCALAR);
+                    writeString(out, node.getName());
+                }
+                final Object value = node.getValue();
+                writeString(out, value == null ? null : String.valueOf(value));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static final byte CONTAINER = 1;
+    private static final byte END = 2;
+    private static final String FILE_SUFFIX = ".bin";
+    private static final short FORMAT_VERSION = 1;
+    private static final byte LIST = 3;
+    private static final Logger log = LoggerFactory.getLogger(ConfigurationCache.class);
+    private static final int MAGIC = 0x53444343; // SDCC
+    private static final int MAX_ENTRIES = 64;
+    private static final byte SCALAR = 4;
+    private static final String SRCDEPS_CONFIG_CACHE_DIRECTORY_PROPERTY = "srcdeps.configCache.directory";
+    private static final String SRCDEPS_PROPERTY_PREFIX = "srcdeps.";
+
+    private static Object deserialize(Class<?> type, String value) {
+        if (value == null) {
+            return null;
+        } else if (type == SrcVersion.class) {
+            return SrcVersion.parseRef(value);
+        } else if (type == Pattern.class) {
+            return Pattern.compile(value);
+        }
+        final ScalarDeserializer deserializer = Scalars.getDeserializer(type);
+        if (deserializer == null) {
+            throw new IllegalStateException(String.format("No deserializer for type [%s]", type.getName()));
+        }
+        return deserializer.deserialize(value);
+    }
+
+    /**
+     * @return the name of the system property that can be used to set the directory where
+     *         {@link #ofSystemProperties(Properties)} stores the cached configurations
+     */
+    public static String getSrcdepsConfigCacheDirectoryProperty() {
+        return SRCDEPS_CONFIG_CACHE_DIRECTORY_PROPERTY;
+    }
+
+    /**
+     * Computes the cache key for the given raw configuration {@code content} and the given {@code properties}. Only
+     * the properties whose names start with {@code srcdeps.} are taken into account, because only those can
+     * override configuration values. The key also depends on the version of srcdeps-core if it is available.
+     *
+     * @param content    the raw content of the configuration file, typically {@code srcdeps.yaml}
+     * @param properties the properties to pass to {@link OverrideVisitor}
+     * @return a SHA-1 hex string
+     */
+    public static String key(byte[] content, Properties properties) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update(String.valueOf(ConfigurationCache.class.getPackage().getImplementationVersion() + "/"
+                    + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(content);
+            for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+                if (name.startsWith(SRCDEPS_PROPERTY_PREFIX)) {
+                    md.update((byte) 0);
+                    md.update(name.getBytes(StandardCharsets.UTF_8));
+                    md.update((byte) '=');
+                    md.update(properties.getProperty(name).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return SrcdepsCoreUtils.bytesToHexString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param properties the properties to read {@link #getSrcdepsConfigCacheDirectoryProperty()} from
+     * @return a new {@link ConfigurationCache} storing its entries either in the directory set via
+     *         {@link #getSrcdepsConfigCacheDirectoryProperty()} or in {@code srcdeps/config-cache} next to the local
+     *         Maven repository
+     */
+    public static ConfigurationCache ofSystemProperties(Properties properties) {
+        final String dir = properties.getProperty(SRCDEPS_CONFIG_CACHE_DIRECTORY_PROPERTY);
+        if (dir != null) {
+            return new ConfigurationCache(Paths.get(dir));
+        }
+        final Path localRepo = MavenLocalRepository.autodetect().getRootDirectory();
+        return new ConfigurationCache(localRepo.resolveSibling("srcdeps").resolve("config-cache"));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static IOException stale(String message, Object... args) {
+        return new IOException(String.format(message, args));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private final Path directory;
+
+    /**
+     * @param directory the directory to store the cached configurations in; it will be created on the first
+     *                  {@link #put(String, Configuration.Builder)} if it does not exist
+     */
+    public ConfigurationCache(Path directory) {
+        super();
+        SrcdepsCoreUtils.assertArgNotNull(directory, "directory");
+        this.directory = directory;
+    }
+
+    /**
+     * @param key a key returned by {@link #key(byte[], Properties)}
+     * @return a new resolved {@link Configuration.Builder} having no forward property values, or {@code null} if
+     *         there is no usable entry for the given {@code key}
+     */
+    public Configuration.Builder get(String key) {
+        final Path file = directory.resolve(key + FILE_SUFFIX);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final Configuration.Builder result = read(in);
+            log.debug("srcdeps: Configuration cache hit [{}]", file);
+            return result;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("srcdeps: Ignoring unusable configuration cache entry [{}]: {}", file, e.getMessage());
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e1) {
+                log.warn(String.format("srcdeps: Could not delete [%s]", file), e1);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return the directory where this {@link ConfigurationCache} stores its entries
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Deletes the least recently written entries so that at most {@value #MAX_ENTRIES} remain.
+     */
+    private void prune() throws IOException {
+        final List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path entry : dir) {
+                entries.add(entry);
+            }
+        }
+        if (entries.size() > MAX_ENTRIES) {
+            Collections.sort(entries, new Comparator<Path>() {
+                @Override
+                public int compare(Path p1, Path p2) {
+                    return Long.compare(p1.toFile().lastModified(), p2.toFile().lastModified());
+                }
+            });
+            for (Path entry : entries.subList(0, entries.size() - MAX_ENTRIES)) {
+                Files.deleteIfExists(entry);
+            }
+        }
+    }
+
+    /**
+     * Stores the given resolved {@link Configuration.Builder} under the given {@code key}. Any failure is logged and
+     * otherwise ignored.
+     *
+     * @param key      a key returned by {@link #key(byte[], Properties)}
+     * @param resolved a {@link Configuration.Builder} that was visited by {@link DefaultsAndInheritanceVisitor} and
+     *                 {@link OverrideVisitor}
+     */
+    public void put(String key, Configuration.Builder resolved) {
+        final Path file = directory.resolve(key + FILE_SUFFIX);
+        Path tmp = null;
+        try {
+            SrcdepsCoreUtils.ensureDirectoryExists(directory);
+            tmp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(FORMAT_VERSION);
+                resolved.accept(new BinaryWriterVisitor(out));
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+            prune();
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format("srcdeps: Could not store configuration cache entry [%s]", file), e);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    log.warn(String.format("srcdeps: Could not delete [%s]", tmp), e);
+                }
+            }
+        }
+    }
+
+    private Configuration.Builder read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw stale("Not a configuration cache entry");
+        }
+        final short version = in.readShort();
+        if (version != FORMAT_VERSION) {
+            throw stale("Unexpected format version [%d], expected [%d]", version, FORMAT_VERSION);
+        }
+        final Configuration.Builder result = Configuration.builder();
+        if (in.readByte() != CONTAINER || !result.getName().equals(readString(in))) {
+            throw stale("Expected the root node [%s]", result.getName());
+        }
+        readContainer(in, result, result);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readContainer(DataInputStream in, ContainerNode<? extends Node> node, Configuration.Builder root)
+            throws IOException {
+        final Map<String, ? extends Node> children = node.getChildren();
+        final int count = in.readInt();
+        if (node != root.repositories && count != children.size()) {
+            throw stale("Node [%s] has [%d] children, expected [%d]", node.getName(), children.size(), count);
+        }
+        for (int i = 0; i < count; i++) {
+            final byte tag = in.readByte();
+            final String name = readString(in);
+            Node child = children.get(name);
+            if (child == null && node == root.repositories) {
+                final ScmRepository.Builder repo = ScmRepository.builder().id(name);
+                root.repository(repo);
+                child = repo;
+            }
+            if (tag == CONTAINER && child instanceof ContainerNode) {
+                readContainer(in, (ContainerNode<? extends Node>) child, root);
+            } else if (tag == LIST && child instanceof ListOfScalarsNode) {
+                final ListOfScalarsNode<Object> list = (ListOfScalarsNode<Object>) child;
+                list.clear();
+                final int size = in.readInt();
+                for (int j = 0; j < size; j++) {
+                    list.add(deserialize(list.getElementType(), readString(in)));
+                }
+            } else if (tag == SCALAR && child instanceof ScalarNode) {
+                final ScalarNode<Object> scalar = (ScalarNode<Object>) child;
+                scalar.setValue(deserialize(scalar.getType(), readString(in)));
+            } else {
+                throw stale("Unexpected node [%s] of kind [%d] in [%s]", name, tag, node.getName());
+            }
+        }
+        if (in.readByte() != END) {
+            throw stale("Expected the end of node [%s]", node.getName());
+        }
+    }
+
+}
@@ -16,26 +16,62 @@
  */
 package org.srcdeps.core.config;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.srcdeps.core.config.Configuration.Builder;
+import org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor;
+import org.srcdeps.core.config.tree.walk.OverrideVisitor;
 
 /**
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
 public class ConfigurationLocator {
+
+    /**
+     * The raw content of a located configuration file.
+     */
+    private static class Source {
+        /** {@code null} if no configuration file was found */
+        private final byte[] content;
+        /** the path or URL the {@link #content} comes from, for logging purposes */
+        private final String location;
+        /** the local file the {@link #content} comes from or {@code null} */
+        private final Path path;
+
+        private Source(byte[] content, String location, Path path) {
+            super();
+            this.content = content;
+            this.location = location;
+            this.path = path;
+        }
+
+        private Configuration.Builder read(ConfigurationReader configurationReader, Charset encoding)
+                throws ConfigurationException {
+            if (content == null) {
+                return Configuration.builder();
+            }
+            try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), encoding)) {
+                return configurationReader.read(reader);
+            } catch (IOException e) {
+                throw new ConfigurationException(String.format("Could not read [%s]", location), e);
+            }
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(ConfigurationLocator.class);
 
     /** Before srcdeps-maven 3.1.0 this used to be the default location of srcdeps.yaml file */
@@ -46,28 +82,10 @@ public class ConfigurationLocator {
      */
     private static final Path SRCDEPS_YAML_PATH = Paths.get("srcdeps.yaml");
 
-    private static Configuration.Builder locateUrl(final ConfigurationReader configurationReader, final String url,
-            final Charset encoding) throws ConfigurationException {
-        try {
-            if (url.startsWith("file://")) {
-                final Path path = Paths.get(new URI(url));
-                if (Files.exists(path)) {
-                    try (BufferedReader reader = Files.newBufferedReader(path, encoding)) {
-                        return configurationReader.read(reader);
-                    }
-                } else {
-                    throw new ConfigurationException(String.format("The file [%s] specified via %s does not exist", url,
-                            Configuration.getSrcdepsMasterConfigProperty()));
-                }
-            } else {
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(new URL(url).openStream(), encoding))) {
-                    return configurationReader.read(reader);
-                }
-            }
-        } catch (IOException | URISyntaxException e) {
-            throw new ConfigurationException(String.format("Could not read [%s] specified via %s", url,
-                    Configuration.getSrcdepsMasterConfigProperty()), e);
+    private static void forwardAsMasterConfig(Configuration.Builder builder, Path path) {
+        final Boolean forwardAsMasterConfig = builder.forwardAsMasterConfig.getValue();
+        if (forwardAsMasterConfig != null && forwardAsMasterConfig.booleanValue()) {
+            builder.forwardPropertyValue(Configuration.getSrcdepsMasterConfigProperty(), path.toUri().toString());
         }
     }
 
@@ -75,15 +93,9 @@ public class ConfigurationLocator {
         return new ConfigurationLocator(System.getProperties(), false);
     }
 
-    private static Configuration.Builder read(ConfigurationReader configurationReader, Charset encoding,
-            final Path path) throws ConfigurationException {
-        try (BufferedReader reader = Files.newBufferedReader(path, encoding)) {
-            final Builder result = configurationReader.read(reader);
-            final Boolean forwardAsMasterConfig = result.forwardAsMasterConfig.getValue();
-            if (forwardAsMasterConfig != null && forwardAsMasterConfig.booleanValue()) {
-                result.forwardPropertyValue(Configuration.getSrcdepsMasterConfigProperty(), path.toUri().toString());
-            }
-            return result;
+    private static Source read(final Path path) throws ConfigurationException {
+        try {
+            return new Source(Files.readAllBytes(path), path.toString(), path);
         } catch (IOException e) {
             throw new ConfigurationException(String.format("Could not read [%s]", path), e);
         }
@@ -91,6 +103,12 @@ public class ConfigurationLocator {
 
     private final boolean considerMvnSubdirectory;
 
+    /**
+     * Created lazily by {@link #getRemoteConfigurationCache()} and shared by all subsequent resolves so that the
+     * background revalidations of the same URL are not started more than once. Guarded by {@code this}
+     */
+    private RemoteConfigurationCache remoteConfigurationCache;
+
     private final Properties systemProperties;
 
     public ConfigurationLocator(Properties systemProperties, boolean condiderMvnSubdirectory) {
@@ -99,38 +117,149 @@ public class ConfigurationLocator {
         this.considerMvnSubdirectory = condiderMvnSubdirectory;
     }
 
-    public Configuration.Builder locate(Path sourceTreeRoot, ConfigurationReader configurationReader)
-            throws ConfigurationException {
+    private synchronized RemoteConfigurationCache getRemoteConfigurationCache() {
+        if (remoteConfigurationCache == null) {
+            remoteConfigurationCache = RemoteConfigurationCache.ofSystemProperties(systemProperties);
+        }
+        return remoteConfigurationCache;
+    }
+
+    private Charset getEncoding() {
+        return Charset.forName(systemProperties.getProperty(Configuration.getSrcdepsEncodingProperty(), "utf-8"));
+    }
+
+    /**
+     * @param sourceTreeRoot the directory to look up the configuration file in
+     * @return the files whose change can change the outcome of {@link #locate(Path, ConfigurationReader)}; empty if
+     *         the configuration comes from a remote master configuration URL
+     * @throws ConfigurationException if the master configuration URL is malformed
+     */
+    List<Path> getWatchablePaths(Path sourceTreeRoot) throws ConfigurationException {
         final String srcdepsMasterConfigUrl = systemProperties
                 .getProperty(Configuration.getSrcdepsMasterConfigProperty());
-        final Charset encoding = Charset
-                .forName(systemProperties.getProperty(Configuration.getSrcdepsEncodingProperty(), "utf-8"));
-        if (srcdepsMasterConfigUrl != null) {
-            return locateUrl(configurationReader, srcdepsMasterConfigUrl, encoding);
+        if (srcdepsMasterConfigUrl == null) {
+            return considerMvnSubdirectory
+                    ? Arrays.asList(sourceTreeRoot.resolve(SRCDEPS_YAML_PATH),
+                            sourceTreeRoot.resolve(MVN_SRCDEPS_YAML_PATH))
+                    : Collections.singletonList(sourceTreeRoot.resolve(SRCDEPS_YAML_PATH));
+        } else if (srcdepsMasterConfigUrl.startsWith("file://")) {
+            try {
+                return Collections.singletonList(Paths.get(new URI(srcdepsMasterConfigUrl)));
+            } catch (URISyntaxException e) {
+                throw new ConfigurationException(String.format("Could not parse [%s] specified via %s",
+                        srcdepsMasterConfigUrl, Configuration.getSrcdepsMasterConfigProperty()), e);
+            }
         } else {
-            return locateLocal(sourceTreeRoot, configurationReader, encoding);
+            return Collections.emptyList();
+        }
+    }
+
+    public Configuration.Builder locate(Path sourceTreeRoot, ConfigurationReader configurationReader)
+            throws ConfigurationException {
+        final Source source = locateSource(sourceTreeRoot);
+        final Configuration.Builder result = source.read(configurationReader, getEncoding());
+        if (source.path != null) {
+            forwardAsMasterConfig(result, source.path);
         }
+        return result;
     }
 
-    private Configuration.Builder locateLocal(Path sourceTreeRoot, ConfigurationReader configurationReader,
-            Charset encoding) throws ConfigurationException {
+    private Source locateLocal(Path sourceTreeRoot) throws ConfigurationException {
         final Path defaultSrcdepsYamlPath = sourceTreeRoot.resolve(SRCDEPS_YAML_PATH);
         if (Files.exists(defaultSrcdepsYamlPath)) {
-            return read(configurationReader, encoding, defaultSrcdepsYamlPath);
+            return read(defaultSrcdepsYamlPath);
         } else if (considerMvnSubdirectory) {
             final Path legacySrcdepsYamlPath = sourceTreeRoot.resolve(MVN_SRCDEPS_YAML_PATH);
             if (Files.exists(legacySrcdepsYamlPath)) {
-                return read(configurationReader, encoding, legacySrcdepsYamlPath);
+                return read(legacySrcdepsYamlPath);
             } else {
                 log.warn(
                         "srcdeps: Could not locate srcdeps configuration at neither [{}] nor [{}], defaulting to an empty configuration",
                         defaultSrcdepsYamlPath, legacySrcdepsYamlPath);
-                return Configuration.builder();
+                return new Source(null, null, null);
             }
         } else {
             log.warn("srcdeps: Could not locate srcdeps configuration at [{}], defaulting to an empty configuration",
                     defaultSrcdepsYamlPath);
-            return Configuration.builder();
+            return new Source(null, null, null);
+        }
+    }
+
+    private Source locateSource(Path sourceTreeRoot) throws ConfigurationException {
+        final String srcdepsMasterConfigUrl = systemProperties
+                .getProperty(Configuration.getSrcdepsMasterConfigProperty());
+        if (srcdepsMasterConfigUrl != null) {
+            return locateUrl(srcdepsMasterConfigUrl);
+        } else {
+            return locateLocal(sourceTreeRoot);
+        }
+    }
+
+    /**
+     * Reads the given master configuration {@code url}. Remote URLs are read through a
+     * {@link RemoteConfigurationCache} configured by the system properties of this {@link ConfigurationLocator}; the
+     * same cache instance is used for all resolves done by this {@link ConfigurationLocator}.
+     */
+    private Source locateUrl(final String url) throws ConfigurationException {
+        try {
+            if (url.startsWith("file://")) {
+                final Path path = Paths.get(new URI(url));
+                if (Files.exists(path)) {
+                    return new Source(Files.readAllBytes(path), url, null);
+                } else {
+                    throw new ConfigurationException(String.format("The file [%s] specified via %s does not exist", url,
+                            Configuration.getSrcdepsMasterConfigProperty()));
+                }
+            } else {
+                return new Source(getRemoteConfigurationCache().get(url), url, null);
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new ConfigurationException(String.format("Could not read [%s] specified via %s", url,
+                    Configuration.getSrcdepsMasterConfigProperty()), e);
+        }
+    }
+
+    /**
+     * Locates the configuration in the same way as {@link #locate(Path, ConfigurationReader)}, applies
+     * {@link DefaultsAndInheritanceVisitor} and {@link OverrideVisitor} with the system properties of this
+     * {@link ConfigurationLocator} and builds it.
+     * <p>
+     * If a {@code cache} is passed, the resolved configuration is looked up there first, using the raw content of
+     * the located configuration file and the {@code srcdeps.*} system properties as the key. On a cache hit, neither
+     * the parsing of the configuration file nor the tree walking takes place.
+     * <p>
+     * Unlike {@link #locate(Path, ConfigurationReader)}, this method honors the value of {@code forwardAsMasterConfig}
+     * after the overrides were applied and the {@link Configuration#getSrcdepsLazyRepositoriesProperty()} system
+     * property.
+     *
+     * @param sourceTreeRoot      the directory to look up the configuration file in
+     * @param configurationReader the reader to use on cache miss
+     * @param cache               the {@link ConfigurationCache} to use or {@code null} to resolve without caching
+     * @return the resolved {@link Configuration}
+     * @throws ConfigurationException if the configuration cannot be read
+     * @since 4.0.4
+     */
+    public Configuration resolve(Path sourceTreeRoot, ConfigurationReader configurationReader,
+            ConfigurationCache cache) throws ConfigurationException {
+        final Source source = locateSource(sourceTreeRoot);
+        final String key = cache == null || source.content == null ? null
+                : ConfigurationCache.key(source.content, systemProperties);
+        Configuration.Builder result = key == null ? null : cache.get(key);
+        if (result == null) {
+            result = source.read(configurationReader, getEncoding()) //
+                    .accept(new DefaultsAndInheritanceVisitor()) //
+                    .accept(new OverrideVisitor(systemProperties));
+            if (key != null) {
+                cache.put(key, result);
+            }
+        }
+        if (source.path != null) {
+            forwardAsMasterConfig(result, source.path);
         }
+        /* the system properties take precedence over forwardAsMasterConfig like in OverrideVisitor */
+        result.forwardPropertyValues(systemProperties);
+        result.lazyRepositories(Boolean.parseBoolean(
+                systemProperties.getProperty(Configuration.getSrcdepsLazyRepositoriesProperty())));
+        return result.build();
     }
 }
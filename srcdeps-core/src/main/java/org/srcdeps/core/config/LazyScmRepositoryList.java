@@ -0,0 +1,181 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.srcdeps.core.GavPattern;
+import org.srcdeps.core.config.tree.ListOfScalarsNode;
+
+/**
+ * An unmodifiable {@link List} of {@link ScmRepository ScmRepositories} that builds each {@link ScmRepository} out of
+ * its {@link ScmRepository.Builder} only when the element is accessed for the first time. In addition to that, the
+ * repositories are indexed by the groupId parts of their {@code includes} so that
+ * {@link #getCandidates(String)} can tell which repositories may contain a given groupId without building any of
+ * them.
+ * <p>
+ * This is used by {@link Configuration.Builder#build()} if {@link Configuration.Builder#lazyRepositories(boolean)} is
+ * {@code true}. The {@link ScmRepository.Builder}s passed to the constructor must not be modified afterwards.
+ * <p>
+ * Note that as a consequence, the validation errors of a repository (such as an invalid id or include pattern) are not
+ * reported when the configuration is built but only when the given repository is accessed for the first time. Hence an
+ * invalid repository unrelated to the artifacts looked up goes unnoticed.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class LazyScmRepositoryList extends AbstractList<ScmRepository> implements RandomAccess {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * @param includes the raw include patterns of a repository
+     * @return the literal groupIds the given {@code includes} can match or {@code null} if some of the
+     *         {@code includes} has a wildcard in its groupId part (see {@link GavPattern#of(String)})
+     */
+    static List<String> getLiteralGroupIds(List<String> includes) {
+        if (includes.isEmpty()) {
+            /* no includes means include all, see GavSet.Builder#build() */
+            return null;
+        }
+        final List<String> result = new ArrayList<>(includes.size());
+        for (String include : includes) {
+            /* tokenize the same way as GavPattern.of(String) */
+            final StringTokenizer st = new StringTokenizer(include, ":");
+            if (!st.hasMoreTokens()) {
+                return null;
+            }
+            final String groupId = st.nextToken();
+            if (groupId.indexOf('*') >= 0) {
+                return null;
+            }
+            result.add(groupId);
+        }
+        return result;
+    }
+
+    private static int[] merge(List<Integer> literal, int[] wildcard) {
+        final int[] result = new int[literal.size() + wildcard.length];
+        int i = 0;
+        for (Integer index : literal) {
+            result[i++] = index;
+        }
+        System.arraycopy(wildcard, 0, result, i, wildcard.length);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private final ScmRepository.Builder[] builders;
+    private final AtomicReferenceArray<ScmRepository> built;
+
+    /** The candidate indexes by groupId; the candidates of the groupIds not present here are {@link #wildcard} */
+    private final Map<String, int[]> candidates;
+
+    /** The indexes of the repositories whose includes cannot be matched by groupId literally */
+    private final int[] wildcard;
+
+    public LazyScmRepositoryList(Collection<ScmRepository.Builder> builders) {
+        super();
+        this.builders = builders.toArray(new ScmRepository.Builder[0]);
+        this.built = new AtomicReferenceArray<>(this.builders.length);
+
+        final Map<String, List<Integer>> literal = new HashMap<>();
+        final List<Integer> wildcard = new ArrayList<>();
+        for (int i = 0; i < this.builders.length; i++) {
+            final ListOfScalarsNode<String> includes = this.builders[i].includes;
+            final List<String> groupIds = getLiteralGroupIds(includes.asListOfValues());
+            if (groupIds == null) {
+                wildcard.add(i);
+            } else {
+                for (String groupId : groupIds) {
+                    List<Integer> indexes = literal.get(groupId);
+                    if (indexes == null) {
+                        indexes = new ArrayList<>();
+                        literal.put(groupId, indexes);
+                    }
+                    if (indexes.isEmpty() || indexes.get(indexes.size() - 1) != i) {
+                        indexes.add(i);
+                    }
+                }
+            }
+        }
+        this.wildcard = merge(wildcard, EMPTY);
+        final Map<String, int[]> candidates = new HashMap<>(literal.size() * 2);
+        for (Map.Entry<String, List<Integer>> en : literal.entrySet()) {
+            candidates.put(en.getKey(), merge(en.getValue(), this.wildcard));
+        }
+        this.candidates = candidates;
+    }
+
+    /**
+     * Builds the {@link ScmRepository} at the given {@code index} if it was not built yet.
+     *
+     * @param index the index of the element to return
+     * @return the {@link ScmRepository} at the given {@code index}
+     */
+    @Override
+    public ScmRepository get(int index) {
+        ScmRepository result = built.get(index);
+        if (result == null) {
+            result = builders[index].build();
+            if (!built.compareAndSet(index, null, result)) {
+                /* some other thread was faster */
+                result = built.get(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of {@link ScmRepository ScmRepositories} built so far
+     */
+    public int getBuiltCount() {
+        int result = 0;
+        for (int i = 0; i < builders.length; i++) {
+            if (built.get(i) != null) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param groupId the groupId to look up
+     * @return the indexes of repositories that may contain artifacts with the given {@code groupId} in ascending
+     *         order; the repositories at other indexes certainly do not contain them. The caller must not modify the
+     *         returned array.
+     */
+    public int[] getCandidates(String groupId) {
+        final int[] result = candidates.get(groupId);
+        return result == null ? wildcard : result;
+    }
+
+    @Override
+    public int size() {
+        return builders.length;
+    }
+
+}
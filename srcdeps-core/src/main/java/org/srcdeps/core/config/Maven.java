@@ -74,9 +74,12 @@ public class Maven {
 
     /** Keep in sync with doc/srcdeps.yaml */
     private static final String DEFAULT_VERSIONS_MAVEN_PLUGIN_VERSION = "2.3";
+    private static final String SRCDEPS_MAVEN_EMBEDDED_PROPERTY = "srcdeps.maven.embedded";
+    private static final String SRCDEPS_MAVEN_MVND_PROPERTY = "srcdeps.maven.mvnd";
     private static final String SRCDEPS_MAVEN_PROPERTIES_PATTERN = "srcdeps.maven.*";
     private static final String SRCDEPS_MAVEN_SETTINGS_PROPERTY = "srcdeps.maven.settings";
     private static final String SRCDEPS_MAVEN_VERSION_PROPERTY = "srcdeps.maven.version";
+    private static final String SRCDEPS_MAVEN_VERSIONS_MODE_PROPERTY = "srcdeps.maven.versionsMode";
 
     public static Builder builder() {
         return new Builder();
@@ -91,6 +94,31 @@ public class Maven {
         return DEFAULT_VERSIONS_MAVEN_PLUGIN_VERSION;
     }
 
+    /**
+     * @return the name of the system property to enable building Maven source dependencies in the current JVM rather
+     *         than in a forked {@code mvn} process. The possible values are {@code false} (the default), {@code true}
+     *         (use the Maven distribution of the Maven Wrapper of the source tree or the one found via the
+     *         {@code maven.home} system property or the {@code MAVEN_HOME} environment variable) or a path to a Maven
+     *         home directory. The name of the property is {@value #SRCDEPS_MAVEN_EMBEDDED_PROPERTY}
+     * @since 4.0.4
+     */
+    public static String getSrcdepsMavenEmbeddedProperty() {
+        return SRCDEPS_MAVEN_EMBEDDED_PROPERTY;
+    }
+
+    /**
+     * @return the name of the system property to control whether Maven source dependencies should be built using
+     *         the Maven Daemon ({@code mvnd}). The possible values are {@code false} (the default: never use
+     *         {@code mvnd}), {@code auto} (use {@code mvnd} if it is available on {@code PATH} and the source tree has
+     *         no Maven Wrapper), {@code true} (always use {@code mvnd} from {@code PATH}) or a path to the
+     *         {@code mvnd} executable (always use the given executable). The name of the property is
+     *         {@value #SRCDEPS_MAVEN_MVND_PROPERTY}
+     * @since 4.0.4
+     */
+    public static String getSrcdepsMavenMvndProperty() {
+        return SRCDEPS_MAVEN_MVND_PROPERTY;
+    }
+
     /**
      * @return {@value #SRCDEPS_MAVEN_PROPERTIES_PATTERN}
      */
@@ -114,6 +142,17 @@ public class Maven {
         return SRCDEPS_MAVEN_VERSION_PROPERTY;
     }
 
+    /**
+     * @return the name of the system property to select the way how the versions are set in the source trees of
+     *         Maven source dependencies before building them. The possible values are {@code versionsMavenPlugin}
+     *         (the default) and {@code inProcess}. The name of the property is
+     *         {@value #SRCDEPS_MAVEN_VERSIONS_MODE_PROPERTY}
+     * @since 4.0.4
+     */
+    public static String getSrcdepsMavenVersionsModeProperty() {
+        return SRCDEPS_MAVEN_VERSIONS_MODE_PROPERTY;
+    }
+
     private final MavenAssertions failWith;
     private final MavenAssertions failWithout;
 
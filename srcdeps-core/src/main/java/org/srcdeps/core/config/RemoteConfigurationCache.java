@@ -0,0 +1,427 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.MavenLocalRepository;
+import org.srcdeps.core.config.scalar.Duration;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * An on-disk cache of remote configuration files, such as the one set via
+ * {@link Configuration#getSrcdepsMasterConfigProperty()}. A cached copy is
+ * <ul>
+ * <li>served without any request if it is younger than {@link Builder#maxAge(Duration)};</li>
+ * <li>served and revalidated in a background thread if it is younger than {@link Builder#maxAge(Duration)} plus
+ * {@link Builder#staleWhileRevalidate(Duration)};</li>
+ * <li>revalidated synchronously otherwise, using a conditional HTTP request with {@code If-None-Match} and
+ * {@code If-Modified-Since} headers so that an unchanged file is not transferred again.</li>
+ * </ul>
+ * If the remote server cannot be reached, does not respond within the timeouts or responds with an error, the cached
+ * copy is served regardless of its age. Only if there is no cached copy, the failure is propagated to the caller.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class RemoteConfigurationCache {
+
+    public static class Builder {
+        private Duration connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        private Path directory;
+        private Duration maxAge = DEFAULT_MAX_AGE;
+        private Duration readTimeout = DEFAULT_READ_TIMEOUT;
+        private Duration staleWhileRevalidate = DEFAULT_STALE_WHILE_REVALIDATE;
+
+        public RemoteConfigurationCache build() {
+            return new RemoteConfigurationCache(directory, maxAge.toMilliseconds(),
+                    staleWhileRevalidate.toMilliseconds(), (int) connectTimeout.toMilliseconds(),
+                    (int) readTimeout.toMilliseconds());
+        }
+
+        /**
+         * @param connectTimeout how long to wait for a connection to the remote server
+         * @return this {@link Builder}
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param directory the directory to store the cached files in
+         * @return this {@link Builder}
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param maxAge how long a cached copy is served without contacting the remote server
+         * @return this {@link Builder}
+         */
+        public Builder maxAge(Duration maxAge) {
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        /**
+         * @param readTimeout how long to wait for data from the remote server
+         * @return this {@link Builder}
+         */
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * @param staleWhileRevalidate how long after {@link #maxAge(Duration)} a cached copy is still served while
+         *                             being revalidated in the background
+         * @return this {@link Builder}
+         */
+        public Builder staleWhileRevalidate(Duration staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+            return this;
+        }
+    }
+
+    /**
+     * A cached copy of a remote file together with the validators returned by the server.
+     */
+    static class Entry {
+        private static Entry read(Path file) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(String.format("[%s] is not a remote configuration cache entry", file));
+                }
+                final long fetchedAt = in.readLong();
+                final String etag = readString(in);
+                final String lastModified = readString(in);
+                final byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                return new Entry(content, etag, lastModified, fetchedAt);
+            }
+        }
+
+        private final byte[] content;
+        private final String etag;
+        private final long fetchedAt;
+        private final String lastModified;
+
+        Entry(byte[] content, String etag, String lastModified, long fetchedAt) {
+            super();
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeLong(fetchedAt);
+            writeString(out, etag);
+            writeString(out, lastModified);
+            out.writeInt(content.length);
+            out.write(content);
+        }
+    }
+
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = new Duration(5, TimeUnit.SECONDS);
+    private static final Duration DEFAULT_MAX_AGE = new Duration(5, TimeUnit.MINUTES);
+    private static final Duration DEFAULT_READ_TIMEOUT = new Duration(10, TimeUnit.SECONDS);
+    private static final Duration DEFAULT_STALE_WHILE_REVALIDATE = new Duration(1, TimeUnit.DAYS);
+    private static final Logger log = LoggerFactory.getLogger(RemoteConfigurationCache.class);
+    private static final int MAGIC = 0x53445243; // SDRC
+
+    private static final String SRCDEPS_MASTER_CONFIG_CACHE_DIRECTORY_PROPERTY = "srcdeps.masterConfig.cacheDirectory";
+    private static final String SRCDEPS_MASTER_CONFIG_CONNECT_TIMEOUT_PROPERTY = "srcdeps.masterConfig.connectTimeout";
+    private static final String SRCDEPS_MASTER_CONFIG_MAX_AGE_PROPERTY = "srcdeps.masterConfig.maxAge";
+    private static final String SRCDEPS_MASTER_CONFIG_READ_TIMEOUT_PROPERTY = "srcdeps.masterConfig.readTimeout";
+    private static final String SRCDEPS_MASTER_CONFIG_STALE_WHILE_REVALIDATE_PROPERTY = "srcdeps.masterConfig.staleWhileRevalidate";
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the name of the system property that can be used to set the directory where the remote master
+     *         configuration files are cached; the default is {@code srcdeps/master-config-cache} next to the local
+     *         Maven repository
+     */
+    public static String getSrcdepsMasterConfigCacheDirectoryProperty() {
+        return SRCDEPS_MASTER_CONFIG_CACHE_DIRECTORY_PROPERTY;
+    }
+
+    /**
+     * @return the name of the system property that can be used to set the connect timeout for fetching the remote
+     *         master configuration, such as {@code 5s}
+     */
+    public static String getSrcdepsMasterConfigConnectTimeoutProperty() {
+        return SRCDEPS_MASTER_CONFIG_CONNECT_TIMEOUT_PROPERTY;
+    }
+
+    /**
+     * @return the name of the system property that can be used to set how long a cached remote master configuration
+     *         is used without contacting the remote server, such as {@code 5m}
+     */
+    public static String getSrcdepsMasterConfigMaxAgeProperty() {
+        return SRCDEPS_MASTER_CONFIG_MAX_AGE_PROPERTY;
+    }
+
+    /**
+     * @return the name of the system property that can be used to set the read timeout for fetching the remote master
+     *         configuration, such as {@code 10s}
+     */
+    public static String getSrcdepsMasterConfigReadTimeoutProperty() {
+        return SRCDEPS_MASTER_CONFIG_READ_TIMEOUT_PROPERTY;
+    }
+
+    /**
+     * @return the name of the system property that can be used to set how long after its max age a cached remote
+     *         master configuration is still used while being revalidated in the background, such as {@code 1d}
+     */
+    public static String getSrcdepsMasterConfigStaleWhileRevalidateProperty() {
+        return SRCDEPS_MASTER_CONFIG_STALE_WHILE_REVALIDATE_PROPERTY;
+    }
+
+    /**
+     * @param properties the properties to read the settings from
+     * @return a new {@link RemoteConfigurationCache} configured by the {@code srcdeps.masterConfig.*} properties
+     */
+    public static RemoteConfigurationCache ofSystemProperties(Properties properties) {
+        final String dir = properties.getProperty(SRCDEPS_MASTER_CONFIG_CACHE_DIRECTORY_PROPERTY);
+        final Path directory = dir != null ? Paths.get(dir)
+                : MavenLocalRepository.autodetect().getRootDirectory().resolveSibling("srcdeps")
+                        .resolve("master-config-cache");
+        return builder() //
+                .directory(directory) //
+                .maxAge(duration(properties, SRCDEPS_MASTER_CONFIG_MAX_AGE_PROPERTY, DEFAULT_MAX_AGE)) //
+                .staleWhileRevalidate(duration(properties, SRCDEPS_MASTER_CONFIG_STALE_WHILE_REVALIDATE_PROPERTY,
+                        DEFAULT_STALE_WHILE_REVALIDATE)) //
+                .connectTimeout(
+                        duration(properties, SRCDEPS_MASTER_CONFIG_CONNECT_TIMEOUT_PROPERTY, DEFAULT_CONNECT_TIMEOUT)) //
+                .readTimeout(duration(properties, SRCDEPS_MASTER_CONFIG_READ_TIMEOUT_PROPERTY, DEFAULT_READ_TIMEOUT)) //
+                .build();
+    }
+
+    private static Duration duration(Properties properties, String key, Duration defaultValue) {
+        final String value = properties.getProperty(key);
+        return value == null ? defaultValue : Duration.of(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private final int connectTimeoutMs;
+    private final Path directory;
+    private final long maxAgeMs;
+    private final int readTimeoutMs;
+    /** The background revalidations in progress by URL */
+    private final ConcurrentMap<String, Thread> revalidations = new ConcurrentHashMap<>();
+    private final long staleWhileRevalidateMs;
+
+    RemoteConfigurationCache(Path directory, long maxAgeMs, long staleWhileRevalidateMs, int connectTimeoutMs,
+            int readTimeoutMs) {
+        super();
+        SrcdepsCoreUtils.assertArgNotNull(directory, "directory");
+        this.directory = directory;
+        this.maxAgeMs = maxAgeMs;
+        this.staleWhileRevalidateMs = staleWhileRevalidateMs;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * Waits for the background revalidation of the given {@code url} to finish, if there is any. For testing purposes.
+     */
+    void awaitRevalidation(String url, long timeoutMs) throws InterruptedException {
+        final Thread thread = revalidations.get(url);
+        if (thread != null) {
+            thread.join(timeoutMs);
+        }
+    }
+
+    private Entry fetch(String url, Entry cached) throws IOException {
+        final URLConnection connection = new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeoutMs);
+        connection.setReadTimeout(readTimeoutMs);
+        connection.setUseCaches(false);
+        final long now = System.currentTimeMillis();
+        if (connection instanceof HttpURLConnection) {
+            final HttpURLConnection http = (HttpURLConnection) connection;
+            if (cached != null) {
+                if (cached.etag != null) {
+                    http.setRequestProperty("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    http.setRequestProperty("If-Modified-Since", cached.lastModified);
+                }
+            }
+            final int status = http.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                log.debug("srcdeps: [{}] not modified", url);
+                return new Entry(cached.content, cached.etag, cached.lastModified, now);
+            } else if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException(String.format("Unexpected HTTP status [%d] from [%s]", status, url));
+            }
+        }
+        try (InputStream in = connection.getInputStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                out.write(buf, 0, len);
+            }
+            log.debug("srcdeps: Fetched [{}]", url);
+            return new Entry(out.toByteArray(), connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"), now);
+        }
+    }
+
+    /**
+     * @param url the URL to get the content of
+     * @return the content of the given {@code url}, either cached or freshly fetched
+     * @throws IOException if the content could neither be fetched nor found in the cache
+     */
+    public byte[] get(String url) throws IOException {
+        final Path file = getFile(url);
+        final Entry cached = readEntry(file);
+        if (cached != null) {
+            final long age = System.currentTimeMillis() - cached.fetchedAt;
+            if (age < maxAgeMs) {
+                log.debug("srcdeps: Using [{}] cached [{}] ms ago", url, age);
+                return cached.content;
+            } else if (age - maxAgeMs < staleWhileRevalidateMs) {
+                log.debug("srcdeps: Using [{}] cached [{}] ms ago while revalidating it", url, age);
+                revalidateInBackground(url, file, cached);
+                return cached.content;
+            }
+        }
+        try {
+            return refresh(url, file, cached).content;
+        } catch (IOException e) {
+            if (cached != null) {
+                log.warn("srcdeps: Could not revalidate [{}], using the copy cached at [{}]: {}", url,
+                        new Date(cached.fetchedAt), e.getMessage());
+                return cached.content;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the directory where this {@link RemoteConfigurationCache} stores its entries
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Path getFile(String url) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            return directory.resolve(
+                    SrcdepsCoreUtils.bytesToHexString(md.digest(url.getBytes(StandardCharsets.UTF_8))) + ".bin");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Entry readEntry(Path file) {
+        try {
+            return Entry.read(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("srcdeps: Ignoring unreadable remote configuration cache entry [{}]: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private Entry refresh(String url, Path file, Entry cached) throws IOException {
+        final Entry result = fetch(url, cached);
+        Path tmp = null;
+        try {
+            SrcdepsCoreUtils.ensureDirectoryExists(directory);
+            tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                result.write(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException e) {
+            log.warn(String.format("srcdeps: Could not cache [%s] in [%s]", url, file), e);
+        } finally {
+            if (tmp != null) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return result;
+    }
+
+    private void revalidateInBackground(final String url, final Path file, final Entry cached) {
+        final Thread thread = new Thread("srcdeps-config-revalidation") {
+            @Override
+            public void run() {
+                try {
+                    refresh(url, file, cached);
+                } catch (IOException e) {
+                    log.debug(String.format("srcdeps: Could not revalidate [%s]", url), e);
+                } finally {
+                    revalidations.remove(url, this);
+                }
+            }
+        };
+        thread.setDaemon(true);
+        if (revalidations.putIfAbsent(url, thread) == null) {
+            thread.start();
+        }
+    }
+
+}
@@ -102,6 +102,7 @@ public class ScmRepository {
         final ListOfScalarsNode<String> includes = new DefaultListOfScalarsNode<>("includes", String.class);
         final ScmRepositoryMaven.Builder maven = ScmRepositoryMaven.builder();
         final ScalarNode<Boolean> skipTests = new DefaultScalarNode<>("skipTests", Boolean.TRUE);
+        final ScmRepositorySparseCheckout.Builder sparseCheckout = ScmRepositorySparseCheckout.builder();
 
         final ListOfScalarsNode<String> urls = new DefaultListOfScalarsNode<>("urls", String.class);
 
@@ -136,7 +137,8 @@ public class ScmRepository {
                     buildRef, //
                     buildVersionPattern, //
                     maven, //
-                    gradle);
+                    gradle, //
+                    sparseCheckout);
         }
 
         public Builder addDefaultBuildArguments(boolean addDefaultBuildArguments) {
@@ -159,7 +161,8 @@ public class ScmRepository {
                     builderIo.build(), //
                     verbosity.getValue(), //
                     buildRef.getValue(), //
-                    buildVersionPattern.getValue() //
+                    buildVersionPattern.getValue(), //
+                    sparseCheckout.build() //
             );
             return result;
         }
@@ -256,6 +259,11 @@ public class ScmRepository {
             return this;
         }
 
+        public Builder sparseCheckout(ScmRepositorySparseCheckout.Builder sparseCheckout) {
+            this.sparseCheckout.init(sparseCheckout);
+            return this;
+        }
+
         public Builder url(String url) {
             this.urls.add(url);
             return this;
@@ -365,13 +373,14 @@ public class ScmRepository {
     private final List<String> includes;
     private final ScmRepositoryMaven maven;
     private final boolean skipTests;
+    private final ScmRepositorySparseCheckout sparseCheckout;
     private final List<String> urls;
     private final Verbosity verbosity;
 
     private ScmRepository(String id, List<String> includes, List<String> excludes, List<String> urls,
             List<String> buildArgs, boolean skipTests, boolean addDefaultBuildArguments, ScmRepositoryMaven maven,
             ScmRepositoryGradle gradle, Duration buildTimeout, BuilderIo builderIo, Verbosity verbosity,
-            SrcVersion buildRef, Pattern buildVersionPattern) {
+            SrcVersion buildRef, Pattern buildVersionPattern, ScmRepositorySparseCheckout sparseCheckout) {
         super();
         this.id = id;
         this.includes = includes;
@@ -388,6 +397,7 @@ public class ScmRepository {
         this.verbosity = verbosity;
         this.buildVersionPattern = buildVersionPattern;
         this.buildRef = buildRef;
+        this.sparseCheckout = sparseCheckout;
     }
 
     @Override
@@ -458,6 +468,11 @@ public class ScmRepository {
             return false;
         if (skipTests != other.skipTests)
             return false;
+        if (sparseCheckout == null) {
+            if (other.sparseCheckout != null)
+                return false;
+        } else if (!sparseCheckout.equals(other.sparseCheckout))
+            return false;
         if (urls == null) {
             if (other.urls != null)
                 return false;
@@ -556,6 +571,14 @@ public class ScmRepository {
         return maven;
     }
 
+    /**
+     * @return the sparse checkout settings for this source repository.
+     * @since 4.0.4
+     */
+    public ScmRepositorySparseCheckout getSparseCheckout() {
+        return sparseCheckout;
+    }
+
     /**
      * Returns a {@link List} of SCM URLs to checkout the sources of the given dependency. If multiple SCM repos are
      * returned then only the first successful checkout should count.
@@ -594,6 +617,7 @@ public class ScmRepository {
         result = prime * result + ((buildRef == null) ? 0 : buildRef.hashCode());
         result = prime * result + ((buildVersionPattern == null) ? 0 : buildVersionPattern.pattern().hashCode());
         result = prime * result + (skipTests ? 1231 : 1237);
+        result = prime * result + ((sparseCheckout == null) ? 0 : sparseCheckout.hashCode());
         result = prime * result + ((urls == null) ? 0 : urls.hashCode());
         result = prime * result + ((verbosity == null) ? 0 : verbosity.hashCode());
         return result;
@@ -625,8 +649,9 @@ public class ScmRepository {
         return "ScmRepository [addDefaultBuildArguments=" + addDefaultBuildArguments + ", buildArguments="
                 + buildArguments + ", builderIo=" + builderIo + ", buildTimeout=" + buildTimeout + ", excludes="
                 + excludes + ", gavSet=" + gavSet + ", gradle=" + gradle + ", id=" + id + ", includes=" + includes
-                + ", maven=" + maven + ", skipTests=" + skipTests + ", urls=" + urls + ", verbosity=" + verbosity
-                + ", buildRef=" + buildRef + ", buildVersionPattern=" + buildVersionPattern + "]";
+                + ", maven=" + maven + ", skipTests=" + skipTests + ", sparseCheckout=" + sparseCheckout + ", urls="
+                + urls + ", verbosity=" + verbosity + ", buildRef=" + buildRef + ", buildVersionPattern="
+                + buildVersionPattern + "]";
     }
 
 }
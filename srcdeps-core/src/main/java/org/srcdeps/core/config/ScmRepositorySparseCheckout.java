@@ -0,0 +1,142 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.util.List;
+import java.util.Map;
+
+import org.srcdeps.core.config.tree.ListOfScalarsNode;
+import org.srcdeps.core.config.tree.Node;
+import org.srcdeps.core.config.tree.impl.DefaultContainerNode;
+import org.srcdeps.core.config.tree.impl.DefaultListOfScalarsNode;
+
+/**
+ * Sparse checkout settings for a {@link ScmRepository} under which this hangs. If any {@link #getIncludes()} are
+ * set, only the files under the given paths and the files in the root directory of the source tree are written to
+ * the checkout directory.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class ScmRepositorySparseCheckout {
+    public static class Builder extends DefaultContainerNode<Node> {
+
+        final ListOfScalarsNode<String> excludes = new DefaultListOfScalarsNode<>("excludes", String.class);
+        final ListOfScalarsNode<String> includes = new DefaultListOfScalarsNode<>("includes", String.class);
+
+        public Builder() {
+            super("sparseCheckout");
+            addChildren(includes, excludes);
+        }
+
+        public ScmRepositorySparseCheckout build() {
+            return new ScmRepositorySparseCheckout(includes.asListOfValues(), excludes.asListOfValues());
+        }
+
+        public Builder exclude(String exclude) {
+            this.excludes.add(exclude);
+            return this;
+        }
+
+        public Builder excludes(List<String> excludes) {
+            this.excludes.addAll(excludes);
+            return this;
+        }
+
+        @Override
+        public Map<String, Node> getChildren() {
+            return children;
+        }
+
+        public Builder include(String include) {
+            this.includes.add(include);
+            return this;
+        }
+
+        public Builder includes(List<String> includes) {
+            this.includes.addAll(includes);
+            return this;
+        }
+
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final List<String> excludes;
+    private final List<String> includes;
+
+    public ScmRepositorySparseCheckout(List<String> includes, List<String> excludes) {
+        super();
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ScmRepositorySparseCheckout other = (ScmRepositorySparseCheckout) obj;
+        if (excludes == null) {
+            if (other.excludes != null)
+                return false;
+        } else if (!excludes.equals(other.excludes))
+            return false;
+        if (includes == null) {
+            if (other.includes != null)
+                return false;
+        } else if (!includes.equals(other.includes))
+            return false;
+        return true;
+    }
+
+    /**
+     * @return a {@link List} of {@code /} separated paths relative to the root of the source tree that should not be
+     *         checked out even if they are under some of the {@link #getIncludes()}
+     */
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    /**
+     * @return a {@link List} of {@code /} separated paths relative to the root of the source tree that should be
+     *         checked out. An empty {@link List} means that the whole source tree is checked out
+     */
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((excludes == null) ? 0 : excludes.hashCode());
+        result = prime * result + ((includes == null) ? 0 : includes.hashCode());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ScmRepositorySparseCheckout [includes=" + includes + ", excludes=" + excludes + "]";
+    }
+
+}
@@ -0,0 +1,300 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.ConfigurationQueryService;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.NoOpBuildMetrics;
+
+/**
+ * Keeps a {@link ConfigurationQueryService} up to date with the configuration files for long-lived embedders, such
+ * as IDE plugins and build daemons. The files that {@link ConfigurationLocator} would read are watched via a
+ * {@link WatchService} and the configuration is resolved again only after some of them has changed. The reload
+ * happens on a background thread and the new {@link ConfigurationQueryService} is swapped in atomically, so that
+ * {@link #getQueryService()} never blocks.
+ * <p>
+ * The eagerly built {@link ScmRepository ScmRepositories} that did not change are carried over to the new
+ * {@link Configuration}, together with their {@link org.srcdeps.core.GavSet}s and the patterns compiled so far. With
+ * {@link Configuration#getSrcdepsLazyRepositoriesProperty()} the repositories are built on demand anyway.
+ * <p>
+ * Only the directories existing at the time of {@link #start(Path, ConfigurationLocator, ConfigurationReader)} are
+ * watched and remote master configurations are not watched at all. If the configuration cannot be read after a
+ * change, a warning is logged and the previous configuration stays in use.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class WatchingConfigurationProvider implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WatchingConfigurationProvider.class);
+
+    /**
+     * How long to wait for further events after a change before reloading, so that a burst of writes causes just a
+     * single reload
+     */
+    private static final long SETTLE_MS = 100;
+
+    /**
+     * @param oldConfig the {@link Configuration} used so far
+     * @param newConfig the {@link Configuration} just resolved
+     * @return {@code newConfig} with the {@link ScmRepository ScmRepositories} equal to the ones in {@code oldConfig}
+     *         replaced by the instances from {@code oldConfig}
+     */
+    static Configuration reuseUnchanged(Configuration oldConfig, Configuration newConfig) {
+        final List<ScmRepository> newRepos = newConfig.getRepositories();
+        if (newRepos instanceof LazyScmRepositoryList || oldConfig.getRepositories() instanceof LazyScmRepositoryList) {
+            /* lazy repositories are built on demand anyway */
+            return newConfig;
+        }
+        final Map<String, ScmRepository> oldRepos = new HashMap<>();
+        for (ScmRepository oldRepo : oldConfig.getRepositories()) {
+            oldRepos.put(oldRepo.getId(), oldRepo);
+        }
+        final List<ScmRepository> result = new ArrayList<>(newRepos.size());
+        int changed = 0;
+        for (ScmRepository newRepo : newRepos) {
+            final ScmRepository oldRepo = oldRepos.get(newRepo.getId());
+            if (newRepo.equals(oldRepo)) {
+                result.add(oldRepo);
+            } else {
+                result.add(newRepo);
+                changed++;
+            }
+        }
+        log.info("srcdeps: Reloaded configuration: [{}] of [{}] repositories changed", changed, newRepos.size());
+        return changed == newRepos.size() ? newConfig
+                : newConfig.withRepositories(Collections.unmodifiableList(result));
+    }
+
+    /**
+     * Resolves the configuration for the given {@code sourceTreeRoot} and starts watching the underlying files.
+     *
+     * @param sourceTreeRoot      the directory to look up the configuration file in
+     * @param locator             the {@link ConfigurationLocator} to use
+     * @param configurationReader the {@link ConfigurationReader} to use
+     * @return a new {@link WatchingConfigurationProvider}
+     * @throws ConfigurationException if the configuration cannot be read
+     * @throws IOException            if the files cannot be watched
+     */
+    public static WatchingConfigurationProvider start(Path sourceTreeRoot, ConfigurationLocator locator,
+            ConfigurationReader configurationReader) throws ConfigurationException, IOException {
+        return start(sourceTreeRoot, locator, configurationReader, null, NoOpBuildMetrics.INSTANCE);
+    }
+
+    /**
+     * Resolves the configuration for the given {@code sourceTreeRoot} and starts watching the underlying files.
+     *
+     * @param sourceTreeRoot      the directory to look up the configuration file in
+     * @param locator             the {@link ConfigurationLocator} to use
+     * @param configurationReader the {@link ConfigurationReader} to use
+     * @param cache               the {@link ConfigurationCache} to use or {@code null}
+     * @param metrics             the {@link BuildMetrics} to pass to the {@link ConfigurationQueryService}s
+     * @return a new {@link WatchingConfigurationProvider}
+     * @throws ConfigurationException if the configuration cannot be read
+     * @throws IOException            if the files cannot be watched
+     */
+    public static WatchingConfigurationProvider start(Path sourceTreeRoot, ConfigurationLocator locator,
+            ConfigurationReader configurationReader, ConfigurationCache cache, BuildMetrics metrics)
+            throws ConfigurationException, IOException {
+        final WatchingConfigurationProvider result = new WatchingConfigurationProvider(sourceTreeRoot, locator,
+                configurationReader, cache, metrics);
+        result.watcherThread.start();
+        return result;
+    }
+
+    private final ConfigurationCache cache;
+    /** Guarded by {@code this} */
+    private boolean closed = false;
+    private final ConfigurationReader configurationReader;
+    private final ConfigurationLocator locator;
+    private final BuildMetrics metrics;
+    private volatile ConfigurationQueryService queryService;
+    private volatile int reloadCount = 0;
+    private final Path sourceTreeRoot;
+    private final Thread watcherThread;
+    private final Set<Path> watchedFiles;
+    private final WatchService watchService;
+
+    private WatchingConfigurationProvider(Path sourceTreeRoot, ConfigurationLocator locator,
+            ConfigurationReader configurationReader, ConfigurationCache cache, BuildMetrics metrics)
+            throws ConfigurationException, IOException {
+        super();
+        this.sourceTreeRoot = sourceTreeRoot;
+        this.locator = locator;
+        this.configurationReader = configurationReader;
+        this.cache = cache;
+        this.metrics = metrics;
+
+        final Set<Path> watchedFiles = new HashSet<>();
+        for (Path path : locator.getWatchablePaths(sourceTreeRoot)) {
+            watchedFiles.add(path.toAbsolutePath().normalize());
+        }
+        this.watchedFiles = Collections.unmodifiableSet(watchedFiles);
+        /*
+         * Register before resolving so that no change made in between goes unnoticed and close the WatchService if
+         * anything fails
+         */
+        this.watchService = sourceTreeRoot.getFileSystem().newWatchService();
+        try {
+            final Set<Path> dirs = new HashSet<>();
+            for (Path file : watchedFiles) {
+                final Path dir = file.getParent();
+                if (Files.isDirectory(dir) && dirs.add(dir)) {
+                    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                }
+            }
+
+            this.queryService = new ConfigurationQueryService(
+                    locator.resolve(sourceTreeRoot, configurationReader, cache), metrics);
+        } catch (ConfigurationException | IOException | RuntimeException e) {
+            try {
+                watchService.close();
+            } catch (IOException e1) {
+                e.addSuppressed(e1);
+            }
+            throw e;
+        }
+
+        this.watcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "srcdeps-config-watcher");
+        this.watcherThread.setDaemon(true);
+    }
+
+    /**
+     * Stops watching the configuration files and waits for the watcher thread to finish. No reload is published after
+     * this method has returned. The last {@link ConfigurationQueryService} stays available.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            watchService.close();
+        } finally {
+            watcherThread.interrupt();
+            if (Thread.currentThread() != watcherThread) {
+                try {
+                    watcherThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current {@link Configuration}
+     */
+    public Configuration getConfiguration() {
+        return queryService.getConfiguration();
+    }
+
+    /**
+     * @return the {@link ConfigurationQueryService} for the current {@link Configuration}
+     */
+    public ConfigurationQueryService getQueryService() {
+        return queryService;
+    }
+
+    /**
+     * @return the number of successful reloads so far
+     */
+    int getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * @param key the {@link WatchKey} to poll the events from
+     * @return {@code true} if some of the events concerns some of the {@link #watchedFiles}
+     */
+    private boolean isRelevant(WatchKey key) {
+        final Path dir = (Path) key.watchable();
+        boolean result = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || watchedFiles.contains(dir.resolve((Path) event.context()))) {
+                result = true;
+            }
+        }
+        key.reset();
+        return result;
+    }
+
+    private void reload() {
+        try {
+            final Configuration newConfig = locator.resolve(sourceTreeRoot, configurationReader, cache);
+            final ConfigurationQueryService newQueryService = new ConfigurationQueryService(
+                    reuseUnchanged(queryService.getConfiguration(), newConfig), metrics);
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                this.queryService = newQueryService;
+                reloadCount++;
+            }
+        } catch (ConfigurationException | RuntimeException e) {
+            log.warn(String.format("srcdeps: Could not reload the configuration from [%s], keeping the previous one",
+                    sourceTreeRoot), e);
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (isRelevant(watchService.take())) {
+                    /* wait until the writers are done */
+                    WatchKey key;
+                    while ((key = watchService.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) {
+                        isRelevant(key);
+                    }
+                    reload();
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            /* closed */
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -16,8 +16,12 @@
  */
 package org.srcdeps.core.config.tree.walk;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Stack;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.slf4j.Logger;
@@ -35,58 +39,38 @@ import org.srcdeps.core.config.tree.impl.DefaultScalarNode;
 
 /**
  * A {@link Visitor} to override values in a tree by values coming from some higher-ranked sources, such as command
- * line. The overriding values are passed in as {@link Properties}. These {@link Properties} are queried during the tree
- * traversal and if a property whose name matches the path to a tree node has a non-null value that value is used to
- * override the existing value of the node.
+ * line. The overriding values are passed in as {@link Properties}. The properties whose names start with the name of
+ * the root node are indexed when the traversal begins and if a property whose name matches the path to a tree node has
+ * a non-null value that value is used to override the existing value of the node.
+ * <p>
+ * Subtrees for which no override exists are not descended into, so that with no overrides only the root node is
+ * visited.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
 public class OverrideVisitor extends AbstractVisitor {
-    private static class IndexedSegment extends StringSegment {
-        private int index = 0;
 
-        private IndexedSegment(String name, boolean escape) {
-            super(name, escape);
-        }
-
-        @Override
-        public void appendTo(StringBuilder out) {
-            super.appendTo(out);
-            out.append('[').append(index).append(']');
-        }
-
-        public void next() {
-            this.index++;
-        }
-    }
-
-    private static class StringSegment {
-        private final boolean escaped;
-        private final String segment;
+    private static final Logger log = LoggerFactory.getLogger(OverrideVisitor.class);
 
-        private StringSegment(String segment, boolean escaped) {
-            super();
-            this.escaped = escaped;
-            this.segment = segment;
-        }
+    /** The element indexes of the {@link ListNode}s being visited; one item per list */
+    private int[] listIndexes = new int[4];
+    private int listDepth = 0;
 
-        public void appendTo(StringBuilder out) {
-            if (escaped) {
-                out.append('[').append(segment).append(']');
-            } else {
-                if (out.length() > 0) {
-                    out.append('.');
-                }
-                out.append(segment);
-            }
-        }
-    }
+    /** The overrides relevant for the tree being visited, keyed by their path; see {@link #index(String)} */
+    private Map<String, String> overrides;
+    private final Properties overrideSource;
 
-    private static final Logger log = LoggerFactory.getLogger(OverrideVisitor.class);
+    /** The path of the current node, such as {@code srcdeps.repositories[org.my-repo].urls} */
+    private final StringBuilder path = new StringBuilder();
+    private int pathDepth = 0;
+    /** The lengths of {@link #path} before each of its segments; one item per segment */
+    private int[] pathLengths = new int[16];
 
-    private final Properties overrideSource;
-    /** A stack of field names, rooted by {@code "srcdeps"} */
-    private Stack<StringSegment> path = new Stack<>();
+    /**
+     * The paths of the nodes having some descendant in {@link #overrides}; the subtrees of all other nodes need not to
+     * be visited
+     */
+    private Set<String> prefixes;
 
     public OverrideVisitor(Properties overrideSource) {
         super();
@@ -96,57 +80,33 @@ public class OverrideVisitor extends AbstractVisitor {
     @Override
     public boolean containerBegin(ContainerNode<? extends Node> node) {
         if (hasListAncestor(0)) {
-            /* do nothing this is an element of a list */
+            /* this is an element of a list */
+            pushIndex(listIndexes[listDepth - 1]);
         } else {
-            path.push(new StringSegment(node.getName(), node.shouldEscapeName()));
+            if (stack.isEmpty()) {
+                index(node.getName());
+            }
+            pushSegment(node.getName(), node.shouldEscapeName());
         }
         super.containerBegin(node);
-        return true;
+        return prefixes.contains(path.toString());
     }
 
     @Override
     public void containerEnd() {
         if (stack.size() == 1) {
             final Configuration.Builder configBuilder = (Configuration.Builder) stack.peek();
-            @SuppressWarnings("unchecked")
-            final ListOfScalarsNode<String> forwardPropertyNamesNode = (ListOfScalarsNode<String>) configBuilder.getChildren().get(Configuration.getForwardPropertiesAttribute());
-            forwardPropertyNamesNode.asListOfValues();
-            for (ScalarNode<String> node : forwardPropertyNamesNode.getElements()) {
-                final String propName = node.getValue();
-                if (propName.endsWith("*")) {
-                    /* prefix */
-                    String prefix = propName.substring(propName.length() - 1);
-                    for (Object key : overrideSource.keySet()) {
-                        if (key instanceof String && ((String) key).startsWith(prefix)) {
-                            String value = overrideSource.getProperty((String) key);
-                            if (value != null) {
-                                configBuilder.forwardPropertyValue(propName, value);
-                            }
-                        }
-                    }
-                } else {
-                    String value = overrideSource.getProperty(propName);
-                    if (value != null) {
-                        configBuilder.forwardPropertyValue(propName, value);
-                    }
-                }
-            }
+            configBuilder.forwardPropertyValues(overrideSource);
         }
         super.containerEnd();
-        StringSegment segment = null;
-        if (!path.isEmpty() && (segment = path.peek()) instanceof IndexedSegment) {
-            ((IndexedSegment) segment).next();
-        } else {
-            path.pop();
+        popSegment();
+        if (hasListAncestor(0)) {
+            listIndexes[listDepth - 1]++;
         }
     }
 
-
-    private void handleListOfScalars(ListOfScalarsNode<Object> list, ScalarDeserializer handler) {
-        path.push(new StringSegment(list.getName(), list.shouldEscapeName()));
-        String joinedPath = joinPath();
-        path.pop();
-        String stringList = overrideSource.getProperty(joinedPath);
+    private void handleListOfScalars(ListOfScalarsNode<Object> list, ScalarDeserializer handler, String joinedPath) {
+        String stringList = overrides.get(joinedPath);
         if (stringList != null) {
             log.info("srcdeps: Configuration override [{}] = [{}].", joinedPath, stringList);
             replaceElements(stringList, handler, list);
@@ -156,7 +116,7 @@ public class OverrideVisitor extends AbstractVisitor {
         int oldSize = list.getElements().size();
         for (int i = 0; i < oldSize; i++) {
             final String key = joinedPath + "[" + i + "]";
-            final String val = overrideSource.getProperty(key);
+            final String val = overrides.get(key);
             if (val != null) {
                 log.info("srcdeps: Configuration override [{}] = [{}].", key, val);
                 list.getElements().get(i).setValue(handler.deserialize(val));
@@ -166,7 +126,7 @@ public class OverrideVisitor extends AbstractVisitor {
         /* prepend */
         for (int i = -1;; i--) {
             final String key = joinedPath + "[" + i + "]";
-            final String val = overrideSource.getProperty(key);
+            final String val = overrides.get(key);
             if (val != null) {
                 log.info("srcdeps: Configuration override [{}] = [{}].", key, val);
                 list.getElements().add(0, DefaultScalarNode.of(handler.deserialize(val)));
@@ -178,7 +138,7 @@ public class OverrideVisitor extends AbstractVisitor {
         /* append */
         for (int i = oldSize;; i++) {
             final String key = joinedPath + "[" + i + "]";
-            final String val = overrideSource.getProperty(key);
+            final String val = overrides.get(key);
             if (val != null) {
                 log.info("srcdeps: Configuration override [{}] = [{}].", key, val);
                 list.add(handler.deserialize(val));
@@ -189,35 +149,84 @@ public class OverrideVisitor extends AbstractVisitor {
     }
 
     /**
-     * @return {@link #path} elements joined by {@code '.'}
+     * Collects the {@link #overrideSource} entries whose keys start with the given {@code rootName} into
+     * {@link #overrides} and all their parent paths into {@link #prefixes}.
+     *
+     * @param rootName the name of the root node of the tree being visited
      */
-    private String joinPath() {
-        StringBuilder result = new StringBuilder();
-        for (StringSegment segment : path) {
-            segment.appendTo(result);
+    private void index(String rootName) {
+        final Map<String, String> overrides = new HashMap<>();
+        final Set<String> prefixes = new HashSet<>();
+        for (String key : overrideSource.stringPropertyNames()) {
+            if (key.startsWith(rootName) && (key.length() == rootName.length()
+                    || key.charAt(rootName.length()) == '.' || key.charAt(rootName.length()) == '[')) {
+                overrides.put(key, overrideSource.getProperty(key));
+                for (int i = rootName.length(); i < key.length(); i++) {
+                    final char c = key.charAt(i);
+                    if (c == '.' || c == '[') {
+                        prefixes.add(key.substring(0, i));
+                    }
+                }
+            }
         }
-        return result.toString();
+        this.overrides = overrides;
+        this.prefixes = prefixes;
     }
 
     @Override
     public boolean listBegin(ListNode<? extends Node> node) {
         super.listBegin(node);
-        if (node instanceof ListOfScalarsNode<?>) {
+        pushSegment(node.getName(), node.shouldEscapeName());
+        final String joinedPath = path.toString();
+        if (node instanceof ListOfScalarsNode<?>
+                && (prefixes.contains(joinedPath) || overrides.containsKey(joinedPath))) {
             @SuppressWarnings("unchecked")
             ListOfScalarsNode<Object> list = (ListOfScalarsNode<Object>) node;
             ScalarDeserializer deserializer = Scalars.getDeserializer(list.getElementType());
-            handleListOfScalars(list, deserializer);
+            handleListOfScalars(list, deserializer, joinedPath);
+        }
+        if (listDepth == listIndexes.length) {
+            listIndexes = Arrays.copyOf(listIndexes, listDepth * 2);
         }
-        path.push(new IndexedSegment(node.getName(), node.shouldEscapeName()));
-        return true;
+        listIndexes[listDepth++] = 0;
+        return prefixes.contains(joinedPath);
     }
 
     @Override
     public void listEnd() {
-        path.pop();
+        listDepth--;
+        popSegment();
         super.listEnd();
     }
 
+    private void popSegment() {
+        path.setLength(pathLengths[--pathDepth]);
+    }
+
+    private void pushIndex(int index) {
+        pushLength();
+        path.append('[').append(index).append(']');
+    }
+
+    private void pushLength() {
+        if (pathDepth == pathLengths.length) {
+            pathLengths = Arrays.copyOf(pathLengths, pathDepth * 2);
+        }
+        pathLengths[pathDepth++] = path.length();
+    }
+
+    private void pushSegment(String name, boolean escaped) {
+        pushLength();
+        if (escaped) {
+            path.append('[').append(name).append(']');
+        } else {
+            if (path.length() > 0) {
+                path.append('.');
+            }
+            path.append(name);
+        }
+    }
+
     /**
      * First clears the given {@code list} and then add elements to it that it parses out of the given {@code source}.
      * {@code source} is supposed to be a comma-delimited list of primitive values.
@@ -239,19 +248,18 @@ public class OverrideVisitor extends AbstractVisitor {
 
     /**
      * Visits the given field of the given node object. Looks up the given field by its string {@link #path} in
-     * {@link #overrideSource} and eventually overrides the value of the field by the value foung in
-     * {@link #overrideSource}.
+     * {@link #overrides} and eventually overrides the value of the field by the value found there.
      *
-     * @param field the field to traverse
+     * @param node the node to visit
      */
     @Override
     public void scalar(ScalarNode<Object> node) {
         if (hasListAncestor(0)) {
             /* do nothing */
         } else {
-            path.push(new StringSegment(node.getName(), node.shouldEscapeName()));
-            final String joinedPath = joinPath();
-            final String newValue = overrideSource.getProperty(joinedPath);
+            pushSegment(node.getName(), node.shouldEscapeName());
+            final String joinedPath = path.toString();
+            final String newValue = overrides.get(joinedPath);
             if (newValue != null) {
                 if (newValue.isEmpty() && node.getType().equals(Boolean.class)) {
                     /*
@@ -266,7 +274,7 @@ public class OverrideVisitor extends AbstractVisitor {
                     node.setValue(deserializer.deserialize(newValue));
                 }
             }
-            path.pop();
+            popSegment();
         }
     }
 
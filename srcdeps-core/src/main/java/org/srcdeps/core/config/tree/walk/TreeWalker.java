@@ -16,6 +16,10 @@
  */
 package org.srcdeps.core.config.tree.walk;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.srcdeps.core.config.tree.ContainerNode;
@@ -25,11 +29,54 @@ import org.srcdeps.core.config.tree.ScalarNode;
 import org.srcdeps.core.config.tree.Visitor;
 
 /**
- * A simple configuration tree walker.
+ * A simple configuration tree walker. The traversal is iterative, using an explicit stack of {@link Frame}s that are
+ * reused for all nodes on the same depth, so that deep or wide trees neither grow the call stack nor allocate per
+ * node.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
 public class TreeWalker {
+
+    /**
+     * The state of the traversal of the children of a single {@link ContainerNode} or {@link ListNode}.
+     */
+    private static final class Frame {
+        private Iterator<Node> children;
+        private List<Node> elements;
+        private int index;
+
+        void clear() {
+            this.children = null;
+            this.elements = null;
+        }
+
+        boolean isList() {
+            return elements != null;
+        }
+
+        /**
+         * @return the next child or {@code null} if there are no more children
+         */
+        Node next() {
+            if (elements != null) {
+                return index < elements.size() ? elements.get(index++) : null;
+            } else {
+                return children.hasNext() ? children.next() : null;
+            }
+        }
+
+        void startContainer(Iterator<Node> children) {
+            this.children = children;
+            this.elements = null;
+        }
+
+        void startList(List<Node> elements) {
+            this.children = null;
+            this.elements = elements;
+            this.index = 0;
+        }
+    }
+
     @SuppressWarnings("unused")
     private static final Logger log = LoggerFactory.getLogger(TreeWalker.class);
 
@@ -38,31 +85,60 @@ public class TreeWalker {
     }
 
     /**
-     * Walks a tree starting at the given {@code node} notifying the {@code visitor}.
+     * Walks a tree starting at the given {@code node} notifying the {@code visitor}. The {@code visitor} is notified
+     * in the same order as by a recursive depth-first traversal. The elements of a {@link ListNode} are read only
+     * after {@link Visitor#listBegin(ListNode)} has returned, so the {@code visitor} may modify them there.
      *
      * @param node    the node to start at
      * @param visitor the visitor to notify
      */
     @SuppressWarnings("unchecked")
     public void walk(Node node, Visitor visitor) {
-        if (node instanceof ScalarNode) {
-            visitor.scalar((ScalarNode<Object>) node);
-        } else if (node instanceof ListNode) {
-            ListNode<Node> list = (ListNode<Node>) node;
-            if (visitor.listBegin(list)) {
-                for (Node elem : list.getElements()) {
-                    walk(elem, visitor);
+        final List<Frame> frames = new ArrayList<>();
+        int depth = 0;
+        Node current = node;
+        while (current != null) {
+            if (current instanceof ScalarNode) {
+                visitor.scalar((ScalarNode<Object>) current);
+            } else if (current instanceof ListNode) {
+                ListNode<Node> list = (ListNode<Node>) current;
+                if (visitor.listBegin(list)) {
+                    frame(frames, depth++).startList(list.getElements());
+                } else {
+                    visitor.listEnd();
+                }
+            } else if (current instanceof ContainerNode) {
+                ContainerNode<Node> branch = (ContainerNode<Node>) current;
+                if (visitor.containerBegin(branch)) {
+                    frame(frames, depth++).startContainer(branch.getChildren().values().iterator());
+                } else {
+                    visitor.containerEnd();
                 }
             }
-            visitor.listEnd();
-        } else if (node instanceof ContainerNode) {
-            ContainerNode<Node> branch = (ContainerNode<Node>) node;
-            if (visitor.containerBegin(branch)) {
-                for (Node child : branch.getChildren().values()) {
-                    walk(child, visitor);
+
+            /* find the next node to visit, closing the exhausted containers and lists on the way up */
+            current = null;
+            while (depth > 0) {
+                final Frame top = frames.get(depth - 1);
+                current = top.next();
+                if (current != null) {
+                    break;
+                }
+                depth--;
+                if (top.isList()) {
+                    visitor.listEnd();
+                } else {
+                    visitor.containerEnd();
                 }
+                top.clear();
             }
-            visitor.containerEnd();
         }
     }
+
+    private static Frame frame(List<Frame> frames, int depth) {
+        if (depth == frames.size()) {
+            frames.add(new Frame());
+        }
+        return frames.get(depth);
+    }
 }
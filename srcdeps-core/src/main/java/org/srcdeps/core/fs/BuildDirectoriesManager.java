@@ -17,14 +17,27 @@
 package org.srcdeps.core.fs;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.srcdeps.core.BuildException;
 import org.srcdeps.core.SrcVersion;
 import org.srcdeps.core.config.ScmRepository;
+import org.srcdeps.core.metrics.BuildCounter;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.NoOpBuildMetrics;
 import org.srcdeps.core.util.SrcdepsCoreUtils;
 
 /**
@@ -37,6 +50,10 @@ import org.srcdeps.core.util.SrcdepsCoreUtils;
  * then its build home will be {@code "${rootDirectory}/org/project/component"}. Under this build home, the
  * {@link #openBuildDirectory(Path)} method opens up to {@link #CONCURRENCY_THRESHOLD} subdirectories, as required by
  * the concurrent load of the present machine.
+ * <p>
+ * A subdirectory (a slot) that has no git repository yet is seeded from the most recently fetched sibling slot before
+ * it is handed out, see {@link #seedSlot(Path)}. Hence only the very first slot of a project pays for a full clone
+ * and the slots opened under concurrent load need just an incremental fetch.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
@@ -49,15 +66,150 @@ public class BuildDirectoriesManager {
      */
     private static final int CONCURRENCY_THRESHOLD = 256;
 
+    private static final String DOT_GIT = ".git";
+
     private static final Logger log = LoggerFactory.getLogger(BuildDirectoriesManager.class);
 
+    /**
+     * @param slot a slot directory
+     * @return the time of the last fetch performed in the given slot or {@code null} if the slot contains no git
+     *         repository
+     * @throws IOException on I/O problems
+     */
+    static FileTime getLastFetchTime(Path slot) throws IOException {
+        final Path gitDir = slot.resolve(DOT_GIT);
+        if (!Files.isDirectory(gitDir)) {
+            return null;
+        }
+        final Path fetchHead = gitDir.resolve("FETCH_HEAD");
+        return Files.getLastModifiedTime(Files.exists(fetchHead) ? fetchHead : gitDir);
+    }
+
+    /**
+     * Copies the {@code .git} directory of {@code template} to {@code slot}. The immutable files under
+     * {@code .git/objects} (packs and loose objects) are hardlinked where possible; the rest (refs, config, index,
+     * etc.) is copied. Lock files are skipped. The copy is first made in a temporary directory that is moved to
+     * {@code slot/.git} only when complete.
+     *
+     * @param template the slot to copy from
+     * @param slot     the slot to copy to
+     * @throws IOException on I/O problems
+     */
+    static void copyGitDirectory(Path template, Path slot) throws IOException {
+        final Path src = template.resolve(DOT_GIT);
+        final Path tmp = Files.createTempDirectory(slot, DOT_GIT);
+        try {
+            final Path objects = src.resolve("objects");
+            Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(tmp.resolve(src.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    final String name = file.getFileName().toString();
+                    if (!name.endsWith(".lock")) {
+                        final Path dest = tmp.resolve(src.relativize(file).toString());
+                        if (file.startsWith(objects)) {
+                            SrcdepsCoreUtils.linkOrCopy(file, dest);
+                        } else {
+                            Files.copy(file, dest, StandardCopyOption.COPY_ATTRIBUTES);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            Files.move(tmp, slot.resolve(DOT_GIT), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            SrcdepsCoreUtils.deleteDirectory(tmp);
+        }
+    }
+
+    /**
+     * If the given {@code slot} has no git repository yet, seeds it with a copy of the git repository of the most
+     * recently fetched sibling slot. The working tree is not copied, as the subsequent checkout resets it anyway.
+     * Seeding is a mere optimization: any failure is logged and the slot is left for a cold clone.
+     * <p>
+     * The template slot is locked via {@link PathLocker#tryLockDirectory(Path)} for the time of copying so that no
+     * half-written refs or packs get copied. If the template is busy (e.g. being fetched to or built in), the seeding
+     * is skipped rather than waited for.
+     *
+     * @param slot the locked slot directory to seed
+     * @return {@code true} if the slot was seeded, {@code false} otherwise
+     */
+    boolean seedSlot(Path slot) {
+        if (Files.exists(slot.resolve(DOT_GIT))) {
+            return false;
+        }
+        Path template = null;
+        FileTime templateTime = null;
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(slot.getParent())) {
+            for (Path sibling : siblings) {
+                if (!sibling.equals(slot) && Files.isDirectory(sibling)) {
+                    final FileTime time = getLastFetchTime(sibling);
+                    if (time != null && (templateTime == null || time.compareTo(templateTime) > 0)) {
+                        template = sibling;
+                        templateTime = time;
+                    }
+                }
+            }
+            if (template == null) {
+                return false;
+            }
+            try (PathLock templateLock = pathLocker.tryLockDirectory(template)) {
+                final long start = System.currentTimeMillis();
+                copyGitDirectory(templateLock.getPath(), slot);
+                log.info("srcdeps: Seeded [{}] from [{}] in [{}] ms", slot, template,
+                        System.currentTimeMillis() - start);
+                return true;
+            }
+        } catch (CannotAcquireLockException e) {
+            log.debug("srcdeps: Not seeding [{}] from [{}] that is busy", slot, template);
+            return false;
+        } catch (IOException | RuntimeException e) {
+            log.warn(String.format("srcdeps: Could not seed [%s] from [%s]", slot, template), e);
+            return false;
+        }
+    }
+
+    private final BuildMetrics metrics;
     private final PathLocker<SrcVersion> pathLocker;
     private final Path rootDirectory;
+    private final boolean seedSlots;
 
     public BuildDirectoriesManager(Path rootDirectory, PathLocker<SrcVersion> pathLocker) {
+        this(rootDirectory, pathLocker, true);
+    }
+
+    /**
+     * @param rootDirectory the directory under which the project build homes are created
+     * @param pathLocker    the {@link PathLocker} to lock the slots with
+     * @param seedSlots     if {@code true}, new slots are seeded from the freshest sibling slot, see
+     *                      {@link #seedSlot(Path)}
+     * @since 4.0.4
+     */
+    public BuildDirectoriesManager(Path rootDirectory, PathLocker<SrcVersion> pathLocker, boolean seedSlots) {
+        this(rootDirectory, pathLocker, seedSlots, NoOpBuildMetrics.INSTANCE);
+    }
+
+    /**
+     * @param rootDirectory the directory under which the project build homes are created
+     * @param pathLocker    the {@link PathLocker} to lock the slots with
+     * @param seedSlots     if {@code true}, new slots are seeded from the freshest sibling slot, see
+     *                      {@link #seedSlot(Path)}
+     * @param metrics       the {@link BuildMetrics} to report the {@link BuildPhase#lockWait} and
+     *                      {@link BuildPhase#seed} phases and the {@link BuildCounter#lockedSlots} counter to
+     * @since 4.0.4
+     */
+    public BuildDirectoriesManager(Path rootDirectory, PathLocker<SrcVersion> pathLocker, boolean seedSlots,
+            BuildMetrics metrics) {
         super();
         this.rootDirectory = rootDirectory;
         this.pathLocker = pathLocker;
+        this.seedSlots = seedSlots;
+        this.metrics = metrics;
     }
 
     /**
@@ -85,16 +237,44 @@ public class BuildDirectoriesManager {
         Path scmRepositoryDir = rootDirectory.resolve(projectBuildHome);
         SrcdepsCoreUtils.ensureDirectoryExists(scmRepositoryDir);
 
+        /* ScmRepository.getIdAsPath() splits the id at dots */
+        final String scmRepositoryId = projectBuildHome.toString().replace(File.separatorChar, '.');
         Throwable lastException = null;
-        for (int i = 0; i < CONCURRENCY_THRESHOLD; i++) {
-            Path checkoutDirectoryPath = scmRepositoryDir.resolve(String.valueOf(i));
-            try {
-                return pathLocker.lockDirectory(checkoutDirectoryPath, srcVersion);
-            } catch (CannotAcquireLockException e) {
-                /* nevermind, another i will work */
-                lastException = e;
-                log.debug("srcdeps: Could not get PathLock for path [{}]", checkoutDirectoryPath);
+        PathLock result = null;
+        Path checkoutDirectoryPath = null;
+        final Span span = metrics.start(BuildPhase.lockWait, scmRepositoryId);
+        try {
+            for (int i = 0; i < CONCURRENCY_THRESHOLD && result == null; i++) {
+                checkoutDirectoryPath = scmRepositoryDir.resolve(String.valueOf(i));
+                try {
+                    result = pathLocker.lockDirectory(checkoutDirectoryPath, srcVersion);
+                    if (i > 0) {
+                        metrics.count(BuildCounter.lockedSlots, scmRepositoryId, i);
+                    }
+                } catch (CannotAcquireLockException e) {
+                    /* nevermind, another i will work */
+                    lastException = e;
+                    log.debug("srcdeps: Could not get PathLock for path [{}]", checkoutDirectoryPath);
+                }
+            }
+        } finally {
+            span.close();
+        }
+
+        if (result != null) {
+            if (seedSlots) {
+                final Span seedSpan = metrics.start(BuildPhase.seed, scmRepositoryId);
+                try {
+                    seedSlot(checkoutDirectoryPath);
+                } catch (RuntimeException | Error e) {
+                    /* do not leak the slot lock */
+                    result.close();
+                    throw e;
+                } finally {
+                    seedSpan.close();
+                }
             }
+            return result;
         }
 
         throw new BuildException(String.format("Could not get PathLock for any of 0-%d subpaths of [%s]",
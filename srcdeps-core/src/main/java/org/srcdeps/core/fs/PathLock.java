@@ -24,6 +24,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.srcdeps.core.metrics.JfrEventType.Event;
 
 /**
  * A lock which guarantees its holder to have an exclusive access to {@link #getPath()}. Do not forget to release using
@@ -33,16 +34,19 @@ import org.slf4j.LoggerFactory;
  */
 public class PathLock implements Closeable {
     private static final Logger log = LoggerFactory.getLogger(PathLock.class);
+    private final Event heldEvent;
     private final RandomAccessFile lockFile;
     private final Path lockFilePath;
     private final Path path;
     private final ReentrantLock threadLevelLock;
 
-    PathLock(Path path, RandomAccessFile lockFile, Path lockFilePath, ReentrantLock threadLevelLock) {
+    PathLock(Path path, RandomAccessFile lockFile, Path lockFilePath, ReentrantLock threadLevelLock,
+            Event heldEvent) {
         this.path = path;
         this.lockFile = lockFile;
         this.lockFilePath = lockFilePath;
         this.threadLevelLock = threadLevelLock;
+        this.heldEvent = heldEvent;
     }
 
     /**
@@ -56,6 +60,7 @@ public class PathLock implements Closeable {
             log.warn(String.format("srcdeps: Could not close lock file [%s]", lockFilePath), e);
         }
         threadLevelLock.unlock();
+        heldEvent.commit();
     }
 
     /**
@@ -65,4 +70,13 @@ public class PathLock implements Closeable {
         return path;
     }
 
+    /**
+     * @return {@code true} if some other thread of the current VM is waiting to lock {@link #getPath()}; a holder
+     *         doing some optional work may want to release this {@link PathLock} early in such a case
+     * @since 4.0.4
+     */
+    public boolean isWaitedFor() {
+        return threadLevelLock.hasQueuedThreads();
+    }
+
 }
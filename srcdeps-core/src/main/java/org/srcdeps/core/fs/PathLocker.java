@@ -30,6 +30,8 @@ import javax.inject.Singleton;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.srcdeps.core.metrics.JfrEventType.Event;
+import org.srcdeps.core.metrics.SrcdepsJfrEvents;
 import org.srcdeps.core.util.SrcdepsCoreUtils;
 
 /**
@@ -151,20 +153,28 @@ public class PathLocker<M> {
      * @throws CannotAcquireLockException if the lock cannot be acquired immediately
      */
     public PathLock lockDirectory(Path path, M pathMetadata) throws IOException, CannotAcquireLockException {
+        final Event event = SrcdepsJfrEvents.PATH_LOCK_ACQUIRE.begin().set("path", path.toString());
+        boolean acquired = false;
+        try {
+            final PathLock result = lockDirectoryInternal(path, pathMetadata);
+            acquired = true;
+            return result;
+        } finally {
+            event.set("acquired", acquired).commit();
+        }
+    }
+
+    private PathLock lockDirectoryInternal(Path path, M pathMetadata) throws IOException, CannotAcquireLockException {
         SrcdepsCoreUtils.ensureDirectoryExists(path);
         // resolve(String.valueOf(i) + ".lock");
         final LockMetadataPair<M> newPair = new LockMetadataPair<M>(new ReentrantLock(), pathMetadata);
         final LockMetadataPair<M> oldPair = locks.putIfAbsent(path, newPair);
         final LockMetadataPair<M> mdPair = oldPair == null ? newPair : oldPair;
 
+        final ReentrantLock lock = mdPair.getLock();
         synchronized (mdPair) {
-            final ReentrantLock lock = mdPair.getLock();
             final M oldMd = mdPair.getMetadata();
-            if (oldMd.equals(pathMetadata)) {
-                lock.lock();
-                log.debug("srcdeps: Locked on thread level [{}]", path);
-                return lockInFilesystem(path, lock);
-            } else {
+            if (oldMd == null || !oldMd.equals(pathMetadata)) {
                 /*
                  * in case the mdPair has a different metadata from a previous call we try to lock immediately and
                  * change the md only if we succeed
@@ -175,10 +185,62 @@ public class PathLocker<M> {
                     return lockInFilesystem(path, lock);
                 } else {
                     throw new CannotAcquireLockException(
-                            String.format("Path [%s] is locked by another thread for [%s]", path, oldPair));
+                            String.format("Path [%s] is locked by another thread for [%s]", path, oldMd));
                 }
             }
         }
+        /*
+         * Same metadata: wait for the other threads of the current VM outside of the monitor so that the callers of
+         * tryLockDirectory() and the callers with a different metadata are not blocked by us
+         */
+        lock.lock();
+        synchronized (mdPair) {
+            /*
+             * While we were waiting, a caller with a different metadata might have got the lock in between two holders
+             * and changed the metadata; we must not take over a path prepared for a different metadata
+             */
+            final M currentMd = mdPair.getMetadata();
+            if (currentMd != null && !currentMd.equals(pathMetadata)) {
+                lock.unlock();
+                throw new CannotAcquireLockException(String.format(
+                        "Path [%s] was taken over by another thread for [%s]", path, currentMd));
+            }
+            log.debug("srcdeps: Locked on thread level [{}]", path);
+            mdPair.setMetadata(pathMetadata);
+        }
+        return lockInFilesystem(path, lock);
+    }
+
+    /**
+     * Tries to acquire both thread level and OS process level exclusive lock to the given filesystem {@code path}
+     * without ever blocking the current thread: unlike {@link #lockDirectory(Path, Object)}, this method does not wait
+     * even if the {@code path} is locked by another thread of the current VM. The metadata associated with the
+     * {@code path} is left untouched. This is intended for background maintenance tasks that should never delay an
+     * active build.
+     * <p>
+     * The returned {@link PathLock} should be released using its {@link Closeable#close()} method.
+     *
+     * @param path the {@link Path} to lock
+     * @return a {@link PathLock} whose holder is guaranteed to have an exclusive access to {@link PathLock#getPath()}
+     * @throws IOException                if the given {@code path} cannot be created as a directory
+     * @throws CannotAcquireLockException if the lock cannot be acquired immediately
+     * @since 4.0.4
+     */
+    public PathLock tryLockDirectory(Path path) throws IOException, CannotAcquireLockException {
+        SrcdepsCoreUtils.ensureDirectoryExists(path);
+        final LockMetadataPair<M> newPair = new LockMetadataPair<M>(new ReentrantLock(), null);
+        final LockMetadataPair<M> oldPair = locks.putIfAbsent(path, newPair);
+        final LockMetadataPair<M> mdPair = oldPair == null ? newPair : oldPair;
+
+        /* No need to synchronize on mdPair as we neither wait nor change the metadata */
+        final ReentrantLock lock = mdPair.getLock();
+        if (!lock.isHeldByCurrentThread() && lock.tryLock()) {
+            log.debug("srcdeps: Locked on thread level [{}]", path);
+            return lockInFilesystem(path, lock);
+        } else {
+            throw new CannotAcquireLockException(
+                    String.format("Path [%s] is locked by another thread for [%s]", path, mdPair.getMetadata()));
+        }
     }
 
     private PathLock lockInFilesystem(Path path, final ReentrantLock lock) throws CannotAcquireLockException {
@@ -192,7 +254,8 @@ public class PathLocker<M> {
                 throw new CannotAcquireLockException(
                         String.format("Could not acquire filesystem level lock on [%s]", lockFilePath));
             } else {
-                return new PathLock(path, lockFile, lockFilePath, lock);
+                return new PathLock(path, lockFile, lockFilePath, lock,
+                        SrcdepsJfrEvents.PATH_LOCK.begin().set("path", path.toString()));
             }
         } catch (CannotAcquireLockException e) {
             close(lockFile, lockFilePath, lock);
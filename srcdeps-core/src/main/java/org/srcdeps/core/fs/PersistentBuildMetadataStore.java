@@ -33,6 +33,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.srcdeps.core.BuildMetadataStore;
 import org.srcdeps.core.Gavtc;
+import org.srcdeps.core.metrics.BuildCounter;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.JfrEventType;
+import org.srcdeps.core.metrics.JfrEventType.Event;
+import org.srcdeps.core.metrics.NoOpBuildMetrics;
+import org.srcdeps.core.metrics.SrcdepsJfrEvents;
 import org.srcdeps.core.util.Consumer;
 
 /**
@@ -107,6 +115,10 @@ public class PersistentBuildMetadataStore implements BuildMetadataStore {
 
     private static final Logger log = LoggerFactory.getLogger(PersistentBuildMetadataStore.class);
 
+    private static Event beginEvent(JfrEventType type, String buildRequestIdHash, String key) {
+        return type.begin().set("buildRequestIdHash", buildRequestIdHash).set("key", key);
+    }
+
     private static void store(final Path p, String content) {
         try {
             Files.createDirectories(p.getParent());
@@ -116,11 +128,23 @@ public class PersistentBuildMetadataStore implements BuildMetadataStore {
         }
     }
 
+    private final BuildMetrics metrics;
     private final Path rootDirectory;
 
     public PersistentBuildMetadataStore(Path rootDirectory) {
+        this(rootDirectory, NoOpBuildMetrics.INSTANCE);
+    }
+
+    /**
+     * @param rootDirectory the directory to store the metadata in
+     * @param metrics       the {@link BuildMetrics} to report the {@link BuildPhase#metadataStore} phase and the
+     *                      {@link BuildCounter#metadataReads} and {@link BuildCounter#metadataWrites} counters to
+     * @since 4.0.4
+     */
+    public PersistentBuildMetadataStore(Path rootDirectory, BuildMetrics metrics) {
         super();
         this.rootDirectory = rootDirectory;
+        this.metrics = metrics;
         try {
             Files.createDirectories(rootDirectory);
         } catch (IOException e) {
@@ -141,14 +165,23 @@ public class PersistentBuildMetadataStore implements BuildMetadataStore {
     @Override
     public String retrieveCommitId(String buildRequestIdHash) {
         final Path p = createBuildRequestIdPath(buildRequestIdHash).resolve(COMMIT_ID);
-        if (Files.exists(p)) {
-            try {
-                String result = new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
-                log.debug("srcdeps: Path [{}] points at commitId [{}]", p, result);
-                return result;
-            } catch (IOException e) {
-                throw new RuntimeException(String.format("Could not read %s", p), e);
+        final Event event = beginEvent(SrcdepsJfrEvents.METADATA_READ, buildRequestIdHash, COMMIT_ID);
+        final Span span = metrics.start(BuildPhase.metadataStore, buildRequestIdHash);
+        try {
+            metrics.count(BuildCounter.metadataReads, buildRequestIdHash, 1);
+            if (Files.exists(p)) {
+                try {
+                    String result = new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+                    log.debug("srcdeps: Path [{}] points at commitId [{}]", p, result);
+                    event.set("found", true);
+                    return result;
+                } catch (IOException e) {
+                    throw new RuntimeException(String.format("Could not read %s", p), e);
+                }
             }
+        } finally {
+            span.close();
+            event.commit();
         }
         log.debug("srcdeps: commitId path [{}] does not exist", p);
         return null;
@@ -159,14 +192,23 @@ public class PersistentBuildMetadataStore implements BuildMetadataStore {
     public String retrieveSha1(String buildRequestIdHash, Gavtc gavtc) {
         final String gavtcString = gavtc.getGavtcString().replace(':', '_');
         final Path p = createBuildRequestIdPath(buildRequestIdHash).resolve(gavtcString);
-        if (Files.exists(p)) {
-            try {
-                final String result = new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
-                log.debug("srcdeps: Path [{}] points at sha1 [{}]", p, result);
-                return result;
-            } catch (IOException e) {
-                throw new RuntimeException(String.format("Could not read %s", p), e);
+        final Event event = beginEvent(SrcdepsJfrEvents.METADATA_READ, buildRequestIdHash, gavtcString);
+        final Span span = metrics.start(BuildPhase.metadataStore, buildRequestIdHash);
+        try {
+            metrics.count(BuildCounter.metadataReads, buildRequestIdHash, 1);
+            if (Files.exists(p)) {
+                try {
+                    final String result = new String(Files.readAllBytes(p), StandardCharsets.UTF_8);
+                    log.debug("srcdeps: Path [{}] points at sha1 [{}]", p, result);
+                    event.set("found", true);
+                    return result;
+                } catch (IOException e) {
+                    throw new RuntimeException(String.format("Could not read %s", p), e);
+                }
             }
+        } finally {
+            span.close();
+            event.commit();
         }
         log.debug("srcdeps: sha1 path [{}] does not exist", p);
         return null;
@@ -177,7 +219,15 @@ public class PersistentBuildMetadataStore implements BuildMetadataStore {
     public void storeCommitId(String buildRequestIdHash, String commitId) {
         final Path p = createBuildRequestIdPath(buildRequestIdHash).resolve(COMMIT_ID);
         log.debug("srcdeps: Path [{}] will point at commitId [{}]", p, commitId);
-        store(p, commitId);
+        final Event event = beginEvent(SrcdepsJfrEvents.METADATA_WRITE, buildRequestIdHash, COMMIT_ID);
+        final Span span = metrics.start(BuildPhase.metadataStore, buildRequestIdHash);
+        try {
+            store(p, commitId);
+            metrics.count(BuildCounter.metadataWrites, buildRequestIdHash, 1);
+        } finally {
+            span.close();
+            event.commit();
+        }
     }
 
     /** {@inheritDoc} */
@@ -186,7 +236,15 @@ public class PersistentBuildMetadataStore implements BuildMetadataStore {
         final String gavtcString = gavtc.getGavtcString().replace(':', '_');
         final Path p = createBuildRequestIdPath(buildRequestIdHash).resolve(gavtcString);
         log.debug("srcdeps: Path [{}] will point at sha1 [{}]", p, sha1);
-        store(p, sha1);
+        final Event event = beginEvent(SrcdepsJfrEvents.METADATA_WRITE, buildRequestIdHash, gavtcString);
+        final Span span = metrics.start(BuildPhase.metadataStore, buildRequestIdHash);
+        try {
+            store(p, sha1);
+            metrics.count(BuildCounter.metadataWrites, buildRequestIdHash, 1);
+        } finally {
+            span.close();
+            event.commit();
+        }
     }
 
     /** {@inheritDoc} */
@@ -202,13 +260,13 @@ public class PersistentBuildMetadataStore implements BuildMetadataStore {
     /** {@inheritDoc} */
     @Override
     public StoreSha1Consumer createStoreSha1Consumer(String buildRequestIdHash) {
-        return new StoreSha1Consumer(this, buildRequestIdHash);
+        return new StoreSha1Consumer(this, buildRequestIdHash, metrics);
     }
 
     /** {@inheritDoc} */
     @Override
     public CheckSha1Consumer createCheckSha1Checker(String buildRequestIdHash) {
-        return new CheckSha1Consumer(this, buildRequestIdHash);
+        return new CheckSha1Consumer(this, buildRequestIdHash, metrics);
     }
 
 }
@@ -0,0 +1,388 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.Gav;
+
+/**
+ * The artifacts declared as dependencies in the build files of a source tree. Used by {@link DefaultBuildScheduler}
+ * to infer the dependencies between the {@link BuildRequest}s of a batch.
+ * <p>
+ * From {@code pom.xml} files, the coordinates of all {@code dependency}, {@code plugin}, {@code extension} and
+ * {@code parent} elements are taken. {@code ${property}} references in them are resolved using the
+ * {@code <properties>} of all {@code pom.xml} files of the tree and the {@code project.*} coordinates of the given
+ * file. From Gradle build scripts, the {@code "group:name:version"} string literals and the
+ * {@code group: ..., name: ..., version: ...} maps are taken, with {@code $property} references resolved using the
+ * {@code gradle.properties} files of the tree. Coordinates whose version cannot be resolved are ignored.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+class DeclaredDependencies {
+
+    /** The raw coordinates of a Maven element, possibly containing {@code ${property}} references */
+    static class RawCoordinates {
+        private String artifactId;
+        private String groupId;
+        private final Map<String, String> projectProperties;
+        private String version;
+
+        RawCoordinates(Map<String, String> projectProperties) {
+            super();
+            this.projectProperties = projectProperties;
+        }
+    }
+
+    private static final Set<String> COORDINATES_ELEMENTS = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("dependency", "extension", "parent", "plugin")));
+
+    /** {@code "group:name:version"} with an optional classifier and/or {@code @extension} */
+    private static final Pattern GRADLE_STRING_NOTATION = Pattern
+            .compile("([\"'])([^\"'\\s:$]+):([^\"'\\s:$]+):([^\"'\\s:@]+)(?::[^\"'\\s:@]+)?(?:@[^\"'\\s]+)?\\1");
+
+    /** {@code group: 'g', name: 'a', version: 'v'} as well as {@code group = "g", name = "a", version = "v"} */
+    private static final Pattern GRADLE_MAP_NOTATION = Pattern.compile("group\\s*[:=]\\s*[\"']([^\"']+)[\"']\\s*,"
+            + "\\s*name\\s*[:=]\\s*[\"']([^\"']+)[\"']\\s*,\\s*version\\s*[:=]\\s*[\"']([^\"']+)[\"']");
+
+    private static final Pattern GRADLE_PROPERTY_REFERENCE = Pattern
+            .compile("\\$\\{([^}]+)\\}|\\$([A-Za-z_][A-Za-z0-9_.]*)");
+
+    private static final Pattern MAVEN_PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^}]+)\\}");
+
+    /** The directories never containing build files that would be of our interest */
+    private static final Set<String> SKIP_DIRECTORY_NAMES = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("target", "build", "node_modules")));
+
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            final XMLInputFactory result = XMLInputFactory.newInstance();
+            result.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            result.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            return result;
+        }
+    };
+
+    /**
+     * Replaces the property references found by the given {@code pattern} in the given {@code value}.
+     *
+     * @param value      the string to resolve
+     * @param pattern    the {@link Pattern} whose first or second group is the name of the property
+     * @param properties the properties to look up
+     * @return the resolved value or {@code null} if some of the properties is not available
+     */
+    static String resolve(String value, Pattern pattern, Map<String, String> properties) {
+        if (value == null || value.indexOf('$') < 0) {
+            return value;
+        }
+        String result = value;
+        /* properties may refer to other properties; limit the nesting to avoid cycles */
+        for (int depth = 0; depth < 8 && result.indexOf('$') >= 0; depth++) {
+            final Matcher m = pattern.matcher(result);
+            final StringBuffer sb = new StringBuffer();
+            while (m.find()) {
+                final String key = m.group(1) != null ? m.group(1) : m.group(2);
+                final String replacement = properties.get(key);
+                if (replacement == null) {
+                    return null;
+                }
+                m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+            }
+            m.appendTail(sb);
+            result = sb.toString();
+        }
+        return result.indexOf('$') >= 0 ? null : result;
+    }
+
+    /**
+     * Walks the given {@code root} directory and collects the artifacts declared in its build files.
+     *
+     * @param root the directory to scan
+     * @return a new {@link DeclaredDependencies}
+     * @throws IOException on problems with reading the build files
+     */
+    static DeclaredDependencies scan(final Path root) throws IOException {
+        final DeclaredDependencies result = new DeclaredDependencies();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                final Path fileName = dir.getFileName();
+                if (fileName != null && !dir.equals(root)) {
+                    final String name = fileName.toString();
+                    if (name.startsWith(".") || SKIP_DIRECTORY_NAMES.contains(name)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                switch (file.getFileName().toString()) {
+                case "pom.xml":
+                    result.readPom(file);
+                    break;
+                case "build.gradle":
+                case "build.gradle.kts":
+                    result.readGradleScript(file);
+                    break;
+                case "gradle.properties":
+                    result.readGradleProperties(file);
+                    break;
+                default:
+                    break;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    private final Set<Gav> gradleCoordinates = new LinkedHashSet<>();
+    private final Map<String, String> gradleProperties = new HashMap<>();
+    private final List<RawCoordinates> mavenCoordinates = new ArrayList<>();
+    private final Map<String, String> mavenProperties = new HashMap<>();
+    /** The {@code groupId:artifactId} of the projects defined in the scanned tree */
+    private final Set<String> ownGas = new HashSet<>();
+    private Set<Gav> resolved;
+
+    DeclaredDependencies() {
+        super();
+    }
+
+    /**
+     * @param request the {@link BuildRequest} to check
+     * @return {@code true} if some of the declared artifacts has {@link BuildRequest#getVersion()} of the given
+     *         {@code request} and is contained in its {@link BuildRequest#getGavSet()}
+     */
+    boolean dependsOn(BuildRequest request) {
+        final String version = request.getVersion();
+        for (Gav gav : getDependencies()) {
+            if (version.equals(gav.getVersion())
+                    && request.getGavSet().contains(gav.getGroupId(), gav.getArtifactId(), gav.getVersion())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the resolved coordinates of the declared artifacts, excluding the projects of the scanned tree itself
+     */
+    Set<Gav> getDependencies() {
+        if (resolved == null) {
+            final Set<Gav> result = new LinkedHashSet<>();
+            final Map<String, String> properties = new HashMap<>();
+            for (RawCoordinates c : mavenCoordinates) {
+                properties.clear();
+                properties.putAll(mavenProperties);
+                properties.putAll(c.projectProperties);
+                final String groupId = resolve(c.groupId, MAVEN_PROPERTY_REFERENCE, properties);
+                final String artifactId = resolve(c.artifactId, MAVEN_PROPERTY_REFERENCE, properties);
+                final String version = resolve(c.version, MAVEN_PROPERTY_REFERENCE, properties);
+                if (groupId != null && artifactId != null && version != null) {
+                    add(result, groupId, artifactId, version);
+                }
+            }
+            for (Gav gav : gradleCoordinates) {
+                final String version = resolve(gav.getVersion(), GRADLE_PROPERTY_REFERENCE, gradleProperties);
+                if (version != null) {
+                    add(result, gav.getGroupId(), gav.getArtifactId(), version);
+                }
+            }
+            resolved = Collections.unmodifiableSet(result);
+        }
+        return resolved;
+    }
+
+    private void add(Set<Gav> result, String groupId, String artifactId, String version) {
+        if (!ownGas.contains(groupId + ":" + artifactId)) {
+            result.add(new Gav(groupId, artifactId, version));
+        }
+    }
+
+    void readGradleProperties(Path file) throws IOException {
+        final Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        }
+        for (String key : props.stringPropertyNames()) {
+            if (!gradleProperties.containsKey(key)) {
+                gradleProperties.put(key, props.getProperty(key).trim());
+            }
+        }
+        resolved = null;
+    }
+
+    void readGradleScript(Path file) throws IOException {
+        final String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        final Matcher strings = GRADLE_STRING_NOTATION.matcher(content);
+        while (strings.find()) {
+            gradleCoordinates.add(new Gav(strings.group(2), strings.group(3), strings.group(4)));
+        }
+        final Matcher maps = GRADLE_MAP_NOTATION.matcher(content);
+        while (maps.find()) {
+            gradleCoordinates.add(new Gav(maps.group(1), maps.group(2), maps.group(3)));
+        }
+        resolved = null;
+    }
+
+    void readPom(Path file) throws IOException {
+        final Map<String, String> projectProperties = new HashMap<>();
+        final Deque<String> path = new ArrayDeque<>();
+        final Deque<RawCoordinates> coordinatesStack = new ArrayDeque<>();
+        final Deque<Integer> coordinatesDepths = new ArrayDeque<>();
+        final StringBuilder text = new StringBuilder();
+        String groupId = null;
+        String artifactId = null;
+        boolean inProperties = false;
+        /* let the parser detect the encoding from the XML declaration */
+        try (InputStream in = Files.newInputStream(file)) {
+            final XMLStreamReader r = INPUT_FACTORY.get().createXMLStreamReader(in);
+            try {
+                while (r.hasNext()) {
+                    switch (r.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        path.push(r.getLocalName());
+                        text.setLength(0);
+                        if (path.size() == 2 && "properties".equals(r.getLocalName())) {
+                            inProperties = true;
+                        }
+                        if (COORDINATES_ELEMENTS.contains(r.getLocalName())) {
+                            coordinatesStack.push(new RawCoordinates(projectProperties));
+                            coordinatesDepths.push(path.size());
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        text.append(r.getText());
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        final String value = text.toString().trim();
+                        final String name = path.peek();
+                        if (inProperties && path.size() == 3) {
+                            if (!mavenProperties.containsKey(name)) {
+                                mavenProperties.put(name, value);
+                            }
+                        } else if (path.size() == 2) {
+                            switch (name) {
+                            case "properties":
+                                inProperties = false;
+                                break;
+                            case "groupId":
+                                groupId = value;
+                                break;
+                            case "artifactId":
+                                artifactId = value;
+                                break;
+                            case "version":
+                                projectProperties.put("project.version", value);
+                                projectProperties.put("pom.version", value);
+                                break;
+                            default:
+                                break;
+                            }
+                        }
+                        if (!coordinatesDepths.isEmpty()) {
+                            final int depth = coordinatesDepths.peek();
+                            if (depth == path.size()) {
+                                final RawCoordinates c = coordinatesStack.pop();
+                                coordinatesDepths.pop();
+                                if (c.artifactId != null && c.version != null) {
+                                    mavenCoordinates.add(c);
+                                    if (path.size() == 2 && "parent".equals(name)) {
+                                        projectProperties.put("project.parent.groupId", c.groupId);
+                                        projectProperties.put("project.parent.version", c.version);
+                                    }
+                                }
+                            } else if (depth == path.size() - 1) {
+                                switch (name) {
+                                case "groupId":
+                                    coordinatesStack.peek().groupId = value;
+                                    break;
+                                case "artifactId":
+                                    coordinatesStack.peek().artifactId = value;
+                                    break;
+                                case "version":
+                                    coordinatesStack.peek().version = value;
+                                    break;
+                                default:
+                                    break;
+                                }
+                            }
+                        }
+                        text.setLength(0);
+                        path.pop();
+                        break;
+                    default:
+                        break;
+                    }
+                }
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(String.format("Could not parse [%s]", file), e);
+        }
+        if (groupId == null) {
+            groupId = projectProperties.get("project.parent.groupId");
+        }
+        if (groupId != null) {
+            projectProperties.put("project.groupId", groupId);
+            projectProperties.put("pom.groupId", groupId);
+            if (artifactId != null) {
+                ownGas.add(groupId + ":" + artifactId);
+            }
+        }
+        if (!projectProperties.containsKey("project.version")
+                && projectProperties.containsKey("project.parent.version")) {
+            projectProperties.put("project.version", projectProperties.get("project.parent.version"));
+        }
+        resolved = null;
+    }
+
+}
@@ -0,0 +1,431 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.BuildBatch;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.BuildScheduler;
+import org.srcdeps.core.BuildService;
+import org.srcdeps.core.ScmService;
+import org.srcdeps.core.cache.BuildCache;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.CompositeBuildMetrics;
+
+/**
+ * The default implementation of {@link BuildScheduler} that uses the {@link ScmService} and {@link BuildService}
+ * injected by the DI container.
+ * <p>
+ * Checkouts and builds run in two separate thread pools sized according to
+ * {@link BuildBatch#getMaxConcurrentCheckouts()} and {@link BuildBatch#getMaxConcurrentBuilds()} respectively, so
+ * that the network bound fetches of some requests overlap with the CPU bound builds of other requests. A build is
+ * started as soon as its own checkout is done and all its dependencies are built.
+ * <p>
+ * The dependencies of a {@link BuildRequest} are the ones set explicitly in the {@link BuildBatch} plus (if
+ * {@link BuildBatch#isInferDependencies()} is {@code true}) the ones inferred from its checked out build files: if the
+ * build files of request A declare a dependency, plugin or parent whose coordinates are contained in
+ * {@link BuildRequest#getGavSet()} of request B of the same batch and whose version is
+ * {@link BuildRequest#getVersion()} of B, A depends on B.
+ * <p>
+ * If the batch has a {@link BuildBatch#getBuildCache()}, the artifacts of a {@link BuildRequest} are restored from
+ * it if possible: before the checkout for immutable versions and after the checkout otherwise. A restored request is
+ * considered built. Successful builds are stored in the {@link BuildCache}. Cache failures are logged and never fail
+ * the batch.
+ * <p>
+ * The whole batch is reported to the injected {@link BuildMetrics} as a {@link BuildPhase#batch} phase and each
+ * {@link BuildRequest} as a {@link BuildPhase#request} phase that lasts until the request is built, restored or
+ * failed.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@Named
+@Singleton
+public class DefaultBuildScheduler implements BuildScheduler {
+
+    /**
+     * The state of a single {@link BuildRequest} within a running {@link DefaultBuildScheduler#build(BuildBatch)}
+     * call. Accessed only from the scheduling thread.
+     */
+    static class Node {
+        private boolean built;
+        private String commitId;
+        private final Set<Node> dependents = new LinkedHashSet<>();
+        private final BuildRequest request;
+        private Span span;
+        private int unbuiltDependencies = -1;
+
+        Node(BuildRequest request) {
+            super();
+            this.request = request;
+        }
+
+        void closeSpan() {
+            if (span != null) {
+                span.close();
+                span = null;
+            }
+        }
+
+        boolean isReadyToBuild() {
+            return commitId != null && unbuiltDependencies == 0;
+        }
+    }
+
+    /**
+     * A message sent from the checkout and build threads to the scheduling thread.
+     */
+    static class Outcome {
+        private final Throwable exception;
+        /**
+         * The requests inferred by the checkout thread as dependencies of {@link #node}, see
+         * {@link DefaultBuildScheduler#inferDependencies(BuildRequest, Iterable)}
+         */
+        private final Set<BuildRequest> inferredDependencies;
+        private final boolean isBuild;
+        private final Node node;
+        private final String commitId;
+        /** {@code true} if the artifacts were restored from the {@link BuildCache} so that no build is needed */
+        private final boolean restored;
+
+        Outcome(Node node, boolean isBuild, String commitId, Throwable exception) {
+            this(node, isBuild, commitId, exception, false, Collections.<BuildRequest>emptySet());
+        }
+
+        Outcome(Node node, boolean isBuild, String commitId, Throwable exception, boolean restored,
+                Set<BuildRequest> inferredDependencies) {
+            super();
+            this.node = node;
+            this.isBuild = isBuild;
+            this.commitId = commitId;
+            this.exception = exception;
+            this.restored = restored;
+            this.inferredDependencies = inferredDependencies;
+        }
+    }
+
+    /**
+     * A {@link ThreadFactory} producing daemon threads with a meaningful name prefix.
+     */
+    static class PrefixThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+
+        PrefixThreadFactory(String prefix) {
+            super();
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(DefaultBuildScheduler.class);
+
+    /**
+     * Scans the build files under {@code request.getProjectRootDirectory()} for the artifacts of other requests of
+     * the same batch, see {@link DeclaredDependencies}. This reads files and is thus called on the checkout threads
+     * rather than on the scheduling thread.
+     *
+     * @param request  the {@link BuildRequest} whose dependencies should be found
+     * @param requests all {@link BuildRequest}s of the current batch
+     * @return the {@link BuildRequest}s the given {@code request} depends on
+     * @throws IOException on problems with reading the build files
+     */
+    static Set<BuildRequest> inferDependencies(BuildRequest request, Iterable<BuildRequest> requests)
+            throws IOException {
+        final Set<BuildRequest> result = new LinkedHashSet<>();
+        DeclaredDependencies declared = null;
+        for (BuildRequest other : requests) {
+            if (other != request) {
+                if (declared == null) {
+                    declared = DeclaredDependencies.scan(request.getProjectRootDirectory());
+                }
+                if (declared.dependsOn(other)) {
+                    result.add(other);
+                }
+            }
+        }
+        return result;
+    }
+
+    private final BuildService buildService;
+
+    private final BuildMetrics metrics;
+
+    private final ScmService scmService;
+
+    public DefaultBuildScheduler(ScmService scmService, BuildService buildService) {
+        this(scmService, buildService, Collections.<BuildMetrics>emptySet());
+    }
+
+    /**
+     * @param scmService   the {@link ScmService} to check out with
+     * @param buildService the {@link BuildService} to build with
+     * @param metrics      the {@link BuildMetrics} to report the {@link BuildPhase#batch} and
+     *                     {@link BuildPhase#request} phases to
+     */
+    @Inject
+    public DefaultBuildScheduler(ScmService scmService, BuildService buildService, Set<BuildMetrics> metrics) {
+        super();
+        this.scmService = scmService;
+        this.buildService = buildService;
+        this.metrics = CompositeBuildMetrics.of(metrics);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<BuildRequest, String> build(BuildBatch batch) throws BuildException {
+        final List<BuildRequest> requests = batch.getRequests();
+        final Map<BuildRequest, String> result = new LinkedHashMap<>();
+        if (requests.isEmpty()) {
+            return result;
+        }
+
+        final Map<BuildRequest, Node> nodes = new IdentityHashMap<>();
+        final Set<Path> rootDirectories = new HashSet<>();
+        for (BuildRequest request : requests) {
+            if (!rootDirectories.add(request.getProjectRootDirectory())) {
+                throw new BuildException(String.format("More than one BuildRequest uses projectRootDirectory [%s]",
+                        request.getProjectRootDirectory()));
+            }
+            nodes.put(request, new Node(request));
+        }
+
+        final int checkoutThreads = Math.min(batch.getMaxConcurrentCheckouts(), requests.size());
+        final int buildThreads = Math.min(batch.getMaxConcurrentBuilds(), requests.size());
+        log.info("srcdeps: Scheduling [{}] build requests using [{}] checkout and [{}] build threads", requests.size(),
+                checkoutThreads, buildThreads);
+
+        final ExecutorService checkoutPool = Executors.newFixedThreadPool(checkoutThreads,
+                new PrefixThreadFactory("srcdeps-checkout-"));
+        final ExecutorService buildPool = Executors.newFixedThreadPool(buildThreads,
+                new PrefixThreadFactory("srcdeps-build-"));
+        final BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final Span batchSpan = metrics.start(BuildPhase.batch, (String) null);
+        try {
+            int running = 0;
+            final List<BuildRequest> inferFrom = batch.isInferDependencies() ? requests : null;
+            for (BuildRequest request : requests) {
+                final Node node = nodes.get(request);
+                node.span = metrics.start(BuildPhase.request, request);
+                submitCheckout(checkoutPool, node, outcomes, cancelled, batch.getBuildCache(), inferFrom);
+                running++;
+            }
+
+            final List<Throwable> failures = new ArrayList<>();
+            while (running > 0) {
+                final Outcome outcome = outcomes.take();
+                running--;
+                final Node node = outcome.node;
+                if (outcome.exception != null) {
+                    failures.add(outcome.exception);
+                    cancelled.set(true);
+                    node.closeSpan();
+                } else if (!failures.isEmpty()) {
+                    /* Do not start anything new after a failure; just wait for the running tasks */
+                } else if (outcome.isBuild || outcome.restored) {
+                    if (outcome.restored) {
+                        node.commitId = outcome.commitId;
+                    }
+                    node.built = true;
+                    node.closeSpan();
+                    result.put(node.request, node.commitId);
+                    for (Node dependent : node.dependents) {
+                        dependent.unbuiltDependencies--;
+                        if (dependent.isReadyToBuild()) {
+                            submitBuild(buildPool, dependent, outcomes, cancelled, batch.getBuildCache());
+                            running++;
+                        }
+                    }
+                } else {
+                    node.commitId = outcome.commitId;
+                    final Set<Node> deps = new LinkedHashSet<>();
+                    for (BuildRequest dep : batch.getExplicitDependencies(node.request)) {
+                        deps.add(nodes.get(dep));
+                    }
+                    for (BuildRequest dep : outcome.inferredDependencies) {
+                        deps.add(nodes.get(dep));
+                    }
+                    int unbuilt = 0;
+                    for (Node dep : deps) {
+                        if (!dep.built) {
+                            dep.dependents.add(node);
+                            unbuilt++;
+                        }
+                        log.debug("srcdeps: [{}] depends on [{}]", node.request.getScmRepositoryId(),
+                                dep.request.getScmRepositoryId());
+                    }
+                    node.unbuiltDependencies = unbuilt;
+                    if (node.isReadyToBuild()) {
+                        submitBuild(buildPool, node, outcomes, cancelled, batch.getBuildCache());
+                        running++;
+                    }
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                final Throwable first = failures.get(0);
+                final BuildException e = first instanceof BuildException ? (BuildException) first
+                        : new BuildException("Could not perform a scheduled build", first);
+                for (int i = 1; i < failures.size(); i++) {
+                    e.addSuppressed(failures.get(i));
+                }
+                throw e;
+            }
+
+            if (result.size() < requests.size()) {
+                final List<String> stuck = new ArrayList<>();
+                for (BuildRequest request : requests) {
+                    if (!nodes.get(request).built) {
+                        stuck.add(request.getScmRepositoryId());
+                    }
+                }
+                throw new BuildException(
+                        String.format("Could not build %s because their dependencies form a cycle", stuck));
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while waiting for scheduled builds", e);
+        } finally {
+            checkoutPool.shutdownNow();
+            buildPool.shutdownNow();
+            for (Node node : nodes.values()) {
+                node.closeSpan();
+            }
+            batchSpan.close();
+        }
+    }
+
+    private static String lookupCommitId(BuildCache buildCache, BuildRequest request) {
+        try {
+            return buildCache.lookupCommitId(request);
+        } catch (Exception e) {
+            log.warn(String.format("srcdeps: Could not look up [%s] in %s", request.getScmRepositoryId(), buildCache),
+                    e);
+            return null;
+        }
+    }
+
+    private static boolean restore(BuildCache buildCache, BuildRequest request, String commitId) {
+        try {
+            return buildCache.restore(request, commitId);
+        } catch (Exception e) {
+            log.warn(String.format("srcdeps: Could not restore [%s] from %s", request.getScmRepositoryId(),
+                    buildCache), e);
+            return false;
+        }
+    }
+
+    private void submitBuild(ExecutorService buildPool, final Node node, final BlockingQueue<Outcome> outcomes,
+            final AtomicBoolean cancelled, final BuildCache buildCache) {
+        buildPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled.get()) {
+                    outcomes.add(new Outcome(node, true, null, null));
+                    return;
+                }
+                try {
+                    buildService.build(node.request);
+                    if (buildCache != null) {
+                        try {
+                            buildCache.store(node.request, node.commitId);
+                        } catch (Exception e) {
+                            log.warn(String.format("srcdeps: Could not store [%s] in %s",
+                                    node.request.getScmRepositoryId(), buildCache), e);
+                        }
+                    }
+                    outcomes.add(new Outcome(node, true, null, null));
+                } catch (Throwable e) {
+                    outcomes.add(new Outcome(node, true, null, e));
+                }
+            }
+        });
+    }
+
+    private void submitCheckout(ExecutorService checkoutPool, final Node node, final BlockingQueue<Outcome> outcomes,
+            final AtomicBoolean cancelled, final BuildCache buildCache, final List<BuildRequest> inferFrom) {
+        checkoutPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (cancelled.get()) {
+                    outcomes.add(new Outcome(node, false, null, null));
+                    return;
+                }
+                try {
+                    if (buildCache != null) {
+                        final String cachedCommitId = lookupCommitId(buildCache, node.request);
+                        if (cachedCommitId != null && restore(buildCache, node.request, cachedCommitId)) {
+                            outcomes.add(new Outcome(node, false, cachedCommitId, null, true,
+                                    Collections.<BuildRequest>emptySet()));
+                            return;
+                        }
+                    }
+                    final String commitId = scmService.checkout(node.request);
+                    final boolean restored = buildCache != null && restore(buildCache, node.request, commitId);
+                    Set<BuildRequest> inferred = Collections.<BuildRequest>emptySet();
+                    if (!restored && inferFrom != null) {
+                        try {
+                            inferred = inferDependencies(node.request, inferFrom);
+                        } catch (IOException e) {
+                            throw new BuildException(String.format("Could not infer dependencies of [%s]",
+                                    node.request.getScmRepositoryId()), e);
+                        }
+                    }
+                    outcomes.add(new Outcome(node, false, commitId, null, restored, inferred));
+                } catch (Throwable e) {
+                    outcomes.add(new Outcome(node, false, null, e));
+                }
+            }
+        });
+    }
+
+}
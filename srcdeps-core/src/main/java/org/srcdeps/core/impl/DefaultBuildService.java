@@ -17,6 +17,7 @@
 package org.srcdeps.core.impl;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -29,10 +30,15 @@ import org.srcdeps.core.BuildException;
 import org.srcdeps.core.BuildRequest;
 import org.srcdeps.core.BuildService;
 import org.srcdeps.core.Builder;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.CompositeBuildMetrics;
 
 /**
  * The default implementation of {@link BuildService} that makes use of the {@link Builder}s injected by the DI
- * container.
+ * container. The {@link BuildPhase#setVersions} and {@link BuildPhase#build} phases are reported to the injected
+ * {@link BuildMetrics}.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
@@ -41,11 +47,22 @@ import org.srcdeps.core.Builder;
 public class DefaultBuildService implements BuildService {
     private static final Logger log = LoggerFactory.getLogger(DefaultBuildService.class);
     private final Set<Builder> builders;
+    private final BuildMetrics metrics;
 
-    @Inject
     public DefaultBuildService(Set<Builder> builders) {
+        this(builders, Collections.<BuildMetrics>emptySet());
+    }
+
+    /**
+     * @param builders the {@link Builder}s to choose from
+     * @param metrics  the {@link BuildMetrics} to report to
+     * @since 4.0.4
+     */
+    @Inject
+    public DefaultBuildService(Set<Builder> builders, Set<BuildMetrics> metrics) {
         super();
         this.builders = builders;
+        this.metrics = CompositeBuildMetrics.of(metrics);
     }
 
     /** {@inheritDoc} */
@@ -57,8 +74,18 @@ public class DefaultBuildService implements BuildService {
             if (builder.canBuild(dir)) {
                 log.info("srcdeps: Building [{}]", request.getScmRepositoryId());
                 log.debug("srcdeps: Building [{}] in {} using Builder {}", request.getScmRepositoryId(), dir, builder.getClass().getName());
-                builder.setVersions(request);
-                builder.build(request);
+                final Span setVersionsSpan = metrics.start(BuildPhase.setVersions, request);
+                try {
+                    builder.setVersions(request);
+                } finally {
+                    setVersionsSpan.close();
+                }
+                final Span buildSpan = metrics.start(BuildPhase.build, request);
+                try {
+                    builder.build(request);
+                } finally {
+                    buildSpan.close();
+                }
                 return;
             }
         }
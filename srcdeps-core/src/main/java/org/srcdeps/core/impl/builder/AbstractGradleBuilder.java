@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.regex.Pattern;
 
 import org.srcdeps.core.BuildException;
@@ -40,6 +41,10 @@ import org.srcdeps.core.util.SrcdepsCoreUtils;
 
 /**
  * A base for {@link GradleBuilder} and {@link GradlewBuilder}.
+ * <p>
+ * By default, each build runs with {@code --no-daemon}. Setting {@link #getSrcdepsGradleDaemonProperty()} to
+ * {@code true} makes the builds reuse warm srcdeps-owned Gradle daemons instead, see
+ * {@link #getDaemonArguments(BuildRequest)}.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
@@ -51,6 +56,12 @@ public abstract class AbstractGradleBuilder extends ShellBuilder {
 
     protected static final List<String> GRADLE_DEFAULT_ARGS = Collections
             .unmodifiableList(Arrays.asList("clean", "install", "--no-daemon"));
+    private static final String GRADLE_JVMARGS_PROPERTY = "org.gradle.jvmargs";
+    private static final String NO_DAEMON_ARG = "--no-daemon";
+    private static final String SRCDEPS_DAEMON_MARKER = "-Dsrcdeps.daemon=true";
+    private static final String SRCDEPS_GRADLE_DAEMON_IDLE_TIMEOUT_PROPERTY = "srcdeps.gradle.daemon.idleTimeoutMs";
+    private static final String SRCDEPS_GRADLE_DAEMON_MAX_HEAP_PROPERTY = "srcdeps.gradle.daemon.maxHeap";
+    private static final String SRCDEPS_GRADLE_DAEMON_PROPERTY = "srcdeps.gradle.daemon";
     protected static final List<String> GRADLEW_FILE_NAMES = Collections
             .unmodifiableList(Arrays.asList("gradlew", "gradlew.bat"));
 
@@ -76,6 +87,36 @@ public abstract class AbstractGradleBuilder extends ShellBuilder {
         return GRADLE_DEFAULT_ARGS;
     }
 
+    /**
+     * @return the name of the system property that sets for how many milliseconds an idle srcdeps Gradle daemon should
+     *         stay alive; the value is {@value #SRCDEPS_GRADLE_DAEMON_IDLE_TIMEOUT_PROPERTY}. If not set, the Gradle
+     *         default (three hours) applies
+     * @since 4.0.4
+     */
+    public static String getSrcdepsGradleDaemonIdleTimeoutProperty() {
+        return SRCDEPS_GRADLE_DAEMON_IDLE_TIMEOUT_PROPERTY;
+    }
+
+    /**
+     * @return the name of the system property that sets the maximum heap of srcdeps Gradle daemons, e.g.
+     *         {@code 1g}; the value is {@value #SRCDEPS_GRADLE_DAEMON_MAX_HEAP_PROPERTY}. If not set, the
+     *         {@code -Xmx} from the {@code org.gradle.jvmargs} of the project or the Gradle default applies
+     * @since 4.0.4
+     */
+    public static String getSrcdepsGradleDaemonMaxHeapProperty() {
+        return SRCDEPS_GRADLE_DAEMON_MAX_HEAP_PROPERTY;
+    }
+
+    /**
+     * @return the name of the system property that enables reusing Gradle daemons across Gradle builds of source
+     *         dependencies; the value is {@value #SRCDEPS_GRADLE_DAEMON_PROPERTY}. The daemon mode is off unless the
+     *         property is set to {@code true}
+     * @since 4.0.4
+     */
+    public static String getSrcdepsGradleDaemonProperty() {
+        return SRCDEPS_GRADLE_DAEMON_PROPERTY;
+    }
+
     /**
      * @return the list of file names whose presence signals that the project can be built with {@link GradlewBuilder}
      */
@@ -148,9 +189,140 @@ public abstract class AbstractGradleBuilder extends ShellBuilder {
         }
     }
 
+    /**
+     * Returns the arguments making the build run in a srcdeps-owned Gradle daemon. Gradle reuses a daemon only for a
+     * client requesting the same Gradle version, the same Java home and the same immutable JVM arguments. Therefore,
+     * passing the Java home explicitly and marking the JVM arguments with {@value #SRCDEPS_DAEMON_MARKER} gives us a
+     * pool of daemons keyed by Gradle version and Java home that is never shared with the daemons of the user's
+     * interactive builds. The JVM arguments of the project are kept, only {@code -Xmx} is overridden if
+     * {@link #getSrcdepsGradleDaemonMaxHeapProperty()} is set.
+     *
+     * @param request the request to build
+     * @return a new {@link List} of arguments
+     * @throws BuildException if the {@code gradle.properties} file of the project cannot be read
+     * @since 4.0.4
+     */
+    protected List<String> getDaemonArguments(BuildRequest request) throws BuildException {
+        final List<String> result = new ArrayList<>(4);
+        result.add("--daemon");
+        result.add("-Dorg.gradle.java.home=" + getJavaHome(request));
+
+        final StringBuilder jvmArgs = new StringBuilder();
+        final String maxHeap = System.getProperty(SRCDEPS_GRADLE_DAEMON_MAX_HEAP_PROPERTY);
+        final String projectJvmArgs = readGradleProperty(request.getProjectRootDirectory(), GRADLE_JVMARGS_PROPERTY);
+        if (projectJvmArgs != null) {
+            for (String arg : splitJvmArgs(projectJvmArgs)) {
+                if (!(maxHeap != null && arg.startsWith("-Xmx"))) {
+                    appendJvmArg(jvmArgs, arg).append(' ');
+                }
+            }
+        }
+        if (maxHeap != null) {
+            jvmArgs.append("-Xmx").append(maxHeap).append(' ');
+        }
+        jvmArgs.append(SRCDEPS_DAEMON_MARKER);
+        result.add("-D" + GRADLE_JVMARGS_PROPERTY + "=" + jvmArgs);
+
+        final String idleTimeout = System.getProperty(SRCDEPS_GRADLE_DAEMON_IDLE_TIMEOUT_PROPERTY);
+        if (idleTimeout != null) {
+            result.add("-Dorg.gradle.daemon.idletimeout=" + idleTimeout);
+        }
+        return result;
+    }
+
+    /**
+     * @param projectRootDirectory the directory containing the {@code gradle.properties} file
+     * @param key                  the property to read
+     * @return the value of the property or {@code null} if there is no {@code gradle.properties} file or it does not
+     *         contain the property
+     * @throws BuildException if the {@code gradle.properties} file cannot be read
+     */
+    static String readGradleProperty(Path projectRootDirectory, String key) throws BuildException {
+        final Path gradleProperties = projectRootDirectory.resolve("gradle.properties");
+        if (!Files.exists(gradleProperties)) {
+            return null;
+        }
+        final Properties props = new Properties();
+        try (Reader r = Files.newBufferedReader(gradleProperties, StandardCharsets.ISO_8859_1)) {
+            props.load(r);
+        } catch (IOException e) {
+            throw new BuildException(String.format("Could not read [%s]", gradleProperties), e);
+        }
+        return props.getProperty(key);
+    }
+
+    /**
+     * Splits the given {@code org.gradle.jvmargs} value the same way as Gradle does: the arguments are delimited by
+     * whitespace unless it is enclosed in single or double quotes; the quotes themselves are removed.
+     *
+     * @param jvmArgs the value to split
+     * @return a new {@link List} of non-empty arguments
+     * @since 4.0.4
+     */
+    static List<String> splitJvmArgs(String jvmArgs) {
+        final List<String> result = new ArrayList<>();
+        final StringBuilder arg = new StringBuilder();
+        char quote = 0;
+        for (int i = 0; i < jvmArgs.length(); i++) {
+            final char ch = jvmArgs.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                } else {
+                    arg.append(ch);
+                }
+            } else if (ch == '"' || ch == '\'') {
+                quote = ch;
+            } else if (Character.isWhitespace(ch)) {
+                if (arg.length() > 0) {
+                    result.add(arg.toString());
+                    arg.setLength(0);
+                }
+            } else {
+                arg.append(ch);
+            }
+        }
+        if (arg.length() > 0) {
+            result.add(arg.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Appends the given {@code arg} to {@code jvmArgs}, enclosing it in quotes if it contains whitespace, so that
+     * {@link #splitJvmArgs(String)} and Gradle get the same {@code arg} back.
+     *
+     * @param jvmArgs the {@link StringBuilder} to append to
+     * @param arg     the argument to append
+     * @return {@code jvmArgs}
+     */
+    static StringBuilder appendJvmArg(StringBuilder jvmArgs, String arg) {
+        boolean hasWhitespace = false;
+        for (int i = 0; i < arg.length() && !hasWhitespace; i++) {
+            hasWhitespace = Character.isWhitespace(arg.charAt(i));
+        }
+        if (hasWhitespace || arg.indexOf('"') >= 0 || arg.indexOf('\'') >= 0) {
+            final char quote = arg.indexOf('"') >= 0 ? '\'' : '"';
+            return jvmArgs.append(quote).append(arg).append(quote);
+        }
+        return jvmArgs.append(arg);
+    }
+
+    /**
+     * @return {@code true} if {@link #getSrcdepsGradleDaemonProperty()} is set to {@code true}
+     */
+    static boolean isDaemonMode() {
+        return Boolean.getBoolean(SRCDEPS_GRADLE_DAEMON_PROPERTY);
+    }
+
     @Override
-    protected List<String> mergeArguments(BuildRequest request) {
+    protected List<String> mergeArguments(BuildRequest request) throws BuildException {
         List<String> result = new ArrayList<>(super.mergeArguments(request));
+        if (isDaemonMode()) {
+            /* both the default one and any passed by the user via build arguments */
+            result.removeAll(Collections.singleton(NO_DAEMON_ARG));
+            result.addAll(getDaemonArguments(request));
+        }
         result.add("-Dsrcdeps.inner.version=" + request.getSrcVersion().toString());
 
         GavSet gavSet = request.getGavSet();
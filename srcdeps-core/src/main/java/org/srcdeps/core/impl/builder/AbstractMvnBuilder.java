@@ -28,16 +28,51 @@ import org.srcdeps.core.BuildRequest;
 import org.srcdeps.core.BuildRequest.Verbosity;
 import org.srcdeps.core.config.Configuration;
 import org.srcdeps.core.config.Maven;
-import org.srcdeps.core.shell.Shell;
 import org.srcdeps.core.shell.Shell.CommandResult;
 import org.srcdeps.core.shell.ShellCommand;
 
 /**
- * A base for {@link MvnBuilder} and {@link MvnwBuilder}.
+ * A base for {@link MvnBuilder}, {@link MvnwBuilder}, {@link MvndBuilder} and {@link EmbeddedMvnBuilder}.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
 public abstract class AbstractMvnBuilder extends ShellBuilder {
+
+    /**
+     * The ways how {@link AbstractMvnBuilder#setVersions(BuildRequest)} can set the versions in the source tree.
+     *
+     * @since 4.0.4
+     */
+    public enum VersionsMode {
+        /**
+         * Set the versions in the JVM where srcdeps runs using {@link PomVersionRewriter}, so that only one Maven JVM
+         * (the one performing the build) needs to be started per source dependency. Falls back to
+         * {@link #versionsMavenPlugin} in source trees without a {@code pom.xml} file.
+         */
+        inProcess,
+
+        /** Fork a Maven JVM to run {@code versions-maven-plugin:set}; the default */
+        versionsMavenPlugin;
+
+        /**
+         * @return the {@link VersionsMode} set via {@link Maven#getSrcdepsMavenVersionsModeProperty()} system
+         *         property or {@link #versionsMavenPlugin} if the property is not set
+         * @throws BuildException if the property is set to a value that is not a name of a {@link VersionsMode}
+         */
+        public static VersionsMode current() throws BuildException {
+            final String value = System.getProperty(Maven.getSrcdepsMavenVersionsModeProperty());
+            if (value == null || value.isEmpty()) {
+                return versionsMavenPlugin;
+            }
+            try {
+                return valueOf(value);
+            } catch (IllegalArgumentException e) {
+                throw new BuildException(String.format("Invalid value [%s] of system property [%s]; expected one of %s",
+                        value, Maven.getSrcdepsMavenVersionsModeProperty(), Arrays.toString(values())), e);
+            }
+        }
+    }
+
     protected static final List<String> MVN_DEFAULT_ARGS = Collections
             .unmodifiableList(Arrays.asList("clean", "install"));
     protected static final Map<String, String> MVN_DEFAULT_BUILD_ENVIRONMENT = Collections.emptyMap();
@@ -112,6 +147,17 @@ public abstract class AbstractMvnBuilder extends ShellBuilder {
         }
     }
 
+    /**
+     * Returns the arguments that must be present in every invocation of the {@link #executable}, regardless of
+     * {@link BuildRequest#isAddDefaultBuildArguments()}. This implementation returns an empty {@link List}.
+     *
+     * @param request the request to build
+     * @return a {@link List} of arguments, never {@code null}
+     */
+    protected List<String> getInvocationArguments(BuildRequest request) {
+        return Collections.emptyList();
+    }
+
     @Override
     protected Map<String, String> getDefaultBuildEnvironment() {
         return MVN_DEFAULT_BUILD_ENVIRONMENT;
@@ -138,12 +184,33 @@ public abstract class AbstractMvnBuilder extends ShellBuilder {
         }
     }
 
+    /**
+     * Prepends {@link #getInvocationArguments(BuildRequest)} to the arguments merged by the super class.
+     *
+     * @see org.srcdeps.core.impl.builder.ShellBuilder#mergeArguments(org.srcdeps.core.BuildRequest)
+     */
+    @Override
+    protected List<String> mergeArguments(BuildRequest request) throws BuildException {
+        final List<String> invocationArgs = getInvocationArguments(request);
+        if (invocationArgs.isEmpty()) {
+            return super.mergeArguments(request);
+        }
+        final List<String> result = new ArrayList<>(invocationArgs);
+        result.addAll(super.mergeArguments(request));
+        return result;
+    }
+
     @Override
     public void setVersions(BuildRequest request) throws BuildException {
         final Map<String, String> env = mergeEnvironment(request);
         final List<String> verbosityArgs = getVerbosityArguments(request.getVerbosity());
-        {
-            final List<String> args = new ArrayList<>();
+        if (VersionsMode.current() == VersionsMode.inProcess
+                && PomVersionRewriter.canRewrite(request.getProjectRootDirectory())) {
+            final long start = System.currentTimeMillis();
+            new PomVersionRewriter(request.getVersion()).rewrite(request.getProjectRootDirectory());
+            this.restTimeoutMs.set(request.getTimeoutMs() - (System.currentTimeMillis() - start));
+        } else {
+            final List<String> args = new ArrayList<>(getInvocationArguments(request));
             args.add("org.codehaus.mojo:versions-maven-plugin:" + request.getVersionsMavenPluginVersion() + ":set");
             args.add("-DnewVersion=" + request.getVersion().toString());
             args.add("-DartifactId=*");
@@ -159,15 +226,15 @@ public abstract class AbstractMvnBuilder extends ShellBuilder {
                     .ioRedirects(request.getIoRedirects()) //
                     .timeoutMs(request.getTimeoutMs()) //
                     .build();
-            final CommandResult result = Shell.execute(cliRequest).assertSuccess();
-            this.restTimeoutMs = request.getTimeoutMs() - result.getRuntimeMs();
+            final CommandResult result = execute(cliRequest);
+            this.restTimeoutMs.set(request.getTimeoutMs() - result.getRuntimeMs());
         }
 
         final Map<String, String> forwardProps = request.getForwardPropertyValues();
         final String srcdepsMasterConfig = forwardProps.get(Configuration.getSrcdepsMasterConfigProperty());
         final String srcdepsMavenVersion = forwardProps.get(Maven.getSrcdepsMavenVersionProperty());
         if (srcdepsMasterConfig != null && srcdepsMavenVersion != null) {
-            final List<String> args = new ArrayList<>();
+            final List<String> args = new ArrayList<>(getInvocationArguments(request));
             args.add("org.srcdeps.mvn:srcdeps-maven-plugin:" + srcdepsMavenVersion + ":up");
             args.addAll(verbosityArgs);
 
@@ -176,10 +243,10 @@ public abstract class AbstractMvnBuilder extends ShellBuilder {
                     .workingDirectory(request.getProjectRootDirectory()) //
                     .environment(env) //
                     .ioRedirects(request.getIoRedirects()) //
-                    .timeoutMs(request.getTimeoutMs()) //
+                    .timeoutMs(restTimeoutMs.get()) //
                     .build();
-            final CommandResult result = Shell.execute(cliRequest).assertSuccess();
-            this.restTimeoutMs = request.getTimeoutMs() - result.getRuntimeMs();
+            final CommandResult result = execute(cliRequest);
+            this.restTimeoutMs.set(restTimeoutMs.get() - result.getRuntimeMs());
         }
 
     }
@@ -0,0 +1,465 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.builder;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.config.Maven;
+import org.srcdeps.core.shell.BadExitCodeException;
+import org.srcdeps.core.shell.CommandTimeoutException;
+import org.srcdeps.core.shell.IoRedirects;
+import org.srcdeps.core.shell.OutputCapture;
+import org.srcdeps.core.shell.Shell.CommandResult;
+import org.srcdeps.core.shell.ShellCommand;
+
+/**
+ * A Maven builder running Maven in the current JVM rather than forking a new {@code mvn} process for every build. The
+ * {@code lib} and {@code boot} jars of a Maven distribution are loaded by an isolated {@link URLClassLoader} and the
+ * builds are driven through the {@code org.apache.maven.cli.MavenCli#doMain()} entry point.
+ * <p>
+ * The class loader is cached per Maven home for the lifetime of this singleton, so that all builds except for the
+ * first one run on classes that are already loaded and JIT-compiled. Note that {@code MavenCli} creates a new Plexus
+ * container for each invocation and offers no public API to reuse it; the container is thus not cached.
+ * <p>
+ * {@code MavenCli} sets global JVM state, such as {@link System#out}, {@link System#err} and system properties,
+ * including all {@code -D} arguments of the build. Therefore the invocations are serialized and the system properties
+ * are restored to a snapshot taken before each invocation, so that no property of one build leaks to the next one. The environment variables of the {@link ShellCommand} cannot be applied
+ * in-process, so the commands having some are forked via {@code bin/mvn} of the same Maven home instead.
+ * <p>
+ * A build that times out is interrupted and the next invocation is allowed only after its thread has ended, so that
+ * it cannot interfere with the global JVM state of another build. If the thread does not end within
+ * {@link #getInterruptJoinTimeoutMs()}, the embedded mode is disabled for the rest of the JVM lifetime and the
+ * subsequent builds fall back to {@link MvnBuilder} and friends.
+ * <p>
+ * This builder is used only if it is enabled via {@link Maven#getSrcdepsMavenEmbeddedProperty()} and a Maven home
+ * can be found.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@Named
+@Singleton
+public class EmbeddedMvnBuilder extends AbstractMvnBuilder {
+
+    private static final long DEFAULT_INTERRUPT_JOIN_TIMEOUT_MS = 30000;
+    private static final String MAVEN_CLI_CLASS = "org.apache.maven.cli.MavenCli";
+    private static final String MAVEN_WRAPPER_PROPERTIES = ".mvn/wrapper/maven-wrapper.properties";
+    private static final String MULTI_MODULE_PROJECT_DIRECTORY_PROPERTY = "maven.multiModuleProjectDirectory";
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedMvnBuilder.class);
+
+    /**
+     * {@code true} after a build thread did not end upon interruption; the global JVM state may be in use by that
+     * thread forever then
+     */
+    private static volatile boolean unusable = false;
+
+    /**
+     * @param projectRootDirectory the root directory of the project to build
+     * @return the Maven home to use for building the project in the given {@code projectRootDirectory} or
+     *         {@code null} if the embedded mode is disabled or no Maven home can be found
+     */
+    static Path findMavenHome(Path projectRootDirectory) {
+        final String value = System.getProperty(Maven.getSrcdepsMavenEmbeddedProperty(), "false");
+        if ("false".equals(value)) {
+            return null;
+        } else if (!"true".equals(value)) {
+            return isMavenHome(Paths.get(value)) ? Paths.get(value) : null;
+        }
+        final Path wrapperHome = findWrapperMavenHome(projectRootDirectory);
+        if (wrapperHome != null) {
+            return wrapperHome;
+        }
+        for (String candidate : new String[] { System.getProperty("maven.home"), System.getenv("MAVEN_HOME") }) {
+            if (candidate != null && isMavenHome(Paths.get(candidate))) {
+                return Paths.get(candidate);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param projectRootDirectory the root directory of the project to build
+     * @return the Maven home unpacked by the Maven Wrapper of the given project or {@code null} if the project has no
+     *         wrapper or the wrapper has not downloaded its Maven distribution yet
+     */
+    static Path findWrapperMavenHome(Path projectRootDirectory) {
+        final Path wrapperProperties = projectRootDirectory.resolve(MAVEN_WRAPPER_PROPERTIES);
+        if (!Files.exists(wrapperProperties)) {
+            return null;
+        }
+        final Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(wrapperProperties)) {
+            props.load(in);
+        } catch (IOException e) {
+            log.warn(String.format("srcdeps: Could not read [%s]", wrapperProperties), e);
+            return null;
+        }
+        final String distributionUrl = props.getProperty("distributionUrl");
+        if (distributionUrl == null) {
+            return null;
+        }
+        /*
+         * The wrapper unpacks .../apache-maven-3.5.4-bin.zip to dists/apache-maven-3.5.4-bin/<hash>/apache-maven-3.5.4
+         */
+        String distName = distributionUrl.substring(distributionUrl.lastIndexOf('/') + 1);
+        if (distName.endsWith(".zip")) {
+            distName = distName.substring(0, distName.length() - ".zip".length());
+        }
+        final String mavenUserHome = System.getenv("MAVEN_USER_HOME");
+        final Path distsDir = (mavenUserHome != null ? Paths.get(mavenUserHome)
+                : Paths.get(System.getProperty("user.home"), ".m2")).resolve("wrapper/dists").resolve(distName);
+        if (!Files.isDirectory(distsDir)) {
+            return null;
+        }
+        try (DirectoryStream<Path> hashDirs = Files.newDirectoryStream(distsDir)) {
+            for (Path hashDir : hashDirs) {
+                if (Files.isDirectory(hashDir)) {
+                    try (DirectoryStream<Path> homes = Files.newDirectoryStream(hashDir)) {
+                        for (Path home : homes) {
+                            if (isMavenHome(home)) {
+                                return home;
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn(String.format("srcdeps: Could not list [%s]", distsDir), e);
+        }
+        return null;
+    }
+
+    /**
+     * @param projectRootDirectory the root directory of the project to build
+     * @return {@code true} if the project in the given {@code projectRootDirectory} should be built by
+     *         {@link EmbeddedMvnBuilder} rather than by any other Maven builder
+     */
+    public static boolean isEmbeddedUsed(Path projectRootDirectory) {
+        return !unusable && hasPomFile(projectRootDirectory) && findMavenHome(projectRootDirectory) != null;
+    }
+
+    /**
+     * @return {@code true} if the embedded mode was disabled for the rest of the JVM lifetime because a build thread
+     *         did not end upon interruption
+     */
+    public static boolean isUnusable() {
+        return unusable;
+    }
+
+    static boolean isMavenHome(Path dir) {
+        return Files.isDirectory(dir.resolve("boot")) && Files.isDirectory(dir.resolve("lib"));
+    }
+
+    /**
+     * Makes the embedded mode usable again; to be used only by tests.
+     */
+    static void resetUnusable() {
+        unusable = false;
+    }
+
+    /**
+     * Makes the system properties equal to the given {@code snapshot}: removes the properties added since the
+     * snapshot was taken and resets the changed and removed ones.
+     *
+     * @param snapshot a copy of {@link System#getProperties()} taken earlier
+     */
+    private static void restoreProperties(Properties snapshot) {
+        final Properties current = System.getProperties();
+        for (Object key : new ArrayList<>(current.keySet())) {
+            if (!snapshot.containsKey(key)) {
+                current.remove(key);
+            }
+        }
+        for (Map.Entry<Object, Object> en : snapshot.entrySet()) {
+            if (!en.getValue().equals(current.get(en.getKey()))) {
+                current.put(en.getKey(), en.getValue());
+            }
+        }
+    }
+
+    private static PrintStream toPrintStream(Redirect redirect, OutputCapture capture, List<OutputStream> toClose)
+            throws IOException {
+        if (redirect == null) {
+            return null;
+        }
+        switch (redirect.type()) {
+        case WRITE:
+        case APPEND:
+            final OutputStream out = new FileOutputStream(redirect.file(), redirect.type() == Redirect.Type.APPEND);
+            toClose.add(out);
+            return new PrintStream(out, true, StandardCharsets.UTF_8.name());
+        case PIPE:
+            return new PrintStream(capture.asOutputStream(), true, StandardCharsets.UTF_8.name());
+        default:
+            /* INHERIT and anything else: keep the current System.out or System.err */
+            return null;
+        }
+    }
+
+    private final Map<Path, URLClassLoader> classLoaders = new ConcurrentHashMap<>();
+
+    /** Serializes the invocations of {@code MavenCli} that changes global JVM state */
+    private final Object invocationLock = new Object();
+
+    private volatile long interruptJoinTimeoutMs = DEFAULT_INTERRUPT_JOIN_TIMEOUT_MS;
+
+    public EmbeddedMvnBuilder() {
+        super("mvn");
+    }
+
+    @Override
+    public boolean canBuild(Path projectRootDirectory) {
+        return isEmbeddedUsed(projectRootDirectory);
+    }
+
+    /**
+     * Runs the given {@code command} in-process using {@code MavenCli}. The {@link ShellCommand#getExecutable()} is
+     * ignored unless the {@code command} has some environment variables set or the embedded mode was disabled
+     * meanwhile; the {@code command} is forked then.
+     *
+     * @see org.srcdeps.core.impl.builder.ShellBuilder#execute(org.srcdeps.core.shell.ShellCommand)
+     */
+    @Override
+    protected CommandResult execute(ShellCommand command) throws BuildException {
+        if (!command.getEnvironment().isEmpty()) {
+            log.info("srcdeps: Forking [{}] because environment {} cannot be applied to embedded Maven",
+                    command.getExecutable(), command.getEnvironment().keySet());
+            return super.execute(command);
+        }
+        final Path workDir = command.getWorkingDirectory();
+        final Path mavenHome = findMavenHome(workDir);
+        if (mavenHome == null) {
+            throw new BuildException(String.format("Could not find any Maven home to build [%s]", workDir));
+        }
+        final List<String> args = command.getArguments();
+        final String[] cmdArray = command.asCmdArray();
+        final String argsString = args.stream().collect(Collectors.joining(" "));
+        log.info("srcdeps: Executing embedded Maven [{}] with arguments [{}] in [{}]", mavenHome, argsString, workDir);
+
+        final IoRedirects redirects = command.getIoRedirects();
+        final List<OutputStream> toClose = new ArrayList<>(2);
+        synchronized (invocationLock) {
+            if (unusable) {
+                log.info("srcdeps: Forking [{}] because embedded Maven is not usable anymore",
+                        command.getExecutable());
+                return super.execute(command);
+            }
+            final long start = System.currentTimeMillis();
+            /* MavenCli copies all -D arguments to the system properties; we restore them completely afterwards */
+            final Properties oldProps = (Properties) System.getProperties().clone();
+            OutputCapture capture = null;
+            /* false if the build thread may still be using the global JVM state, the streams and the class loader */
+            boolean ended = true;
+            try {
+                capture = redirects.getCapture() == null ? null : new OutputCapture(redirects.getCapture());
+                final PrintStream stdout = toPrintStream(redirects.getStdout(), capture, toClose);
+                final PrintStream stderr = redirects.isErr2Out() ? stdout
+                        : toPrintStream(redirects.getStderr(), capture, toClose);
+
+                final URLClassLoader loader = getClassLoader(mavenHome);
+                final Class<?> cliClass = loader.loadClass(MAVEN_CLI_CLASS);
+                final Object cli = cliClass.getConstructor().newInstance();
+                final Method doMain = cliClass.getMethod("doMain", String[].class, String.class, PrintStream.class,
+                        PrintStream.class);
+
+                final Map<String, String> props = new LinkedHashMap<>();
+                props.put("maven.home", mavenHome.toString());
+                props.put("maven.conf", mavenHome.resolve("conf").toString());
+                props.put(MULTI_MODULE_PROJECT_DIRECTORY_PROPERTY, workDir.toString());
+                for (Map.Entry<String, String> en : props.entrySet()) {
+                    System.setProperty(en.getKey(), en.getValue());
+                }
+
+                final FutureTask<Integer> task = new FutureTask<>(() -> {
+                    final Thread thread = Thread.currentThread();
+                    thread.setContextClassLoader(loader);
+                    return (Integer) doMain.invoke(cli, args.toArray(new String[0]), workDir.toString(), stdout,
+                            stderr);
+                });
+                final Thread thread = new Thread(task, "srcdeps-embedded-maven");
+                thread.setDaemon(true);
+                thread.start();
+
+                final int exitCode;
+                try {
+                    exitCode = task.get(command.getTimeoutMs(), TimeUnit.MILLISECONDS).intValue();
+                } catch (TimeoutException e) {
+                    ended = stop(thread, mavenHome);
+                    throw new CommandTimeoutException(
+                            String.format("Embedded Maven has not finished within [%d] ms: %s",
+                                    command.getTimeoutMs(), Arrays.toString(cmdArray)));
+                } catch (InterruptedException e) {
+                    ended = stop(thread, mavenHome);
+                    Thread.currentThread().interrupt();
+                    throw new BuildException(String.format("Interrupted while running embedded Maven [%s]", argsString),
+                            e);
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause() instanceof InvocationTargetException
+                            ? e.getCause().getCause()
+                            : e.getCause();
+                    throw new BuildException(String.format("Embedded Maven failed: %s", Arrays.toString(cmdArray)),
+                            cause);
+                }
+                final CommandResult result = new CommandResult(cmdArray, exitCode,
+                        System.currentTimeMillis() - start);
+                if (exitCode != 0) {
+                    throw capture == null ? new BadExitCodeException(cmdArray, exitCode)
+                            : new BadExitCodeException(cmdArray, exitCode, capture.getTail());
+                }
+                return result;
+            } catch (IOException | ReflectiveOperationException e) {
+                throw new BuildException(String.format("Could not run embedded Maven from [%s]", mavenHome), e);
+            } finally {
+                /* if the build thread still runs on the current global JVM state, we must not touch it */
+                if (ended) {
+                    restoreProperties(oldProps);
+                    for (OutputStream out : toClose) {
+                        try {
+                            out.close();
+                        } catch (IOException e) {
+                            log.warn("srcdeps: Could not close an output stream", e);
+                        }
+                    }
+                    if (capture != null) {
+                        capture.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private void discardClassLoader(Path mavenHome) {
+        final URLClassLoader loader = classLoaders.remove(mavenHome);
+        if (loader != null) {
+            try {
+                loader.close();
+            } catch (IOException e) {
+                log.warn(String.format("srcdeps: Could not close the class loader of [%s]", mavenHome), e);
+            }
+        }
+    }
+
+    /**
+     * @param mavenHome the Maven home whose {@code boot} and {@code lib} jars should be loaded
+     * @return a cached or a new {@link URLClassLoader} isolated from the class path of the current JVM
+     * @throws IOException on problems with listing the jars
+     */
+    URLClassLoader getClassLoader(Path mavenHome) throws IOException {
+        URLClassLoader result = classLoaders.get(mavenHome);
+        if (result == null) {
+            final List<URL> urls = new ArrayList<>();
+            for (String dir : new String[] { "boot", "lib" }) {
+                try (DirectoryStream<Path> jars = Files.newDirectoryStream(mavenHome.resolve(dir), "*.jar")) {
+                    for (Path jar : jars) {
+                        try {
+                            urls.add(jar.toUri().toURL());
+                        } catch (MalformedURLException e) {
+                            throw new IOException(e);
+                        }
+                    }
+                }
+            }
+            /* The parent is the extension/platform class loader so that no srcdeps classes leak into Maven */
+            result = new URLClassLoader(urls.toArray(new URL[0]), ClassLoader.getSystemClassLoader().getParent());
+            classLoaders.put(mavenHome, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return how long to wait for a build thread to end after it was interrupted due to a timeout
+     */
+    public long getInterruptJoinTimeoutMs() {
+        return interruptJoinTimeoutMs;
+    }
+
+    @Override
+    protected String locateExecutable(BuildRequest request) {
+        final Path mavenHome = findMavenHome(request.getProjectRootDirectory());
+        return mavenHome == null ? executable : mavenHome.resolve("bin").resolve(executable).toString();
+    }
+
+    /**
+     * @param interruptJoinTimeoutMs how long to wait for a build thread to end after it was interrupted due to a
+     *                               timeout
+     */
+    void setInterruptJoinTimeoutMs(long interruptJoinTimeoutMs) {
+        this.interruptJoinTimeoutMs = interruptJoinTimeoutMs;
+    }
+
+    /**
+     * Interrupts the given build {@code thread} and waits for it to end at most {@link #interruptJoinTimeoutMs}. If it
+     * does not end, the embedded mode is disabled for the rest of the JVM lifetime.
+     *
+     * @param thread    the thread running {@code MavenCli}
+     * @param mavenHome the Maven home whose class loader the {@code thread} uses
+     * @return {@code true} if the {@code thread} has ended
+     */
+    private boolean stop(Thread thread, Path mavenHome) {
+        thread.interrupt();
+        try {
+            thread.join(interruptJoinTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            unusable = true;
+            log.error("srcdeps: Embedded Maven has not stopped within [{}] ms after interruption; the subsequent Maven"
+                    + " builds will be forked", interruptJoinTimeoutMs);
+            return false;
+        }
+        /* the class loader may be left in an inconsistent state by the interrupted build */
+        discardClassLoader(mavenHome);
+        return true;
+    }
+
+}
@@ -42,7 +42,9 @@ public class MvnBuilder extends AbstractMvnBuilder {
 
     @Override
     public boolean canBuild(Path projectRootDirectory) {
-        return hasPomFile(projectRootDirectory) && !hasMvnwFile(projectRootDirectory);
+        return hasPomFile(projectRootDirectory) && !hasMvnwFile(projectRootDirectory)
+                && !MvndBuilder.isMvndUsed(projectRootDirectory)
+                && !EmbeddedMvnBuilder.isEmbeddedUsed(projectRootDirectory);
     }
 
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.builder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.MavenLocalRepository;
+import org.srcdeps.core.config.Maven;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+/**
+ * The flavor of Maven using the Maven Daemon ({@code mvnd}). The daemons stay warm between the builds of source
+ * dependencies so that only the first build pays the price of JVM startup, class loading and JIT warmup.
+ * <p>
+ * Whether this builder is used is controlled by the {@link Maven#getSrcdepsMavenMvndProperty()} system property.
+ * {@code mvnd} is not used by default: the users need to opt in by setting the property to {@code auto},
+ * {@code true} or a path to the {@code mvnd} executable.
+ * <p>
+ * The daemons spawned by srcdeps are kept apart from any daemons the user may have started manually: they are
+ * registered in a separate daemon storage directory whose name is derived from the JDK and the Maven settings used by
+ * the build. Hence two builds sharing a daemon are guaranteed to run on the same JDK and with the same settings.
+ * <p>
+ * {@link BuildRequest#getTimeoutMs()} is enforced on the {@code mvnd} client process; the daemon cancels the build
+ * as soon as its client disappears. The verbosity arguments are the same as with plain {@code mvn}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@Named
+@Singleton
+public class MvndBuilder extends AbstractMvnBuilder {
+
+    private static final String AUTO = "auto";
+    private static final String DEFAULT_MVND = "false";
+
+    /**
+     * @return the configured {@code mvnd} executable: either the path set via
+     *         {@link Maven#getSrcdepsMavenMvndProperty()} or the first {@code mvnd} found on {@code PATH}; or
+     *         {@code null} if {@code mvnd} should not be used
+     */
+    static Path findMvndExecutable() {
+        final String value = System.getProperty(Maven.getSrcdepsMavenMvndProperty(), DEFAULT_MVND);
+        if ("false".equals(value)) {
+            return null;
+        } else if (AUTO.equals(value) || "true".equals(value)) {
+            return SrcdepsCoreUtils.findExecutableOnPath(getOsSpecificExecutables());
+        } else {
+            return Paths.get(value);
+        }
+    }
+
+    /**
+     * @return the file names under which {@code mvnd} is looked up on {@code PATH}
+     */
+    public static String[] getOsSpecificExecutables() {
+        return SrcdepsCoreUtils.isWindows() ? new String[] { "mvnd.cmd", "mvnd.exe" } : new String[] { "mvnd" };
+    }
+
+    /**
+     * @param projectRootDirectory the root directory of the project to build
+     * @return {@code true} if the project in the given {@code projectRootDirectory} should be built by
+     *         {@link MvndBuilder} rather than by {@link MvnBuilder} or {@link MvnwBuilder}; {@link EmbeddedMvnBuilder}
+     *         takes precedence over {@link MvndBuilder}
+     */
+    public static boolean isMvndUsed(Path projectRootDirectory) {
+        if (!hasPomFile(projectRootDirectory) || EmbeddedMvnBuilder.isEmbeddedUsed(projectRootDirectory)) {
+            return false;
+        }
+        final String value = System.getProperty(Maven.getSrcdepsMavenMvndProperty(), DEFAULT_MVND);
+        if ("false".equals(value)) {
+            return false;
+        } else if (AUTO.equals(value)) {
+            /* a source tree that brings its own wrapper wants a specific Maven version */
+            return !hasMvnwFile(projectRootDirectory) && findMvndExecutable() != null;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * @param javaHome     the JDK the daemon runs on
+     * @param settingsPath the path to the Maven settings or {@code null}
+     * @return a directory where the daemons compatible with the given {@code javaHome} and {@code settingsPath} are
+     *         registered
+     */
+    static Path getDaemonStorage(String javaHome, String settingsPath) {
+        final String key = javaHome + "\n" + (settingsPath == null ? "" : settingsPath);
+        final String hash;
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-1");
+            hash = SrcdepsCoreUtils.bytesToHexString(md.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        final Path localRepo = MavenLocalRepository.autodetect().getRootDirectory();
+        return localRepo.resolveSibling("srcdeps").resolve("mvnd").resolve(hash);
+    }
+
+    public MvndBuilder() {
+        super(getOsSpecificExecutables()[0]);
+    }
+
+    @Override
+    public boolean canBuild(Path projectRootDirectory) {
+        return isMvndUsed(projectRootDirectory);
+    }
+
+    @Override
+    protected List<String> getInvocationArguments(BuildRequest request) {
+        final String javaHome = getJavaHome(request);
+        final String settingsPath = System.getProperty(Maven.getSrcdepsMavenSettingsProperty());
+        final List<String> result = new ArrayList<>(3);
+        result.add("--batch-mode");
+        result.add("-Dmvnd.javaHome=" + javaHome);
+        result.add("-Dmvnd.daemonStorage=" + getDaemonStorage(javaHome, settingsPath));
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    protected String locateExecutable(BuildRequest request) {
+        final Path mvnd = findMvndExecutable();
+        return mvnd == null ? executable : mvnd.toString();
+    }
+
+}
@@ -42,7 +42,8 @@ public class MvnwBuilder extends AbstractMvnBuilder {
 
     @Override
     public boolean canBuild(Path projectRootDirectory) {
-        return hasMvnwFile(projectRootDirectory);
+        return hasMvnwFile(projectRootDirectory) && !MvndBuilder.isMvndUsed(projectRootDirectory)
+                && !EmbeddedMvnBuilder.isEmbeddedUsed(projectRootDirectory);
     }
 
     @Override
@@ -0,0 +1,580 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.builder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.config.Maven;
+
+/**
+ * Sets the versions of all modules of a Maven reactor in-process, without forking a Maven JVM for
+ * {@code versions-maven-plugin:set}.
+ * <p>
+ * The reactor is discovered by following the {@code <modules>} (including the ones declared in profiles) starting at
+ * the top level {@code pom.xml}. Then the following {@code <version>} elements are set to the new version in every
+ * {@code pom.xml} of the reactor:
+ * <ul>
+ * <li>{@code /project/version}</li>
+ * <li>{@code /project/parent/version} if the parent is a module of the reactor</li>
+ * <li>{@code version} of any {@code dependency}, {@code plugin} or {@code extension} referring to a module of the
+ * reactor by its current literal version</li>
+ * </ul>
+ * <p>
+ * The files are parsed using a StAX {@link XMLStreamReader} that reports the character offsets of the
+ * {@code <version>} elements. The new versions are then spliced into the original content at those offsets so that
+ * the formatting, comments, the XML declaration and all other bytes of the files stay untouched. Both reading and
+ * writing is done in parallel.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class PomVersionRewriter {
+
+    /**
+     * The coordinates of a {@code dependency}, {@code plugin} or {@code extension} being read.
+     */
+    static class Coordinates {
+        private String artifactId;
+        private String groupId;
+        private String version;
+        private int versionIndex = -1;
+    }
+
+    /**
+     * The information we need to know about a single {@code pom.xml} file.
+     */
+    static class Pom {
+        private String artifactId;
+        private final String bom;
+        private final Charset charset;
+        private final String content;
+        private final List<VersionSite> dependencySites = new ArrayList<>();
+        private String groupId;
+        private final List<String> modules = new ArrayList<>();
+        private String parentArtifactId;
+        private String parentGroupId;
+        private int parentVersionIndex = -1;
+        private final Path path;
+        private String version;
+        private int versionIndex = -1;
+
+        /** The ranges of the text of all {@code <version>} elements in {@link #content} in document order */
+        private final List<int[]> versionRanges = new ArrayList<>();
+
+        Pom(Path path, Charset charset, String bom, String content) {
+            super();
+            this.path = path;
+            this.charset = charset;
+            this.bom = bom;
+            this.content = content;
+        }
+
+        String getGa() {
+            return groupId + ":" + artifactId;
+        }
+
+        String getParentGa() {
+            return parentGroupId + ":" + parentArtifactId;
+        }
+
+        String resolveGroupId(String rawGroupId) {
+            if (rawGroupId == null) {
+                return null;
+            }
+            switch (rawGroupId) {
+            case "${project.groupId}":
+            case "${pom.groupId}":
+                return groupId;
+            case "${project.parent.groupId}":
+                return parentGroupId;
+            default:
+                return rawGroupId;
+            }
+        }
+    }
+
+    /**
+     * A {@code <version>} element referring to a GA that may or may not be a module of the reactor.
+     */
+    static class VersionSite {
+        private final String ga;
+        private final int index;
+        private final String version;
+
+        VersionSite(String ga, String version, int index) {
+            super();
+            this.ga = ga;
+            this.version = version;
+            this.index = index;
+        }
+    }
+
+    /**
+     * An unchecked wrapper for exceptions thrown inside parallel streams.
+     */
+    static class PomException extends RuntimeException {
+        private static final long serialVersionUID = 6019573426317209733L;
+
+        PomException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static final char BOM = '\uFEFF';
+    private static final Set<String> COORDINATES_ELEMENTS;
+
+    /**
+     * A {@link ThreadLocal} because {@link XMLInputFactory#createXMLStreamReader(java.io.Reader)} may reuse reader
+     * instances in some implementations
+     */
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            final XMLInputFactory result = XMLInputFactory.newInstance();
+            result.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+            result.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            result.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            return result;
+        }
+    };
+    private static final Logger log = LoggerFactory.getLogger(PomVersionRewriter.class);
+    private static final String POM_XML = "pom.xml";
+    private static final String VERSION_START_TAG = "<version";
+
+    static {
+        Set<String> s = new HashSet<>();
+        s.add("dependency");
+        s.add("extension");
+        s.add("plugin");
+        COORDINATES_ELEMENTS = s;
+    }
+
+    /**
+     * @param projectRootDirectory the directory to check
+     * @return {@code true} if the given {@code projectRootDirectory} contains a {@code pom.xml} file that this
+     *         {@link PomVersionRewriter} can handle; {@code false} otherwise
+     */
+    public static boolean canRewrite(Path projectRootDirectory) {
+        return Files.isRegularFile(projectRootDirectory.resolve(POM_XML));
+    }
+
+    static String escape(String value) {
+        final StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+            case '&':
+                result.append("&amp;");
+                break;
+            case '<':
+                result.append("&lt;");
+                break;
+            case '>':
+                result.append("&gt;");
+                break;
+            default:
+                result.append(ch);
+                break;
+            }
+        }
+        return result.toString();
+    }
+
+    static boolean pathEquals(Deque<String> path, String... names) {
+        if (path.size() != names.length) {
+            return false;
+        }
+        int i = names.length - 1;
+        for (String segment : path) {
+            /* Deque used as a stack iterates from the top */
+            if (!names[i--].equals(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Pom readPom(Path pomPath, XMLInputFactory inputFactory) throws IOException, XMLStreamException {
+        final byte[] bytes = Files.readAllBytes(pomPath);
+        final Charset charset = detectCharset(bytes, inputFactory);
+        String content = new String(bytes, charset);
+        String bom = "";
+        if (!content.isEmpty() && content.charAt(0) == BOM) {
+            bom = content.substring(0, 1);
+            content = content.substring(1);
+        }
+        final Pom pom = new Pom(pomPath, charset, bom, content);
+        final Deque<String> path = new ArrayDeque<>();
+        final Deque<Coordinates> coordinatesStack = new ArrayDeque<>();
+        final Deque<Integer> coordinatesDepths = new ArrayDeque<>();
+        final StringBuilder text = new StringBuilder();
+        int versionIndex = 0;
+        int versionTextStart = -1;
+        int minOffset = 0;
+        final XMLStreamReader r = inputFactory.createXMLStreamReader(new StringReader(content));
+        try {
+            while (r.hasNext()) {
+                switch (r.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    final String localName = r.getLocalName();
+                    path.push(localName);
+                    text.setLength(0);
+                    if (COORDINATES_ELEMENTS.contains(localName)) {
+                        coordinatesStack.push(new Coordinates());
+                        coordinatesDepths.push(path.size());
+                    } else if ("version".equals(localName)) {
+                        /* The location of a START_ELEMENT event is approximately the end of the start tag */
+                        versionTextStart = r.getLocation().getCharacterOffset();
+                        final int index = versionIndex++;
+                        if (pathEquals(path, "project", "version")) {
+                            pom.versionIndex = index;
+                        } else if (pathEquals(path, "project", "parent", "version")) {
+                            pom.parentVersionIndex = index;
+                        } else if (!coordinatesDepths.isEmpty() && coordinatesDepths.peek() == path.size() - 1) {
+                            coordinatesStack.peek().versionIndex = index;
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    text.append(r.getText());
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    final String value = text.toString().trim();
+                    if ("version".equals(path.peek())) {
+                        final int[] range = textRange(content, versionTextStart, minOffset, value, pomPath);
+                        pom.versionRanges.add(range);
+                        if (range != null) {
+                            minOffset = range[1];
+                        }
+                    }
+                    if (pathEquals(path, "project", "groupId")) {
+                        pom.groupId = value;
+                    } else if (pathEquals(path, "project", "artifactId")) {
+                        pom.artifactId = value;
+                    } else if (pathEquals(path, "project", "version")) {
+                        pom.version = value;
+                    } else if (pathEquals(path, "project", "parent", "groupId")) {
+                        pom.parentGroupId = value;
+                    } else if (pathEquals(path, "project", "parent", "artifactId")) {
+                        pom.parentArtifactId = value;
+                    } else if (pathEquals(path, "project", "modules", "module")
+                            || pathEquals(path, "project", "profiles", "profile", "modules", "module")) {
+                        pom.modules.add(value);
+                    } else if (!coordinatesDepths.isEmpty()) {
+                        final int depth = coordinatesDepths.peek();
+                        if (depth == path.size()) {
+                            final Coordinates c = coordinatesStack.pop();
+                            coordinatesDepths.pop();
+                            if (c.versionIndex >= 0 && c.artifactId != null) {
+                                pom.dependencySites.add(
+                                        new VersionSite(c.groupId + ":" + c.artifactId, c.version, c.versionIndex));
+                            }
+                        } else if (depth == path.size() - 1) {
+                            switch (path.peek()) {
+                            case "groupId":
+                                coordinatesStack.peek().groupId = value;
+                                break;
+                            case "artifactId":
+                                coordinatesStack.peek().artifactId = value;
+                                break;
+                            case "version":
+                                coordinatesStack.peek().version = value;
+                                break;
+                            default:
+                                break;
+                            }
+                        }
+                    }
+                    text.setLength(0);
+                    path.pop();
+                    break;
+                default:
+                    break;
+                }
+            }
+        } finally {
+            r.close();
+        }
+        if (pom.groupId == null) {
+            pom.groupId = pom.parentGroupId;
+        }
+        return pom;
+    }
+
+    /**
+     * Determines the encoding of the given XML document from its XML declaration.
+     *
+     * @param bytes        the raw content of an XML file
+     * @param inputFactory the {@link XMLInputFactory} to use
+     * @return the {@link Charset} declared in the XML declaration or UTF-8 if there is none
+     * @throws XMLStreamException
+     */
+    static Charset detectCharset(byte[] bytes, XMLInputFactory inputFactory) throws XMLStreamException {
+        final XMLStreamReader r = inputFactory.createXMLStreamReader(new ByteArrayInputStream(bytes));
+        try {
+            final String encoding = r.getCharacterEncodingScheme() != null ? r.getCharacterEncodingScheme()
+                    : r.getEncoding();
+            return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+        } finally {
+            r.close();
+        }
+    }
+
+    /**
+     * Computes the range of the text of a {@code <version>} element in the given {@code content}, excluding any
+     * leading and trailing whitespace.
+     * <p>
+     * The character offsets reported by StAX implementations are not always exact (e.g. the one bundled with the JDK
+     * is sometimes off by one after long comments), so we use them only as a hint to find the start tag.
+     *
+     * @param content     the whole XML document
+     * @param hint        the offset reported by the parser for the {@code START_ELEMENT} event - i.e. approximately
+     *                    the end of the start tag
+     * @param minOffset   the offset where the previous {@code <version>} element ended
+     * @param parsedValue the trimmed text of the element as reported by the parser
+     * @param pomPath     the file being read, for error reporting
+     * @return a two element array containing the start (inclusive) and end (exclusive) offset of the trimmed text or
+     *         {@code null} if the element has no text
+     * @throws XMLStreamException if the range could not be found, if it does not match the {@code parsedValue} or if
+     *                            the element contains a comment, a CDATA section or other markup
+     */
+    static int[] textRange(String content, int hint, int minOffset, String parsedValue, Path pomPath)
+            throws XMLStreamException {
+        int tagStart = content.lastIndexOf(VERSION_START_TAG, Math.min(hint, content.length() - 1));
+        while (tagStart >= minOffset && !isNameEnd(content, tagStart + VERSION_START_TAG.length())) {
+            tagStart = content.lastIndexOf(VERSION_START_TAG, tagStart - 1);
+        }
+        final int gt = tagStart < minOffset ? -1 : content.indexOf('>', tagStart);
+        if (gt < 0) {
+            throw new XMLStreamException(String.format("Could not locate <version> near offset [%d] in [%s]", hint,
+                    pomPath));
+        }
+        if (content.charAt(gt - 1) == '/') {
+            /* an empty element such as <version/> */
+            return null;
+        }
+        int start = gt + 1;
+        int end = content.indexOf("</", start);
+        if (end < 0) {
+            throw new XMLStreamException(String.format("Could not locate </version> near offset [%d] in [%s]", hint,
+                    pomPath));
+        }
+        while (start < end && Character.isWhitespace(content.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(content.charAt(end - 1))) {
+            end--;
+        }
+        final String raw = content.substring(start, end);
+        if (raw.indexOf('<') >= 0) {
+            /* the closing tag found above may well be a part of the markup, so we cannot tell where the text ends */
+            throw new XMLStreamException(String.format("Cannot set the version at offset [%d] in [%s] because the"
+                    + " <version> element contains a comment, a CDATA section or other markup; use -D%s=%s", start,
+                    pomPath, Maven.getSrcdepsMavenVersionsModeProperty(),
+                    AbstractMvnBuilder.VersionsMode.versionsMavenPlugin));
+        }
+        if (raw.indexOf('&') < 0 && !raw.equals(parsedValue)) {
+            throw new XMLStreamException(String.format("Expected [%s] at offset [%d] in [%s] but found [%s]",
+                    parsedValue, start, pomPath, raw));
+        }
+        return new int[] { start, end };
+    }
+
+    private static boolean isNameEnd(String content, int pos) {
+        if (pos >= content.length()) {
+            return false;
+        }
+        final char ch = content.charAt(pos);
+        return ch == '>' || ch == '/' || Character.isWhitespace(ch);
+    }
+
+    private final String newVersion;
+
+    /**
+     * @param newVersion the version to set
+     */
+    public PomVersionRewriter(String newVersion) {
+        super();
+        this.newVersion = newVersion;
+    }
+
+    /**
+     * Reads the reactor rooted in {@code projectRootDirectory}, following the {@code <modules>}. The modules on the
+     * same level of the module tree are read in parallel.
+     *
+     * @param projectRootDirectory the directory containing the top level {@code pom.xml}
+     * @return a {@link Map} from GA strings to {@link Pom}s
+     * @throws BuildException on I/O or XML parsing problems
+     */
+    Map<String, Pom> readReactor(Path projectRootDirectory) throws BuildException {
+        final Map<String, Pom> result = new LinkedHashMap<>();
+        final Set<Path> visited = new HashSet<>();
+        List<Path> level = Collections.singletonList(projectRootDirectory.resolve(POM_XML).normalize());
+        visited.addAll(level);
+        while (!level.isEmpty()) {
+            final List<Pom> poms;
+            try {
+                poms = level.parallelStream().map(pomPath -> {
+                    try {
+                        return readPom(pomPath, INPUT_FACTORY.get());
+                    } catch (IOException | XMLStreamException e) {
+                        throw new PomException(String.format("Could not read [%s]", pomPath), e);
+                    }
+                }).collect(Collectors.toList());
+            } catch (PomException e) {
+                throw new BuildException(e.getMessage(), e.getCause());
+            }
+            final List<Path> nextLevel = new ArrayList<>();
+            for (Pom pom : poms) {
+                result.put(pom.getGa(), pom);
+                final Path dir = pom.path.getParent();
+                for (String module : pom.modules) {
+                    final Path modulePath = dir.resolve(module).normalize();
+                    final Path modulePomPath = Files.isDirectory(modulePath) ? modulePath.resolve(POM_XML) : modulePath;
+                    if (visited.add(modulePomPath)) {
+                        nextLevel.add(modulePomPath);
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+        return result;
+    }
+
+    /**
+     * Sets {@link #newVersion} in all {@code pom.xml} files of the reactor rooted in {@code projectRootDirectory}. The
+     * files are processed in parallel.
+     *
+     * @param projectRootDirectory the directory containing the top level {@code pom.xml}
+     * @return the number of {@code pom.xml} files changed
+     * @throws BuildException on I/O or XML parsing problems
+     */
+    public int rewrite(Path projectRootDirectory) throws BuildException {
+        final long start = System.currentTimeMillis();
+        final Map<String, Pom> reactor = readReactor(projectRootDirectory);
+        final Map<String, String> oldVersions = new HashMap<>();
+        for (Pom pom : reactor.values()) {
+            final String version = pom.version != null ? pom.version
+                    : reactor.containsKey(pom.getParentGa()) ? reactor.get(pom.getParentGa()).version : null;
+            oldVersions.put(pom.getGa(), version);
+        }
+
+        final int changedFiles;
+        try {
+            changedFiles = reactor.values().parallelStream().mapToInt(pom -> {
+                final Set<Integer> indexes = new HashSet<>();
+                if (pom.versionIndex >= 0) {
+                    indexes.add(pom.versionIndex);
+                }
+                if (pom.parentVersionIndex >= 0 && reactor.containsKey(pom.getParentGa())) {
+                    indexes.add(pom.parentVersionIndex);
+                }
+                for (VersionSite site : pom.dependencySites) {
+                    final int colon = site.ga.indexOf(':');
+                    final String ga = pom.resolveGroupId(site.ga.substring(0, colon)) + site.ga.substring(colon);
+                    final String oldVersion = oldVersions.get(ga);
+                    if (oldVersion != null && oldVersion.equals(site.version)) {
+                        indexes.add(site.index);
+                    }
+                }
+                try {
+                    return rewrite(pom, indexes) ? 1 : 0;
+                } catch (IOException e) {
+                    throw new PomException(String.format("Could not set version in [%s]", pom.path), e);
+                }
+            }).sum();
+        } catch (PomException e) {
+            throw new BuildException(e.getMessage(), e.getCause());
+        }
+        log.info("srcdeps: Set version [{}] in [{}] of [{}] pom.xml files in [{}] ms", newVersion, changedFiles,
+                reactor.size(), System.currentTimeMillis() - start);
+        return changedFiles;
+    }
+
+    /**
+     * Replaces the text of the {@code <version>} elements whose zero based document order indexes are available in
+     * {@code versionIndexes} with {@link #newVersion}. Only the text of the given elements is replaced, all other
+     * characters of the file stay untouched. The file is written only if its content has changed.
+     *
+     * @param pom            the file to change
+     * @param versionIndexes the indexes of {@code <version>} elements to change
+     * @return {@code true} if the file was changed, {@code false} otherwise
+     * @throws IOException
+     */
+    boolean rewrite(Pom pom, Set<Integer> versionIndexes) throws IOException {
+        final List<int[]> ranges = new ArrayList<>(versionIndexes.size());
+        for (Integer i : versionIndexes) {
+            final int[] range = pom.versionRanges.get(i);
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+        if (ranges.isEmpty()) {
+            return false;
+        }
+        Collections.sort(ranges, (r1, r2) -> Integer.compare(r1[0], r2[0]));
+        final String escapedVersion = escape(newVersion);
+        final String content = pom.content;
+        final StringBuilder result = new StringBuilder(content.length() + ranges.size() * escapedVersion.length());
+        result.append(pom.bom);
+        int pos = 0;
+        boolean changed = false;
+        for (int[] range : ranges) {
+            result.append(content, pos, range[0]);
+            result.append(escapedVersion);
+            changed |= !content.regionMatches(range[0], escapedVersion, 0, range[1] - range[0])
+                    || escapedVersion.length() != range[1] - range[0];
+            pos = range[1];
+        }
+        result.append(content, pos, content.length());
+        if (!changed) {
+            return false;
+        }
+        final Path tempPath = pom.path.resolveSibling(pom.path.getFileName().toString() + ".srcdeps.tmp");
+        Files.write(tempPath, result.toString().getBytes(pom.charset));
+        Files.move(tempPath, pom.path, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+}
@@ -27,6 +27,7 @@ import org.srcdeps.core.BuildRequest;
 import org.srcdeps.core.BuildRequest.Verbosity;
 import org.srcdeps.core.Builder;
 import org.srcdeps.core.shell.Shell;
+import org.srcdeps.core.shell.Shell.CommandResult;
 import org.srcdeps.core.shell.ShellCommand;
 
 /**
@@ -36,13 +37,32 @@ import org.srcdeps.core.shell.ShellCommand;
  */
 public abstract class ShellBuilder implements Builder {
 
+    /**
+     * @param request the request to build
+     * @return the Java home the build should run on: {@code JAVA_HOME} from the request's environment, from the
+     *         current environment or the home of the current JVM, in this order
+     * @since 4.0.4
+     */
+    protected static String getJavaHome(BuildRequest request) {
+        String result = request.getBuildEnvironment().get("JAVA_HOME");
+        if (result == null) {
+            result = System.getenv("JAVA_HOME");
+        }
+        if (result == null) {
+            result = System.getProperty("java.home");
+        }
+        return result;
+    }
+
     protected final String executable;
 
     /**
      * Set by {@link #setVersions(BuildRequest)}, tells in how many milliseconds must {@link #build(BuildRequest)}
-     * finish
+     * finish. A {@link ThreadLocal} because {@link Builder}s are singletons that may serve several concurrent
+     * requests, each of which calls {@link #setVersions(BuildRequest)} and {@link #build(BuildRequest)} on the same
+     * thread.
      */
-    protected long restTimeoutMs = Long.MIN_VALUE;
+    protected final ThreadLocal<Long> restTimeoutMs = new ThreadLocal<>();
 
     /**
      * @param executable the executable such as {@code mvn}
@@ -56,10 +76,12 @@ public abstract class ShellBuilder implements Builder {
     public void build(BuildRequest request) throws BuildException {
 
         /*
-         * restTimeoutMs == Long.MIN_VALUE means that the restTimeoutMs was not set by setVersions() and it will
-         * therefore be ignored
+         * restTimeoutMs == null means that the restTimeoutMs was not set by setVersions() and it will therefore be
+         * ignored
          */
-        long timeoutMs = restTimeoutMs == Long.MIN_VALUE ? request.getTimeoutMs() : restTimeoutMs;
+        final Long rest = restTimeoutMs.get();
+        restTimeoutMs.remove();
+        long timeoutMs = rest == null ? request.getTimeoutMs() : rest.longValue();
 
         List<String> args = mergeArguments(request);
         ShellCommand command = ShellCommand.builder() //
@@ -70,7 +92,20 @@ public abstract class ShellBuilder implements Builder {
                 .ioRedirects(request.getIoRedirects()) //
                 .timeoutMs(timeoutMs) //
                 .build();
-        Shell.execute(command).assertSuccess();
+        execute(command);
+    }
+
+    /**
+     * Executes the given {@code command} and asserts that it finished successfully. This implementation forks a new
+     * process via {@link Shell#execute(ShellCommand)}; subclasses may choose to run the command differently.
+     *
+     * @param command the command to execute
+     * @return the {@link CommandResult}
+     * @throws BuildException on any build related problems, including non-zero exit codes and timeouts
+     * @since 4.0.4
+     */
+    protected CommandResult execute(ShellCommand command) throws BuildException {
+        return Shell.execute(command).assertSuccess();
     }
 
     protected abstract List<String> getDefaultBuildArguments();
@@ -111,8 +146,9 @@ public abstract class ShellBuilder implements Builder {
      *
      * @param request the request for which we are merging the arguments
      * @return a new {@link List}, never {@code null}
+     * @throws BuildException if the arguments cannot be determined, e.g. because a file of the project cannot be read
      */
-    protected List<String> mergeArguments(BuildRequest request) {
+    protected List<String> mergeArguments(BuildRequest request) throws BuildException {
         List<String> result = new ArrayList<>();
         if (request.isAddDefaultBuildArguments()) {
             result.addAll(getDefaultBuildArguments());
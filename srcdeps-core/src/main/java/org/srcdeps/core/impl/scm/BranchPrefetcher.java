@@ -0,0 +1,381 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.scm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.ScmException;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.SrcVersion.WellKnownType;
+import org.srcdeps.core.config.Configuration;
+import org.srcdeps.core.config.ScmRepository;
+import org.srcdeps.core.fs.CannotAcquireLockException;
+import org.srcdeps.core.fs.PathLock;
+import org.srcdeps.core.fs.PathLocker;
+
+/**
+ * Keeps the checkout directories of branch source dependencies fresh in the background so that the fetch performed
+ * by {@link JGitScm#checkout(org.srcdeps.core.BuildRequest)} at build time finds the objects already local and is
+ * reduced to a ref negotiation.
+ * <p>
+ * The checkout directories are the numbered slots {@code ${rootDirectory}/${scmRepositoryIdAsPath}/${i}} managed by
+ * {@link org.srcdeps.core.fs.BuildDirectoriesManager}. Each slot is locked via
+ * {@link PathLocker#tryLockDirectory(Path)} for the duration of the fetch; slots used by an active build are skipped
+ * and a fetch is cancelled as soon as a build starts waiting for its slot, so that the prefetcher does not delay
+ * builds.
+ * <p>
+ * At most {@link BranchPrefetcherBuilder#maxConcurrentFetches(int)} branches are fetched at once. A branch whose
+ * fetch fails is retried with an exponential backoff capped at {@link BranchPrefetcherBuilder#maxBackoffMs(long)}.
+ * <p>
+ * The prefetching starts with {@link #start()} and stops with {@link #close()}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class BranchPrefetcher implements Closeable {
+
+    /**
+     * A builder for {@link BranchPrefetcher}s.
+     */
+    public static class BranchPrefetcherBuilder {
+        private long intervalMs = 5 * 60 * 1000;
+        private long maxBackoffMs = 60 * 60 * 1000;
+        private int maxConcurrentFetches = 2;
+        private PathLocker<?> pathLocker;
+        private Path rootDirectory;
+        private JGitScm scm;
+        private final List<Target> targets = new ArrayList<>();
+
+        /**
+         * Adds the given {@code branch} of the given {@code repository} to the branches to prefetch. Use this for
+         * branches that are referenced by dependency versions rather than by {@link ScmRepository#getBuildRef()}.
+         *
+         * @param repository the repository to fetch from
+         * @param branch     the name of the branch to fetch
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder branch(ScmRepository repository, String branch) {
+            for (Target target : targets) {
+                if (target.repositoryId.equals(repository.getId()) && target.branch.equals(branch)) {
+                    return this;
+                }
+            }
+            targets.add(new Target(repository, branch));
+            return this;
+        }
+
+        /**
+         * @return a new {@link BranchPrefetcher} based on the values stored in fields of this
+         *         {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcher build() {
+            if (rootDirectory == null) {
+                throw new IllegalStateException("rootDirectory must be set");
+            }
+            if (pathLocker == null) {
+                throw new IllegalStateException("pathLocker must be set");
+            }
+            return new BranchPrefetcher(rootDirectory, pathLocker, scm != null ? scm : new JGitScm(),
+                    Collections.unmodifiableList(new ArrayList<>(targets)), intervalMs, maxBackoffMs,
+                    maxConcurrentFetches);
+        }
+
+        /**
+         * Adds all repositories of the given {@code configuration} using {@link #repository(ScmRepository)}.
+         *
+         * @param configuration the {@link Configuration} to take the repositories from
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder configuration(Configuration configuration) {
+            for (ScmRepository repository : configuration.getRepositories()) {
+                repository(repository);
+            }
+            return this;
+        }
+
+        /**
+         * @param intervalMs how often each branch should be fetched in milliseconds; the default is 5 minutes
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder intervalMs(long intervalMs) {
+            this.intervalMs = intervalMs;
+            return this;
+        }
+
+        /**
+         * @param maxBackoffMs the upper bound of the delay before retrying a failed fetch in milliseconds; the default
+         *                     is 1 hour
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder maxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrentFetches how many branches can be fetched at the same time; the default is 2
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder maxConcurrentFetches(int maxConcurrentFetches) {
+            this.maxConcurrentFetches = maxConcurrentFetches;
+            return this;
+        }
+
+        /**
+         * @param pathLocker the {@link PathLocker} shared with the {@link org.srcdeps.core.fs.BuildDirectoriesManager}
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder pathLocker(PathLocker<?> pathLocker) {
+            this.pathLocker = pathLocker;
+            return this;
+        }
+
+        /**
+         * Adds the {@link ScmRepository#getBuildRef()} of the given {@code repository} to the branches to prefetch,
+         * provided that it is a branch.
+         *
+         * @param repository the repository to fetch from
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder repository(ScmRepository repository) {
+            final SrcVersion buildRef = repository.getBuildRef();
+            if (buildRef != null && buildRef.getWellKnownType() == WellKnownType.branch) {
+                branch(repository, buildRef.getScmVersion());
+            }
+            return this;
+        }
+
+        /**
+         * @param rootDirectory the directory under which the checkout directories are located, typically
+         *                      {@link Configuration#getSourcesDirectory()}
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder rootDirectory(Path rootDirectory) {
+            this.rootDirectory = rootDirectory;
+            return this;
+        }
+
+        /**
+         * @param scm the {@link JGitScm} to fetch with; the default is a new {@link JGitScm}
+         * @return this {@link BranchPrefetcherBuilder}
+         */
+        public BranchPrefetcherBuilder scm(JGitScm scm) {
+            this.scm = scm;
+            return this;
+        }
+    }
+
+    /**
+     * A branch to prefetch together with its retry state.
+     */
+    static class Target {
+        private final String branch;
+        private int failures;
+        private final Path idAsPath;
+        private final String repositoryId;
+        private final List<String> urls;
+
+        Target(ScmRepository repository, String branch) {
+            super();
+            this.repositoryId = repository.getId();
+            this.idAsPath = repository.getIdAsPath();
+            this.urls = repository.getUrls();
+            this.branch = branch;
+        }
+
+        @Override
+        public String toString() {
+            return repositoryId + ":" + branch;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(BranchPrefetcher.class);
+
+    public static BranchPrefetcherBuilder builder() {
+        return new BranchPrefetcherBuilder();
+    }
+
+    /**
+     * @param intervalMs   the regular delay between two fetches
+     * @param maxBackoffMs the upper bound of the result
+     * @param failures     the number of consecutive failures
+     * @return the delay in milliseconds before the next fetch
+     */
+    static long nextDelayMs(long intervalMs, long maxBackoffMs, int failures) {
+        if (failures <= 0) {
+            return intervalMs;
+        }
+        final int shift = Math.min(failures, 30);
+        final long delay = intervalMs << shift;
+        return delay <= 0 || delay > maxBackoffMs ? Math.max(intervalMs, maxBackoffMs) : delay;
+    }
+
+    private volatile ScheduledExecutorService executor;
+    private final long intervalMs;
+    private final long maxBackoffMs;
+    private final int maxConcurrentFetches;
+    private final PathLocker<?> pathLocker;
+    private final Path rootDirectory;
+    private final JGitScm scm;
+    private final List<Target> targets;
+
+    BranchPrefetcher(Path rootDirectory, PathLocker<?> pathLocker, JGitScm scm, List<Target> targets,
+            long intervalMs, long maxBackoffMs, int maxConcurrentFetches) {
+        super();
+        this.rootDirectory = rootDirectory;
+        this.pathLocker = pathLocker;
+        this.scm = scm;
+        this.targets = targets;
+        this.intervalMs = intervalMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.maxConcurrentFetches = maxConcurrentFetches;
+    }
+
+    /**
+     * Stops the background prefetching. A fetch in progress is interrupted.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Fetches the given {@code target} into all its idle checkout directories.
+     *
+     * @param target the branch to fetch
+     * @return the number of checkout directories fetched to
+     * @throws IOException  if the checkout directories cannot be listed
+     * @throws ScmException if a fetch fails
+     */
+    int prefetch(Target target) throws IOException, ScmException {
+        final Path scmRepositoryDir = rootDirectory.resolve(target.idAsPath);
+        if (!Files.isDirectory(scmRepositoryDir)) {
+            return 0;
+        }
+        int result = 0;
+        try (DirectoryStream<Path> slots = Files.newDirectoryStream(scmRepositoryDir)) {
+            for (Path slot : slots) {
+                if (!Files.isDirectory(slot.resolve(".git"))) {
+                    continue;
+                }
+                try (final PathLock lock = pathLocker.tryLockDirectory(slot)) {
+                    /* give up the slot as soon as a build starts waiting for it */
+                    final ProgressMonitor yieldToBuild = new EmptyProgressMonitor() {
+                        @Override
+                        public boolean isCancelled() {
+                            return lock.isWaitedFor() || Thread.currentThread().isInterrupted();
+                        }
+                    };
+                    if (scm.prefetch(slot, target.urls, target.branch, yieldToBuild)) {
+                        result++;
+                    }
+                } catch (CannotAcquireLockException e) {
+                    log.debug("srcdeps: Skipping prefetch to [{}] locked by a build", slot);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fetches all branches into all idle checkout directories once, synchronously on the current thread.
+     *
+     * @return the number of checkout directories fetched to
+     * @throws IOException  if the checkout directories cannot be listed
+     * @throws ScmException if a fetch fails
+     */
+    public int prefetchAll() throws IOException, ScmException {
+        int result = 0;
+        for (Target target : targets) {
+            result += prefetch(target);
+        }
+        return result;
+    }
+
+    private void schedule(final Target target, long delayMs) {
+        final ScheduledExecutorService ex = this.executor;
+        if (ex == null || ex.isShutdown()) {
+            return;
+        }
+        try {
+            ex.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final long start = System.currentTimeMillis();
+                        final int count = prefetch(target);
+                        target.failures = 0;
+                        log.debug("srcdeps: Prefetched [{}] to [{}] checkout directories in [{}] ms", target, count,
+                                System.currentTimeMillis() - start);
+                    } catch (IOException | ScmException | RuntimeException e) {
+                        target.failures++;
+                        log.warn(String.format("srcdeps: Could not prefetch [%s], consecutive failures: [%d]", target,
+                                target.failures), e);
+                    }
+                    schedule(target, nextDelayMs(intervalMs, maxBackoffMs, target.failures));
+                }
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            /* close() was called in the meantime */
+            log.debug("srcdeps: Not scheduling prefetch of [{}] after close", target);
+        }
+    }
+
+    /**
+     * Starts prefetching all branches in the background. The first round starts immediately.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(maxConcurrentFetches, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread t = new Thread(r, "srcdeps-prefetch-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+        for (Target target : targets) {
+            schedule(target, 0);
+        }
+        log.info("srcdeps: Prefetching {} every [{}] ms", targets, intervalMs);
+    }
+
+}
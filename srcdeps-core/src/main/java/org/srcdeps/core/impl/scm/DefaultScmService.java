@@ -17,6 +17,7 @@
 package org.srcdeps.core.impl.scm;
 
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -30,9 +31,14 @@ import org.srcdeps.core.Scm;
 import org.srcdeps.core.ScmException;
 import org.srcdeps.core.ScmService;
 import org.srcdeps.core.impl.DefaultBuildService;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.CompositeBuildMetrics;
 
 /**
- * A {@link ScmService} based on a {@link Set} of {@link Scm}s.
+ * A {@link ScmService} based on a {@link Set} of {@link Scm}s. Each checkout is reported to the injected
+ * {@link BuildMetrics} as a {@link BuildPhase#checkout} phase.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  * @since 3.2.1
@@ -41,12 +47,23 @@ import org.srcdeps.core.impl.DefaultBuildService;
 @Singleton
 public class DefaultScmService implements ScmService {
     private static final Logger log = LoggerFactory.getLogger(DefaultBuildService.class);
+    private final BuildMetrics metrics;
     private final Set<Scm> scms;
 
-    @Inject
     public DefaultScmService(Set<Scm> scms) {
+        this(scms, Collections.<BuildMetrics>emptySet());
+    }
+
+    /**
+     * @param scms    the {@link Scm}s to choose from
+     * @param metrics the {@link BuildMetrics} to report to
+     * @since 4.0.4
+     */
+    @Inject
+    public DefaultScmService(Set<Scm> scms, Set<BuildMetrics> metrics) {
         super();
         this.scms = scms;
+        this.metrics = CompositeBuildMetrics.of(metrics);
     }
 
     /** {@inheritDoc} */
@@ -59,7 +76,12 @@ public class DefaultScmService implements ScmService {
             if (scm.supports(firstUrl)) {
                 log.info("srcdeps: Using SCM implementation [{}] to check out URL [{}] to directory [{}]",
                         scm.getClass().getName(), firstUrl, dir);
-                return scm.checkout(request);
+                final Span span = metrics.start(BuildPhase.checkout, request);
+                try {
+                    return scm.checkout(request);
+                } finally {
+                    span.close();
+                }
             }
         }
         throw new ScmException(String.format("No Scm found for URL [%s]", firstUrl));
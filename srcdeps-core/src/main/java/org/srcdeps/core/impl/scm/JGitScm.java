@@ -16,16 +16,25 @@
  */
 package org.srcdeps.core.impl.scm;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -33,14 +42,20 @@ import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.BundleWriter;
 import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TrackingRefUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.srcdeps.core.BuildRequest;
@@ -48,6 +63,13 @@ import org.srcdeps.core.Scm;
 import org.srcdeps.core.ScmException;
 import org.srcdeps.core.SrcVersion;
 import org.srcdeps.core.SrcVersion.WellKnownType;
+import org.srcdeps.core.metrics.BuildCounter;
+import org.srcdeps.core.metrics.BuildMetrics;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.CompositeBuildMetrics;
+import org.srcdeps.core.metrics.JfrEventType.Event;
+import org.srcdeps.core.metrics.SrcdepsJfrEvents;
 import org.srcdeps.core.util.SrcdepsCoreUtils;
 
 /**
@@ -58,10 +80,99 @@ import org.srcdeps.core.util.SrcdepsCoreUtils;
 @Named
 @Singleton
 public class JGitScm implements Scm {
+
+    /**
+     * The number of objects and bytes of the pack files written by a fetch. The numbers are taken from the pack files
+     * and the headers of their indexes rather than from the progress reported by JGit.
+     */
+    static class FetchedPacks {
+        private static final FetchedPacks EMPTY = new FetchedPacks(0, 0);
+        private static final int FANOUT_SIZE = 256;
+        /** The first four bytes of a pack index of version 2 or newer */
+        private static final int PACK_INDEX_MAGIC = 0xff744f63;
+
+        /**
+         * @param repository  the {@link Repository} fetched to
+         * @param fetchResult the result of the fetch
+         * @param fetchStart  the time when the fetch started in milliseconds since the epoch
+         * @return the {@link FetchedPacks} of the given fetch; the pack directory is listed only if the fetch has
+         *         updated some ref
+         */
+        static FetchedPacks of(Repository repository, FetchResult fetchResult, long fetchStart) {
+            boolean updated = false;
+            for (TrackingRefUpdate update : fetchResult.getTrackingRefUpdates()) {
+                if (!update.getOldObjectId().equals(update.getNewObjectId())) {
+                    updated = true;
+                    break;
+                }
+            }
+            if (!updated) {
+                return EMPTY;
+            }
+            /* some filesystems store modification times with a one second precision */
+            final long since = fetchStart - fetchStart % 1000;
+            final Path packDir = repository.getDirectory().toPath().resolve("objects").resolve("pack");
+            long objects = 0;
+            long bytes = 0;
+            try (DirectoryStream<Path> packs = Files.newDirectoryStream(packDir, "*.pack")) {
+                for (Path pack : packs) {
+                    if (Files.getLastModifiedTime(pack).toMillis() >= since) {
+                        bytes += Files.size(pack);
+                        final String fileName = pack.getFileName().toString();
+                        objects += readObjectCount(pack.resolveSibling(
+                                fileName.substring(0, fileName.length() - ".pack".length()) + ".idx"));
+                    }
+                }
+            } catch (IOException e) {
+                log.debug(String.format("srcdeps: Could not read the pack files in [%s]", packDir), e);
+            }
+            return new FetchedPacks(objects, bytes);
+        }
+
+        /**
+         * @param packIndex the path to a pack index file
+         * @return the number of objects in the pack, i.e. the last entry of the fan-out table of the given
+         *         {@code packIndex}
+         * @throws IOException on any I/O problems
+         */
+        static long readObjectCount(Path packIndex) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(packIndex)))) {
+                if (in.readInt() == PACK_INDEX_MAGIC) {
+                    /* version 2+: skip the version and all but the last fan-out entry */
+                    in.readFully(new byte[4 * FANOUT_SIZE]);
+                } else {
+                    /* version 1 has no header: we have just read the first fan-out entry */
+                    in.readFully(new byte[4 * (FANOUT_SIZE - 2)]);
+                }
+                return in.readInt() & 0xffffffffL;
+            }
+        }
+
+        private final long bytes;
+        private final long objects;
+
+        private FetchedPacks(long objects, long bytes) {
+            super();
+            this.objects = objects;
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getObjects() {
+            return objects;
+        }
+    }
+
+    private static final String BUNDLE_SUFFIX = ".bundle";
     private static final Logger log = LoggerFactory.getLogger(JGitScm.class);
     private static final String REMOTE = "remote";
     private static final String SCM_GIT_PREFIX = "git:";
 
+    private static final String SRCDEPS_SCM_BUNDLES_PROPERTY = "srcdeps.scm.bundles";
+
     private static final String SRCDEPS_WORKING_BRANCH = "srcdeps-working-branch";
 
     static void ensureRemoteAvailable(String useUrl, String remoteAlias, Git git) throws IOException {
@@ -83,10 +194,30 @@ public class JGitScm implements Scm {
         }
     }
 
+    /**
+     * @param bundlesDirectory the directory where the bundles are stored
+     * @param scmRepositoryId  the {@link org.srcdeps.core.config.ScmRepository#getId()}
+     * @return the path of the bundle for the given {@code scmRepositoryId}
+     * @since 4.0.4
+     */
+    public static Path getBundlePath(Path bundlesDirectory, String scmRepositoryId) {
+        return bundlesDirectory.resolve(scmRepositoryId + BUNDLE_SUFFIX);
+    }
+
     public static String getScmGitPrefix() {
         return SCM_GIT_PREFIX;
     }
 
+    /**
+     * @return the name of the system property pointing at a directory containing git bundles named
+     *         {@code <scmRepositoryId>.bundle}; a new checkout directory is seeded from the matching bundle, if any,
+     *         before fetching from the network, see {@link #importBundle(Path, Path)}
+     * @since 4.0.4
+     */
+    public static String getSrcdepsScmBundlesProperty() {
+        return SRCDEPS_SCM_BUNDLES_PROPERTY;
+    }
+
     /**
      * @return srcdeps will use this branch to perform its magic
      */
@@ -127,6 +258,23 @@ public class JGitScm implements Scm {
         }
     }
 
+    private final BuildMetrics metrics;
+
+    public JGitScm() {
+        this(Collections.<BuildMetrics>emptySet());
+    }
+
+    /**
+     * @param metrics the {@link BuildMetrics} to report the {@link BuildPhase#fetch} and {@link BuildPhase#reset}
+     *                phases to
+     * @since 4.0.4
+     */
+    @Inject
+    public JGitScm(Set<BuildMetrics> metrics) {
+        super();
+        this.metrics = CompositeBuildMetrics.of(metrics);
+    }
+
     /**
      * Makes sure that the given {@code refToFind} is available in the {@code advertisedRefs}.
      *
@@ -185,6 +333,9 @@ public class JGitScm implements Scm {
      * This implementation first checks if {@code request.getProjectRootDirectory()} returns a directory containing a
      * valid git repository. If it does not, git init operation is invoked. After that git fetch and git reset are used
      * to checkout the sources.
+     * <p>
+     * If {@link BuildRequest#getSparseCheckoutIncludes()} or {@link BuildRequest#getSparseCheckoutExcludes()} are not
+     * empty, only the matching subset of the files is written to the working tree, see {@link SparseCheckout}.
      *
      * @param request determines the project to checkout
      * @return the {@code commitId} the {@code HEAD} points at
@@ -197,10 +348,25 @@ public class JGitScm implements Scm {
         int i = 0;
         final List<String> urls = request.getScmUrls();
 
+        final String bundles = System.getProperty(SRCDEPS_SCM_BUNDLES_PROPERTY);
+        if (bundles != null && !Files.exists(dir.resolve(".git"))) {
+            final Path bundle = getBundlePath(Paths.get(bundles), request.getScmRepositoryId());
+            if (Files.isRegularFile(bundle)) {
+                try {
+                    importBundle(bundle, dir);
+                } catch (ScmException e) {
+                    log.warn(String.format("srcdeps: Could not seed [%s] from bundle [%s]", dir, bundle), e);
+                }
+            }
+        }
+
+        final SparseCheckout sparseCheckout = SparseCheckout.of(request.getSparseCheckoutIncludes(),
+                request.getSparseCheckoutExcludes());
         try (Git git = openGit(dir)) {
             for (String url : urls) {
                 final String useUrl = stripUriPrefix(url);
-                final String result = fetchAndReset(useUrl, i, urls.size(), request.getSrcVersion(), dir, git);
+                final String result = fetchAndReset(request.getScmRepositoryId(), useUrl, i, urls.size(),
+                        request.getSrcVersion(), dir, git, sparseCheckout);
                 if (result != null) {
                     return result;
                 }
@@ -211,15 +377,18 @@ public class JGitScm implements Scm {
                 String.format("Could not checkout [%s] from URLs %s", request.getSrcVersion(), request.getScmUrls()));
     }
 
-    String fetchAndReset(String useUrl, int urlIndex, int urlCount, SrcVersion srcVersion, Path dir, Git git)
-            throws ScmException {
+    String fetchAndReset(String scmRepositoryId, String useUrl, int urlIndex, int urlCount, SrcVersion srcVersion,
+            Path dir, Git git, SparseCheckout sparseCheckout) throws ScmException {
         /* Forget local changes */
         try {
             Set<String> removedFiles = git.clean().setCleanDirectories(true).call();
             for (String removedFile : removedFiles) {
                 log.debug("srcdeps: Removed an unstaged file [{}]", removedFile);
             }
-            git.reset().setMode(ResetType.HARD).call();
+            if (sparseCheckout == null) {
+                /* with sparseCheckout, the local changes in the included files are overwritten further below */
+                git.reset().setMode(ResetType.HARD).call();
+            }
 
         } catch (Exception e) {
             log.warn(String.format("srcdeps: Could not forget local changes in [%s]", dir), e);
@@ -255,7 +424,22 @@ public class JGitScm implements Scm {
                 throw new IllegalStateException("Unexpected " + WellKnownType.class.getName() + " value '"
                         + srcVersion.getWellKnownType() + "'.");
             }
-            FetchResult fetchResult = fetch.call();
+            final FetchResult fetchResult;
+            final Event fetchEvent = SrcdepsJfrEvents.FETCH.begin() //
+                    .set("scmRepositoryId", scmRepositoryId) //
+                    .set("url", useUrl);
+            final Span fetchSpan = metrics.start(BuildPhase.fetch, scmRepositoryId);
+            try {
+                final long fetchStart = System.currentTimeMillis();
+                fetchResult = fetch.call();
+                final FetchedPacks fetched = FetchedPacks.of(git.getRepository(), fetchResult, fetchStart);
+                metrics.count(BuildCounter.fetchedObjects, scmRepositoryId, fetched.getObjects());
+                metrics.count(BuildCounter.fetchedBytes, scmRepositoryId, fetched.getBytes());
+                fetchEvent.set("fetchedObjects", fetched.getObjects()).set("fetchedBytes", fetched.getBytes());
+            } finally {
+                fetchSpan.close();
+                fetchEvent.commit();
+            }
 
             /*
              * Let's check that the desired startPoint was really fetched from the current URL. Otherwise, the
@@ -279,10 +463,33 @@ public class JGitScm implements Scm {
                         + srcVersion.getWellKnownType() + "'.");
             }
 
-            /* Reset the srcdeps-working-branch */
-            git.branchCreate().setName(SRCDEPS_WORKING_BRANCH).setForce(true).setStartPoint(startPoint).call();
-            git.checkout().setName(SRCDEPS_WORKING_BRANCH).call();
-            git.reset().setMode(ResetType.HARD).setRef(startPoint).call();
+            final Event resetEvent = SrcdepsJfrEvents.RESET.begin() //
+                    .set("scmRepositoryId", scmRepositoryId) //
+                    .set("startPoint", startPoint) //
+                    .set("sparse", sparseCheckout != null);
+            final Span resetSpan = metrics.start(BuildPhase.reset, scmRepositoryId);
+            try {
+                /* Reset the srcdeps-working-branch */
+                git.branchCreate().setName(SRCDEPS_WORKING_BRANCH).setForce(true).setStartPoint(startPoint).call();
+                if (sparseCheckout == null) {
+                    git.checkout().setName(SRCDEPS_WORKING_BRANCH).call();
+                    git.reset().setMode(ResetType.HARD).setRef(startPoint).call();
+                } else {
+                    /* Point HEAD and the index at startPoint without touching the working tree */
+                    git.getRepository().updateRef(Constants.HEAD).link(Constants.R_HEADS + SRCDEPS_WORKING_BRANCH);
+                    git.reset().setMode(ResetType.MIXED).setRef(startPoint).call();
+                    final long start = System.currentTimeMillis();
+                    final int written = sparseCheckout.apply(git.getRepository(),
+                            git.getRepository().resolve(Constants.HEAD));
+                    /* remove the files that were in the previous commit but are not in the current one */
+                    git.clean().setCleanDirectories(true).call();
+                    log.info("srcdeps: Wrote [{}] files of {} in [{}] ms", written, sparseCheckout,
+                            System.currentTimeMillis() - start);
+                }
+            } finally {
+                resetSpan.close();
+                resetEvent.commit();
+            }
             final Ref ref = git.getRepository().exactRef("HEAD");
 
             return ref.getObjectId().getName();
@@ -301,6 +508,143 @@ public class JGitScm implements Scm {
         return null;
     }
 
+    /**
+     * Writes all refs of the git repository in {@code dir} together with all objects reachable from them to a git
+     * bundle file. The bundle can be used to seed a checkout directory on another machine without network access,
+     * see {@link #importBundle(Path, Path)}. The {@code bundleFile} is replaced atomically where the filesystem
+     * supports it.
+     *
+     * @param dir        the directory containing a git repository
+     * @param bundleFile the bundle file to write
+     * @throws ScmException if the bundle cannot be written
+     * @since 4.0.4
+     */
+    public void exportBundle(Path dir, Path bundleFile) throws ScmException {
+        try (Git git = Git.open(dir.toFile())) {
+            final Repository repository = git.getRepository();
+            final BundleWriter writer = new BundleWriter(repository);
+            int refCount = 0;
+            for (Ref ref : repository.getRefDatabase().getRefsByPrefix(RefDatabase.ALL)) {
+                if (!ref.isSymbolic() && ref.getObjectId() != null) {
+                    writer.include(ref);
+                    refCount++;
+                }
+            }
+            if (refCount == 0) {
+                throw new ScmException(String.format("No refs to export from [%s]", dir));
+            }
+            SrcdepsCoreUtils.ensureDirectoryExists(bundleFile.toAbsolutePath().getParent());
+            final Path tempFile = Files.createTempFile(bundleFile.toAbsolutePath().getParent(),
+                    bundleFile.getFileName().toString(), ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile)) {
+                    writer.writeBundle(NullProgressMonitor.INSTANCE, out);
+                }
+                Files.move(tempFile, bundleFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            log.info("srcdeps: Exported [{}] refs from [{}] to [{}]", refCount, dir, bundleFile);
+        } catch (IOException e) {
+            throw new ScmException(String.format("Could not export [%s] to bundle [%s]", dir, bundleFile), e);
+        }
+    }
+
+    /**
+     * Fetches all refs from the given git bundle file into the git repository in {@code dir}, initializing the
+     * repository if there is none. The working tree is left untouched; the subsequent {@link #checkout(BuildRequest)}
+     * then needs to fetch just the objects that are not in the bundle.
+     *
+     * @param bundleFile the bundle file written by {@link #exportBundle(Path, Path)} or by {@code git bundle create}
+     * @param dir        the directory to import to
+     * @throws ScmException if the bundle cannot be imported
+     * @since 4.0.4
+     */
+    public void importBundle(Path bundleFile, Path dir) throws ScmException {
+        final long start = System.currentTimeMillis();
+        try (Git git = openGit(dir)) {
+            git.fetch().setRemote(bundleFile.toAbsolutePath().toUri().toString()) //
+                    .setRefSpecs(new RefSpec("+refs/*:refs/*")) //
+                    .call();
+        } catch (GitAPIException e) {
+            throw new ScmException(String.format("Could not import bundle [%s] to [%s]", bundleFile, dir), e);
+        }
+        log.info("srcdeps: Imported bundle [{}] to [{}] in [{}] ms", bundleFile, dir,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Fetches the given {@code branch} from the first of the given {@code urls} that works into an existing git
+     * repository in {@code dir}, without touching the working tree. Used for keeping the checkout directories fresh
+     * in the background so that the fetch in {@link #checkout(BuildRequest)} has little to transfer.
+     *
+     * @param dir    the directory containing a git repository
+     * @param urls   the {@code git:} prefixed URLs to try
+     * @param branch the name of the branch to fetch
+     * @return {@code true} if the branch was fetched, {@code false} if there is no git repository in {@code dir}
+     * @throws ScmException if the branch could not be fetched from any of the {@code urls}
+     * @since 4.0.4
+     */
+    public boolean prefetch(Path dir, List<String> urls, String branch) throws ScmException {
+        return prefetch(dir, urls, branch, NullProgressMonitor.INSTANCE);
+    }
+
+    /**
+     * Like {@link #prefetch(Path, List, String)} but the fetch can be cancelled via
+     * {@link ProgressMonitor#isCancelled()} of the given {@code monitor}.
+     *
+     * @param dir     the directory containing a git repository
+     * @param urls    the {@code git:} prefixed URLs to try
+     * @param branch  the name of the branch to fetch
+     * @param monitor the {@link ProgressMonitor} to pass to the fetch
+     * @return {@code true} if the branch was fetched, {@code false} if there is no git repository in {@code dir} or
+     *         if the fetch was cancelled
+     * @throws ScmException if the branch could not be fetched from any of the {@code urls}
+     * @since 4.0.4
+     */
+    public boolean prefetch(Path dir, List<String> urls, String branch, ProgressMonitor monitor)
+            throws ScmException {
+        final Git git;
+        try {
+            git = Git.open(dir.toFile());
+        } catch (IOException e) {
+            log.debug(String.format("srcdeps: No git repository to prefetch to in [%s]", dir), e);
+            return false;
+        }
+        try {
+            Exception lastException = null;
+            for (String url : urls) {
+                if (!supports(url)) {
+                    continue;
+                }
+                final String useUrl = stripUriPrefix(url);
+                final String remoteAlias = toRemoteAlias(useUrl);
+                try {
+                    ensureRemoteAvailable(useUrl, remoteAlias, git);
+                    git.fetch().setRemote(remoteAlias) //
+                            .setRefSpecs(new RefSpec(
+                                    "+refs/heads/" + branch + ":refs/remotes/" + remoteAlias + "/" + branch)) //
+                            .setProgressMonitor(monitor) //
+                            .call();
+                    log.debug("srcdeps: Prefetched branch [{}] from [{}] to [{}]", branch, useUrl, dir);
+                    return true;
+                } catch (IOException | GitAPIException e) {
+                    if (monitor.isCancelled()) {
+                        log.debug("srcdeps: Cancelled prefetching branch [{}] from [{}] to [{}]", branch, useUrl, dir);
+                        return false;
+                    }
+                    lastException = e;
+                    log.debug(String.format("srcdeps: Could not prefetch branch [%s] from [%s]", branch, useUrl), e);
+                }
+            }
+            throw new ScmException(String.format("Could not prefetch branch [%s] from any of %s", branch, urls),
+                    lastException);
+        } finally {
+            git.close();
+        }
+    }
+
     @Override
     public boolean supports(String url) {
         return url.startsWith(SCM_GIT_PREFIX);
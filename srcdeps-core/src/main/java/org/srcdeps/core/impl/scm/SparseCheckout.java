@@ -0,0 +1,196 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.scm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Writes a subset of the files of a commit to the working tree. JGit has no native support for sparse checkouts,
+ * therefore the present class walks the tree of the commit and writes only the included files itself. The excluded
+ * files present in the working tree from a previous full checkout are deleted.
+ * <p>
+ * A path is included if it is in the root directory of the source tree or if it is equal to or under some of the
+ * {@code includes} (or if the {@code includes} are empty), unless it is equal to or under some of the
+ * {@code excludes}. This is similar to the cone mode of {@code git sparse-checkout} and ensures that the top level
+ * build files such as {@code pom.xml} or {@code settings.gradle} are always available.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+class SparseCheckout {
+
+    /**
+     * @param includes the paths to include
+     * @param excludes the paths to exclude
+     * @return a new {@link SparseCheckout} or {@code null} if both {@code includes} and {@code excludes} are empty,
+     *         i.e. if the whole tree should be checked out
+     */
+    static SparseCheckout of(List<String> includes, List<String> excludes) {
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return null;
+        }
+        return new SparseCheckout(normalize(includes), normalize(excludes));
+    }
+
+    private static List<String> normalize(List<String> paths) {
+        final List<String> result = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            String p = path.replace('\\', '/');
+            while (p.startsWith("/")) {
+                p = p.substring(1);
+            }
+            while (p.endsWith("/")) {
+                p = p.substring(0, p.length() - 1);
+            }
+            if (!p.isEmpty()) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isUnder(String path, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (path.equals(prefix) || (path.startsWith(prefix) && path.charAt(prefix.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final List<String> excludes;
+    private final List<String> includes;
+
+    SparseCheckout(List<String> includes, List<String> excludes) {
+        super();
+        this.includes = includes;
+        this.excludes = excludes;
+    }
+
+    /**
+     * Writes the included files of the given {@code commitId} to the working tree of the given {@code repository} and
+     * deletes the excluded ones. The included files whose content is up to date are not rewritten.
+     *
+     * @param repository the {@link Repository} whose working tree should be updated
+     * @param commitId   the commit to check out
+     * @return the number of files written
+     * @throws IOException on I/O problems
+     */
+    int apply(Repository repository, ObjectId commitId) throws IOException {
+        final Path workTree = repository.getWorkTree().toPath();
+        int written = 0;
+        try (ObjectReader reader = repository.newObjectReader();
+                RevWalk revWalk = new RevWalk(reader);
+                TreeWalk treeWalk = new TreeWalk(reader);
+                ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+            final RevCommit commit = revWalk.parseCommit(commitId);
+            treeWalk.addTree(commit.getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                final String path = treeWalk.getPathString();
+                final Path file = workTree.resolve(path);
+                final FileMode mode = treeWalk.getFileMode(0);
+                if (!isIncluded(path)) {
+                    if (Files.deleteIfExists(file)) {
+                        deleteEmptyParents(file.getParent(), workTree);
+                    }
+                } else if (mode == FileMode.REGULAR_FILE || mode == FileMode.EXECUTABLE_FILE) {
+                    final ObjectId blobId = treeWalk.getObjectId(0);
+                    if (!isUpToDate(file, blobId, reader, formatter)) {
+                        final ObjectLoader loader = reader.open(blobId, Constants.OBJ_BLOB);
+                        Files.createDirectories(file.getParent());
+                        Files.deleteIfExists(file);
+                        try (OutputStream out = Files.newOutputStream(file)) {
+                            loader.copyTo(out);
+                        }
+                        written++;
+                    }
+                    if (mode == FileMode.EXECUTABLE_FILE) {
+                        file.toFile().setExecutable(true);
+                    }
+                } else if (mode == FileMode.SYMLINK) {
+                    final String target = new String(reader.open(treeWalk.getObjectId(0)).getBytes(),
+                            StandardCharsets.UTF_8);
+                    Files.createDirectories(file.getParent());
+                    Files.deleteIfExists(file);
+                    Files.createSymbolicLink(file, Paths.get(target));
+                    written++;
+                }
+                /* gitlinks (submodules) are not checked out by srcdeps in any case */
+            }
+        }
+        return written;
+    }
+
+    private void deleteEmptyParents(Path dir, Path workTree) throws IOException {
+        while (dir != null && !dir.equals(workTree)) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                if (entries.iterator().hasNext()) {
+                    return;
+                }
+            }
+            Files.delete(dir);
+            dir = dir.getParent();
+        }
+    }
+
+    /**
+     * @param path a {@code /} separated path relative to the root of the source tree
+     * @return {@code true} if the given {@code path} should be checked out
+     */
+    boolean isIncluded(String path) {
+        if (isUnder(path, excludes)) {
+            return false;
+        }
+        return path.indexOf('/') < 0 || includes.isEmpty() || isUnder(path, includes);
+    }
+
+    private boolean isUpToDate(Path file, ObjectId blobId, ObjectReader reader, ObjectInserter.Formatter formatter)
+            throws IOException {
+        if (!Files.isRegularFile(file) || Files.isSymbolicLink(file)
+                || Files.size(file) != reader.getObjectSize(blobId, Constants.OBJ_BLOB)) {
+            return false;
+        }
+        final byte[] content = Files.readAllBytes(file);
+        return blobId.equals(formatter.idFor(Constants.OBJ_BLOB, content));
+    }
+
+    @Override
+    public String toString() {
+        return "SparseCheckout [includes=" + includes + ", excludes=" + excludes + "]";
+    }
+
+}
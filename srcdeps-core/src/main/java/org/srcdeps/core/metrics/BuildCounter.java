@@ -0,0 +1,50 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+/**
+ * The counters reported via {@link BuildMetrics#count(BuildCounter, String, long)}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public enum BuildCounter {
+
+    /** The size of the pack files received during {@link BuildPhase#fetch} */
+    fetchedBytes,
+
+    /** The number of objects received during {@link BuildPhase#fetch} */
+    fetchedObjects,
+
+    /** The number of bytes digested while checking or storing the sha1 hashes of artifacts */
+    hashedBytes,
+
+    /**
+     * The number of checkout directories found locked before a free one was found during {@link BuildPhase#lockWait}
+     */
+    lockedSlots,
+
+    /** The number of reads from {@link org.srcdeps.core.BuildMetadataStore} */
+    metadataReads,
+
+    /** The number of writes to {@link org.srcdeps.core.BuildMetadataStore} */
+    metadataWrites,
+
+    /** The number of artifacts found during {@link BuildPhase#artifactWalk} */
+    walkedArtifacts;
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.io.Closeable;
+
+import org.srcdeps.core.BuildRequest;
+
+/**
+ * A listener notified about the timings and counters of the individual phases of source dependency builds. Like
+ * {@link org.srcdeps.core.Builder} and {@link org.srcdeps.core.Scm}, the implementations are injected as a
+ * {@link java.util.Set} by the DI container; the components performing the phases combine them via
+ * {@link CompositeBuildMetrics#of(java.util.Collection)}. If there is none, {@link NoOpBuildMetrics} is used.
+ * <p>
+ * The implementations must be thread safe, as the phases of concurrent builds are reported from many threads at
+ * once. They must also be cheap, as some of the phases take just microseconds.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public interface BuildMetrics {
+
+    /**
+     * A running {@link BuildPhase}. The phase ends when {@link #close()} is called, which must happen on the same
+     * thread that has called {@link BuildMetrics#start(BuildPhase, String)} or
+     * {@link BuildMetrics#start(BuildPhase, BuildRequest)}, except for {@link BuildPhase#request}
+     * whose {@link Span} may be closed on any thread.
+     */
+    interface Span extends Closeable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Adds the given {@code delta} to the given {@code counter}.
+     *
+     * @param counter the {@link BuildCounter} to increment
+     * @param subject what the counter relates to, typically a
+     *                {@link org.srcdeps.core.BuildRequest#getScmRepositoryId()}; may be {@code null}
+     * @param delta   the value to add
+     */
+    void count(BuildCounter counter, String subject, long delta);
+
+    /**
+     * Starts timing the given {@code phase}.
+     *
+     * @param phase   the {@link BuildPhase} to time
+     * @param subject what the phase works on, typically a
+     *                {@link org.srcdeps.core.BuildRequest#getScmRepositoryId()}; may be {@code null}
+     * @return a {@link Span} to close once the phase is over
+     */
+    Span start(BuildPhase phase, String subject);
+
+    /**
+     * Starts timing the given {@code phase} of the given {@code request}. Unlike {@link #start(BuildPhase, String)},
+     * this allows for telling apart concurrent {@link BuildRequest}s having the same
+     * {@link BuildRequest#getScmRepositoryId()}.
+     *
+     * @param phase   the {@link BuildPhase} to time
+     * @param request the {@link BuildRequest} the phase works on
+     * @return a {@link Span} to close once the phase is over
+     */
+    Span start(BuildPhase phase, BuildRequest request);
+
+}
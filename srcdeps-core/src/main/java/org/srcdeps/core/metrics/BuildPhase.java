@@ -0,0 +1,72 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+/**
+ * The phases of a source dependency build timed via {@link BuildMetrics}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public enum BuildPhase {
+
+    /** Walking the local Maven repository for the artifacts of a build, including their hashing */
+    artifactWalk,
+
+    /**
+     * {@link org.srcdeps.core.BuildScheduler#build(org.srcdeps.core.BuildBatch)} as a whole; the subject is
+     * {@code null}
+     */
+    batch,
+
+    /** {@link org.srcdeps.core.Builder#build(org.srcdeps.core.BuildRequest)} */
+    build,
+
+    /** {@link org.srcdeps.core.ScmService#checkout(org.srcdeps.core.BuildRequest)} as a whole */
+    checkout,
+
+    /** {@link org.srcdeps.core.ConfigurationQueryService#findScmRepo(String, String, String)} */
+    configLookup,
+
+    /** Fetching from a remote repository, part of {@link #checkout} */
+    fetch,
+
+    /** Waiting for and locking a checkout directory */
+    lockWait,
+
+    /** A read or write of {@link org.srcdeps.core.BuildMetadataStore} */
+    metadataStore,
+
+    /**
+     * A {@link org.srcdeps.core.BuildRequest} within a {@link #batch} from the submission of its checkout until its
+     * build is finished. Unlike all other phases, this one starts and ends on different threads.
+     */
+    request,
+
+    /** Resetting the working tree to the fetched commit, part of {@link #checkout} */
+    reset,
+
+    /**
+     * Seeding a freshly locked checkout directory from a sibling one, see
+     * {@link org.srcdeps.core.fs.BuildDirectoriesManager}
+     */
+    seed,
+
+    /** {@link org.srcdeps.core.Builder#setVersions(org.srcdeps.core.BuildRequest)} */
+    setVersions;
+
+}
@@ -0,0 +1,381 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.srcdeps.core.BuildRequest;
+
+/**
+ * A {@link BuildMetrics} writing a trace file in the
+ * <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Chrome Trace Event
+ * Format</a> for every top-level {@link BuildPhase#batch}. The files can be loaded in {@code chrome://tracing} or in
+ * <a href="https://ui.perfetto.dev">Perfetto</a>.
+ * <p>
+ * Tracing is enabled by setting the {@link #getSrcdepsTraceDirectoryProperty()} system property to a directory
+ * where the trace files should be written. The phases running outside of a {@link BuildPhase#batch} are not traced.
+ * <p>
+ * Each trace contains:
+ * <ul>
+ * <li>A track per thread with all phases run by that thread, nested as they were called</li>
+ * <li>An asynchronous track per {@link BuildRequest} spanning its whole {@link BuildPhase#request} with the phases
+ * started for the same {@link BuildRequest} via {@link #start(BuildPhase, BuildRequest)} nested in it, even though
+ * they run on different threads. The phases started via {@link #start(BuildPhase, String)} on the same thread while
+ * such a phase is running are nested too. Hence the requests on the critical path of the batch are the ones ending
+ * last.</li>
+ * <li>A counter track per {@link BuildCounter} showing its running total</li>
+ * </ul>
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+@Named
+@Singleton
+public class ChromeTraceBuildMetrics implements BuildMetrics {
+
+    /**
+     * The events of a single top-level {@link BuildPhase#batch}.
+     */
+    static class Trace {
+        private final Map<BuildCounter, AtomicLong> counters;
+        private final Path directory;
+        private final Queue<String> events = new ConcurrentLinkedQueue<>();
+        private final AtomicLong nextRequestId = new AtomicLong();
+        /** The ids of the running {@link BuildPhase#request}s by {@link BuildRequest} identity */
+        private final Map<BuildRequest, Long> requestIds = Collections
+                .synchronizedMap(new IdentityHashMap<BuildRequest, Long>());
+        private final long startMillis = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final Map<Long, Boolean> threads = new ConcurrentHashMap<>();
+
+        Trace(Path directory) {
+            super();
+            this.directory = directory;
+            final Map<BuildCounter, AtomicLong> cs = new EnumMap<>(BuildCounter.class);
+            for (BuildCounter counter : BuildCounter.values()) {
+                cs.put(counter, new AtomicLong());
+            }
+            this.counters = cs;
+        }
+
+        void add(String event) {
+            final Thread thread = Thread.currentThread();
+            if (threads.put(thread.getId(), Boolean.TRUE) == null) {
+                events.add(String.format(Locale.ROOT,
+                        "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":%d,\"tid\":%d,\"args\":{\"name\":\"%s\"}}",
+                        PID, thread.getId(), escape(thread.getName())));
+            }
+            events.add(event);
+        }
+
+        /**
+         * @param nanos a {@link System#nanoTime()} value
+         * @return the given {@code nanos} as microseconds since the start of this {@link Trace}
+         */
+        String timestamp(long nanos) {
+            return String.format(Locale.ROOT, "%.3f", (nanos - startNanos) / 1000.0);
+        }
+
+        /**
+         * Writes this {@link Trace} to a new file in {@link #directory}.
+         *
+         * @return the path of the written file
+         * @throws IOException on I/O problems
+         */
+        Path write() throws IOException {
+            Files.createDirectories(directory);
+            /* PID and sequence make the name unique among concurrent JVMs and traces */
+            final String name = "srcdeps-trace-"
+                    + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.ROOT).format(new Date(startMillis)) + "-" + PID
+                    + "-" + FILE_SEQUENCE.incrementAndGet() + ".json";
+            final Path file = directory.resolve(name);
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+                final Iterator<String> it = events.iterator();
+                while (it.hasNext()) {
+                    out.write("\n");
+                    out.write(it.next());
+                    if (it.hasNext()) {
+                        out.write(",");
+                    }
+                }
+                out.write("\n]}\n");
+            }
+            return file;
+        }
+    }
+
+    /** Distinguishes the trace files written by this JVM */
+    private static final AtomicInteger FILE_SEQUENCE = new AtomicInteger();
+
+    private static final Logger log = LoggerFactory.getLogger(ChromeTraceBuildMetrics.class);
+
+    private static final long PID = pid();
+
+    private static final String SRCDEPS_TRACE_DIRECTORY_PROPERTY = "srcdeps.trace.directory";
+
+    private static String asyncEvent(Trace t, BuildPhase phase, String subject, long requestId, String ph,
+            long nanos, String args) {
+        final String name = phase == BuildPhase.request && subject != null ? subject : phase.name();
+        return String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"cat\":\"request\",\"ph\":\"%s\",\"id\":%d,\"ts\":%s,\"pid\":%d,\"tid\":%d,"
+                        + "\"args\":%s}",
+                escape(name), ph, requestId, t.timestamp(nanos), PID, Thread.currentThread().getId(), args);
+    }
+
+    /**
+     * @param value the string to escape
+     * @return the given {@code value} escaped for use in a JSON string
+     */
+    static String escape(String value) {
+        final StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                result.append("\\\"");
+                break;
+            case '\\':
+                result.append("\\\\");
+                break;
+            default:
+                if (c < 0x20) {
+                    result.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                } else {
+                    result.append(c);
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the name of the system property to set to a directory where a trace file should be written for each
+     *         top-level {@link BuildPhase#batch}; the name of the property is
+     *         {@value #SRCDEPS_TRACE_DIRECTORY_PROPERTY}
+     */
+    public static String getSrcdepsTraceDirectoryProperty() {
+        return SRCDEPS_TRACE_DIRECTORY_PROPERTY;
+    }
+
+    private static long pid() {
+        /* RuntimeMXBean.getName() is pid@hostname on all JVMs we know of */
+        final String name = ManagementFactory.getRuntimeMXBean().getName();
+        final int at = name.indexOf('@');
+        try {
+            return Long.parseLong(at >= 0 ? name.substring(0, at) : name);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** The number of the currently running {@link BuildPhase#batch}es; guarded by {@code this} */
+    private int batchDepth = 0;
+
+    /**
+     * The id of the {@link BuildRequest} whose phase started via {@link #start(BuildPhase, BuildRequest)} is running
+     * on the current thread
+     */
+    private final ThreadLocal<Long> currentRequestId = new ThreadLocal<>();
+
+    /** The current {@link Trace} or {@code null} if not tracing */
+    private volatile Trace trace;
+
+    /** {@inheritDoc} */
+    @Override
+    public void count(BuildCounter counter, String subject, long delta) {
+        final Trace t = trace;
+        if (t != null && delta != 0) {
+            final long total = t.counters.get(counter).addAndGet(delta);
+            t.add(String.format(Locale.ROOT,
+                    "{\"name\":\"%s\",\"cat\":\"srcdeps\",\"ph\":\"C\",\"ts\":%s,\"pid\":%d,\"args\":{\"total\":%d}}",
+                    counter.name(), t.timestamp(System.nanoTime()), PID, total));
+        }
+    }
+
+    private Trace endBatch() {
+        synchronized (this) {
+            if (--batchDepth == 0) {
+                final Trace result = trace;
+                trace = null;
+                return result;
+            }
+            return null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Span start(BuildPhase phase, BuildRequest request) {
+        if (phase == BuildPhase.batch) {
+            return startBatch();
+        }
+        final Trace t = trace;
+        if (t == null) {
+            return NoOpBuildMetrics.NO_OP_SPAN;
+        }
+        if (phase == BuildPhase.request) {
+            final long requestId = t.nextRequestId.incrementAndGet();
+            t.requestIds.put(request, requestId);
+            return startRequest(t, request.getScmRepositoryId(), requestId, request);
+        }
+        return startPhase(t, phase, request.getScmRepositoryId(), t.requestIds.get(request), true);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Span start(BuildPhase phase, String subject) {
+        if (phase == BuildPhase.batch) {
+            return startBatch();
+        }
+        final Trace t = trace;
+        if (t == null) {
+            return NoOpBuildMetrics.NO_OP_SPAN;
+        }
+        if (phase == BuildPhase.request) {
+            /* there is no BuildRequest to associate other phases with; just a track of its own */
+            return startRequest(t, subject, t.nextRequestId.incrementAndGet(), null);
+        }
+        return startPhase(t, phase, subject, currentRequestId.get(), false);
+    }
+
+    private Span startBatch() {
+        final Trace t;
+        synchronized (this) {
+            if (batchDepth++ == 0) {
+                final String dir = System.getProperty(SRCDEPS_TRACE_DIRECTORY_PROPERTY);
+                trace = dir == null || dir.isEmpty() ? null : new Trace(Paths.get(dir));
+            }
+            t = trace;
+        }
+        final long startNanos = System.nanoTime();
+        final long tid = Thread.currentThread().getId();
+        return new Span() {
+            @Override
+            public void close() {
+                if (t != null) {
+                    t.add(String.format(Locale.ROOT,
+                            "{\"name\":\"batch\",\"cat\":\"srcdeps\",\"ph\":\"X\",\"ts\":%s,\"dur\":%.3f,"
+                                    + "\"pid\":%d,\"tid\":%d,\"args\":{}}",
+                            t.timestamp(startNanos), (System.nanoTime() - startNanos) / 1000.0, PID, tid));
+                }
+                final Trace finished = endBatch();
+                if (finished != null) {
+                    try {
+                        final Path file = finished.write();
+                        log.info("srcdeps: Wrote build trace to [{}]", file);
+                    } catch (IOException e) {
+                        log.warn(String.format("srcdeps: Could not write build trace to [%s]", finished.directory),
+                                e);
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [" + SRCDEPS_TRACE_DIRECTORY_PROPERTY + "="
+                + System.getProperty(SRCDEPS_TRACE_DIRECTORY_PROPERTY) + "]";
+    }
+
+    /**
+     * @param t         the current {@link Trace}
+     * @param phase     the {@link BuildPhase} to time
+     * @param subject   what the phase works on
+     * @param requestId the id of the {@link BuildPhase#request} to nest the phase in or {@code null}
+     * @param bind      if {@code true} {@link #currentRequestId} is set to {@code requestId} until the phase ends
+     * @return a new {@link Span}
+     */
+    private Span startPhase(final Trace t, final BuildPhase phase, final String subject, final Long requestId,
+            final boolean bind) {
+        final long startNanos = System.nanoTime();
+        final long tid = Thread.currentThread().getId();
+        final String args = subject == null ? "{}" : "{\"subject\":\"" + escape(subject) + "\"}";
+        final Long previousRequestId = currentRequestId.get();
+        if (bind) {
+            currentRequestId.set(requestId);
+        }
+        if (requestId != null) {
+            t.add(asyncEvent(t, phase, subject, requestId, "b", startNanos, args));
+        }
+        return new Span() {
+            @Override
+            public void close() {
+                final long endNanos = System.nanoTime();
+                t.add(String.format(Locale.ROOT,
+                        "{\"name\":\"%s\",\"cat\":\"srcdeps\",\"ph\":\"X\",\"ts\":%s,\"dur\":%.3f,"
+                                + "\"pid\":%d,\"tid\":%d,\"args\":%s}",
+                        phase.name(), t.timestamp(startNanos), (endNanos - startNanos) / 1000.0, PID, tid, args));
+                if (requestId != null) {
+                    t.add(asyncEvent(t, phase, subject, requestId, "e", endNanos, args));
+                }
+                if (bind) {
+                    currentRequestId.set(previousRequestId);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param t         the current {@link Trace}
+     * @param subject   the name of the request track
+     * @param requestId the id of the request track
+     * @param request   the {@link BuildRequest} to remove from {@link Trace#requestIds} once the request ends or
+     *                  {@code null}
+     * @return a new {@link Span} that may be closed on any thread
+     */
+    private Span startRequest(final Trace t, final String subject, final long requestId,
+            final BuildRequest request) {
+        final String args = subject == null ? "{}" : "{\"subject\":\"" + escape(subject) + "\"}";
+        t.add(asyncEvent(t, BuildPhase.request, subject, requestId, "b", System.nanoTime(), args));
+        return new Span() {
+            @Override
+            public void close() {
+                if (request != null) {
+                    t.requestIds.remove(request);
+                }
+                t.add(asyncEvent(t, BuildPhase.request, subject, requestId, "e", System.nanoTime(), args));
+            }
+        };
+    }
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.srcdeps.core.BuildRequest;
+
+/**
+ * A {@link BuildMetrics} delegating to several other {@link BuildMetrics}. Use {@link #of(Collection)} to get an
+ * instance.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class CompositeBuildMetrics implements BuildMetrics {
+
+    /**
+     * @param delegates the {@link BuildMetrics} to combine; may be {@code null}
+     * @return {@link NoOpBuildMetrics#INSTANCE} if {@code delegates} is {@code null} or empty, the only element of
+     *         {@code delegates} if there is just one or a new {@link CompositeBuildMetrics} otherwise
+     */
+    public static BuildMetrics of(Collection<? extends BuildMetrics> delegates) {
+        if (delegates == null || delegates.isEmpty()) {
+            return NoOpBuildMetrics.INSTANCE;
+        } else if (delegates.size() == 1) {
+            return delegates.iterator().next();
+        } else {
+            return new CompositeBuildMetrics(new ArrayList<BuildMetrics>(delegates));
+        }
+    }
+
+    /**
+     * @param spans the {@link Span}s to close
+     * @return a {@link Span} closing the given {@code spans} in reverse order
+     */
+    private static Span closeAll(final Span[] spans) {
+        return new Span() {
+            @Override
+            public void close() {
+                for (int i = spans.length - 1; i >= 0; i--) {
+                    spans[i].close();
+                }
+            }
+        };
+    }
+
+    private final BuildMetrics[] delegates;
+
+    private CompositeBuildMetrics(List<BuildMetrics> delegates) {
+        super();
+        this.delegates = delegates.toArray(new BuildMetrics[0]);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void count(BuildCounter counter, String subject, long delta) {
+        for (BuildMetrics delegate : delegates) {
+            delegate.count(counter, subject, delta);
+        }
+    }
+
+    /**
+     * Starts a {@link Span} in each of the {@link #delegates}; the returned {@link Span} closes them in reverse order.
+     *
+     * @param phase   the {@link BuildPhase} to time
+     * @param subject what the phase works on
+     * @return a {@link Span} closing the {@link Span}s of all {@link #delegates}
+     */
+    @Override
+    public Span start(BuildPhase phase, String subject) {
+        final Span[] spans = new Span[delegates.length];
+        for (int i = 0; i < delegates.length; i++) {
+            spans[i] = delegates[i].start(phase, subject);
+        }
+        return closeAll(spans);
+    }
+
+    /**
+     * Starts a {@link Span} in each of the {@link #delegates}; the returned {@link Span} closes them in reverse order.
+     *
+     * @param phase   the {@link BuildPhase} to time
+     * @param request the {@link BuildRequest} the phase works on
+     * @return a {@link Span} closing the {@link Span}s of all {@link #delegates}
+     */
+    @Override
+    public Span start(BuildPhase phase, BuildRequest request) {
+        final Span[] spans = new Span[delegates.length];
+        for (int i = 0; i < delegates.length; i++) {
+            spans[i] = delegates[i].start(phase, request);
+        }
+        return closeAll(spans);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(CompositeBuildMetrics.class.getSimpleName()).append(" [");
+        for (int i = 0; i < delegates.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(delegates[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.srcdeps.core.BuildRequest;
+
+/**
+ * A {@link BuildMetrics} aggregating the durations of each {@link BuildPhase} in a {@link Histogram} and summing up
+ * each {@link BuildCounter}. The memory footprint is constant regardless of the number of builds, hence an instance can
+ * live as long as the process that has created it. The {@code subject}s are ignored.
+ * <p>
+ * This implementation is not bound by the DI container automatically; to use it, bind it as a {@link BuildMetrics}
+ * or pass it directly to the components accepting a {@link BuildMetrics}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class InMemoryBuildMetrics implements BuildMetrics {
+
+    /**
+     * A lock free histogram of durations in nanoseconds with buckets of logarithmically growing width: each power of
+     * two is split into {@value #SUB_BUCKETS} buckets, hence the percentiles reported by
+     * {@link #getPercentileNanos(double)} are accurate to {@code 1/}{@value #SUB_BUCKETS} of the value.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        /**
+         * @param value a non-negative value
+         * @return the index of the bucket the given {@code value} falls into
+         */
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            final int shift = exponent - SUB_BUCKET_BITS;
+            final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+            return (shift + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * @param index the index of a bucket
+         * @return the greatest value falling into the bucket with the given {@code index}
+         */
+        static long bucketUpperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            final int shift = index / SUB_BUCKETS - 1;
+            final long subBucket = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        }
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+
+        /**
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return the greatest recorded value or {@code 0} if nothing was recorded yet
+         */
+        public long getMaxNanos() {
+            return max.get();
+        }
+
+        /**
+         * @return the arithmetic mean of the recorded values or {@code 0} if nothing was recorded yet
+         */
+        public long getMeanNanos() {
+            final long c = count.get();
+            return c == 0 ? 0 : sum.get() / c;
+        }
+
+        /**
+         * @param percentile the percentile to compute, between {@code 0} and {@code 100}
+         * @return an upper estimate of the value at the given {@code percentile} or {@code 0} if nothing was recorded
+         *         yet
+         */
+        public long getPercentileNanos(double percentile) {
+            final long c = count.get();
+            if (c == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * c));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * @return the sum of the recorded values
+         */
+        public long getSumNanos() {
+            return sum.get();
+        }
+
+        /**
+         * @param nanos the value to record; negative values are recorded as {@code 0}
+         */
+        public void record(long nanos) {
+            final long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucketIndex(value));
+            sum.addAndGet(value);
+            long oldMax;
+            while ((oldMax = max.get()) < value && !max.compareAndSet(oldMax, value)) {
+                /* retry */
+            }
+            count.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "count %d, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    getCount(), getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6, getPercentileNanos(99) / 1e6,
+                    getMaxNanos() / 1e6);
+        }
+    }
+
+    private final Map<BuildCounter, AtomicLong> counters;
+    private final Map<BuildPhase, Histogram> histograms;
+
+    public InMemoryBuildMetrics() {
+        super();
+        final Map<BuildCounter, AtomicLong> cs = new EnumMap<>(BuildCounter.class);
+        for (BuildCounter counter : BuildCounter.values()) {
+            cs.put(counter, new AtomicLong());
+        }
+        this.counters = cs;
+        final Map<BuildPhase, Histogram> hs = new EnumMap<>(BuildPhase.class);
+        for (BuildPhase phase : BuildPhase.values()) {
+            hs.put(phase, new Histogram());
+        }
+        this.histograms = hs;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void count(BuildCounter counter, String subject, long delta) {
+        counters.get(counter).addAndGet(delta);
+    }
+
+    /**
+     * @param counter the {@link BuildCounter} to look up
+     * @return the sum of all deltas reported for the given {@code counter}
+     */
+    public long getCount(BuildCounter counter) {
+        return counters.get(counter).get();
+    }
+
+    /**
+     * @param phase the {@link BuildPhase} to look up
+     * @return the {@link Histogram} of the durations of the given {@code phase}
+     */
+    public Histogram getHistogram(BuildPhase phase) {
+        return histograms.get(phase);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Span start(BuildPhase phase, String subject) {
+        final Histogram histogram = histograms.get(phase);
+        final long start = System.nanoTime();
+        return new Span() {
+            @Override
+            public void close() {
+                histogram.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Same as {@link #start(BuildPhase, String)} as the histograms do not distinguish the requests.
+     *
+     * @param phase   the {@link BuildPhase} to time
+     * @param request the {@link BuildRequest} the phase works on
+     * @return a {@link Span} recording the duration of the phase once closed
+     */
+    @Override
+    public Span start(BuildPhase phase, BuildRequest request) {
+        return start(phase, request.getScmRepositoryId());
+    }
+
+    /**
+     * @return a multi-line summary of all non-empty {@link Histogram}s and non-zero counters
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(InMemoryBuildMetrics.class.getSimpleName());
+        for (Map.Entry<BuildPhase, Histogram> en : histograms.entrySet()) {
+            if (en.getValue().getCount() > 0) {
+                sb.append("\n    ").append(en.getKey()).append(": ").append(en.getValue());
+            }
+        }
+        for (Map.Entry<BuildCounter, AtomicLong> en : counters.entrySet()) {
+            if (en.getValue().get() != 0) {
+                sb.append("\n    ").append(en.getKey()).append(": ").append(en.getValue().get());
+            }
+        }
+        return sb.toString();
+    }
+
+}
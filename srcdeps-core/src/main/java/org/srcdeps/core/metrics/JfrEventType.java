@@ -0,0 +1,306 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Java Flight Recorder event type defined at runtime through {@code jdk.jfr.EventFactory}. srcdeps-core is
+ * compiled for Java 8, where the {@code jdk.jfr} API is not available on all JDKs. Therefore the API is accessed
+ * reflectively, and every {@link JfrEventType} silently turns into a no-op if JFR is not available.
+ * <p>
+ * Creating an {@link Event} is cheap while no JFR recording that enables the given type is running:
+ * {@link #begin()} returns {@link Event#NO_OP} in that case.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class JfrEventType {
+
+    /**
+     * A single instance of a {@link JfrEventType}. Its duration spans from {@link JfrEventType#begin()} until
+     * {@link #commit()}.
+     */
+    public static class Event {
+        /** An {@link Event} that ignores everything */
+        public static final Event NO_OP = new Event(null, null);
+
+        private final Object event;
+        private final JfrEventType type;
+
+        Event(JfrEventType type, Object event) {
+            super();
+            this.type = type;
+            this.event = event;
+        }
+
+        /**
+         * Ends this {@link Event} and writes it to the running recordings unless it is below their thresholds.
+         * Calling this method more than once has no effect.
+         */
+        public void commit() {
+            if (event != null) {
+                try {
+                    Jfr.end.invoke(event);
+                    if ((Boolean) Jfr.shouldCommit.invoke(event)) {
+                        Jfr.commit.invoke(event);
+                    }
+                } catch (Exception e) {
+                    log.debug(String.format("srcdeps: Could not commit JFR event [%s]", type.name), e);
+                }
+            }
+        }
+
+        /**
+         * @param field the name of a field passed to {@link JfrEventType#create(String, String, String, Field...)}
+         * @param value the value to set; must be of the type of the {@code field}
+         * @return this {@link Event}
+         */
+        public Event set(String field, Object value) {
+            if (event != null) {
+                try {
+                    Jfr.set.invoke(event, type.indexOf(field), value);
+                } catch (Exception e) {
+                    log.debug(String.format("srcdeps: Could not set field [%s] of JFR event [%s]", field, type.name),
+                            e);
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * A field of a {@link JfrEventType}.
+     */
+    public static class Field {
+        private final String label;
+        private final String name;
+        private final Class<?> type;
+
+        /**
+         * @param type  the type of the field; one of the primitive types, {@link String}, {@link Thread} or
+         *              {@link Class}
+         * @param name  the name of the field
+         * @param label the human readable name of the field
+         */
+        public Field(Class<?> type, String name, String label) {
+            super();
+            this.type = type;
+            this.name = name;
+            this.label = label;
+        }
+    }
+
+    /**
+     * The reflectively looked up {@code jdk.jfr} API or {@code null}s if it is not available.
+     */
+    static class Jfr {
+        static final Constructor<?> annotationElementConstructor;
+        static final Method begin;
+        static final Class<?> categoryClass;
+        static final Method commit;
+        static final Method create;
+        static final Class<?> descriptionClass;
+        static final Method end;
+        static final Method getEventType;
+        static final Method isEnabled;
+        static final Class<?> labelClass;
+        static final Class<?> nameClass;
+        static final Method newEvent;
+        static final Method set;
+        static final Method shouldCommit;
+        static final Constructor<?> valueDescriptorConstructor;
+
+        static {
+            Constructor<?> annotationElementCtor = null;
+            Method beginMethod = null;
+            Class<?> category = null;
+            Method commitMethod = null;
+            Method createMethod = null;
+            Class<?> description = null;
+            Method endMethod = null;
+            Method getEventTypeMethod = null;
+            Method isEnabledMethod = null;
+            Class<?> label = null;
+            Class<?> name = null;
+            Method newEventMethod = null;
+            Method setMethod = null;
+            Method shouldCommitMethod = null;
+            Constructor<?> valueDescriptorCtor = null;
+            try {
+                final ClassLoader cl = ClassLoader.getSystemClassLoader();
+                final Class<?> eventClass = Class.forName("jdk.jfr.Event", false, cl);
+                final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory", false, cl);
+                final Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", false, cl);
+                final Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor", false, cl);
+                category = Class.forName("jdk.jfr.Category", false, cl);
+                description = Class.forName("jdk.jfr.Description", false, cl);
+                label = Class.forName("jdk.jfr.Label", false, cl);
+                name = Class.forName("jdk.jfr.Name", false, cl);
+                annotationElementCtor = annotationElementClass.getConstructor(Class.class, Object.class);
+                valueDescriptorCtor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+                createMethod = eventFactoryClass.getMethod("create", List.class, List.class);
+                newEventMethod = eventFactoryClass.getMethod("newEvent");
+                getEventTypeMethod = eventFactoryClass.getMethod("getEventType");
+                isEnabledMethod = Class.forName("jdk.jfr.EventType", false, cl).getMethod("isEnabled");
+                beginMethod = eventClass.getMethod("begin");
+                endMethod = eventClass.getMethod("end");
+                commitMethod = eventClass.getMethod("commit");
+                shouldCommitMethod = eventClass.getMethod("shouldCommit");
+                setMethod = eventClass.getMethod("set", int.class, Object.class);
+            } catch (Exception | LinkageError e) {
+                log.debug("srcdeps: JFR events will not be emitted: the jdk.jfr API is not available", e);
+                createMethod = null;
+            }
+            annotationElementConstructor = annotationElementCtor;
+            begin = beginMethod;
+            categoryClass = category;
+            commit = commitMethod;
+            create = createMethod;
+            descriptionClass = description;
+            end = endMethod;
+            getEventType = getEventTypeMethod;
+            isEnabled = isEnabledMethod;
+            labelClass = label;
+            nameClass = name;
+            newEvent = newEventMethod;
+            set = setMethod;
+            shouldCommit = shouldCommitMethod;
+            valueDescriptorConstructor = valueDescriptorCtor;
+        }
+
+        static Object annotation(Class<?> type, Object value) throws ReflectiveOperationException {
+            return annotationElementConstructor.newInstance(type, value);
+        }
+    }
+
+    /** The JFR category under which all srcdeps events appear */
+    private static final String[] CATEGORY = new String[] { "srcdeps" };
+
+    private static final Logger log = LoggerFactory.getLogger(JfrEventType.class);
+
+    /**
+     * @param name        the name of the event type, such as {@code srcdeps.Fetch}
+     * @param label       the human readable name of the event type
+     * @param description the description of the event type
+     * @param fields      the fields of the event type
+     * @return a new {@link JfrEventType} that is a no-op if JFR is not available
+     */
+    public static JfrEventType create(String name, String label, String description, Field... fields) {
+        Object factory = null;
+        Object eventType = null;
+        if (isAvailable()) {
+            try {
+                final List<Object> annotations = Arrays.asList( //
+                        Jfr.annotation(Jfr.nameClass, name), //
+                        Jfr.annotation(Jfr.labelClass, label), //
+                        Jfr.annotation(Jfr.descriptionClass, description), //
+                        Jfr.annotation(Jfr.categoryClass, CATEGORY) //
+                );
+                final List<Object> valueDescriptors = new ArrayList<>(fields.length);
+                for (Field field : fields) {
+                    final List<Object> fieldAnnotations = Collections
+                            .singletonList(Jfr.annotation(Jfr.labelClass, field.label));
+                    valueDescriptors.add(
+                            Jfr.valueDescriptorConstructor.newInstance(field.type, field.name, fieldAnnotations));
+                }
+                factory = Jfr.create.invoke(null, annotations, valueDescriptors);
+                eventType = Jfr.getEventType.invoke(factory);
+            } catch (Exception e) {
+                log.debug(String.format("srcdeps: Could not create JFR event type [%s]", name), e);
+                factory = null;
+                eventType = null;
+            }
+        }
+        final String[] fieldNames = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldNames[i] = fields[i].name;
+        }
+        return new JfrEventType(name, fieldNames, factory, eventType);
+    }
+
+    /**
+     * @return {@code true} if the {@code jdk.jfr} API is available in the current JVM; {@code false} otherwise
+     */
+    public static boolean isAvailable() {
+        return Jfr.create != null;
+    }
+
+    private final Object eventType;
+    private final Object factory;
+    private final String[] fieldNames;
+    private final String name;
+
+    JfrEventType(String name, String[] fieldNames, Object factory, Object eventType) {
+        super();
+        this.name = name;
+        this.fieldNames = fieldNames;
+        this.factory = factory;
+        this.eventType = eventType;
+    }
+
+    /**
+     * Begins a new {@link Event} of this type. The {@link Event} must be passed to {@link Event#commit()} eventually.
+     *
+     * @return a new {@link Event} or {@link Event#NO_OP} if JFR is not available or if this type is not enabled in
+     *         any running recording
+     */
+    public Event begin() {
+        if (factory != null) {
+            try {
+                if ((Boolean) Jfr.isEnabled.invoke(eventType)) {
+                    final Object event = Jfr.newEvent.invoke(factory);
+                    Jfr.begin.invoke(event);
+                    return new Event(this, event);
+                }
+            } catch (Exception e) {
+                log.debug(String.format("srcdeps: Could not begin JFR event [%s]", name), e);
+            }
+        }
+        return Event.NO_OP;
+    }
+
+    /**
+     * @return the name of this event type, such as {@code srcdeps.Fetch}
+     */
+    public String getName() {
+        return name;
+    }
+
+    int indexOf(String field) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(field)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("No such field [%s] in JFR event type [%s]", field, name));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import org.srcdeps.core.BuildRequest;
+
+/**
+ * A {@link BuildMetrics} that ignores everything. Used when no other {@link BuildMetrics} is available.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class NoOpBuildMetrics implements BuildMetrics {
+
+    public static final NoOpBuildMetrics INSTANCE = new NoOpBuildMetrics();
+
+    static final Span NO_OP_SPAN = new Span() {
+        @Override
+        public void close() {
+        }
+    };
+
+    private NoOpBuildMetrics() {
+        super();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void count(BuildCounter counter, String subject, long delta) {
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Span start(BuildPhase phase, String subject) {
+        return NO_OP_SPAN;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Span start(BuildPhase phase, BuildRequest request) {
+        return NO_OP_SPAN;
+    }
+
+    @Override
+    public String toString() {
+        return NoOpBuildMetrics.class.getSimpleName();
+    }
+
+}
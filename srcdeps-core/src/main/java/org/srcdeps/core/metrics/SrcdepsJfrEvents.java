@@ -0,0 +1,90 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import org.srcdeps.core.metrics.JfrEventType.Field;
+
+/**
+ * The Java Flight Recorder event types emitted by srcdeps-core. All of them are listed in the {@code srcdeps}
+ * category of JDK Mission Control. None of them is emitted unless a JFR recording is running, e.g. one started with
+ * {@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start}.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public final class SrcdepsJfrEvents {
+
+    public static final JfrEventType ARTIFACT_WALK = JfrEventType.create("srcdeps.ArtifactWalk", "Artifact Walk",
+            "A walk through the local Maven repository looking up the artifacts of a source dependency", //
+            new Field(String.class, "localMavenRepository", "Local Maven Repository"), //
+            new Field(String.class, "version", "Version"), //
+            new Field(int.class, "visitedFiles", "Visited Files"), //
+            new Field(int.class, "artifacts", "Artifacts") //
+    );
+
+    public static final JfrEventType FETCH = JfrEventType.create("srcdeps.Fetch", "Fetch",
+            "A git fetch of a source dependency", //
+            new Field(String.class, "scmRepositoryId", "SCM Repository"), //
+            new Field(String.class, "url", "URL"), //
+            new Field(long.class, "fetchedObjects", "Fetched Objects"), //
+            new Field(long.class, "fetchedBytes", "Fetched Bytes") //
+    );
+
+    public static final JfrEventType METADATA_READ = JfrEventType.create("srcdeps.MetadataRead", "Metadata Read",
+            "A read from the build metadata store", //
+            new Field(String.class, "buildRequestIdHash", "Build Request Hash"), //
+            new Field(String.class, "key", "Key"), //
+            new Field(boolean.class, "found", "Found") //
+    );
+
+    public static final JfrEventType METADATA_WRITE = JfrEventType.create("srcdeps.MetadataWrite", "Metadata Write",
+            "A write to the build metadata store", //
+            new Field(String.class, "buildRequestIdHash", "Build Request Hash"), //
+            new Field(String.class, "key", "Key") //
+    );
+
+    public static final JfrEventType PATH_LOCK = JfrEventType.create("srcdeps.PathLock", "Path Lock",
+            "A path held locked from its acquisition until its release", //
+            new Field(String.class, "path", "Path") //
+    );
+
+    public static final JfrEventType PATH_LOCK_ACQUIRE = JfrEventType.create("srcdeps.PathLockAcquire",
+            "Path Lock Acquire", "An attempt to lock a path, including the time spent waiting for other threads", //
+            new Field(String.class, "path", "Path"), //
+            new Field(boolean.class, "acquired", "Acquired") //
+    );
+
+    public static final JfrEventType PROCESS = JfrEventType.create("srcdeps.Process", "Process",
+            "A child process from its start until its exit", //
+            new Field(String.class, "command", "Command"), //
+            new Field(String.class, "workingDirectory", "Working Directory"), //
+            new Field(int.class, "exitCode", "Exit Code"), //
+            new Field(boolean.class, "timedOut", "Timed Out") //
+    );
+
+    public static final JfrEventType RESET = JfrEventType.create("srcdeps.Reset", "Reset",
+            "A reset of the working tree of a source dependency to the fetched revision", //
+            new Field(String.class, "scmRepositoryId", "SCM Repository"), //
+            new Field(String.class, "startPoint", "Start Point"), //
+            new Field(boolean.class, "sparse", "Sparse") //
+    );
+
+    private SrcdepsJfrEvents() {
+        super();
+    }
+
+}
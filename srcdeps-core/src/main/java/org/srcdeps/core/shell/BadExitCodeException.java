@@ -28,10 +28,24 @@ import org.srcdeps.core.BuildException;
 public class BadExitCodeException extends BuildException {
     private static final long serialVersionUID = 5437686562879042682L;
     private final int exitCode;
+    private final String outputTail;
 
     public BadExitCodeException(String[] cmdArray, int exitCode) {
-        super(String.format("Command returned exit code [%d]: %s", exitCode, Arrays.toString(cmdArray)));
+        this(cmdArray, exitCode, null);
+    }
+
+    /**
+     * @param cmdArray   the command that failed
+     * @param exitCode   the exit code of the command
+     * @param outputTail the last part of the output of the command or {@code null} if the output was not captured;
+     *                   it is appended to the message of this exception
+     * @since 4.0.4
+     */
+    public BadExitCodeException(String[] cmdArray, int exitCode, String outputTail) {
+        super(String.format("Command returned exit code [%d]: %s", exitCode, Arrays.toString(cmdArray))
+                + (outputTail == null ? "" : String.format("%nThe tail of the output:%n%s", outputTail)));
         this.exitCode = exitCode;
+        this.outputTail = outputTail;
     }
 
     /**
@@ -41,4 +55,13 @@ public class BadExitCodeException extends BuildException {
         return exitCode;
     }
 
+    /**
+     * @return the last part of the output of the command or {@code null} if the output was not captured, see
+     *         {@link IoRedirects#getCapture()}
+     * @since 4.0.4
+     */
+    public String getOutputTail() {
+        return outputTail;
+    }
+
 }
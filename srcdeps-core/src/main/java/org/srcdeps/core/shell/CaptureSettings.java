@@ -0,0 +1,189 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.shell;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings of an {@link OutputCapture}: how much of the output of a child process should be kept in memory and
+ * whether and how the output should be stored in a file.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class CaptureSettings {
+
+    public static class Builder {
+        private Path file;
+        private int maxFiles = DEFAULT_MAX_FILES;
+        private long rotateBytes = DEFAULT_ROTATE_BYTES;
+        private int tailBytes = DEFAULT_TAIL_BYTES;
+
+        public CaptureSettings build() {
+            return new CaptureSettings(tailBytes, file, rotateBytes, maxFiles);
+        }
+
+        /**
+         * @param file the file to store the compressed output to or {@code null} to keep just the tail in memory
+         * @return this {@link Builder}
+         */
+        public Builder file(Path file) {
+            this.file = file;
+            return this;
+        }
+
+        /**
+         * @param maxFiles how many rotated files to keep in addition to the current one
+         * @return this {@link Builder}
+         */
+        public Builder maxFiles(int maxFiles) {
+            this.maxFiles = maxFiles;
+            return this;
+        }
+
+        /**
+         * @param rotateBytes the number of uncompressed bytes after which the current file is rotated
+         * @return this {@link Builder}
+         */
+        public Builder rotateBytes(long rotateBytes) {
+            this.rotateBytes = rotateBytes;
+            return this;
+        }
+
+        /**
+         * @param tailBytes the size of the in-memory ring buffer keeping the tail of the output
+         * @return this {@link Builder}
+         */
+        public Builder tailBytes(int tailBytes) {
+            this.tailBytes = tailBytes;
+            return this;
+        }
+    }
+
+    static final int DEFAULT_MAX_FILES = 5;
+    static final long DEFAULT_ROTATE_BYTES = 10 * 1024 * 1024;
+    static final int DEFAULT_TAIL_BYTES = 64 * 1024;
+    private static final CaptureSettings DEFAULT = new Builder().build();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the {@link CaptureSettings} keeping the last 64 KiB of the output in memory and not storing it in any
+     *         file
+     */
+    public static CaptureSettings defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param path a path to the file to store the output to or {@code null}
+     * @return new {@link CaptureSettings} with the default sizes and the given file
+     */
+    public static CaptureSettings of(String path) {
+        return path == null ? DEFAULT : new Builder().file(Paths.get(path)).build();
+    }
+
+    private final Path file;
+    private final int maxFiles;
+    private final long rotateBytes;
+    private final int tailBytes;
+
+    CaptureSettings(int tailBytes, Path file, long rotateBytes, int maxFiles) {
+        super();
+        if (tailBytes <= 0) {
+            throw new IllegalArgumentException(String.format("tailBytes must be positive; found [%d]", tailBytes));
+        }
+        if (rotateBytes <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("rotateBytes must be positive; found [%d]", rotateBytes));
+        }
+        if (maxFiles < 0) {
+            throw new IllegalArgumentException(String.format("maxFiles must not be negative; found [%d]", maxFiles));
+        }
+        this.tailBytes = tailBytes;
+        this.file = file;
+        this.rotateBytes = rotateBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        CaptureSettings other = (CaptureSettings) obj;
+        if (file == null) {
+            if (other.file != null)
+                return false;
+        } else if (!file.equals(other.file))
+            return false;
+        return maxFiles == other.maxFiles && rotateBytes == other.rotateBytes && tailBytes == other.tailBytes;
+    }
+
+    /**
+     * @return the file to store the compressed output to or {@code null} if the output should be kept just in memory.
+     *         A {@code .gz} suffix is appended if the path does not end with it already.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return how many rotated files to keep in addition to the current one
+     */
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    /**
+     * @return the number of uncompressed bytes after which the current file is rotated
+     */
+    public long getRotateBytes() {
+        return rotateBytes;
+    }
+
+    /**
+     * @return the size of the in-memory ring buffer keeping the tail of the output
+     */
+    public int getTailBytes() {
+        return tailBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((file == null) ? 0 : file.hashCode());
+        result = prime * result + maxFiles;
+        result = prime * result + (int) (rotateBytes ^ (rotateBytes >>> 32));
+        result = prime * result + tailBytes;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureSettings [tailBytes=" + tailBytes + ", file=" + file + ", rotateBytes=" + rotateBytes
+                + ", maxFiles=" + maxFiles + "]";
+    }
+
+}
@@ -27,6 +27,8 @@ import org.srcdeps.core.util.SrcdepsCoreUtils;
  * <p>
  * Note that {@link #stderr} can be {@code null} and that a {@code null} {@link #stderr} means that stdErr should be
  * merged with stdOut.
+ * <p>
+ * stdOut and stdErr set to {@link Redirect#PIPE} are captured by {@link Shell} according to {@link #getCapture()}.
  *
  * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
  */
@@ -34,12 +36,23 @@ public class IoRedirects {
 
     public static class Builder {
 
+        private CaptureSettings capture;
         private Redirect stderr = Redirect.INHERIT;
         private Redirect stdin = Redirect.INHERIT;
         private Redirect stdout = Redirect.INHERIT;
 
         public IoRedirects build() {
-            return new IoRedirects(stdin, stdout, stderr);
+            return new IoRedirects(stdin, stdout, stderr, capture);
+        }
+
+        /**
+         * @param capture how to capture the streams set to {@link Redirect#PIPE}
+         * @return this {@link Builder}
+         * @since 4.0.4
+         */
+        public Builder capture(CaptureSettings capture) {
+            this.capture = capture;
+            return this;
         }
 
         public Builder stderr(Redirect stderr) {
@@ -64,7 +77,7 @@ public class IoRedirects {
      *
      */
     public enum RedirectScheme {
-        append, err2out, inherit, read, write
+        append, capture, err2out, inherit, read, write
     }
 
     private static final IoRedirects INHERIT_ALL = new IoRedirects(Redirect.INHERIT, Redirect.INHERIT,
@@ -81,10 +94,57 @@ public class IoRedirects {
         return INHERIT_ALL;
     }
 
+    /**
+     * Parses the given URIs into a new {@link IoRedirects}. Unlike {@link #parseUri(String)}, this method keeps the
+     * file path of a {@code capture:/path/to/build.log} URI in {@link #getCapture()}. If both {@code stdout} and
+     * {@code stderr} are captured, they share a single {@link OutputCapture} whose file is taken from {@code stdout},
+     * or from {@code stderr} if {@code stdout} has none.
+     *
+     * @param stdin  the URI for stdIn
+     * @param stdout the URI for stdOut
+     * @param stderr the URI for stdErr
+     * @return a new {@link IoRedirects}
+     * @throws IllegalArgumentException if any of the URIs is not in proper format or if {@code stdin} is a
+     *                                  {@code capture} URI
+     * @since 4.0.4
+     */
+    public static IoRedirects parse(String stdin, String stdout, String stderr) {
+        if (parseCaptureSettings(stdin) != null) {
+            throw new IllegalArgumentException(String.format("[capture] is not applicable to stdin: [%s]", stdin));
+        }
+        final CaptureSettings outCapture = parseCaptureSettings(stdout);
+        final CaptureSettings errCapture = parseCaptureSettings(stderr);
+        final CaptureSettings capture = outCapture != null && (outCapture.getFile() != null || errCapture == null)
+                ? outCapture
+                : errCapture;
+        return new IoRedirects(parseUri(stdin), parseUri(stdout), parseUri(stderr), capture);
+    }
+
+    /**
+     * @param uri the URI to parse
+     * @return new {@link CaptureSettings} if the given {@code uri} starts with {@link RedirectScheme#capture};
+     *         {@code null} otherwise
+     * @since 4.0.4
+     */
+    public static CaptureSettings parseCaptureSettings(String uri) {
+        SrcdepsCoreUtils.assertArgNotNull(uri, "uri");
+        final String prefix = RedirectScheme.capture.name();
+        if (uri.length() >= prefix.length() && uri.substring(0, prefix.length()).equalsIgnoreCase(prefix)) {
+            if (uri.length() == prefix.length()) {
+                return CaptureSettings.defaults();
+            } else if (uri.charAt(prefix.length()) == ':') {
+                return CaptureSettings.of(uri.substring(prefix.length() + 1));
+            }
+        }
+        return null;
+    }
+
     /**
      * Parses the given URI into a new {@link Redirect}. The URI is supposed to start with one of {@link RedirectScheme}
      * prefixes. Examples of valid valid URIs: {@code read:/path/to/input-file.txt}, {@code write:/path/to/log.txt},
-     * {@code append:/path/to/log.txt}, {@code inherit} {@code err2out}.
+     * {@code append:/path/to/log.txt}, {@code inherit} {@code err2out}, {@code capture},
+     * {@code capture:/path/to/build.log}. The {@code capture} URIs are parsed to {@link Redirect#PIPE}; use
+     * {@link #parse(String, String, String)} to keep their file path.
      *
      * @param uri the URI to parse
      * @return a new {@link Redirect}
@@ -125,6 +185,8 @@ public class IoRedirects {
             return Redirect.to(new File(path));
         case append:
             return Redirect.appendTo(new File(path));
+        case capture:
+            return Redirect.PIPE;
         case inherit:
             if (path != null) {
                 throw new IllegalArgumentException(
@@ -133,11 +195,17 @@ public class IoRedirects {
             return Redirect.INHERIT;
         default:
             throw new IllegalStateException(String.format(
-                    "Unexpected redirect type [%s] in redirect URI [%s] only [read], [write], [append], [inherit] are supported. In addition, you can use [err2out] for the error stream",
+                    "Unexpected redirect type [%s] in redirect URI [%s] only [read], [write], [append], [inherit], [capture] are supported. In addition, you can use [err2out] for the error stream",
                     redirectScheme, uri));
         }
     }
 
+    private static boolean isPipe(Redirect redirect) {
+        return redirect != null && redirect.type() == Redirect.Type.PIPE;
+    }
+
+    private final CaptureSettings capture;
+
     private final Redirect stderr;
 
     private final Redirect stdin;
@@ -145,6 +213,20 @@ public class IoRedirects {
     private final Redirect stdout;
 
     public IoRedirects(Redirect in, Redirect out, Redirect err) {
+        this(in, out, err, null);
+    }
+
+    /**
+     * @param in      the {@link Redirect} for stdIn
+     * @param out     the {@link Redirect} for stdOut
+     * @param err     the {@link Redirect} for stdErr or {@code null} to merge stdErr with stdOut
+     * @param capture how to capture the streams set to {@link Redirect#PIPE}; if {@code null} and there is any such
+     *                stream, {@link CaptureSettings#defaults()} are used
+     * @throws IllegalArgumentException if {@code capture} is set but neither {@code out} nor {@code err} is
+     *                                  {@link Redirect#PIPE}
+     * @since 4.0.4
+     */
+    public IoRedirects(Redirect in, Redirect out, Redirect err, CaptureSettings capture) {
         super();
         SrcdepsCoreUtils.assertArgNotNull(in, "in");
         SrcdepsCoreUtils.assertArgNotNull(out, "out");
@@ -152,6 +234,12 @@ public class IoRedirects {
         this.stdin = in;
         this.stdout = out;
         this.stderr = err;
+        final boolean anyPipe = isPipe(out) || isPipe(err);
+        if (capture != null && !anyPipe) {
+            throw new IllegalArgumentException(
+                    String.format("%s set but neither stdout nor stderr is %s", capture, Redirect.PIPE));
+        }
+        this.capture = anyPipe && capture == null ? CaptureSettings.defaults() : capture;
     }
 
     @Override
@@ -163,6 +251,11 @@ public class IoRedirects {
         if (getClass() != obj.getClass())
             return false;
         IoRedirects other = (IoRedirects) obj;
+        if (capture == null) {
+            if (other.capture != null)
+                return false;
+        } else if (!capture.equals(other.capture))
+            return false;
         if (stderr == null) {
             if (other.stderr != null)
                 return false;
@@ -181,6 +274,15 @@ public class IoRedirects {
         return true;
     }
 
+    /**
+     * @return the {@link CaptureSettings} for the streams set to {@link Redirect#PIPE} or {@code null} if there is no
+     *         such stream
+     * @since 4.0.4
+     */
+    public CaptureSettings getCapture() {
+        return capture;
+    }
+
     /**
      * @return the {@link Redirect} to use for stdErr. Check {@link #isErr2Out()} before calling this method.
      * @throws IllegalStateException if {@link #isErr2Out()} returns {@code true}.
@@ -213,6 +315,7 @@ public class IoRedirects {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
+        result = prime * result + ((capture == null) ? 0 : capture.hashCode());
         result = prime * result + ((stderr == null) ? 0 : stderr.hashCode());
         result = prime * result + ((stdin == null) ? 0 : stdin.hashCode());
         result = prime * result + ((stdout == null) ? 0 : stdout.hashCode());
@@ -229,7 +332,8 @@ public class IoRedirects {
 
     @Override
     public String toString() {
-        return "IoRedirects [stderr=" + stderr + ", stdin=" + stdin + ", stdout=" + stdout + "]";
+        return "IoRedirects [stderr=" + stderr + ", stdin=" + stdin + ", stdout=" + stdout
+                + (capture == null ? "" : ", capture=" + capture) + "]";
     }
 
 }
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.shell;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sink for the output of a child process configured by {@link CaptureSettings}: the last
+ * {@link CaptureSettings#getTailBytes()} bytes are kept in an in-memory ring buffer and, if
+ * {@link CaptureSettings#getFile()} is set, the whole output is stored in a rotated gzip file. The output is written
+ * either by {@link OutputPump} or via {@link #asOutputStream()}.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class OutputCapture implements Closeable {
+
+    /**
+     * A fixed size byte buffer keeping the most recently written bytes.
+     */
+    static class RingBuffer {
+        private final byte[] buffer;
+        private int position;
+        private long total;
+
+        RingBuffer(int capacity) {
+            super();
+            this.buffer = new byte[capacity];
+        }
+
+        /**
+         * @return the number of bytes written since the creation of this {@link RingBuffer}
+         */
+        long getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the retained bytes in the order they were written
+         */
+        byte[] toByteArray() {
+            if (total < buffer.length) {
+                final byte[] result = new byte[position];
+                System.arraycopy(buffer, 0, result, 0, position);
+                return result;
+            }
+            final byte[] result = new byte[buffer.length];
+            final int headLength = buffer.length - position;
+            System.arraycopy(buffer, position, result, 0, headLength);
+            System.arraycopy(buffer, 0, result, headLength, position);
+            return result;
+        }
+
+        void write(byte[] b, int off, int len) {
+            total += len;
+            if (len >= buffer.length) {
+                System.arraycopy(b, off + len - buffer.length, buffer, 0, buffer.length);
+                position = 0;
+                return;
+            }
+            final int firstLength = Math.min(len, buffer.length - position);
+            System.arraycopy(b, off, buffer, position, firstLength);
+            System.arraycopy(b, off + firstLength, buffer, 0, len - firstLength);
+            position = (position + len) % buffer.length;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(OutputCapture.class);
+
+    private boolean closed;
+    private RotatingGzipOutputStream file;
+    private final RingBuffer ring;
+    private final CaptureSettings settings;
+
+    /**
+     * @param settings the {@link CaptureSettings} to follow
+     * @throws IOException if {@link CaptureSettings#getFile()} cannot be created
+     */
+    public OutputCapture(CaptureSettings settings) throws IOException {
+        super();
+        this.settings = settings;
+        this.ring = new RingBuffer(settings.getTailBytes());
+        this.file = settings.getFile() == null ? null
+                : new RotatingGzipOutputStream(settings.getFile(), settings.getRotateBytes(), settings.getMaxFiles());
+    }
+
+    /**
+     * @return an {@link OutputStream} writing to this {@link OutputCapture}; closing the stream does not close this
+     *         {@link OutputCapture}
+     */
+    public OutputStream asOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                OutputCapture.this.write(b, off, len);
+            }
+
+            @Override
+            public void write(int b) {
+                OutputCapture.this.write(new byte[] { (byte) b }, 0, 1);
+            }
+        };
+    }
+
+    /**
+     * Flushes and closes the file, if any. The tail stays available via {@link #getTail()}.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closeFile();
+    }
+
+    private void closeFile() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.warn(String.format("srcdeps: Could not close [%s]", file.getFile()), e);
+            }
+            file = null;
+        }
+    }
+
+    /**
+     * Sync flushes the file, if any, so that all output written so far can be read from it. Problems with flushing
+     * are handled in the same way as in {@link #write(byte[], int, int)}.
+     */
+    public synchronized void flush() {
+        if (file != null) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                log.warn(String.format("srcdeps: Could not flush [%s]; keeping just the tail of the output",
+                        file.getFile()), e);
+                closeFile();
+            }
+        }
+    }
+
+    /**
+     * @return the {@link CaptureSettings} this {@link OutputCapture} follows
+     */
+    public CaptureSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return the last {@link CaptureSettings#getTailBytes()} bytes of the output decoded as UTF-8; if the output was
+     *         longer, the first incomplete line is left out
+     */
+    public synchronized String getTail() {
+        final byte[] bytes = ring.toByteArray();
+        int start = 0;
+        if (ring.getTotal() > bytes.length) {
+            while (start < bytes.length && bytes[start] != '\n') {
+                start++;
+            }
+            start = Math.min(start + 1, bytes.length);
+        }
+        return new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public synchronized long getTotalBytes() {
+        return ring.getTotal();
+    }
+
+    /**
+     * @return {@code true} if {@link #close()} was called; {@code false} otherwise
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stores the given bytes. Problems with writing to the file are logged and the file is abandoned; the in-memory
+     * tail is kept in any case. Writes after {@link #close()} are ignored.
+     *
+     * @param b   the data
+     * @param off the start offset in {@code b}
+     * @param len the number of bytes to write
+     */
+    public synchronized void write(byte[] b, int off, int len) {
+        if (closed) {
+            return;
+        }
+        ring.write(b, off, len);
+        if (file != null) {
+            try {
+                file.write(b, off, len);
+            } catch (IOException e) {
+                log.warn(String.format("srcdeps: Could not write to [%s]; keeping just the tail of the output",
+                        file.getFile()), e);
+                closeFile();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copies the output of any number of child processes to their {@link OutputCapture}s using a single daemon thread,
+ * so that capturing the output of many concurrent builds does not cost a thread per stream.
+ * <p>
+ * The streams returned by {@link Process#getInputStream()} and {@link Process#getErrorStream()} are not selectable,
+ * hence the pump polls them: it reads whatever {@link InputStream#available()} reports and parks for a short while
+ * when none of the streams had any data. A stream is considered finished once its process has exited and there is
+ * nothing left to read. {@link #wakeUp()} lets the pump notice the end of a process without waiting for the current
+ * park to elapse.
+ * <p>
+ * At most {@link #MAX_PUMPED_STREAMS} streams are polled at once so that a single pass over them stays short; any
+ * further stream is copied by a blocking reader thread of its own.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+public class OutputPump {
+
+    /**
+     * A stream registered via {@link OutputPump#register(Process, InputStream, OutputCapture)}.
+     */
+    public static class Registration {
+        private final OutputCapture capture;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final InputStream in;
+        private final Process process;
+        /** {@code true} if some data was written to {@link #capture} since the last {@link OutputCapture#flush()} */
+        private boolean unflushed;
+
+        Registration(Process process, InputStream in, OutputCapture capture) {
+            super();
+            this.process = process;
+            this.in = in;
+            this.capture = capture;
+        }
+
+        /**
+         * Waits until the whole output of the stream was copied to the {@link OutputCapture}.
+         *
+         * @param timeout the maximum time to wait
+         * @param unit    the unit of {@code timeout}
+         * @return {@code true} if the stream was finished; {@code false} if the timeout elapsed before
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return finished.await(timeout, unit);
+        }
+
+        /**
+         * Copies the stream to the {@link OutputCapture} using blocking reads until the end of the stream is reached
+         * or until the {@link OutputCapture} is closed.
+         *
+         * @param buffer the buffer to use
+         */
+        void drain(byte[] buffer) {
+            try {
+                int len;
+                while (!capture.isClosed() && (len = in.read(buffer)) >= 0) {
+                    capture.write(buffer, 0, len);
+                }
+            } catch (IOException e) {
+                /* typically the stream was closed because the process was destroyed */
+                log.debug("srcdeps: Could not read a process stream", e);
+            } finally {
+                finish();
+            }
+        }
+
+        void finish() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.debug("srcdeps: Could not close a process stream", e);
+            }
+            finished.countDown();
+        }
+
+        /**
+         * @return {@code true} if the stream was finished; {@code false} otherwise
+         */
+        public boolean isFinished() {
+            return finished.getCount() == 0;
+        }
+
+        /**
+         * Reads the data available in the stream.
+         *
+         * @param buffer the buffer to use
+         * @return {@code true} if any data was read; {@code false} otherwise
+         */
+        boolean pump(byte[] buffer) {
+            if (capture.isClosed()) {
+                /* the owner is not interested anymore, e.g. after a timeout */
+                finish();
+                return false;
+            }
+            try {
+                int available = in.available();
+                if (available == 0) {
+                    if (process.isAlive()) {
+                        if (unflushed) {
+                            /* the process went quiet: make its output so far readable from the file */
+                            capture.flush();
+                            unflushed = false;
+                        }
+                        return false;
+                    }
+                    /* check again: the process might have written something just before exiting */
+                    available = in.available();
+                    if (available == 0) {
+                        finish();
+                        return false;
+                    }
+                }
+                final int len = in.read(buffer, 0, Math.min(available, buffer.length));
+                if (len < 0) {
+                    finish();
+                    return false;
+                }
+                capture.write(buffer, 0, len);
+                unflushed = true;
+                return len > 0;
+            } catch (IOException e) {
+                /* typically the stream was closed because the process was destroyed */
+                log.debug("srcdeps: Could not read a process stream", e);
+                finish();
+                return false;
+            }
+        }
+    }
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final OutputPump INSTANCE = new OutputPump();
+
+    private static final Logger log = LoggerFactory.getLogger(OutputPump.class);
+
+    /** The maximal number of streams polled by the pump thread; further streams get a blocking reader thread */
+    private static final int MAX_PUMPED_STREAMS = 64;
+
+    /** The longest time the pump parks when no stream had any data */
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    /** The shortest time the pump parks when no stream had any data */
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    /**
+     * @return the {@link OutputPump} singleton
+     */
+    public static OutputPump getInstance() {
+        return INSTANCE;
+    }
+
+    private final BlockingQueue<Registration> incoming = new LinkedBlockingQueue<>();
+
+    /** The number of streams registered with the pump thread that were not finished yet */
+    private final AtomicInteger pumped = new AtomicInteger();
+
+    /** Guarded by {@code this} */
+    private Thread thread;
+
+    OutputPump() {
+        super();
+    }
+
+    /**
+     * Starts copying the given {@code in} stream of the given {@code process} to the given {@code capture}.
+     *
+     * @param process the process whose stream should be copied
+     * @param in      the stream to copy, either {@link Process#getInputStream()} or {@link Process#getErrorStream()}
+     * @param capture where to copy the data
+     * @return a new {@link Registration} that can be used to wait for the end of the stream
+     */
+    public Registration register(Process process, InputStream in, OutputCapture capture) {
+        final Registration result = new Registration(process, in, capture);
+        if (pumped.incrementAndGet() > MAX_PUMPED_STREAMS) {
+            pumped.decrementAndGet();
+            final Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    result.drain(new byte[BUFFER_SIZE]);
+                }
+            }, "srcdeps-output-reader");
+            reader.setDaemon(true);
+            reader.start();
+        } else {
+            incoming.add(result);
+            LockSupport.unpark(ensureStarted());
+        }
+        return result;
+    }
+
+    /**
+     * Makes the pump thread poll its streams immediately, e.g. because a process has just exited and its streams
+     * can be finished.
+     */
+    public void wakeUp() {
+        final Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    private synchronized Thread ensureStarted() {
+        if (thread == null) {
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    pumpForever();
+                }
+            }, "srcdeps-output-pump");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return thread;
+    }
+
+    private void pumpForever() {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final List<Registration> active = new ArrayList<>();
+        long idleNanos = MIN_IDLE_NANOS;
+        while (true) {
+            try {
+                if (active.isEmpty()) {
+                    active.add(incoming.take());
+                }
+                incoming.drainTo(active);
+                boolean any = false;
+                for (Iterator<Registration> it = active.iterator(); it.hasNext();) {
+                    final Registration registration = it.next();
+                    if (registration.pump(buffer)) {
+                        any = true;
+                    } else if (registration.isFinished()) {
+                        it.remove();
+                        pumped.decrementAndGet();
+                    }
+                }
+                if (any) {
+                    idleNanos = MIN_IDLE_NANOS;
+                } else {
+                    LockSupport.parkNanos(this, idleNanos);
+                    idleNanos = Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+                }
+            } catch (InterruptedException e) {
+                /* nobody interrupts this thread; keep pumping */
+                log.debug("srcdeps: Ignoring an interrupt of the output pump", e);
+            } catch (RuntimeException e) {
+                log.warn("srcdeps: Unexpected exception in the output pump", e);
+            }
+        }
+    }
+
+}
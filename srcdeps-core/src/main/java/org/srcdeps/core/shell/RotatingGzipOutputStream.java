@@ -0,0 +1,157 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.shell;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@link OutputStream} compressing its content into a gzip file that is rotated once a given number of
+ * uncompressed bytes was written to it. Given {@code build.log.gz} the current file is {@code build.log.gz}, the most
+ * recently rotated one is {@code build.log.1.gz}, the one before {@code build.log.2.gz} etc.
+ * <p>
+ * The compressor is sync flushed on {@link #flush()} and by {@link #write(byte[], int, int)} at most once per
+ * {@link #SYNC_FLUSH_INTERVAL_NANOS}, so that the current file can be inspected with {@code zcat} or {@code zless}
+ * while it is still being written without degrading the compression ratio by flushing every small write.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ * @since 4.0.4
+ */
+class RotatingGzipOutputStream extends OutputStream {
+
+    private static final String GZ_SUFFIX = ".gz";
+
+    /** The minimal time between two sync flushes done by {@link #write(byte[], int, int)} */
+    private static final long SYNC_FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * @param file a file path, possibly lacking the {@code .gz} suffix
+     * @return the given {@code file} with the {@code .gz} suffix
+     */
+    static Path withGzSuffix(Path file) {
+        final String name = file.getFileName().toString();
+        return name.endsWith(GZ_SUFFIX) ? file : file.resolveSibling(name + GZ_SUFFIX);
+    }
+
+    private final Path baseFile;
+    private GZIPOutputStream delegate;
+    private final Path file;
+    private long lastFlushNanos;
+    private final int maxFiles;
+    private final long rotateBytes;
+    private long written;
+
+    /**
+     * @param file        the current file; the {@code .gz} suffix is appended if necessary
+     * @param rotateBytes the number of uncompressed bytes after which the current file is rotated
+     * @param maxFiles    the number of rotated files to keep
+     * @throws IOException if the file cannot be created
+     */
+    RotatingGzipOutputStream(Path file, long rotateBytes, int maxFiles) throws IOException {
+        super();
+        this.file = withGzSuffix(file);
+        final String name = this.file.getFileName().toString();
+        this.baseFile = this.file.resolveSibling(name.substring(0, name.length() - GZ_SUFFIX.length()));
+        this.rotateBytes = rotateBytes;
+        this.maxFiles = maxFiles;
+        final Path parent = this.file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate != null) {
+            delegate.close();
+            delegate = null;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        delegate.flush();
+        lastFlushNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the current file
+     */
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * @param index the index of a rotated file, starting with {@code 1}
+     * @return the path of the rotated file with the given index
+     */
+    Path getRotatedFile(int index) {
+        return baseFile.resolveSibling(baseFile.getFileName().toString() + "." + index + GZ_SUFFIX);
+    }
+
+    private void open() throws IOException {
+        delegate = new GZIPOutputStream(Files.newOutputStream(file), 8192, true);
+        written = 0;
+        lastFlushNanos = System.nanoTime();
+    }
+
+    private void rotate() throws IOException {
+        close();
+        if (maxFiles == 0) {
+            Files.delete(file);
+        } else {
+            Files.deleteIfExists(getRotatedFile(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                final Path rotated = getRotatedFile(i);
+                if (Files.exists(rotated)) {
+                    Files.move(rotated, getRotatedFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, getRotatedFile(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (written >= rotateBytes) {
+                rotate();
+            }
+            final int chunk = (int) Math.min(len, rotateBytes - written);
+            delegate.write(b, off, chunk);
+            written += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+        if (System.nanoTime() - lastFlushNanos >= SYNC_FLUSH_INTERVAL_NANOS) {
+            flush();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+}
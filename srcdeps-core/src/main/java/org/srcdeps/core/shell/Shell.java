@@ -18,7 +18,11 @@ package org.srcdeps.core.shell;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -26,6 +30,9 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.srcdeps.core.BuildException;
+import org.srcdeps.core.metrics.JfrEventType.Event;
+import org.srcdeps.core.metrics.SrcdepsJfrEvents;
+import org.srcdeps.core.shell.OutputPump.Registration;
 
 /**
  * A utility for executing {@link ShellCommand}s.
@@ -59,6 +66,31 @@ public class Shell {
             process.destroy();
         }
 
+        /**
+         * Registers those streams of the underlying {@link Process} that were redirected to {@link Redirect#PIPE}
+         * with {@link OutputPump}.
+         *
+         * @param capture   the {@link OutputCapture} to pump the streams to or {@code null} if there is nothing to
+         *                  capture
+         * @param redirects the {@link IoRedirects} the underlying {@link Process} was started with
+         * @return the list of {@link Registration}s, possibly empty
+         * @since 4.0.4
+         */
+        public List<Registration> pump(OutputCapture capture, IoRedirects redirects) {
+            if (capture == null) {
+                return Collections.emptyList();
+            }
+            final List<Registration> result = new ArrayList<>(2);
+            final OutputPump pump = OutputPump.getInstance();
+            if (redirects.getStdout().type() == Redirect.Type.PIPE) {
+                result.add(pump.register(process, process.getInputStream(), capture));
+            }
+            if (!redirects.isErr2Out() && redirects.getStderr().type() == Redirect.Type.PIPE) {
+                result.add(pump.register(process, process.getErrorStream(), capture));
+            }
+            return result;
+        }
+
         public CommandResult waitFor(long timeout, TimeUnit unit, String[] cmdArray)
                 throws CommandTimeoutException, InterruptedException {
             final long startMillisTime = System.currentTimeMillis();
@@ -124,10 +156,16 @@ public class Shell {
         }
     }
 
+    /** How long to wait for {@link OutputPump} to drain the pipes of a finished process */
+    private static final long DRAIN_TIMEOUT_MS = 10000;
+
     private static final Logger log = LoggerFactory.getLogger(Shell.class);
 
     /**
      * Executes the given {@link ShellCommand} synchronously.
+     * <p>
+     * The streams redirected to {@link Redirect#PIPE} are captured as set in {@link IoRedirects#getCapture()} and if
+     * the command fails, the tail of the captured output is passed to the {@link BadExitCodeException}.
      *
      * @param command the command to execute
      * @return the {@link CommandResult} that can be used to determine if the execution was successful
@@ -154,10 +192,52 @@ public class Shell {
         if (!env.isEmpty()) {
             builder.environment().putAll(env);
         }
+        final Event event = SrcdepsJfrEvents.PROCESS.begin() //
+                .set("command", cmdArrayString) //
+                .set("workingDirectory", command.getWorkingDirectory().toString());
+        final OutputCapture capture;
+        try {
+            capture = redirects.getCapture() == null ? null : new OutputCapture(redirects.getCapture());
+        } catch (IOException e) {
+            throw new BuildException(String.format("Could not capture the output of command [%s] to [%s]",
+                    cmdArrayString, redirects.getCapture().getFile()), e);
+        }
         try (CommandProcess process = new CommandProcess(builder.start())) {
-            return process.waitFor(command.getTimeoutMs(), TimeUnit.MILLISECONDS, cmdArray).assertSuccess();
+            final List<Registration> registrations = process.pump(capture, redirects);
+            final CommandResult result = process.waitFor(command.getTimeoutMs(), TimeUnit.MILLISECONDS, cmdArray);
+            event.set("exitCode", result.getExitCode());
+            awaitDrained(registrations, cmdArrayString);
+            if (capture != null && result.getExitCode() != 0) {
+                throw new BadExitCodeException(cmdArray, result.getExitCode(), capture.getTail());
+            }
+            return result.assertSuccess();
+        } catch (CommandTimeoutException e) {
+            event.set("timedOut", true);
+            throw e;
         } catch (IOException | InterruptedException e) {
             throw new BuildException(String.format("Could not start command [%s]", cmdArrayString), e);
+        } finally {
+            event.commit();
+            if (capture != null) {
+                capture.close();
+            }
+        }
+    }
+
+    private static void awaitDrained(List<Registration> registrations, String cmdArrayString)
+            throws InterruptedException {
+        if (registrations.isEmpty()) {
+            return;
+        }
+        /* the process has exited: let the pump notice it now rather than after its current park */
+        OutputPump.getInstance().wakeUp();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MS);
+        for (Registration registration : registrations) {
+            if (!registration.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("srcdeps: The output of command [{}] was not drained within [{}] ms", cmdArrayString,
+                        DRAIN_TIMEOUT_MS);
+                return;
+            }
         }
     }
 
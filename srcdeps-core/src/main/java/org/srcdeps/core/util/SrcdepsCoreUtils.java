@@ -23,14 +23,17 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystemException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -98,6 +101,26 @@ public class SrcdepsCoreUtils {
      * @throws IOException
      */
     public static void copyDirectory(final Path src, final Path destination) throws IOException {
+        copyDirectory(src, destination, false);
+    }
+
+    /**
+     * Copy the given {@code src} directory to the given {@code destination} directory, optionally hardlinking the
+     * files rather than copying them, see {@link #linkOrCopy(Path, Path)}.
+     * <p>
+     * Note that a hardlinked file shares its content with the source file: any in-place modification of one of them
+     * is visible through the other one. Hardlinks are thus suitable only for files that are replaced rather than
+     * modified in place.
+     *
+     * @param src         the directory to copy
+     * @param destination where to copy
+     * @param preferLinks if {@code true}, {@link #linkOrCopy(Path, Path)} is used to create the files in
+     *                    {@code destination}; otherwise the files are copied
+     * @throws IOException
+     * @since 4.0.4
+     */
+    public static void copyDirectory(final Path src, final Path destination, final boolean preferLinks)
+            throws IOException {
         Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
             @Override
             public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
@@ -108,12 +131,62 @@ public class SrcdepsCoreUtils {
 
             @Override
             public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-                Files.copy(file, destination.resolve(src.relativize(file)));
+                if (preferLinks) {
+                    linkOrCopy(file, destination.resolve(src.relativize(file)));
+                } else {
+                    Files.copy(file, destination.resolve(src.relativize(file)));
+                }
                 return FileVisitResult.CONTINUE;
             }
         });
     }
 
+    /**
+     * Copies the given {@code src} file to {@code dest} using {@link FileChannel#transferTo(long, long,
+     * java.nio.channels.WritableByteChannel)} which lets the operating system copy the bytes without passing them
+     * through the Java heap. An existing {@code dest} is deleted first so that the content of its former inode (that
+     * may be shared with other hardlinks) is never altered.
+     *
+     * @param src  the file to copy
+     * @param dest the file to create
+     * @throws IOException on I/O problems
+     * @since 4.0.4
+     */
+    public static void transferCopy(Path src, Path dest) throws IOException {
+        Files.deleteIfExists(dest);
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(dest, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    /**
+     * Creates {@code dest} as a hardlink of {@code src} if both are on the same file store and the file store
+     * supports hardlinks; otherwise copies {@code src} to {@code dest} using {@link #transferCopy(Path, Path)}. An
+     * existing {@code dest} is deleted first so that the content of its former inode is never altered.
+     *
+     * @param src  the file to link or copy
+     * @param dest the file to create
+     * @return {@code true} if a hardlink was created, {@code false} if the file was copied
+     * @throws IOException on I/O problems
+     * @since 4.0.4
+     */
+    public static boolean linkOrCopy(Path src, Path dest) throws IOException {
+        Files.deleteIfExists(dest);
+        try {
+            Files.createLink(dest, src);
+            return true;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            /* different file stores or no hardlink support */
+        }
+        transferCopy(src, dest);
+        return false;
+    }
+
     /**
      * Deletes a file or directory recursively if it exists.
      *
@@ -226,6 +299,38 @@ public class SrcdepsCoreUtils {
         }
     }
 
+    /**
+     * Looks up the first of the given {@code executableNames} in the directories listed in the {@code PATH}
+     * environment variable.
+     *
+     * @param executableNames the file names to look for, e.g. {@code "mvnd"}
+     * @return the {@link Path} of the first executable found or {@code null} if none of the given
+     *         {@code executableNames} is available on {@code PATH}
+     * @since 4.0.4
+     */
+    public static Path findExecutableOnPath(String... executableNames) {
+        final String pathEnv = System.getenv("PATH");
+        if (pathEnv == null) {
+            return null;
+        }
+        for (String dir : pathEnv.split(File.pathSeparator)) {
+            if (dir.isEmpty()) {
+                continue;
+            }
+            for (String executableName : executableNames) {
+                try {
+                    final Path candidate = Paths.get(dir, executableName);
+                    if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                        return candidate;
+                    }
+                } catch (InvalidPathException e) {
+                    /* ignore malformed PATH entries */
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * @return the file system path to the Java binary that runs the current Java process
      */
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core;
+
+import java.nio.file.Path;
+
+import org.srcdeps.core.BuildRequest.BuildRequestBuilder;
+import org.srcdeps.core.config.scalar.CharStreamSource;
+
+/**
+ * {@link BuildRequest} fixtures shared by tests.
+ *
+ * @author <a href="https://github.com/ppalaga">Peter Palaga</a>
+ */
+public class TestBuildRequests {
+
+    /**
+     * @param targetDir       the directory the request is checked out under; its subdirectory named after
+     *                        {@code scmRepositoryId} becomes the {@link BuildRequest#getProjectRootDirectory()}
+     * @param scmRepositoryId the {@link BuildRequest#getScmRepositoryId()} to set; also used to derive a
+     *                        {@code git:file:///} URL
+     * @param srcVersion      the {@link SrcVersion} string to set
+     * @return a new {@link BuildRequestBuilder} with all mandatory fields set, to be further customized by the caller
+     */
+    public static BuildRequestBuilder builder(Path targetDir, String scmRepositoryId, String srcVersion) {
+        return BuildRequest.builder() //
+                .scmRepositoryId(scmRepositoryId) //
+                .dependentProjectRootDirectory(targetDir) //
+                .projectRootDirectory(targetDir.resolve(scmRepositoryId)) //
+                .scmUrl("git:file:///" + scmRepositoryId) //
+                .srcVersion(SrcVersion.parse(srcVersion)) //
+                .versionsMavenPluginVersion("2.3") //
+                .gradleModelTransformer(CharStreamSource.defaultModelTransformer());
+    }
+
+    private TestBuildRequests() {
+        super();
+    }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildBatch;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.BuildService;
+import org.srcdeps.core.MavenLocalRepository;
+import org.srcdeps.core.ScmException;
+import org.srcdeps.core.ScmService;
+import org.srcdeps.core.TestBuildRequests;
+import org.srcdeps.core.impl.DefaultBuildScheduler;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class BuildCacheTest {
+
+    /**
+     * A fake {@link BuildService} "installing" a jar and a pom to the local Maven repository.
+     */
+    static class InstallingBuildService implements BuildService {
+        private final AtomicInteger count = new AtomicInteger();
+        private final Path repoRoot;
+
+        InstallingBuildService(Path repoRoot) {
+            super();
+            this.repoRoot = repoRoot;
+        }
+
+        @Override
+        public void build(BuildRequest request) throws BuildException {
+            try {
+                install(repoRoot, request.getVersion());
+                count.incrementAndGet();
+            } catch (IOException e) {
+                throw new BuildException("Could not install", e);
+            }
+        }
+    }
+
+    /**
+     * A fake {@link ScmService} counting the checkouts and returning a fixed commit id.
+     */
+    static class CountingScmService implements ScmService {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public String checkout(BuildRequest request) throws ScmException {
+            count.incrementAndGet();
+            return COMMIT_ID;
+        }
+    }
+
+    private static final String COMMIT_ID = "0123456789abcdef0123456789abcdef01234567";
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(BuildCacheTest.class.getSimpleName()).toAbsolutePath();
+
+    private static Path artifactDir(Path repoRoot, String version) {
+        return repoRoot.resolve("org/example/lib").resolve(version);
+    }
+
+    private static void install(Path repoRoot, String version) throws IOException {
+        final Path dir = artifactDir(repoRoot, version);
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("lib-" + version + ".jar"), "jar".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("lib-" + version + ".pom"), "pom".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void storeAndRestoreViaRemote() throws IOException {
+        final Path root = targetDir.resolve("storeAndRestoreViaRemote");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(root);
+        final BuildCacheBackend remote = new FileSystemBuildCacheBackend(root.resolve("remote"));
+
+        final BuildRequest request = TestBuildRequests.builder(targetDir, "lib", "1.0-SRC-tag-1.0").build();
+        final Path repo1 = root.resolve("agent1/repository");
+        install(repo1, request.getVersion());
+        final BuildCache cache1 = BuildCache.builder() //
+                .localDirectory(root.resolve("agent1/cache")) //
+                .localMavenRepository(new MavenLocalRepository(repo1)) //
+                .remote(remote) //
+                .build();
+        Assert.assertEquals(2, cache1.store(request, COMMIT_ID));
+
+        /* a fresh agent with empty local repository and empty local cache */
+        final Path repo2 = root.resolve("agent2/repository");
+        final BuildCache cache2 = BuildCache.builder() //
+                .localDirectory(root.resolve("agent2/cache")) //
+                .localMavenRepository(new MavenLocalRepository(repo2)) //
+                .remote(remote) //
+                .build();
+        Assert.assertEquals(COMMIT_ID, cache2.lookupCommitId(request));
+        Assert.assertFalse(cache2.restore(request, "ffffffffffffffffffffffffffffffffffffffff"));
+        Assert.assertTrue(cache2.restore(request, COMMIT_ID));
+
+        final Path dir = artifactDir(repo2, request.getVersion());
+        Assert.assertEquals("jar",
+                new String(Files.readAllBytes(dir.resolve("lib-1.0-SRC-tag-1.0.jar")), StandardCharsets.UTF_8));
+        Assert.assertTrue(Files.exists(dir.resolve("lib-1.0-SRC-tag-1.0.pom")));
+    }
+
+    @Test
+    public void linkedRestoreIsVerified() throws IOException {
+        final Path root = targetDir.resolve("linkedRestoreIsVerified");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(root);
+        final BuildCacheBackend remote = new FileSystemBuildCacheBackend(root.resolve("remote"));
+        final BuildRequest request = TestBuildRequests.builder(targetDir, "lib", "1.0-SRC-tag-1.0").build();
+        final Path repo = root.resolve("repository");
+        install(repo, request.getVersion());
+        final BuildCache cache = BuildCache.builder() //
+                .localDirectory(root.resolve("cache")) //
+                .localMavenRepository(new MavenLocalRepository(repo)) //
+                .remote(remote) //
+                .build();
+        cache.store(request, COMMIT_ID);
+
+        SrcdepsCoreUtils.deleteDirectory(repo);
+        Assert.assertTrue(cache.restore(request, COMMIT_ID));
+        final Path jar = artifactDir(repo, request.getVersion()).resolve("lib-1.0-SRC-tag-1.0.jar");
+        final Path cachedJar = artifactDir(cache.getEntryDirectory(request.getHash(), COMMIT_ID),
+                request.getVersion()).resolve("lib-1.0-SRC-tag-1.0.jar");
+        Assert.assertTrue(Files.isSameFile(jar, cachedJar));
+
+        /* modify the restored jar in place: the shared cache entry gets corrupted */
+        Files.write(jar, "corrupted".getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse(cache.verify(cache.getEntryDirectory(request.getHash(), COMMIT_ID)));
+
+        /* the corrupted local entry is evicted and the good one re-downloaded from the remote */
+        Assert.assertTrue(cache.restore(request, COMMIT_ID));
+        Assert.assertEquals("jar", new String(Files.readAllBytes(jar), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void mutableVersionHasNoCommitId() throws IOException {
+        final Path root = targetDir.resolve("mutableVersionHasNoCommitId");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(root);
+        final BuildRequest request = TestBuildRequests.builder(targetDir, "lib", "1.0-SRC-branch-master").build();
+        final Path repo = root.resolve("repository");
+        install(repo, request.getVersion());
+        final BuildCache cache = BuildCache.builder() //
+                .localDirectory(root.resolve("cache")) //
+                .localMavenRepository(new MavenLocalRepository(repo)) //
+                .build();
+        cache.store(request, COMMIT_ID);
+        Assert.assertNull(cache.lookupCommitId(request));
+        Assert.assertTrue(cache.restore(request, COMMIT_ID));
+    }
+
+    @Test
+    public void schedulerSkipsCheckoutAndBuild() throws IOException, BuildException {
+        final Path root = targetDir.resolve("schedulerSkipsCheckoutAndBuild");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(root);
+        final BuildCacheBackend remote = new FileSystemBuildCacheBackend(root.resolve("remote"));
+
+        for (String agent : Arrays.asList("agent1", "agent2")) {
+            final Path repo = root.resolve(agent).resolve("repository");
+            final BuildCache cache = BuildCache.builder() //
+                    .localDirectory(root.resolve(agent).resolve("cache")) //
+                    .localMavenRepository(new MavenLocalRepository(repo)) //
+                    .remote(remote) //
+                    .build();
+            final CountingScmService scmService = new CountingScmService();
+            final InstallingBuildService buildService = new InstallingBuildService(repo);
+            final BuildRequest request = TestBuildRequests.builder(targetDir, "lib", "1.0-SRC-revision-" + COMMIT_ID)
+                    .build();
+            new DefaultBuildScheduler(scmService, buildService)
+                    .build(BuildBatch.builder().request(request).buildCache(cache).build());
+
+            final int expected = "agent1".equals(agent) ? 1 : 0;
+            Assert.assertEquals(expected, scmService.count.get());
+            Assert.assertEquals(expected, buildService.count.get());
+            Assert.assertTrue(Files.exists(artifactDir(repo, request.getVersion())));
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildRequest.Verbosity;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.config.scalar.CharStreamSource;
+import org.srcdeps.core.config.scalar.Duration;
+import org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor;
+import org.srcdeps.core.config.tree.walk.OverrideVisitor;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class ConfigurationCacheTest {
+
+    /**
+     * A {@link ConfigurationReader} ignoring its input and counting its invocations.
+     */
+    static class CountingReader implements ConfigurationReader {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Configuration.Builder read(Reader reader) throws ConfigurationException {
+            count.incrementAndGet();
+            return config();
+        }
+    }
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(ConfigurationCacheTest.class.getSimpleName()).toAbsolutePath();
+
+    private static Configuration.Builder config() {
+        return Configuration.builder() //
+                .sourcesDirectory(Paths.get("sources")) //
+                .forwardProperty("my.prop") //
+                .verbosity(Verbosity.debug) //
+                .buildTimeout(new Duration(32, TimeUnit.MINUTES)) //
+                .buildVersionPattern(Pattern.compile("1\\..*")) //
+                .repository( //
+                        ScmRepository.builder() //
+                                .id("org.repo1") //
+                                .include("org.example*") //
+                                .exclude("org.example:excluded") //
+                                .url("git:https://github.com/example/repo1.git") //
+                                .buildArgument("-Dfoo=bar") //
+                                .buildRef(SrcVersion.parseRef("tag-1.0")) //
+                                .gradle(ScmRepositoryGradle.builder()
+                                        .modelTransformer(CharStreamSource.of("literal: println 'hi'"))) //
+                ) //
+                .repository( //
+                        ScmRepository.builder() //
+                                .id("org.repo2") //
+                                .include("org.other") //
+                                .url("git:https://github.com/example/repo2.git") //
+                );
+    }
+
+    private static Configuration.Builder resolve(Properties props) {
+        return config() //
+                .accept(new DefaultsAndInheritanceVisitor()) //
+                .accept(new OverrideVisitor(props));
+    }
+
+    @Test
+    public void key() {
+        final byte[] content = "configModelVersion: 2.5".getBytes(StandardCharsets.UTF_8);
+        final Properties props = new Properties();
+        props.setProperty("user.dir", "/home/me");
+        final String key = ConfigurationCache.key(content, props);
+        Assert.assertEquals(key, ConfigurationCache.key(content, new Properties()));
+        props.setProperty("srcdeps.skip", "true");
+        Assert.assertNotEquals(key, ConfigurationCache.key(content, props));
+        Assert.assertNotEquals(key,
+                ConfigurationCache.key("configModelVersion: 2.4".getBytes(StandardCharsets.UTF_8), new Properties()));
+    }
+
+    @Test
+    public void resolve() throws ConfigurationException, IOException {
+        final Path dir = targetDir.resolve("resolve");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        SrcdepsCoreUtils.ensureDirectoryExists(dir.resolve("project"));
+        Files.write(dir.resolve("project/srcdeps.yaml"), "ignored".getBytes(StandardCharsets.UTF_8));
+        final ConfigurationCache cache = new ConfigurationCache(dir.resolve("cache"));
+
+        final Properties props = new Properties();
+        props.setProperty("srcdeps.repositories[org.repo2].skipTests", "false");
+        props.setProperty("my.prop", "my-value");
+        final Configuration expected = resolve(props).build();
+
+        final CountingReader reader = new CountingReader();
+        final ConfigurationLocator locator = new ConfigurationLocator(props, false);
+        final Configuration miss = locator.resolve(dir.resolve("project"), reader, cache);
+        Assert.assertEquals(1, reader.count.get());
+        Assert.assertEquals(expected, miss);
+        Assert.assertEquals("my-value", miss.getForwardPropertyValues().get("my.prop"));
+
+        props.setProperty("my.prop", "other-value");
+        final Configuration hit = locator.resolve(dir.resolve("project"), reader, cache);
+        Assert.assertEquals(1, reader.count.get());
+        Assert.assertEquals(expected, hit);
+        Assert.assertFalse(hit.getRepositories().get(1).isSkipTests());
+        Assert.assertEquals("other-value", hit.getForwardPropertyValues().get("my.prop"));
+
+        props.setProperty("srcdeps.repositories[org.repo2].skipTests", "true");
+        Assert.assertTrue(locator.resolve(dir.resolve("project"), reader, cache).getRepositories().get(1).isSkipTests());
+        Assert.assertEquals(2, reader.count.get());
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final Path dir = targetDir.resolve("roundTrip");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final ConfigurationCache cache = new ConfigurationCache(dir);
+        final Configuration.Builder resolved = resolve(new Properties());
+        Assert.assertNull(cache.get("key1"));
+        cache.put("key1", resolved);
+
+        final Configuration.Builder loaded = cache.get("key1");
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals(Verbosity.debug, loaded.verbosity.getValue());
+        Assert.assertEquals(SrcVersion.getBranchMaster(), loaded.buildRef.getValue());
+        Assert.assertEquals(resolved.build(), loaded.build());
+    }
+
+    @Test
+    public void stale() throws IOException {
+        final Path dir = targetDir.resolve("stale");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final ConfigurationCache cache = new ConfigurationCache(dir);
+        Files.write(dir.resolve("key1.bin"), new byte[] { 1, 2, 3 });
+        Assert.assertNull(cache.get("key1"));
+        Assert.assertFalse(Files.exists(dir.resolve("key1.bin")));
+    }
+
+}
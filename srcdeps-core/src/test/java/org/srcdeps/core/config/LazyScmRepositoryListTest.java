@@ -0,0 +1,99 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.ConfigurationQueryService;
+import org.srcdeps.core.config.tree.walk.DefaultsAndInheritanceVisitor;
+
+public class LazyScmRepositoryListTest {
+
+    private static Configuration.Builder config() {
+        final Configuration.Builder config = Configuration.builder();
+        for (int i = 0; i < 100; i++) {
+            config.repository(ScmRepository.builder() //
+                    .id("org.repo" + i) //
+                    .include("org.group" + i) //
+                    .include("org.shared:artifact" + i) //
+                    .url("file:///repo" + i) //
+            );
+        }
+        config.repository(ScmRepository.builder() //
+                .id("org.wildcard") //
+                .include("org.group*:wildcard-artifact") //
+                .url("file:///wildcard") //
+        );
+        return config.accept(new DefaultsAndInheritanceVisitor());
+    }
+
+    @Test
+    public void getLiteralGroupIds() {
+        Assert.assertEquals(Arrays.asList("org.a", "org.b"),
+                LazyScmRepositoryList.getLiteralGroupIds(Arrays.asList("org.a", "org.b:artifact:1.0")));
+        Assert.assertNull(LazyScmRepositoryList.getLiteralGroupIds(Arrays.asList("org.a", "org.b*")));
+        Assert.assertNull(LazyScmRepositoryList.getLiteralGroupIds(Collections.<String> emptyList()));
+    }
+
+    @Test
+    public void lazy() {
+        final Configuration configuration = config().lazyRepositories(true).build();
+        final LazyScmRepositoryList repositories = (LazyScmRepositoryList) configuration.getRepositories();
+        Assert.assertEquals(101, repositories.size());
+        Assert.assertEquals(0, repositories.getBuiltCount());
+
+        final ConfigurationQueryService service = new ConfigurationQueryService(configuration);
+        Assert.assertEquals("org.repo42",
+                service.findScmRepo("org.group42", "any", "1.0").assertSuccess().getRepository().getId());
+        /* org.repo42 is the first candidate and it matches */
+        Assert.assertEquals(1, repositories.getBuiltCount());
+
+        Assert.assertEquals("org.wildcard", service.findScmRepo("org.group-other", "wildcard-artifact", "1.0")
+                .assertSuccess().getRepository().getId());
+        Assert.assertEquals(2, repositories.getBuiltCount());
+
+        Assert.assertEquals("org.repo7",
+                service.findScmRepo("org.shared", "artifact7", "1.0").assertSuccess().getRepository().getId());
+        Assert.assertNull(service.findScmRepo("org.shared", "artifact-none", "1.0").getRepository());
+        Assert.assertNull(service.findScmRepo("com.other", "any", "1.0").getRepository());
+
+        Assert.assertSame(repositories.get(42), repositories.get(42));
+        Assert.assertEquals(config().build(), configuration);
+        Assert.assertEquals(101, repositories.getBuiltCount());
+    }
+
+    @Test
+    public void sameAsEager() {
+        final Configuration eager = config().build();
+        Assert.assertFalse(eager.getRepositories() instanceof LazyScmRepositoryList);
+
+        final Configuration lazy = config().lazyRepositories(true).build();
+
+        final ConfigurationQueryService eagerService = new ConfigurationQueryService(eager);
+        final ConfigurationQueryService lazyService = new ConfigurationQueryService(lazy);
+        for (String[] gav : new String[][] { { "org.group3", "a", "1" }, { "org.group3", "wildcard-artifact", "1" },
+                { "org.group-x", "wildcard-artifact", "1" }, { "org.shared", "artifact99", "1" },
+                { "org.shared", "artifact100", "1" } }) {
+            Assert.assertEquals(eagerService.findScmRepo(gav[0], gav[1], gav[2]).getRepository(),
+                    lazyService.findScmRepo(gav[0], gav[1], gav[2]).getRepository());
+        }
+    }
+
+}
@@ -103,6 +103,33 @@ public class OverrideTest {
 
     }
 
+    @Test
+    public void overrideAmongManyRepositories() {
+
+        Configuration.Builder config = Configuration.builder();
+        for (int i = 0; i < 1000; i++) {
+            config.repository(ScmRepository.builder() //
+                    .id("org.repo" + i) //
+                    .include("org.example" + i) //
+                    .url("file:///whereever" + i) //
+            );
+        }
+
+        Properties props = new Properties();
+        props.put("srcdeps.repositories[org.repo500].urls[0]", "file:///here");
+        props.put("srcdepsX.skip", "true");
+        config.accept(new OverrideVisitor(props));
+
+        Assert.assertEquals(Collections.singletonList("file:///here"),
+                config.repositories.getChildren().get("org.repo500").urls.asListOfValues());
+        Assert.assertEquals(Collections.singletonList("file:///whereever499"),
+                config.repositories.getChildren().get("org.repo499").urls.asListOfValues());
+        Assert.assertEquals(Collections.singletonList("file:///whereever501"),
+                config.repositories.getChildren().get("org.repo501").urls.asListOfValues());
+        Assert.assertNotEquals(Boolean.TRUE, config.skip.getValue());
+
+    }
+
     @Test
     public void overrideBoolean() {
 
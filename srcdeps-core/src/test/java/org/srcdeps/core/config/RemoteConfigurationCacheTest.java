@@ -0,0 +1,169 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.srcdeps.core.config.scalar.Duration;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class RemoteConfigurationCacheTest {
+
+    /**
+     * Serves {@link #content} with an {@code ETag} derived from {@link #version} and honors {@code If-None-Match}.
+     */
+    static class ConfigHandler implements HttpHandler {
+        private volatile String content = "configModelVersion: 2.5";
+        private final AtomicInteger notModified = new AtomicInteger();
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile int version = 1;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            final String etag = "\"v" + version + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+            exchange.close();
+        }
+
+        void update(String content) {
+            this.content = content;
+            this.version++;
+        }
+    }
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(RemoteConfigurationCacheTest.class.getSimpleName()).toAbsolutePath();
+
+    private static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private final ConfigHandler handler = new ConfigHandler();
+    private HttpServer server;
+    private String url;
+
+    @After
+    public void after() {
+        server.stop(0);
+    }
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/srcdeps.yaml", handler);
+        server.start();
+        url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/srcdeps.yaml";
+    }
+
+    private RemoteConfigurationCache cache(String name, Duration maxAge, Duration staleWhileRevalidate)
+            throws IOException {
+        final Path dir = targetDir.resolve(name);
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        return RemoteConfigurationCache.builder() //
+                .directory(dir) //
+                .maxAge(maxAge) //
+                .staleWhileRevalidate(staleWhileRevalidate) //
+                .connectTimeout(new Duration(2, TimeUnit.SECONDS)) //
+                .readTimeout(new Duration(2, TimeUnit.SECONDS)) //
+                .build();
+    }
+
+    @Test
+    public void conditionalRequest() throws IOException {
+        final Duration zero = new Duration(0, TimeUnit.MILLISECONDS);
+        final RemoteConfigurationCache cache = cache("conditionalRequest", zero, zero);
+
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+        Assert.assertEquals(2, handler.requests.get());
+        Assert.assertEquals(1, handler.notModified.get());
+
+        handler.update("configModelVersion: 2.4");
+        Assert.assertEquals("configModelVersion: 2.4", string(cache.get(url)));
+        Assert.assertEquals(3, handler.requests.get());
+        Assert.assertEquals(1, handler.notModified.get());
+    }
+
+    @Test
+    public void fresh() throws IOException {
+        final RemoteConfigurationCache cache = cache("fresh", new Duration(1, TimeUnit.HOURS),
+                new Duration(0, TimeUnit.MILLISECONDS));
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+        handler.update("configModelVersion: 2.4");
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+        Assert.assertEquals(1, handler.requests.get());
+    }
+
+    @Test
+    public void offline() throws IOException {
+        final Duration zero = new Duration(0, TimeUnit.MILLISECONDS);
+        final RemoteConfigurationCache cache = cache("offline", zero, zero);
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+
+        server.stop(0);
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+
+        try {
+            cache("offlineEmpty", zero, zero).get(url);
+            Assert.fail("IOException expected");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void staleWhileRevalidate() throws IOException, InterruptedException {
+        final RemoteConfigurationCache cache = cache("staleWhileRevalidate", new Duration(0, TimeUnit.MILLISECONDS),
+                new Duration(1, TimeUnit.HOURS));
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+
+        handler.update("configModelVersion: 2.4");
+        /* served from the cache while revalidating in the background */
+        Assert.assertEquals("configModelVersion: 2.5", string(cache.get(url)));
+        cache.awaitRevalidation(url, 10000);
+        Assert.assertEquals(2, handler.requests.get());
+
+        Assert.assertEquals("configModelVersion: 2.4", string(cache.get(url)));
+    }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.ConfigurationQueryService;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class WatchingConfigurationProviderTest {
+
+    /**
+     * A {@link ConfigurationReader} reading one {@code id=include} repository per line.
+     */
+    static class LineReader implements ConfigurationReader {
+        @Override
+        public Configuration.Builder read(Reader reader) throws ConfigurationException {
+            final Configuration.Builder result = Configuration.builder();
+            try (BufferedReader in = new BufferedReader(reader)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    final int eq = line.indexOf('=');
+                    result.repository(ScmRepository.builder() //
+                            .id(line.substring(0, eq)) //
+                            .include(line.substring(eq + 1)) //
+                            .url("git:" + line.substring(0, eq)));
+                }
+            } catch (IOException e) {
+                throw new ConfigurationException(e);
+            }
+            return result;
+        }
+    }
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(WatchingConfigurationProviderTest.class.getSimpleName()).toAbsolutePath();
+
+    private static void awaitReloads(WatchingConfigurationProvider provider, int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 30000;
+        while (provider.getReloadCount() < count) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail(String.format("Expected [%d] reloads within 30 seconds, got [%d]", count,
+                        provider.getReloadCount()));
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static String findRepoId(WatchingConfigurationProvider provider, String groupId) {
+        final ScmRepository result = provider.getQueryService().findScmRepo(groupId, "artifact", "1.0")
+                .getRepository();
+        return result == null ? null : result.getId();
+    }
+
+    @Test
+    public void noReloadAfterClose() throws ConfigurationException, IOException, InterruptedException {
+        final Path dir = targetDir.resolve("noReloadAfterClose");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final Path srcdepsYaml = dir.resolve("srcdeps.yaml");
+        Files.write(srcdepsYaml, "repo1=org.repo1\n".getBytes(StandardCharsets.UTF_8));
+
+        final WatchingConfigurationProvider provider = WatchingConfigurationProvider.start(dir,
+                new ConfigurationLocator(new Properties(), false), new LineReader());
+        final ConfigurationQueryService service = provider.getQueryService();
+        provider.close();
+
+        Files.write(srcdepsYaml, "repo1=org.repo1.changed\n".getBytes(StandardCharsets.UTF_8));
+        Thread.sleep(500);
+        Assert.assertEquals(0, provider.getReloadCount());
+        Assert.assertSame(service, provider.getQueryService());
+    }
+
+    @Test
+    public void reload() throws ConfigurationException, IOException, InterruptedException {
+        final Path dir = targetDir.resolve("reload");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final Path srcdepsYaml = dir.resolve("srcdeps.yaml");
+        Files.write(srcdepsYaml, "repo1=org.repo1\nrepo2=org.repo2\n".getBytes(StandardCharsets.UTF_8));
+
+        try (WatchingConfigurationProvider provider = WatchingConfigurationProvider.start(dir,
+                new ConfigurationLocator(new Properties(), false), new LineReader())) {
+            Assert.assertEquals("repo1", findRepoId(provider, "org.repo1"));
+            final ConfigurationQueryService oldService = provider.getQueryService();
+            final ScmRepository oldRepo2 = oldService.getConfiguration().getRepositories().get(1);
+
+            Files.write(srcdepsYaml, "repo1=org.repo1.changed\nrepo2=org.repo2\n".getBytes(StandardCharsets.UTF_8));
+            awaitReloads(provider, 1);
+
+            Assert.assertNull(findRepoId(provider, "org.repo1"));
+            Assert.assertEquals("repo1", findRepoId(provider, "org.repo1.changed"));
+            Assert.assertSame(oldRepo2, provider.getConfiguration().getRepositories().get(1));
+
+            /* the old service is still usable */
+            Assert.assertEquals("repo1",
+                    oldService.findScmRepo("org.repo1", "artifact", "1.0").getRepository().getId());
+        }
+    }
+
+}
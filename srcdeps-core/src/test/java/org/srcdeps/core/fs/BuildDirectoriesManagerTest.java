@@ -0,0 +1,128 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.fs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.metrics.BuildPhase;
+import org.srcdeps.core.metrics.InMemoryBuildMetrics;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class BuildDirectoriesManagerTest {
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(BuildDirectoriesManagerTest.class.getSimpleName()).toAbsolutePath();
+
+    private static RevCommit commit(Path dir) throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(dir.toFile()).call()) {
+            Files.write(dir.resolve("README"), "hello".getBytes(StandardCharsets.UTF_8));
+            git.add().addFilepattern("README").call();
+            return git.commit().setMessage("Initial").setAuthor("srcdeps", "srcdeps@example.com").call();
+        }
+    }
+
+    @Test
+    public void seedNewSlot() throws IOException, GitAPIException, BuildException {
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(targetDir);
+        final BuildDirectoriesManager manager = new BuildDirectoriesManager(targetDir,
+                new PathLocker<SrcVersion>());
+        final Path buildHome = Paths.get("org", "example", "lib");
+
+        final RevCommit commit;
+        try (PathLock slot0 = manager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-1.x"))) {
+            Assert.assertEquals("0", slot0.getPath().getFileName().toString());
+            try (PathLock slot1 = manager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-2.x"))) {
+                Assert.assertEquals("1", slot1.getPath().getFileName().toString());
+                commit = commit(slot1.getPath());
+            }
+        }
+
+        /* slot 0 has no git repository yet, so it gets seeded from the unlocked slot 1 */
+        try (PathLock slot0 = manager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-3.x"))) {
+            Assert.assertEquals("0", slot0.getPath().getFileName().toString());
+            try (Git git = Git.open(slot0.getPath().toFile())) {
+                Assert.assertEquals(commit.getId(), git.getRepository().resolve("HEAD"));
+            }
+            final String looseObject = commit.getId().getName();
+            final Path objectPath = Paths.get(".git", "objects", looseObject.substring(0, 2),
+                    looseObject.substring(2));
+            Assert.assertTrue(Files.isSameFile(slot0.getPath().resolveSibling("1").resolve(objectPath),
+                    slot0.getPath().resolve(objectPath)));
+        }
+    }
+
+    @Test
+    public void seedingFailureReleasesSlot() throws IOException, BuildException {
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(targetDir);
+        final InMemoryBuildMetrics metrics = new InMemoryBuildMetrics();
+        final PathLocker<SrcVersion> pathLocker = new PathLocker<SrcVersion>();
+        final BuildDirectoriesManager manager = new BuildDirectoriesManager(targetDir, pathLocker, true, metrics) {
+            @Override
+            boolean seedSlot(Path slot) {
+                throw new IllegalStateException("seeding failed");
+            }
+        };
+        final Path buildHome = Paths.get("org", "example", "lib");
+
+        try {
+            manager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-1.x"));
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertEquals(1, metrics.getHistogram(BuildPhase.lockWait).getCount());
+        Assert.assertEquals(1, metrics.getHistogram(BuildPhase.seed).getCount());
+
+        /* slot 0 must have been released */
+        final BuildDirectoriesManager plainManager = new BuildDirectoriesManager(targetDir, pathLocker);
+        try (PathLock slot0 = plainManager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-2.x"))) {
+            Assert.assertEquals("0", slot0.getPath().getFileName().toString());
+        }
+    }
+
+    @Test
+    public void skipSeedingFromBusySlot() throws IOException, GitAPIException, BuildException {
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(targetDir);
+        final BuildDirectoriesManager manager = new BuildDirectoriesManager(targetDir,
+                new PathLocker<SrcVersion>());
+        final Path buildHome = Paths.get("org", "example", "lib");
+
+        final PathLock slot0 = manager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-1.x"));
+        Assert.assertEquals("0", slot0.getPath().getFileName().toString());
+        try (PathLock slot1 = manager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-2.x"))) {
+            commit(slot1.getPath());
+            slot0.close();
+
+            /* slot 1 is locked, so slot 0 must not be seeded from it */
+            try (PathLock newSlot0 = manager.openBuildDirectory(buildHome, SrcVersion.parseRef("branch-3.x"))) {
+                Assert.assertEquals("0", newSlot0.getPath().getFileName().toString());
+                Assert.assertFalse(Files.exists(newSlot0.getPath().resolve(".git")));
+            }
+        }
+    }
+
+}
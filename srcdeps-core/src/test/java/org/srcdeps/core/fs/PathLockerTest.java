@@ -206,6 +206,60 @@ public class PathLockerTest {
 
     }
 
+    /**
+     * Makes sure that a thread waiting for a path locked for the same version does not block the other threads that
+     * attempt to lock the same path for a distinct version or via {@link PathLocker#tryLockDirectory(Path)}.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void waitingThreadDoesNotBlockOthers() throws Exception {
+
+        final PathLocker<SrcVersion> pathLocker = new PathLocker<>();
+
+        final Path dir1 = lockerDirectory.resolve(UUID.randomUUID().toString());
+        final SrcVersion srcVersion1 = SrcVersion.parse("1.2.3-SRC-revision-deadbeef");
+        final SrcVersion srcVersion2 = SrcVersion.parse("2.3.4-SRC-revision-coffeebabe");
+
+        final Future<PathLock> waitingFuture;
+        try (PathLock lock1 = pathLocker.lockDirectory(dir1, srcVersion1)) {
+            waitingFuture = lockConcurrently(pathLocker, dir1, srcVersion1);
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (!lock1.isWaitedFor()) {
+                Assert.assertTrue("The concurrent thread should wait for lock1",
+                        System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+
+            try {
+                lockConcurrently(pathLocker, dir1, srcVersion2).get(1, TimeUnit.SECONDS);
+                Assert.fail("CannotAcquireLockException expected");
+            } catch (ExecutionException e) {
+                Assert.assertTrue("Should throw CannotAcquireLockException",
+                        CannotAcquireLockException.class.equals(e.getCause().getClass()));
+            }
+
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                executor.submit(new Callable<PathLock>() {
+                    @Override
+                    public PathLock call() throws Exception {
+                        return pathLocker.tryLockDirectory(dir1);
+                    }
+                }).get(1, TimeUnit.SECONDS);
+                Assert.fail("CannotAcquireLockException expected");
+            } catch (ExecutionException e) {
+                Assert.assertTrue("Should throw CannotAcquireLockException",
+                        CannotAcquireLockException.class.equals(e.getCause().getClass()));
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        /* unlocked - the waiting thread must get the lock now */
+        Assert.assertNotNull(waitingFuture.get(1, TimeUnit.SECONDS));
+    }
+
     /**
      * Makes sure that multiple threads of the same Java process cannot lock the same directory at once.
      *
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.GavSet;
+import org.srcdeps.core.TestBuildRequests;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class DeclaredDependenciesTest {
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(DeclaredDependenciesTest.class.getSimpleName()).toAbsolutePath();
+
+    private static BuildRequest request(String version, String gavPattern) {
+        return TestBuildRequests.builder(targetDir, "org.example", version) //
+                .gavSet(GavSet.builder().include(gavPattern).build()) //
+                .build();
+    }
+
+    private static Path write(Path dir, String fileName, String content) throws IOException {
+        SrcdepsCoreUtils.ensureDirectoryExists(dir);
+        return Files.write(dir.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void gradle() throws IOException {
+        final Path root = targetDir.resolve("gradle");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(root);
+        write(root, "gradle.properties", "libVersion = 2.0-SRC-revision-bbbb\n");
+        write(root.resolve("app"), "build.gradle", "dependencies {\n" //
+                + "    compile 'org.a:a-core:1.0-SRC-revision-aaaa'\n" //
+                + "    compile \"org.b:b-core:${libVersion}\"\n" //
+                + "    compile group: 'org.c', name: 'c-core', version: '3.0-SRC-revision-cccc'\n" //
+                + "    // see also org.d:d-core:4.0-SRC-revision-dddd\n" //
+                + "}\n");
+
+        final DeclaredDependencies declared = DeclaredDependencies.scan(root);
+        Assert.assertTrue(declared.dependsOn(request("1.0-SRC-revision-aaaa", "org.a")));
+        Assert.assertTrue(declared.dependsOn(request("2.0-SRC-revision-bbbb", "org.b")));
+        Assert.assertTrue(declared.dependsOn(request("3.0-SRC-revision-cccc", "org.c")));
+        Assert.assertFalse(declared.dependsOn(request("4.0-SRC-revision-dddd", "org.d")));
+    }
+
+    @Test
+    public void maven() throws IOException {
+        final Path root = targetDir.resolve("maven");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(root);
+        write(root, "pom.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                + "<project>\n" //
+                + "  <groupId>org.example</groupId>\n" //
+                + "  <artifactId>example-parent</artifactId>\n" //
+                + "  <version>5.0-SRC-revision-eeee</version>\n" //
+                + "  <!-- 4.0-SRC-revision-dddd is mentioned just in a comment -->\n" //
+                + "  <modules><module>module</module></modules>\n" //
+                + "  <properties><a.version>1.0-SRC-revision-aaaa</a.version></properties>\n" //
+                + "</project>\n");
+        write(root.resolve("module"), "pom.xml", "<project>\n" //
+                + "  <parent>\n" //
+                + "    <groupId>org.example</groupId>\n" //
+                + "    <artifactId>example-parent</artifactId>\n" //
+                + "    <version>5.0-SRC-revision-eeee</version>\n" //
+                + "  </parent>\n" //
+                + "  <artifactId>example-module</artifactId>\n" //
+                + "  <dependencies>\n" //
+                + "    <dependency>\n" //
+                + "      <groupId>org.a</groupId>\n" //
+                + "      <artifactId>a-core</artifactId>\n" //
+                + "      <version>${a.version}</version>\n" //
+                + "    </dependency>\n" //
+                + "    <dependency>\n" //
+                + "      <groupId>org.b</groupId>\n" //
+                + "      <artifactId>b-core</artifactId>\n" //
+                + "      <version>${undefined.version}</version>\n" //
+                + "    </dependency>\n" //
+                + "    <dependency>\n" //
+                + "      <groupId>org.c</groupId>\n" //
+                + "      <artifactId>c-core</artifactId>\n" //
+                + "      <version>3.0-SRC-revision-cccc</version>\n" //
+                + "    </dependency>\n" //
+                + "  </dependencies>\n" //
+                + "</project>\n");
+
+        final DeclaredDependencies declared = DeclaredDependencies.scan(root);
+        Assert.assertTrue(declared.dependsOn(request("1.0-SRC-revision-aaaa", "org.a")));
+        /* the version of org.b cannot be resolved */
+        Assert.assertFalse(declared.dependsOn(request("2.0-SRC-revision-bbbb", "org.b")));
+        /* the version matches but the GAV is not in the GavSet */
+        Assert.assertFalse(declared.dependsOn(request("3.0-SRC-revision-cccc", "org.other")));
+        Assert.assertTrue(declared.dependsOn(request("3.0-SRC-revision-cccc", "org.c")));
+        Assert.assertFalse(declared.dependsOn(request("4.0-SRC-revision-dddd", "org.d")));
+        /* the parent is a project of the scanned tree itself */
+        Assert.assertFalse(declared.dependsOn(request("5.0-SRC-revision-eeee", "org.example")));
+    }
+
+}
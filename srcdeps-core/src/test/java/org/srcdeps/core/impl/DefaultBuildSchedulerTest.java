@@ -0,0 +1,178 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildBatch;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.BuildService;
+import org.srcdeps.core.ScmException;
+import org.srcdeps.core.ScmService;
+import org.srcdeps.core.TestBuildRequests;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class DefaultBuildSchedulerTest {
+
+    /**
+     * A fake {@link BuildService} recording the order of builds and the maximal number of concurrent builds.
+     */
+    static class RecordingBuildService implements BuildService {
+        private final AtomicInteger concurrent = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+        private final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void build(BuildRequest request) throws BuildException {
+            final int c = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(c, Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new BuildException("Interrupted", e);
+            }
+            order.add(request.getScmRepositoryId());
+            concurrent.decrementAndGet();
+        }
+    }
+
+    /**
+     * A fake {@link ScmService} writing a {@code pom.xml} with the given content into the project root directory.
+     */
+    static class PomWritingScmService implements ScmService {
+        private final Map<String, String> poms;
+
+        PomWritingScmService(Map<String, String> poms) {
+            super();
+            this.poms = poms;
+        }
+
+        @Override
+        public String checkout(BuildRequest request) throws ScmException {
+            try {
+                final Path dir = request.getProjectRootDirectory();
+                SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+                final String pom = poms.get(request.getScmRepositoryId());
+                if (pom != null) {
+                    Files.write(dir.resolve("pom.xml"), pom.getBytes(StandardCharsets.UTF_8));
+                }
+                return "commit-" + request.getScmRepositoryId();
+            } catch (IOException e) {
+                throw new ScmException(e);
+            }
+        }
+    }
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(DefaultBuildSchedulerTest.class.getSimpleName()).toAbsolutePath();
+
+    @Test
+    public void cycle() throws BuildException {
+        final BuildRequest a = TestBuildRequests.builder(targetDir, "a", "1.0-SRC-revision-aaaa").build();
+        final BuildRequest b = TestBuildRequests.builder(targetDir, "b", "1.0-SRC-revision-bbbb").build();
+        final BuildBatch batch = BuildBatch.builder() //
+                .request(a) //
+                .request(b) //
+                .dependency(a, b) //
+                .dependency(b, a) //
+                .build();
+        try {
+            new DefaultBuildScheduler(new PomWritingScmService(Collections.<String, String>emptyMap()),
+                    new RecordingBuildService()).build(batch);
+            Assert.fail("BuildException expected");
+        } catch (BuildException expected) {
+            Assert.assertTrue(expected.getMessage().contains("cycle"));
+        }
+    }
+
+    @Test
+    public void inferredDependencies() throws BuildException {
+        final BuildRequest a = TestBuildRequests.builder(targetDir, "a", "1.0-SRC-revision-aaaa").build();
+        final BuildRequest b = TestBuildRequests.builder(targetDir, "b", "2.0-SRC-revision-bbbb").build();
+        final BuildRequest c = TestBuildRequests.builder(targetDir, "c", "3.0-SRC-revision-cccc").build();
+        final BuildRequest d = TestBuildRequests.builder(targetDir, "d", "4.0-SRC-revision-dddd").build();
+
+        final Map<String, String> poms = new HashMap<>();
+        /* a depends on b and c; b depends on d */
+        poms.put("a", "<project><groupId>org.a</groupId><artifactId>a</artifactId><version>1.0</version>" //
+                + "<properties><b.version>2.0-SRC-revision-bbbb</b.version></properties>" //
+                + "<dependencies>" //
+                + "<dependency><groupId>org.b</groupId><artifactId>b</artifactId>" //
+                + "<version>${b.version}</version></dependency>" //
+                + "<dependency><groupId>org.c</groupId><artifactId>c</artifactId>" //
+                + "<version>3.0-SRC-revision-cccc</version></dependency>" //
+                + "</dependencies></project>");
+        poms.put("b", "<project><groupId>org.b</groupId><artifactId>b</artifactId><version>1.0</version>" //
+                + "<build><plugins><plugin><groupId>org.d</groupId><artifactId>d-plugin</artifactId>" //
+                + "<version>4.0-SRC-revision-dddd</version></plugin></plugins></build></project>");
+
+        final RecordingBuildService buildService = new RecordingBuildService();
+        final Map<BuildRequest, String> result = new DefaultBuildScheduler(new PomWritingScmService(poms),
+                buildService).build(BuildBatch.builder() //
+                        .request(a) //
+                        .request(b) //
+                        .request(c) //
+                        .request(d) //
+                        .maxConcurrentBuilds(4) //
+                        .build());
+
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals("commit-a", result.get(a));
+
+        final List<String> order = buildService.order;
+        Assert.assertTrue(order.indexOf("d") < order.indexOf("b"));
+        Assert.assertTrue(order.indexOf("b") < order.indexOf("a"));
+        Assert.assertTrue(order.indexOf("c") < order.indexOf("a"));
+        Assert.assertEquals("a", order.get(3));
+    }
+
+    @Test
+    public void maxConcurrentBuilds() throws BuildException {
+        final BuildBatch.BuildBatchBuilder batch = BuildBatch.builder().maxConcurrentBuilds(2);
+        for (int i = 0; i < 6; i++) {
+            batch.request(TestBuildRequests.builder(targetDir, "r" + i, "1.0-SRC-revision-" + i).build());
+        }
+        final RecordingBuildService buildService = new RecordingBuildService();
+        new DefaultBuildScheduler(new PomWritingScmService(Collections.<String, String>emptyMap()), buildService)
+                .build(batch.build());
+        Assert.assertEquals(6, buildService.order.size());
+        Assert.assertTrue(buildService.maxConcurrent.get() <= 2);
+    }
+
+    @Test
+    public void memoryBudget() {
+        Assert.assertEquals(3, BuildBatch.builder() //
+                .maxConcurrentBuilds(8) //
+                .buildMemoryMb(1000) //
+                .memoryBudgetMb(3500) //
+                .build().getMaxConcurrentBuilds());
+    }
+
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.builder;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.config.Maven;
+import org.srcdeps.core.shell.BadExitCodeException;
+import org.srcdeps.core.shell.CommandTimeoutException;
+import org.srcdeps.core.shell.IoRedirects;
+import org.srcdeps.core.shell.ShellCommand;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class EmbeddedMvnBuilderTest {
+
+    private static final String DONE_PROPERTY = "srcdeps.test.stub.done";
+
+    /**
+     * A stub of the real {@code MavenCli}. It is compiled to the {@code lib/maven-embedder.jar} of a fake Maven home
+     * so that it never appears on the test class path. The {@code hang:<ms>} argument makes it ignore interrupts for
+     * the given time. Like the real {@code MavenCli}, it copies the {@code -D} arguments to the system properties; the
+     * {@code print:<key>} argument prints the value of the given system property.
+     */
+    private static final String MAVEN_CLI_STUB = "" //
+            + "package org.apache.maven.cli;\n" //
+            + "public class MavenCli {\n" //
+            + "    public int doMain(String[] args, String workingDirectory, java.io.PrintStream stdout,\n" //
+            + "            java.io.PrintStream stderr) {\n" //
+            + "        final java.io.PrintStream out = stdout == null ? System.out : stdout;\n" //
+            + "        out.println(\"stub \" + java.util.Arrays.asList(args) + \" in \" + workingDirectory\n" //
+            + "                + \" with \"\n" //
+            + "                + System.getProperty(\"maven.multiModuleProjectDirectory\"));\n" //
+            + "        for (String arg : args) {\n" //
+            + "            if (arg.startsWith(\"-D\")) {\n" //
+            + "                final int eq = arg.indexOf('=');\n" //
+            + "                System.setProperty(eq < 0 ? arg.substring(2) : arg.substring(2, eq),\n" //
+            + "                        eq < 0 ? \"true\" : arg.substring(eq + 1));\n" //
+            + "            } else if (arg.startsWith(\"print:\")) {\n" //
+            + "                out.println(arg.substring(6) + \"=\" + System.getProperty(arg.substring(6)));\n" //
+            + "            }\n" //
+            + "            if (arg.startsWith(\"hang:\")) {\n" //
+            + "                final long end = System.currentTimeMillis() + Long.parseLong(arg.substring(5));\n" //
+            + "                while (System.currentTimeMillis() < end) {\n" //
+            + "                    try {\n" //
+            + "                        Thread.sleep(10);\n" //
+            + "                    } catch (InterruptedException ignored) {\n" //
+            + "                    }\n" //
+            + "                }\n" //
+            + "                System.setProperty(\"" + DONE_PROPERTY + "\", \"true\");\n" //
+            + "            }\n" //
+            + "        }\n" //
+            + "        return java.util.Arrays.asList(args).contains(\"fail\") ? 1 : 0;\n" //
+            + "    }\n" //
+            + "}\n";
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(EmbeddedMvnBuilderTest.class.getSimpleName()).toAbsolutePath();
+
+    private static final Path mavenHome = targetDir.resolve("maven-home");
+    private static final Path project = targetDir.resolve("project");
+
+    /**
+     * Creates a fake Maven home whose {@code lib/maven-embedder.jar} contains just the {@code MavenCli} stub and whose
+     * {@code bin/mvn} just echoes its arguments.
+     */
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+
+        final Path stubSrc = targetDir.resolve("stub-src/org/apache/maven/cli/MavenCli.java");
+        final Path stubClasses = targetDir.resolve("stub-classes");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(stubSrc.getParent());
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(stubClasses);
+        Files.write(stubSrc, MAVEN_CLI_STUB.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals(0, compiler.run(null, null, null, "-d", stubClasses.toString(), stubSrc.toString()));
+
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(mavenHome.resolve("boot"));
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(mavenHome.resolve("lib"));
+        final String classFile = "org/apache/maven/cli/MavenCli.class";
+        try (JarOutputStream jar = new JarOutputStream(
+                Files.newOutputStream(mavenHome.resolve("lib/maven-embedder.jar")))) {
+            jar.putNextEntry(new JarEntry(classFile));
+            jar.write(Files.readAllBytes(stubClasses.resolve(classFile)));
+            jar.closeEntry();
+        }
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(mavenHome.resolve("bin"));
+        final Path mvn = mavenHome.resolve("bin/mvn");
+        Files.write(mvn, "#!/bin/sh\necho \"forked $@\"\n".getBytes(StandardCharsets.UTF_8));
+        mvn.toFile().setExecutable(true);
+
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(project);
+        Files.write(project.resolve("pom.xml"), new byte[0]);
+    }
+
+    private static ShellCommand command(Path log, long timeoutMs, String... args) {
+        return ShellCommand.builder() //
+                .executable(mavenHome.resolve("bin/mvn").toString()) //
+                .arguments(args) //
+                .workingDirectory(project) //
+                .ioRedirects(IoRedirects.builder().stdout(Redirect.to(log.toFile())).stderr(null).build()) //
+                .timeoutMs(timeoutMs) //
+                .build();
+    }
+
+    private static ShellCommand command(Path log, String... args) {
+        return command(log, 60000, args);
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(Maven.getSrcdepsMavenEmbeddedProperty());
+        System.clearProperty(DONE_PROPERTY);
+        EmbeddedMvnBuilder.resetUnusable();
+    }
+
+    @Test
+    public void canBuild() {
+        Assert.assertFalse(new EmbeddedMvnBuilder().canBuild(project));
+        System.setProperty(Maven.getSrcdepsMavenEmbeddedProperty(), mavenHome.toString());
+        Assert.assertTrue(new EmbeddedMvnBuilder().canBuild(project));
+        Assert.assertFalse(new MvnBuilder().canBuild(project));
+        Assert.assertFalse(new MvndBuilder().canBuild(project));
+    }
+
+    @Test
+    public void environmentIsForked() throws BuildException, IOException {
+        Assume.assumeFalse(SrcdepsCoreUtils.isWindows());
+        System.setProperty(Maven.getSrcdepsMavenEmbeddedProperty(), mavenHome.toString());
+        final Path log = targetDir.resolve("environmentIsForked.log");
+        final ShellCommand command = ShellCommand.builder() //
+                .executable(mavenHome.resolve("bin/mvn").toString()) //
+                .arguments("clean") //
+                .workingDirectory(project) //
+                .environment(Collections.singletonMap("JAVA_HOME", "/opt/jdk8")) //
+                .ioRedirects(IoRedirects.builder().stdout(Redirect.to(log.toFile())).stderr(null).build()) //
+                .timeoutMs(60000) //
+                .build();
+        new EmbeddedMvnBuilder().execute(command);
+        Assert.assertEquals("forked clean", new String(Files.readAllBytes(log), StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    public void execute() throws BuildException, IOException {
+        System.setProperty(Maven.getSrcdepsMavenEmbeddedProperty(), mavenHome.toString());
+        final EmbeddedMvnBuilder builder = new EmbeddedMvnBuilder();
+
+        final Path log = targetDir.resolve("execute.log");
+        builder.execute(command(log, "clean", "install"));
+        final String output = new String(Files.readAllBytes(log), StandardCharsets.UTF_8);
+        Assert.assertEquals("stub [clean, install] in " + project + " with " + project, output.trim());
+        Assert.assertNull(System.getProperty("maven.multiModuleProjectDirectory"));
+
+        /* the class loader is cached */
+        Assert.assertSame(builder.getClassLoader(mavenHome), builder.getClassLoader(mavenHome));
+
+        try {
+            builder.execute(command(log, "fail"));
+            Assert.fail("BadExitCodeException expected");
+        } catch (BadExitCodeException expected) {
+            Assert.assertEquals(1, expected.getExitCode());
+        }
+    }
+
+    @Test
+    public void systemPropertiesDoNotLeak() throws BuildException, IOException {
+        System.setProperty(Maven.getSrcdepsMavenEmbeddedProperty(), mavenHome.toString());
+        final EmbeddedMvnBuilder builder = new EmbeddedMvnBuilder();
+        final String oldJavaVersion = System.getProperty("java.version");
+
+        final Path log1 = targetDir.resolve("systemPropertiesDoNotLeak-1.log");
+        builder.execute(command(log1, "-DskipTests", "-Djava.version=0", "print:skipTests", "install"));
+        Assert.assertTrue(new String(Files.readAllBytes(log1), StandardCharsets.UTF_8).contains("skipTests=true"));
+        Assert.assertNull(System.getProperty("skipTests"));
+        Assert.assertEquals(oldJavaVersion, System.getProperty("java.version"));
+
+        final Path log2 = targetDir.resolve("systemPropertiesDoNotLeak-2.log");
+        builder.execute(command(log2, "print:skipTests", "install"));
+        Assert.assertTrue(new String(Files.readAllBytes(log2), StandardCharsets.UTF_8).contains("skipTests=null"));
+    }
+
+    @Test
+    public void timeoutWaitsForTheBuildThread() throws BuildException, IOException {
+        System.setProperty(Maven.getSrcdepsMavenEmbeddedProperty(), mavenHome.toString());
+        final EmbeddedMvnBuilder builder = new EmbeddedMvnBuilder();
+        try {
+            builder.execute(command(targetDir.resolve("timeoutWaits.log"), 200, "hang:1000"));
+            Assert.fail("CommandTimeoutException expected");
+        } catch (CommandTimeoutException expected) {
+        }
+        /*
+         * the global state is restored only after the build thread has ended, hence the property set by the build
+         * thread at its very end is removed
+         */
+        Assert.assertNull(System.getProperty(DONE_PROPERTY));
+        Assert.assertNull(System.getProperty("maven.multiModuleProjectDirectory"));
+        Assert.assertFalse(EmbeddedMvnBuilder.isUnusable());
+        Assert.assertTrue(builder.canBuild(project));
+    }
+
+    @Test
+    public void timeoutWithStuckBuildThread() throws BuildException, IOException, InterruptedException {
+        final String[] keys = { "maven.home", "maven.conf", "maven.multiModuleProjectDirectory" };
+        final String[] oldValues = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            oldValues[i] = System.getProperty(keys[i]);
+        }
+        System.setProperty(Maven.getSrcdepsMavenEmbeddedProperty(), mavenHome.toString());
+        final EmbeddedMvnBuilder builder = new EmbeddedMvnBuilder();
+        builder.setInterruptJoinTimeoutMs(100);
+        try {
+            builder.execute(command(targetDir.resolve("timeoutStuck.log"), 200, "hang:2000"));
+            Assert.fail("CommandTimeoutException expected");
+        } catch (CommandTimeoutException expected) {
+        }
+        Assert.assertNull(System.getProperty(DONE_PROPERTY));
+        Assert.assertTrue(EmbeddedMvnBuilder.isUnusable());
+        Assert.assertFalse(builder.canBuild(project));
+        Assert.assertTrue(new MvnBuilder().canBuild(project));
+
+        /* the stuck build has not restored the global state; let it end and clean up for the other tests */
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (System.getProperty(DONE_PROPERTY) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (oldValues[i] == null) {
+                System.clearProperty(keys[i]);
+            } else {
+                System.setProperty(keys[i], oldValues[i]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.builder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.TestBuildRequests;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class GradleDaemonArgumentsTest {
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(GradleDaemonArgumentsTest.class.getSimpleName()).toAbsolutePath();
+
+    private static BuildRequest request(Path dir, String... buildArguments) {
+        return TestBuildRequests.builder(targetDir, "gradle-project", "1.0-SRC-revision-deadbeef") //
+                .projectRootDirectory(dir) //
+                .buildArguments(buildArguments) //
+                .buildEnvironmentVariable("JAVA_HOME", "/opt/jdk8") //
+                .build();
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(AbstractGradleBuilder.getSrcdepsGradleDaemonProperty());
+        System.clearProperty(AbstractGradleBuilder.getSrcdepsGradleDaemonMaxHeapProperty());
+        System.clearProperty(AbstractGradleBuilder.getSrcdepsGradleDaemonIdleTimeoutProperty());
+    }
+
+    @Test
+    public void daemonMode() throws IOException, BuildException {
+        final Path dir = targetDir.resolve("daemonMode");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        Files.write(dir.resolve("gradle.properties"),
+                "org.gradle.jvmargs=-Xmx2g -XX:MaxMetaspaceSize=256m \"-Dgreeting=hello world\"\n"
+                        .getBytes(StandardCharsets.ISO_8859_1));
+
+        System.setProperty(AbstractGradleBuilder.getSrcdepsGradleDaemonProperty(), "true");
+        System.setProperty(AbstractGradleBuilder.getSrcdepsGradleDaemonMaxHeapProperty(), "512m");
+        System.setProperty(AbstractGradleBuilder.getSrcdepsGradleDaemonIdleTimeoutProperty(), "600000");
+
+        final List<String> args = new GradleBuilder().mergeArguments(request(dir, "--no-daemon"));
+        Assert.assertFalse(args.contains("--no-daemon"));
+        Assert.assertTrue(args.contains("--daemon"));
+        Assert.assertTrue(args.contains("-Dorg.gradle.java.home=/opt/jdk8"));
+        Assert.assertTrue(
+                args.contains("-Dorg.gradle.jvmargs=-XX:MaxMetaspaceSize=256m \"-Dgreeting=hello world\" -Xmx512m"
+                        + " -Dsrcdeps.daemon=true"));
+        Assert.assertTrue(args.contains("-Dorg.gradle.daemon.idletimeout=600000"));
+    }
+
+    @Test
+    public void noDaemonByDefault() throws IOException, BuildException {
+        final Path dir = targetDir.resolve("noDaemonByDefault");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+
+        final List<String> args = new GradleBuilder().mergeArguments(request(dir));
+        Assert.assertTrue(args.contains("--no-daemon"));
+        Assert.assertFalse(args.contains("--daemon"));
+    }
+
+    @Test
+    public void splitJvmArgs() {
+        Assert.assertEquals(Arrays.asList("-Xmx1g", "-Da=b c", "-Dd=it's", "-De="),
+                AbstractGradleBuilder.splitJvmArgs("  -Xmx1g \"-Da=b c\"\t-Dd=\"it's\" -De=''  "));
+        final StringBuilder joined = new StringBuilder();
+        for (String arg : Arrays.asList("-Da=b c", "-Dd=it's", "-De=\"x\"")) {
+            AbstractGradleBuilder.appendJvmArg(joined, arg).append(' ');
+        }
+        Assert.assertEquals(Arrays.asList("-Da=b c", "-Dd=it's", "-De=\"x\""),
+                AbstractGradleBuilder.splitJvmArgs(joined.toString()));
+    }
+
+    @Test
+    public void unreadableGradleProperties() throws IOException {
+        final Path dir = targetDir.resolve("unreadableGradleProperties");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        /* a directory cannot be read as a file */
+        Files.createDirectories(dir.resolve("gradle.properties"));
+        System.setProperty(AbstractGradleBuilder.getSrcdepsGradleDaemonProperty(), "true");
+        try {
+            new GradleBuilder().mergeArguments(request(dir));
+            Assert.fail("BuildException expected");
+        } catch (BuildException expected) {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().contains("gradle.properties"));
+        }
+    }
+
+}
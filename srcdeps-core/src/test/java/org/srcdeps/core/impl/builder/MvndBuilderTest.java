@@ -0,0 +1,79 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.builder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.config.Maven;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class MvndBuilderTest {
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(MvndBuilderTest.class.getSimpleName()).toAbsolutePath();
+
+    private static Path project(String name, boolean mvnw) throws IOException {
+        final Path dir = targetDir.resolve(name);
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        Files.write(dir.resolve("pom.xml"), new byte[0]);
+        if (mvnw) {
+            Files.write(dir.resolve("mvnw"), new byte[0]);
+        }
+        return dir;
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(Maven.getSrcdepsMavenMvndProperty());
+    }
+
+    @Test
+    public void builderSelection() throws IOException {
+        final Path plain = project("plain", false);
+        final Path wrapped = project("wrapped", true);
+
+        /* mvnd is not used unless the user opts in */
+        Assert.assertFalse(new MvndBuilder().canBuild(plain));
+        Assert.assertTrue(new MvnBuilder().canBuild(plain));
+
+        System.setProperty(Maven.getSrcdepsMavenMvndProperty(), "false");
+        Assert.assertFalse(new MvndBuilder().canBuild(plain));
+        Assert.assertTrue(new MvnBuilder().canBuild(plain));
+        Assert.assertTrue(new MvnwBuilder().canBuild(wrapped));
+
+        System.setProperty(Maven.getSrcdepsMavenMvndProperty(), "/opt/mvnd/bin/mvnd");
+        Assert.assertTrue(new MvndBuilder().canBuild(plain));
+        Assert.assertTrue(new MvndBuilder().canBuild(wrapped));
+        Assert.assertFalse(new MvnBuilder().canBuild(plain));
+        Assert.assertFalse(new MvnwBuilder().canBuild(wrapped));
+    }
+
+    @Test
+    public void daemonStorage() {
+        final Path jdk8 = MvndBuilder.getDaemonStorage("/opt/jdk8", null);
+        Assert.assertEquals(jdk8, MvndBuilder.getDaemonStorage("/opt/jdk8", null));
+        Assert.assertNotEquals(jdk8, MvndBuilder.getDaemonStorage("/opt/jdk11", null));
+        Assert.assertNotEquals(jdk8, MvndBuilder.getDaemonStorage("/opt/jdk8", "/home/me/.m2/settings.xml"));
+    }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.builder;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.config.Maven;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class PomVersionRewriterTest {
+
+    private static final String NEW_VERSION = "1.0-SRC-revision-deadbeef";
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(PomVersionRewriterTest.class.getSimpleName()).toAbsolutePath();
+
+    private static void assertMarkupRejected(String content) {
+        final int hint = content.indexOf("<version>") + "<version>".length();
+        try {
+            PomVersionRewriter.textRange(content, hint, 0, "1.0", Paths.get("pom.xml"));
+            Assert.fail("XMLStreamException expected for " + content);
+        } catch (XMLStreamException expected) {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().contains("comment, a CDATA section"));
+        }
+    }
+
+    private static Path copyReactor(String testName) throws IOException, URISyntaxException {
+        final Path src = Paths.get(PomVersionRewriterTest.class.getResource("/PomVersionRewriter/reactor").toURI());
+        final Path dest = targetDir.resolve(testName);
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dest);
+        SrcdepsCoreUtils.copyDirectory(src, dest);
+        return dest;
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void invalidVersionsMode() {
+        final String key = Maven.getSrcdepsMavenVersionsModeProperty();
+        System.setProperty(key, "inprocess");
+        try {
+            AbstractMvnBuilder.VersionsMode.current();
+            Assert.fail("BuildException expected");
+        } catch (BuildException expected) {
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().contains(key));
+            Assert.assertTrue(expected.getMessage(),
+                    expected.getMessage().contains("[inProcess, versionsMavenPlugin]"));
+        } finally {
+            System.clearProperty(key);
+        }
+    }
+
+    @Test
+    public void markupInVersionRejected() {
+        assertMarkupRejected("<project><version>1.0<!-- </x> --></version></project>");
+        assertMarkupRejected("<project><version><![CDATA[1.0]]></version></project>");
+    }
+
+    @Test
+    public void rewrite() throws IOException, URISyntaxException, BuildException {
+        final Path dir = copyReactor("rewrite");
+        final int changed = new PomVersionRewriter(NEW_VERSION).rewrite(dir);
+        Assert.assertEquals(3, changed);
+
+        final String root = read(dir.resolve("pom.xml"));
+        Assert.assertTrue(root.contains("<artifactId>reactor</artifactId>\n  <version>" + NEW_VERSION + "</version>"));
+        /* the external parent must stay untouched */
+        Assert.assertTrue(root.contains("<artifactId>external-parent</artifactId>\n    <version>7</version>"));
+        /* managed dependency on a reactor module */
+        Assert.assertTrue(root.contains("<version>" + NEW_VERSION + "</version>\n        <groupId>${project.groupId}"));
+        /* external dependency with the same version must stay untouched */
+        Assert.assertTrue(
+                root.contains("<artifactId>external-lib</artifactId>\n        <version>1.0-SNAPSHOT</version>"));
+
+        final String moduleA = read(dir.resolve("module-a/pom.xml"));
+        Assert.assertTrue(moduleA.contains("<artifactId>reactor</artifactId>\n    <version>" + NEW_VERSION + "</version>"));
+
+        final String moduleB = read(dir.resolve("module-b/pom.xml"));
+        Assert.assertFalse(moduleB.contains("1.0-SNAPSHOT"));
+        Assert.assertTrue(moduleB.contains("<version>${project.version}</version>"));
+    }
+
+    @Test
+    public void rewriteKeepsFormatting() throws IOException, URISyntaxException, BuildException {
+        final Path dir = copyReactor("rewriteKeepsFormatting");
+        final String originalB = read(dir.resolve("module-b/pom.xml"));
+        new PomVersionRewriter(NEW_VERSION).rewrite(dir);
+        Assert.assertEquals(originalB.replace("1.0-SNAPSHOT", NEW_VERSION), read(dir.resolve("module-b/pom.xml")));
+
+        /* nothing to change the second time */
+        Assert.assertEquals(0, new PomVersionRewriter(NEW_VERSION).rewrite(dir));
+    }
+
+}
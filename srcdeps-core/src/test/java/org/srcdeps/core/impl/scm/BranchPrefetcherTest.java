@@ -0,0 +1,108 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.impl.scm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.ScmException;
+import org.srcdeps.core.SrcVersion;
+import org.srcdeps.core.config.ScmRepository;
+import org.srcdeps.core.fs.PathLock;
+import org.srcdeps.core.fs.PathLocker;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class BranchPrefetcherTest {
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(BranchPrefetcherTest.class.getSimpleName()).toAbsolutePath();
+
+    private static RevCommit commit(Git git, String content) throws IOException, GitAPIException {
+        final Path dir = git.getRepository().getWorkTree().toPath();
+        Files.write(dir.resolve("README"), content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern("README").call();
+        return git.commit().setMessage(content).setAuthor("srcdeps", "srcdeps@example.com").call();
+    }
+
+    private static ObjectId resolveFetched(Path slot, String remoteUri) throws IOException {
+        try (Git git = Git.open(slot.toFile())) {
+            return git.getRepository()
+                    .resolve("refs/remotes/" + JGitScm.toRemoteAlias(remoteUri) + "/master");
+        }
+    }
+
+    @Test
+    public void nextDelayMs() {
+        Assert.assertEquals(1000, BranchPrefetcher.nextDelayMs(1000, 10000, 0));
+        Assert.assertEquals(2000, BranchPrefetcher.nextDelayMs(1000, 10000, 1));
+        Assert.assertEquals(8000, BranchPrefetcher.nextDelayMs(1000, 10000, 3));
+        Assert.assertEquals(10000, BranchPrefetcher.nextDelayMs(1000, 10000, 4));
+        Assert.assertEquals(10000, BranchPrefetcher.nextDelayMs(1000, 10000, 100));
+    }
+
+    @Test
+    public void prefetchIdleSlots() throws IOException, GitAPIException, ScmException, Exception {
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(targetDir);
+        final Path remoteDir = targetDir.resolve("remote");
+        final String remoteUri = remoteDir.resolve(".git").toUri().toString();
+        final Path sourcesDir = targetDir.resolve("sources");
+
+        final ScmRepository repository = ScmRepository.builder() //
+                .id("org.example") //
+                .url("git:" + remoteUri) //
+                .buildRef(SrcVersion.parseRef("branch-master")) //
+                .skipTests(true) //
+                .addDefaultBuildArguments(true) //
+                .build();
+        final Path slot = sourcesDir.resolve(repository.getIdAsPath()).resolve("0");
+        Git.init().setDirectory(slot.toFile()).call().close();
+
+        final PathLocker<SrcVersion> pathLocker = new PathLocker<>();
+        final BranchPrefetcher prefetcher = BranchPrefetcher.builder() //
+                .rootDirectory(sourcesDir) //
+                .pathLocker(pathLocker) //
+                .repository(repository) //
+                .build();
+
+        try (Git remote = Git.init().setDirectory(remoteDir.toFile()).call()) {
+            final RevCommit first = commit(remote, "first");
+            Assert.assertEquals(1, prefetcher.prefetchAll());
+            Assert.assertEquals(first.getId(), resolveFetched(slot, remoteUri));
+
+            final RevCommit second = commit(remote, "second");
+            try (PathLock lock = pathLocker.lockDirectory(slot, SrcVersion.parseRef("branch-master"))) {
+                /* a slot in use by a build is skipped */
+                Assert.assertEquals(0, prefetcher.prefetchAll());
+                Assert.assertEquals(first.getId(), resolveFetched(slot, remoteUri));
+            }
+            Assert.assertEquals(1, prefetcher.prefetchAll());
+            Assert.assertEquals(second.getId(), resolveFetched(slot, remoteUri));
+        } finally {
+            prefetcher.close();
+        }
+    }
+
+}
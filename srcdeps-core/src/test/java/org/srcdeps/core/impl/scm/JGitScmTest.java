@@ -21,12 +21,16 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.NoHeadException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
 import org.junit.Assert;
 import org.junit.Test;
 import org.srcdeps.core.BuildRequest;
@@ -228,9 +232,162 @@ public class JGitScmTest {
 
     }
 
+    @Test
+    public void fetchedPacks() throws IOException, GitAPIException {
+        final Path dir = targetDir.resolve("jgit-scm-fetched-packs");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final Path upstream = dir.resolve("upstream");
+        try (Git git = Git.init().setDirectory(upstream.toFile()).call()) {
+            Files.write(upstream.resolve("README"), "hello".getBytes(StandardCharsets.UTF_8));
+            git.add().addFilepattern("README").call();
+            git.commit().setMessage("Initial").setAuthor("srcdeps", "srcdeps@example.com").call();
+        }
+
+        try (Git git = Git.init().setDirectory(dir.resolve("downstream").toFile()).call()) {
+            final RefSpec refSpec = new RefSpec("+refs/heads/*:refs/remotes/origin/*");
+            final String url = upstream.toUri().toString();
+            long start = System.currentTimeMillis();
+            FetchResult fetchResult = git.fetch().setRemote(url).setRefSpecs(refSpec).call();
+            JGitScm.FetchedPacks fetched = JGitScm.FetchedPacks.of(git.getRepository(), fetchResult, start);
+            /* a commit, a tree and a blob */
+            Assert.assertEquals(3, fetched.getObjects());
+            Assert.assertTrue(fetched.getBytes() > 0);
+
+            start = System.currentTimeMillis();
+            fetchResult = git.fetch().setRemote(url).setRefSpecs(refSpec).call();
+            fetched = JGitScm.FetchedPacks.of(git.getRepository(), fetchResult, start);
+            Assert.assertEquals(0, fetched.getObjects());
+            Assert.assertEquals(0, fetched.getBytes());
+        }
+    }
+
     @Test
     public void toRemoteAlias() {
         Assert.assertEquals("origin-OracyX45LTLgEE14zEKVWpi-CTg=",
                 JGitScm.toRemoteAlias("https://github.com/srcdeps/srcdeps-test-artifact.git"));
     }
+
+    @Test
+    public void testBundle() throws IOException, ScmException, GitAPIException {
+        final Path localGitRepos = targetDir.resolve("local-git-repos");
+        final Path upstream = localGitRepos.resolve("testBundle-upstream");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(upstream);
+        final String upstreamUri = upstream.resolve(".git").toUri().toString();
+        final Path bundles = targetDir.resolve("testBundle-bundles");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(bundles);
+
+        final String firstCommit;
+        try (Git git = Git.init().setDirectory(upstream.toFile()).call()) {
+            Files.write(upstream.resolve("test.txt"), "first".getBytes(StandardCharsets.UTF_8));
+            git.add().addFilepattern("test.txt").call();
+            firstCommit = git.commit().setMessage("first").setAuthor("srcdeps", "srcdeps@example.com").call()
+                    .getId().getName();
+        }
+
+        final JGitScm jGitScm = new JGitScm();
+        final Path dir0 = targetDir.resolve("test-repo-testBundle-0");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir0);
+        Assert.assertEquals(firstCommit, jGitScm.checkout(bundleRequest(dir0, upstreamUri)));
+
+        final Path bundle = JGitScm.getBundlePath(bundles, "test");
+        jGitScm.exportBundle(dir0, bundle);
+
+        /* import works without the upstream */
+        final Path dir1 = targetDir.resolve("test-repo-testBundle-1");
+        SrcdepsCoreUtils.deleteDirectory(dir1);
+        jGitScm.importBundle(bundle, dir1);
+        try (Git git = Git.open(dir1.toFile())) {
+            Assert.assertEquals(firstCommit, git.getRepository()
+                    .resolve("refs/remotes/" + JGitScm.toRemoteAlias(upstreamUri) + "/master").getName());
+        }
+
+        /* a new checkout directory is seeded from the bundle and then only the new commit is fetched */
+        final String secondCommit;
+        try (Git git = Git.open(upstream.toFile())) {
+            Files.write(upstream.resolve("test.txt"), "second".getBytes(StandardCharsets.UTF_8));
+            git.add().addFilepattern("test.txt").call();
+            secondCommit = git.commit().setMessage("second").setAuthor("srcdeps", "srcdeps@example.com").call()
+                    .getId().getName();
+        }
+        final Path dir2 = targetDir.resolve("test-repo-testBundle-2");
+        SrcdepsCoreUtils.deleteDirectory(dir2);
+        System.setProperty(JGitScm.getSrcdepsScmBundlesProperty(), bundles.toString());
+        try {
+            Assert.assertEquals(secondCommit, jGitScm.checkout(bundleRequest(dir2, upstreamUri)));
+            try (Git git = Git.open(dir2.toFile())) {
+                Assert.assertTrue(git.getRepository().getObjectDatabase().has(ObjectId.fromString(firstCommit)));
+            }
+        } finally {
+            System.clearProperty(JGitScm.getSrcdepsScmBundlesProperty());
+        }
+    }
+
+    private static BuildRequest bundleRequest(Path dir, String uri) {
+        return BuildRequest.builder() //
+                .scmRepositoryId("test") //
+                .srcVersion(SrcVersion.parse("0.0.1-SRC-branch-master")) //
+                .dependentProjectRootDirectory(dir) //
+                .projectRootDirectory(dir) //
+                .scmUrl("git:" + uri) //
+                .versionsMavenPluginVersion(Maven.getDefaultVersionsMavenPluginVersion()) //
+                .gradleModelTransformer(CharStreamSource.defaultModelTransformer()) //
+                .build();
+    }
+
+    @Test
+    public void testSparseCheckout() throws IOException, ScmException, GitAPIException {
+        final Path upstream = targetDir.resolve("local-git-repos").resolve("testSparseCheckout-upstream");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(upstream);
+        final String upstreamUri = upstream.resolve(".git").toUri().toString();
+        final String[] paths = { "pom.xml", "module-a/pom.xml", "module-a/src/A.java", "module-b/pom.xml",
+                "module-b/src/B.java", "module-b/docs/index.md" };
+        try (Git git = Git.init().setDirectory(upstream.toFile()).call()) {
+            for (String path : paths) {
+                final Path file = upstream.resolve(path);
+                Files.createDirectories(file.getParent());
+                Files.write(file, path.getBytes(StandardCharsets.UTF_8));
+                git.add().addFilepattern(path).call();
+            }
+            git.commit().setMessage("first").setAuthor("srcdeps", "srcdeps@example.com").call();
+        }
+
+        final Path dir = targetDir.resolve("test-repo-testSparseCheckout");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final JGitScm jGitScm = new JGitScm();
+
+        /* a full checkout first */
+        jGitScm.checkout(bundleRequest(dir, upstreamUri));
+        for (String path : paths) {
+            Assert.assertTrue(path, Files.exists(dir.resolve(path)));
+        }
+
+        /* the excluded files get removed and the local changes in the included ones get reverted */
+        Files.write(dir.resolve("module-b/src/B.java"), "changed".getBytes(StandardCharsets.UTF_8));
+        final BuildRequest sparseRequest = BuildRequest.builder() //
+                .scmRepositoryId("test") //
+                .srcVersion(SrcVersion.parse("0.0.1-SRC-branch-master")) //
+                .dependentProjectRootDirectory(dir) //
+                .projectRootDirectory(dir) //
+                .scmUrl("git:" + upstreamUri) //
+                .versionsMavenPluginVersion(Maven.getDefaultVersionsMavenPluginVersion()) //
+                .gradleModelTransformer(CharStreamSource.defaultModelTransformer()) //
+                .sparseCheckoutIncludes(Arrays.asList("module-b/")) //
+                .sparseCheckoutExcludes(Arrays.asList("module-b/docs")) //
+                .build();
+        Assert.assertNotEquals(bundleRequest(dir, upstreamUri).getHash(), sparseRequest.getHash());
+        jGitScm.checkout(sparseRequest);
+        Assert.assertTrue(Files.exists(dir.resolve("pom.xml")));
+        Assert.assertFalse(Files.exists(dir.resolve("module-a")));
+        Assert.assertTrue(Files.exists(dir.resolve("module-b/pom.xml")));
+        Assert.assertEquals("module-b/src/B.java",
+                new String(Files.readAllBytes(dir.resolve("module-b/src/B.java")), StandardCharsets.UTF_8));
+        Assert.assertFalse(Files.exists(dir.resolve("module-b/docs")));
+
+        /* back to a full checkout */
+        jGitScm.checkout(bundleRequest(dir, upstreamUri));
+        for (String path : paths) {
+            Assert.assertTrue(path, Files.exists(dir.resolve(path)));
+        }
+    }
+
 }
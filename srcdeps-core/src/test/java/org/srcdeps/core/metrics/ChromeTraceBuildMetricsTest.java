@@ -0,0 +1,148 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.TestBuildRequests;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class ChromeTraceBuildMetricsTest {
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(ChromeTraceBuildMetricsTest.class.getSimpleName()).toAbsolutePath();
+
+    private static int count(String haystack, String needle) {
+        final Matcher m = Pattern.compile(Pattern.quote(needle)).matcher(haystack);
+        int result = 0;
+        while (m.find()) {
+            result++;
+        }
+        return result;
+    }
+
+    private static List<Path> list(Path dir) throws IOException {
+        final List<Path> result = new ArrayList<>();
+        if (Files.exists(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    @After
+    public void after() {
+        System.clearProperty(ChromeTraceBuildMetrics.getSrcdepsTraceDirectoryProperty());
+    }
+
+    @Test
+    public void escape() {
+        Assert.assertEquals("a\\\"b\\\\c\\u000a", ChromeTraceBuildMetrics.escape("a\"b\\c\n"));
+    }
+
+    @Test
+    public void notTracing() throws IOException {
+        final Path dir = targetDir.resolve("notTracing");
+        SrcdepsCoreUtils.deleteDirectory(dir);
+        final ChromeTraceBuildMetrics metrics = new ChromeTraceBuildMetrics();
+        try (Span batch = metrics.start(BuildPhase.batch, (String) null)) {
+            Assert.assertSame(NoOpBuildMetrics.NO_OP_SPAN, metrics.start(BuildPhase.checkout, "a"));
+        }
+        Assert.assertTrue(list(dir).isEmpty());
+    }
+
+    @Test
+    public void trace() throws Exception {
+        final Path dir = targetDir.resolve("trace");
+        SrcdepsCoreUtils.deleteDirectory(dir);
+        System.setProperty(ChromeTraceBuildMetrics.getSrcdepsTraceDirectoryProperty(), dir.toString());
+
+        /* two concurrent requests for the same SCM repository */
+        final BuildRequest a1 = TestBuildRequests.builder(targetDir, "org.example.a", "1.0-SRC-revision-deadbeef")
+                .build();
+        final BuildRequest a2 = TestBuildRequests.builder(targetDir, "org.example.a", "2.0-SRC-revision-deadbeef")
+                .build();
+        final ChromeTraceBuildMetrics metrics = new ChromeTraceBuildMetrics();
+        try (Span batch = metrics.start(BuildPhase.batch, (String) null)) {
+            final Span request1 = metrics.start(BuildPhase.request, a1);
+            final Span request2 = metrics.start(BuildPhase.request, a2);
+            final Thread checkoutThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try (Span checkout = metrics.start(BuildPhase.checkout, a1)) {
+                        try (Span fetch = metrics.start(BuildPhase.fetch, "org.example.a")) {
+                            metrics.count(BuildCounter.fetchedBytes, "org.example.a", 1024);
+                        }
+                    }
+                }
+            }, "test-checkout");
+            checkoutThread.start();
+            checkoutThread.join();
+            try (Span build = metrics.start(BuildPhase.build, a2)) {
+            }
+            request1.close();
+            request2.close();
+            /* not related to any request */
+            try (Span lookup = metrics.start(BuildPhase.configLookup, "org.example:a:1.0")) {
+            }
+        }
+
+        final List<Path> files = list(dir);
+        Assert.assertEquals(1, files.size());
+        final String fileName = files.get(0).getFileName().toString();
+        Assert.assertTrue(fileName, fileName.matches("srcdeps-trace-[0-9]{8}-[0-9]{6}-[0-9]{3}-[0-9]+-[0-9]+\\.json"));
+        final String trace = new String(Files.readAllBytes(files.get(0)), StandardCharsets.UTF_8);
+        Assert.assertTrue(trace, trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        Assert.assertTrue(trace, trace.endsWith("]}\n"));
+
+        /* one complete event per phase except for the requests that are asynchronous */
+        Assert.assertEquals(trace, 5, count(trace, "\"ph\":\"X\""));
+        Assert.assertTrue(trace, trace.contains("{\"name\":\"batch\",\"cat\":\"srcdeps\",\"ph\":\"X\""));
+        Assert.assertTrue(trace, trace.contains("{\"name\":\"fetch\",\"cat\":\"srcdeps\",\"ph\":\"X\""));
+
+        /* the requests and their checkout, fetch and build phases in the async tracks of the requests */
+        Assert.assertEquals(trace, 5, count(trace, "\"ph\":\"b\""));
+        Assert.assertEquals(trace, 5, count(trace, "\"ph\":\"e\""));
+        Assert.assertEquals(trace, 4, count(trace, "{\"name\":\"org.example.a\",\"cat\":\"request\""));
+        Assert.assertEquals(trace, 2, count(trace, "{\"name\":\"checkout\",\"cat\":\"request\",\"ph\":\"b\",\"id\":1,")
+                + count(trace, "{\"name\":\"checkout\",\"cat\":\"request\",\"ph\":\"e\",\"id\":1,"));
+        Assert.assertEquals(trace, 1, count(trace, "{\"name\":\"fetch\",\"cat\":\"request\",\"ph\":\"b\",\"id\":1,"));
+        Assert.assertEquals(trace, 1, count(trace, "{\"name\":\"build\",\"cat\":\"request\",\"ph\":\"b\",\"id\":2,"));
+
+        Assert.assertTrue(trace, trace.contains("\"ph\":\"C\""));
+        Assert.assertTrue(trace, trace.contains("\"args\":{\"total\":1024}"));
+        Assert.assertTrue(trace, trace.contains("\"args\":{\"name\":\"test-checkout\"}"));
+    }
+
+}
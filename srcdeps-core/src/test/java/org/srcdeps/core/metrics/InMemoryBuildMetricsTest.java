@@ -0,0 +1,129 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.srcdeps.core.BuildRequest;
+import org.srcdeps.core.metrics.BuildMetrics.Span;
+import org.srcdeps.core.metrics.InMemoryBuildMetrics.Histogram;
+
+public class InMemoryBuildMetricsTest {
+
+    private static class RecordingBuildMetrics implements BuildMetrics {
+        private final List<String> events;
+        private final String name;
+
+        RecordingBuildMetrics(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public void count(BuildCounter counter, String subject, long delta) {
+            events.add(name + " count " + counter + " " + delta);
+        }
+
+        @Override
+        public Span start(final BuildPhase phase, String subject) {
+            events.add(name + " start " + phase);
+            return new Span() {
+                @Override
+                public void close() {
+                    events.add(name + " close " + phase);
+                }
+            };
+        }
+
+        @Override
+        public Span start(BuildPhase phase, BuildRequest request) {
+            return start(phase, request.getScmRepositoryId());
+        }
+    }
+
+    @Test
+    public void bucketBounds() {
+        for (long value : new long[] { 0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE }) {
+            final int i = Histogram.bucketIndex(value);
+            Assert.assertTrue(value <= Histogram.bucketUpperBound(i));
+            if (i > 0) {
+                Assert.assertTrue(value > Histogram.bucketUpperBound(i - 1));
+            }
+        }
+    }
+
+    @Test
+    public void composite() {
+        Assert.assertSame(NoOpBuildMetrics.INSTANCE,
+                CompositeBuildMetrics.of(Collections.<BuildMetrics> emptyList()));
+        final InMemoryBuildMetrics single = new InMemoryBuildMetrics();
+        Assert.assertSame(single, CompositeBuildMetrics.of(Collections.singleton(single)));
+
+        final List<String> events = new ArrayList<>();
+        final BuildMetrics composite = CompositeBuildMetrics.of(Arrays.<BuildMetrics> asList(
+                new RecordingBuildMetrics("a", events), new RecordingBuildMetrics("b", events)));
+        try (Span span = composite.start(BuildPhase.fetch, "repo")) {
+            composite.count(BuildCounter.fetchedObjects, "repo", 3);
+        }
+        Assert.assertEquals(Arrays.asList( //
+                "a start fetch", //
+                "b start fetch", //
+                "a count fetchedObjects 3", //
+                "b count fetchedObjects 3", //
+                "b close fetch", //
+                "a close fetch" //
+        ), events);
+    }
+
+    @Test
+    public void counters() {
+        final InMemoryBuildMetrics metrics = new InMemoryBuildMetrics();
+        metrics.count(BuildCounter.lockedSlots, "a", 2);
+        metrics.count(BuildCounter.lockedSlots, "b", 3);
+        Assert.assertEquals(5, metrics.getCount(BuildCounter.lockedSlots));
+        Assert.assertEquals(0, metrics.getCount(BuildCounter.fetchedBytes));
+
+        try (Span span = metrics.start(BuildPhase.checkout, "a")) {
+        }
+        Assert.assertEquals(1, metrics.getHistogram(BuildPhase.checkout).getCount());
+        Assert.assertEquals(0, metrics.getHistogram(BuildPhase.build).getCount());
+    }
+
+    @Test
+    public void percentiles() {
+        final Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getPercentileNanos(50));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000000, histogram.getMaxNanos());
+        Assert.assertEquals(500500, histogram.getMeanNanos());
+
+        final long p50 = histogram.getPercentileNanos(50);
+        Assert.assertTrue(String.valueOf(p50), p50 >= 500000 && p50 <= 500000 + 500000 / Histogram.SUB_BUCKETS);
+        final long p99 = histogram.getPercentileNanos(99);
+        Assert.assertTrue(String.valueOf(p99), p99 >= 990000 && p99 <= 1000000);
+        Assert.assertEquals(1000000, histogram.getPercentileNanos(100));
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.metrics;
+
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.srcdeps.core.metrics.JfrEventType.Event;
+import org.srcdeps.core.metrics.JfrEventType.Field;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class JfrEventTypeTest {
+
+    /**
+     * A {@code jdk.jfr.Recording} accessed reflectively, as the tests are compiled for Java 8.
+     */
+    private static class Recording implements Closeable {
+        private final Class<?> recordingClass;
+        private final Object recording;
+
+        Recording(String eventName) throws ReflectiveOperationException {
+            this.recordingClass = Class.forName("jdk.jfr.Recording");
+            this.recording = recordingClass.getConstructor().newInstance();
+            recordingClass.getMethod("enable", String.class).invoke(recording, eventName);
+            recordingClass.getMethod("start").invoke(recording);
+        }
+
+        @Override
+        public void close() {
+            try {
+                recordingClass.getMethod("close").invoke(recording);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * Stops the recording and returns the values of the given {@code field} of all recorded events.
+         */
+        Object[] stopAndRead(Path file, String field) throws Exception {
+            recordingClass.getMethod("stop").invoke(recording);
+            recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+            final List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, file);
+            final Object[] result = new Object[events.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = Class.forName("jdk.jfr.consumer.RecordedObject").getMethod("getValue", String.class)
+                        .invoke(events.get(i), field);
+            }
+            return result;
+        }
+    }
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(JfrEventTypeTest.class.getSimpleName()).toAbsolutePath();
+
+    private static final JfrEventType TEST_EVENT = JfrEventType.create("srcdeps.Test", "Test", "A test event", //
+            new Field(String.class, "text", "Text"), //
+            new Field(long.class, "number", "Number") //
+    );
+
+    @Test
+    public void disabled() {
+        Assert.assertSame(Event.NO_OP, TEST_EVENT.begin());
+        /* no-ops must not fail */
+        Event.NO_OP.set("text", "foo").set("nonExistent", 42).commit();
+    }
+
+    @Test
+    public void record() throws Exception {
+        Assume.assumeTrue("JFR is not available", JfrEventType.isAvailable());
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(targetDir);
+
+        try (Recording recording = new Recording(TEST_EVENT.getName())) {
+            final Event event = TEST_EVENT.begin();
+            Assert.assertNotSame(Event.NO_OP, event);
+            event.set("text", "foo").set("number", 42L).commit();
+            /* unknown fields are ignored */
+            TEST_EVENT.begin().set("text", "bar").set("nonExistent", 42).commit();
+
+            final Path file = targetDir.resolve("record.jfr");
+            Assert.assertArrayEquals(new Object[] { "foo", "bar" }, recording.stopAndRead(file, "text"));
+            Assert.assertTrue(Files.size(file) > 0);
+        }
+    }
+
+}
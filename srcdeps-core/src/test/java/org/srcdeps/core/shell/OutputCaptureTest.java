@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015-2018 Maven Source Dependencies
+ * Plugin contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.srcdeps.core.shell;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.srcdeps.core.BuildException;
+import org.srcdeps.core.util.SrcdepsCoreUtils;
+
+public class OutputCaptureTest {
+
+    private static final Path targetDir = Paths.get(System.getProperty("project.build.directory", "target"))
+            .resolve(OutputCaptureTest.class.getSimpleName()).toAbsolutePath();
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                out.write(buf, 0, len);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void write(OutputCapture capture, String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        capture.write(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void failingCommand() throws BuildException, IOException {
+        Assume.assumeFalse(SrcdepsCoreUtils.isWindows());
+        final Path dir = targetDir.resolve("failingCommand");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final ShellCommand command = ShellCommand.builder() //
+                .executable("sh") //
+                .arguments("-c", "for i in 1 2 3; do echo line $i; done; echo oops >&2; exit 3") //
+                .workingDirectory(dir) //
+                .ioRedirects(IoRedirects.parse("inherit", "capture:" + dir.resolve("build.log"), "capture")) //
+                .timeoutMs(60000) //
+                .build();
+        try {
+            Shell.execute(command);
+            Assert.fail("BadExitCodeException expected");
+        } catch (BadExitCodeException expected) {
+            Assert.assertEquals(3, expected.getExitCode());
+            Assert.assertTrue(expected.getOutputTail(), expected.getOutputTail().contains("line 3"));
+            Assert.assertTrue(expected.getOutputTail(), expected.getOutputTail().contains("oops"));
+            Assert.assertTrue(expected.getMessage(), expected.getMessage().contains("oops"));
+        }
+        final String log = gunzip(dir.resolve("build.log.gz"));
+        Assert.assertTrue(log, log.startsWith("line 1"));
+        Assert.assertTrue(log, log.contains("oops"));
+    }
+
+    @Test
+    public void flush() throws IOException {
+        final Path dir = targetDir.resolve("flush");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final Path file = dir.resolve("build.log.gz");
+        final CaptureSettings settings = CaptureSettings.builder().file(file).tailBytes(16).build();
+        try (OutputCapture capture = new OutputCapture(settings)) {
+            write(capture, "line 1\n");
+            capture.flush();
+            /* the file has no gzip trailer yet, so read until the end of the flushed data */
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                final byte[] buf = new byte[4096];
+                int len;
+                while ((len = in.read(buf)) >= 0) {
+                    out.write(buf, 0, len);
+                }
+            } catch (EOFException expected) {
+            }
+            Assert.assertEquals("line 1\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void rotate() throws IOException {
+        final Path dir = targetDir.resolve("rotate");
+        SrcdepsCoreUtils.ensureDirectoryExistsAndEmpty(dir);
+        final Path file = dir.resolve("build.log");
+        final CaptureSettings settings = CaptureSettings.builder().file(file).rotateBytes(10).maxFiles(2)
+                .tailBytes(16).build();
+        try (OutputCapture capture = new OutputCapture(settings)) {
+            write(capture, "0123456789");
+            write(capture, "abcdefghij");
+            write(capture, "ABCDEFGHIJ");
+            write(capture, "klm");
+            Assert.assertEquals(33, capture.getTotalBytes());
+        }
+        Assert.assertEquals("klm", gunzip(dir.resolve("build.log.gz")));
+        Assert.assertEquals("ABCDEFGHIJ", gunzip(dir.resolve("build.log.1.gz")));
+        Assert.assertEquals("abcdefghij", gunzip(dir.resolve("build.log.2.gz")));
+        Assert.assertFalse(Files.exists(dir.resolve("build.log.3.gz")));
+    }
+
+    @Test
+    public void tail() throws IOException {
+        final CaptureSettings settings = CaptureSettings.builder().tailBytes(16).build();
+        try (OutputCapture capture = new OutputCapture(settings)) {
+            write(capture, "short\n");
+            Assert.assertEquals("short\n", capture.getTail());
+
+            write(capture, "first line\nsecond\nthird\n");
+            /* the partially overwritten "first line" is left out */
+            Assert.assertEquals("second\nthird\n", capture.getTail());
+            Assert.assertEquals(30, capture.getTotalBytes());
+        }
+    }
+
+    @Test
+    public void unusedPipes() {
+        Assert.assertNull(new IoRedirects(Redirect.INHERIT, Redirect.INHERIT, null).getCapture());
+    }
+
+}
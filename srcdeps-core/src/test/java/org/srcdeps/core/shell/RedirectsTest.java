@@ -18,6 +18,7 @@ package org.srcdeps.core.shell;
 
 import java.io.File;
 import java.lang.ProcessBuilder.Redirect;
+import java.nio.file.Paths;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -50,6 +51,33 @@ public class RedirectsTest {
         Assert.assertEquals(Redirect.appendTo(file1), IoRedirects.parseUri("append:" + file1.getPath()));
     }
 
+    @Test
+    public void parseCapture() {
+        Assert.assertEquals(Redirect.PIPE, IoRedirects.parseUri("capture"));
+        Assert.assertEquals(Redirect.PIPE, IoRedirects.parseUri("capture:" + file1.getPath()));
+
+        final IoRedirects rs = IoRedirects.parse("inherit", "capture:" + file1.getPath(), "err2out");
+        Assert.assertEquals(Redirect.PIPE, rs.getStdout());
+        Assert.assertTrue(rs.isErr2Out());
+        Assert.assertEquals(Paths.get(file1.getPath()), rs.getCapture().getFile());
+
+        final IoRedirects defaults = IoRedirects.parse("inherit", "capture", "capture");
+        Assert.assertEquals(CaptureSettings.defaults(), defaults.getCapture());
+        Assert.assertEquals(defaults, new IoRedirects(Redirect.INHERIT, Redirect.PIPE, Redirect.PIPE));
+
+        Assert.assertNull(IoRedirects.parse("inherit", "write:" + file1.getPath(), "err2out").getCapture());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseCaptureStdin() {
+        IoRedirects.parse("capture", "inherit", "inherit");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void captureWithoutPipe() {
+        new IoRedirects(Redirect.INHERIT, Redirect.to(file1), null, CaptureSettings.defaults());
+    }
+
     @Test
     public void parseErr2out() {
         Assert.assertNull(IoRedirects.parseUri("err2out"));